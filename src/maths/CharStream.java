@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+
+/**
+ * Window over a character stream for {@link OperationParser}. Positions are absolute, only the characters from the last released position on are kept.
+ * The stream is either a reader or a byte buffer which is decoded on demand, so a mapped file is never decoded as whole.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+final class CharStream implements CharSequence
+{
+	private final Reader reader;
+	private final ByteBuffer bytes;
+	private final CharsetDecoder decoder;
+	private char buffer[] = new char[0x2000];
+	/** Absolute position of the first character of the buffer */
+	private int offset;
+	private int length;
+	private int released;
+	private boolean eof;
+
+	CharStream(Reader reader)
+	{
+		if (reader == null)
+			throw new NullPointerException();
+		this.reader = reader;
+		this.bytes = null;
+		this.decoder = null;
+	}
+
+	CharStream(ByteBuffer bytes, CharsetDecoder decoder)
+	{
+		if (bytes == null || decoder == null)
+			throw new NullPointerException();
+		this.reader = null;
+		this.bytes = bytes;
+		this.decoder = decoder;
+	}
+
+	/**
+	 * Reads until the position is available or the stream ends
+	 * @return the absolute end of the available characters
+	 */
+	final int fill(int pos)
+	{
+		while (pos >= offset + length && !eof)
+		{
+			final int shift = released - offset;
+			if (shift > 0)
+			{
+				System.arraycopy(buffer, shift, buffer, 0, length - shift);
+				length -= shift;
+				offset = released;
+			}
+			else if (length == buffer.length)
+			{
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			try
+			{
+				read();
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+		return offset + length;
+	}
+
+	private final void read() throws IOException
+	{
+		if (reader != null)
+		{
+			final int read = reader.read(buffer, length, buffer.length - length);
+			if (read < 0)
+				eof = true;
+			else
+				length += read;
+			return;
+		}
+		//The buffer contains the complete input, so it is always decoded as end of the input
+		final CharBuffer out = CharBuffer.wrap(buffer, length, buffer.length - length);
+		CoderResult result = decoder.decode(bytes, out, true);
+		if (result.isUnderflow())
+		{
+			result = decoder.flush(out);
+			eof = result.isUnderflow();
+		}
+		if (result.isError())
+			result.throwException();
+		length = out.position();
+	}
+
+	/**
+	 * Characters before this position are not needed anymore
+	 */
+	final void release(int pos)
+	{
+		released = pos;
+	}
+
+	@Override
+	public final int length()
+	{
+		return offset + length;
+	}
+
+	@Override
+	public final char charAt(int index)
+	{
+		return buffer[index - offset];
+	}
+
+	/**
+	 * The available characters around the position, for error messages
+	 */
+	final String excerpt(int pos)
+	{
+		final int begin = Math.max(offset, Math.min(pos, offset + length) - 40);
+		return new String(buffer, begin - offset, Math.min(offset + length, Math.max(pos, begin) + 40) - begin);
+	}
+
+	@Override
+	public final CharSequence subSequence(int start, int end)
+	{
+		return new String(buffer, start - offset, end - start);
+	}
+
+	@Override
+	public final String toString()
+	{
+		return new String(buffer, 0, length);
+	}
+}
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import maths.OperationCompiler.CompileOptions;
+import maths.data.ArrayOperation;
+import maths.data.MapOperation;
+import maths.exception.OperationParseException;
+
+/**
+ * Bounded cache of compiled expressions, keyed by the source text and the compile options.
+ * A hit returns the same instance which was returned for the first compilation, so the returned trees have to be treated as read only.
+ * Trees which contain arrays or maps are not cached, because an indexed assignment changes them in place.
+ * The cache is thread safe, parsing happens outside of the lock.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class CompileCache
+{
+	public static enum Eviction
+	{
+		/**
+		 * Removes the least recently used expression
+		 */
+		LRU,
+		/**
+		 * Removes the least frequently used expression, the oldest one if there are several
+		 */
+		LFU
+	}
+
+	private static final class Key
+	{
+		private final CharSequence str;
+		private final int begin, end;
+		private final CompileOptions opt;
+		private final int hash;
+
+		private Key(CharSequence str, int begin, int end, CompileOptions opt)
+		{
+			this.str = str;
+			this.begin = begin;
+			this.end = end;
+			this.opt = opt;
+			int hash = opt.hashCode();
+			for (int i = begin; i < end; ++i)
+			{
+				hash = hash * 31 + str.charAt(i);
+			}
+			this.hash = hash;
+		}
+
+		@Override
+		public final int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public final boolean equals(Object o)
+		{
+			if (!(o instanceof Key))
+			{
+				return false;
+			}
+			final Key k = (Key)o;
+			if (k.hash != hash || k.end - k.begin != end - begin || !k.opt.equals(opt))
+			{
+				return false;
+			}
+			for (int i = begin, j = k.begin; i < end; ++i, ++j)
+			{
+				if (str.charAt(i) != k.str.charAt(j))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final class Entry
+	{
+		private final Operation op;
+		private int frequency = 1;
+
+		private Entry(Operation op)
+		{
+			this.op = op;
+		}
+	}
+
+	private final int maxSize;
+	private final Eviction eviction;
+	private final LinkedHashMap<Key, Entry> entries;
+	private final HashMap<Integer, LinkedHashSet<Key>> frequencies;
+	private int minFrequency;
+	private long hits, misses, evictions;
+
+	public CompileCache(int maxSize, Eviction eviction)
+	{
+		if (maxSize < 1)
+		{
+			throw new IllegalArgumentException("Size has to be positive " + maxSize);
+		}
+		if (eviction == null)
+		{
+			throw new NullPointerException();
+		}
+		this.maxSize = maxSize;
+		this.eviction = eviction;
+		this.entries = new LinkedHashMap<>(16, 0.75f, eviction == Eviction.LRU);
+		this.frequencies = eviction == Eviction.LFU ? new HashMap<Integer, LinkedHashSet<Key>>() : null;
+	}
+
+	public final Operation compile(CharSequence str, CompileOptions opt) throws OperationParseException
+	{
+		return compile(str, 0, str.length(), opt);
+	}
+
+	public final Operation compile(CharSequence str, int begin, int end, CompileOptions opt) throws OperationParseException
+	{
+		if (str == null)
+			throw new NullPointerException();
+		Operation op = get(new Key(str, begin, end, opt));
+		if (op != null)
+		{
+			return op;
+		}
+		op = OperationCompiler.parse(str, begin, end, opt);
+		if (isMutable(op))
+		{
+			return op;
+		}
+		return put(new Key(str.subSequence(begin, end).toString(), 0, end - begin, opt.clone()), op);
+	}
+
+	/**
+	 * Searches the tree with an explicit stack, because the trees of long sums are as deep as the number of terms
+	 */
+	private static final boolean isMutable(Operation op)
+	{
+		final ArrayDeque<Operation> stack = new ArrayDeque<>();
+		stack.push(op);
+		while (!stack.isEmpty())
+		{
+			op = stack.pop();
+			if (op instanceof ArrayOperation || op instanceof MapOperation)
+			{
+				return true;
+			}
+			for (int i = 0; i < op.size(); ++i)
+			{
+				stack.push(op.get(i));
+			}
+		}
+		return false;
+	}
+
+	private final synchronized Operation get(Key key)
+	{
+		final Entry entry = entries.get(key);
+		if (entry == null)
+		{
+			++misses;
+			return null;
+		}
+		++hits;
+		if (frequencies != null)
+		{
+			increment(key, entry);
+		}
+		return entry.op;
+	}
+
+	private final synchronized Operation put(Key key, Operation op)
+	{
+		Entry entry = entries.get(key);
+		if (entry != null)
+		{
+			//Compiled concurrently by another thread
+			return entry.op;
+		}
+		if (entries.size() >= maxSize)
+		{
+			evict();
+		}
+		entries.put(key, new Entry(op));
+		if (frequencies != null)
+		{
+			frequency(1).add(key);
+			minFrequency = 1;
+		}
+		return op;
+	}
+
+	private final LinkedHashSet<Key> frequency(int frequency)
+	{
+		LinkedHashSet<Key> keys = frequencies.get(frequency);
+		if (keys == null)
+		{
+			frequencies.put(frequency, keys = new LinkedHashSet<>());
+		}
+		return keys;
+	}
+
+	private final void increment(Key key, Entry entry)
+	{
+		final LinkedHashSet<Key> keys = frequencies.get(entry.frequency);
+		keys.remove(key);
+		if (keys.isEmpty())
+		{
+			frequencies.remove(entry.frequency);
+			if (minFrequency == entry.frequency)
+			{
+				++minFrequency;
+			}
+		}
+		frequency(++entry.frequency).add(key);
+	}
+
+	private final void evict()
+	{
+		++evictions;
+		switch (eviction)
+		{
+			case LRU:
+			{
+				final Iterator<Map.Entry<Key, Entry>> iter = entries.entrySet().iterator();
+				iter.next();
+				iter.remove();
+				return;
+			}
+			case LFU:
+			{
+				final LinkedHashSet<Key> keys = frequencies.get(minFrequency);
+				final Iterator<Key> iter = keys.iterator();
+				entries.remove(iter.next());
+				iter.remove();
+				if (keys.isEmpty())
+				{
+					frequencies.remove(minFrequency);
+				}
+				return;
+			}
+		}
+	}
+
+	public final synchronized void clear()
+	{
+		entries.clear();
+		if (frequencies != null)
+		{
+			frequencies.clear();
+		}
+	}
+
+	public final synchronized int size()
+	{
+		return entries.size();
+	}
+
+	public final int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	public final Eviction getEviction()
+	{
+		return eviction;
+	}
+
+	public final synchronized long getHits()
+	{
+		return hits;
+	}
+
+	public final synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	public final synchronized long getEvictions()
+	{
+		return evictions;
+	}
+
+	@Override
+	public final synchronized String toString()
+	{
+		return "CompileCache(" + eviction + ", size=" + entries.size() + '/' + maxSize + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ')';
+	}
+}
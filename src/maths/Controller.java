@@ -22,23 +22,59 @@
 package maths;
 
 import maths.Operation.CalculationController;
-import maths.algorithm.OperationCalculate;
 import maths.algorithm.OperationCalculate.OperationList;
 import maths.variable.VariableAmount;
-import util.data.Stack;
 
+/**
+ * The settings and the cached lists of a calculation.
+ * A controller can be shared between threads which calculate at the same time.
+ */
 public class Controller implements CalculationController{
 	/**
 	 * Stoppt die berechnung sobald wie moeglich.
 	 * Wird nicht automatisch auf false gesetzt
 	 */
-	private boolean stop = false;
+	private volatile boolean stop = false;
 	public boolean saveMod = false;
-	private boolean calculateRandom = false;
-	private boolean calculateLoop = false;
-	private boolean connectEmptyVariables = false;
-	private final Stack<OperationCalculate.OperationList> cacheOperationList = new Stack<OperationCalculate.OperationList>();
-	public VariableAmount va;
+	private volatile boolean calculateRandom = false;
+	private volatile boolean calculateLoop = false;
+	private volatile boolean connectEmptyVariables = false;
+	public volatile VariableAmount va;
+
+	/**
+	 * Maximal number of cached lists per thread and maximal capacity of a cached list, larger lists are left to the garbage collector
+	 */
+	private static final int MAX_POOL_SIZE = 16, MAX_LIST_CAPACITY = 1024;
+
+	/**
+	 * The lists are cached per thread, so a controller can be shared between threads.
+	 * The thread which created the controller uses its pool without the lookup of the thread local.
+	 */
+	private final Thread owner = Thread.currentThread();
+	private final OperationListPool ownerPool = new OperationListPool();
+	private final ThreadLocal<OperationListPool> threadPool = new ThreadLocal<OperationListPool>(){
+		@Override
+		protected final OperationListPool initialValue(){
+			return new OperationListPool();
+		}
+	};
+
+	private static final class OperationListPool{
+		private final OperationList lists[] = new OperationList[MAX_POOL_SIZE];
+		private int size;
+	}
+
+	public Controller(){}
+
+	/**
+	 * Creates a controller with the same settings, but an own stop flag
+	 */
+	public Controller(CalculationController control){
+		calculateRandom = control.calculateRandom();
+		calculateLoop = control.calculateLoop();
+		connectEmptyVariables = control.connectEmptyVariables();
+		va = control.getVariables();
+	}
 	
 	public final void setStopFlag(boolean value){
 		stop = value;
@@ -72,16 +108,29 @@ public class Controller implements CalculationController{
 		connectEmptyVariables = value;
 	}
 	
+	private final OperationListPool getPool(){
+		return Thread.currentThread() == owner ? ownerPool : threadPool.get();
+	}
+
 	@Override
 	public void returnToChached(OperationList ol){
-		ol.clear();//TODO not threadsafe
-		cacheOperationList.push(ol);	
+		if (ol.capacity() > MAX_LIST_CAPACITY)
+			return;
+		final OperationListPool pool = getPool();
+		if (pool.size < MAX_POOL_SIZE){
+			ol.clear();
+			pool.lists[pool.size++] = ol;
+		}
 	}
 	
 	@Override
 	public OperationList getOperationList(){
-		OperationCalculate.OperationList ol = cacheOperationList.pop();
-		return ol == null ? new OperationList() : ol;
+		final OperationListPool pool = getPool();
+		if (pool.size == 0)
+			return new OperationList();
+		final OperationList ol = pool.lists[--pool.size];
+		pool.lists[pool.size] = null;
+		return ol;
 	}
 
 	@Override
@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths;
+
+import java.util.Arrays;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import maths.data.ArrayOperation;
+import maths.data.RealLongOperation;
+import maths.exception.OperationParseException;
+import maths.functions.AbsoluteOperation;
+import maths.functions.ArgumentOperation;
+import maths.functions.ArrayIndexOperation;
+import maths.functions.BinomCdfOperation;
+import maths.functions.BinomPdfOperation;
+import maths.functions.CallProgramFunction;
+import maths.functions.CholeskyOperation;
+import maths.functions.ConjugateOperation;
+import maths.functions.CreateAffineTransformation;
+import maths.functions.CreateRotationOperation;
+import maths.functions.CumSumOperation;
+import maths.functions.DeterminantenOperation;
+import maths.functions.DifferentiationOperation;
+import maths.functions.ForOperation;
+import maths.functions.FormatOperation;
+import maths.functions.GgtOperation;
+import maths.functions.IfOperation;
+import maths.functions.ImaginaryPartOperation;
+import maths.functions.JavaCommand;
+import maths.functions.KardOperation;
+import maths.functions.KgVOperation;
+import maths.functions.LogarithmOperation;
+import maths.functions.MakeColOperation;
+import maths.functions.MaximumOfArray;
+import maths.functions.MaximumOperation;
+import maths.functions.MinimumOfArray;
+import maths.functions.MinimumOperation;
+import maths.functions.MultipleDifferentiationOperation;
+import maths.functions.NcrOperation;
+import maths.functions.NormOperation;
+import maths.functions.NprOperation;
+import maths.functions.NumericIfOperation;
+import maths.functions.NumericIntegralOperation;
+import maths.functions.RandomListOperation;
+import maths.functions.RandomMatrixOperation;
+import maths.functions.RealPartOperation;
+import maths.functions.RoundOperation;
+import maths.functions.RowReducedEchelonFormOperation;
+import maths.functions.SignOperation;
+import maths.functions.SleepOperation;
+import maths.functions.SolveOperation;
+import maths.functions.SortOperation;
+import maths.functions.SumOfArrayOperation;
+import maths.functions.TaylorPolynomOperation;
+import maths.functions.TransposeOperation;
+import maths.functions.TypeOperation;
+import maths.functions.WhileOperation;
+import maths.functions.atomic.PowerOperation;
+import maths.functions.conversion.CharToStringOperation;
+import maths.functions.conversion.ToCharacterOperation;
+import maths.functions.conversion.ToDoubleOperation;
+import maths.functions.conversion.ToExpressionOperation;
+import maths.functions.conversion.ToLongOperation;
+import maths.functions.conversion.ToStringOperation;
+import maths.functions.hyperbolic.ArcCosinusOperation;
+import maths.functions.hyperbolic.ArcSinusOperation;
+import maths.functions.hyperbolic.ArcTangems2Operation;
+import maths.functions.hyperbolic.ArcTangensOperation;
+import maths.functions.hyperbolic.CosinusHyperbolicOperation;
+import maths.functions.hyperbolic.CosinusOperation;
+import maths.functions.hyperbolic.SinusHyperbolicOperation;
+import maths.functions.hyperbolic.SinusOperation;
+import maths.functions.hyperbolic.TangensHyperbolicOperation;
+import maths.functions.hyperbolic.TangensOperation;
+import maths.functions.interators.CreateListOperation;
+import maths.functions.interators.ProductIteratorOperation;
+import maths.functions.interators.SumIteratorOperation;
+import maths.functions.io.ReadCsvOperation;
+import maths.functions.io.ReadOperation;
+import maths.functions.io.RequestOperation;
+import maths.functions.io.RequestTimeoutOperation;
+import maths.functions.io.WriteCsvOperation;
+import maths.functions.io.WriteOperation;
+import maths.functions.variable.AssignOperation;
+import maths.functions.variable.DefineOperation;
+import maths.functions.variable.DeleteOperation;
+import maths.variable.UserVariableOperation;
+
+/**
+ * Thread safe table of the functions known by the compiler, keyed by name and number of parameters.
+ * Additional functions can be registered at runtime or by implementations of {@link Provider} which are found by the {@link ServiceLoader}.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class FunctionRegistry
+{
+	public static interface Factory
+	{
+		public Operation create(Operation parameter[]) throws OperationParseException;
+	}
+
+	/**
+	 * Service interface, implementations are listed in META-INF/services/maths.FunctionRegistry$Provider
+	 */
+	public static interface Provider
+	{
+		public void register(FunctionRegistry registry);
+	}
+
+	/**
+	 * Factory of a function with the class of the operations it creates, the class is null if it isn't known
+	 */
+	private static final class Entry
+	{
+		private final Factory factory;
+		private final Class<? extends Operation> type;
+
+		private Entry(Factory factory, Class<? extends Operation> type)
+		{
+			this.factory = factory;
+			this.type = type;
+		}
+	}
+
+	private static final Entry EMPTY_ENTRY_ARRAY[] = new Entry[0];
+	private static final FunctionRegistry DEFAULT = new FunctionRegistry();
+	static{
+		registerBuildIn(DEFAULT);
+		DEFAULT.load(FunctionRegistry.class.getClassLoader());
+	}
+
+	/**
+	 * Factories of every name, indexed by the number of parameters. Arrays are never changed after they are published.
+	 */
+	private final ConcurrentHashMap<String, Entry[]> functions = new ConcurrentHashMap<>();
+
+	/**
+	 * The registry used by {@link OperationCompiler}
+	 */
+	public static final FunctionRegistry getDefault()
+	{
+		return DEFAULT;
+	}
+
+	/**
+	 * Registers all providers which can be found with the given class loader
+	 */
+	public final void load(ClassLoader loader)
+	{
+		for (Provider provider : ServiceLoader.load(Provider.class, loader))
+		{
+			provider.register(this);
+		}
+	}
+
+	/**
+	 * @return the factory of the function or null if there is none
+	 */
+	public final Factory get(String name, int arity)
+	{
+		final Entry entry = getEntry(name, arity);
+		return entry == null ? null : entry.factory;
+	}
+
+	/**
+	 * @return the class of the operations which are created by the factory of the function, or null if the function or its class isn't known
+	 */
+	public final Class<? extends Operation> getType(String name, int arity)
+	{
+		final Entry entry = getEntry(name, arity);
+		return entry == null ? null : entry.type;
+	}
+
+	private final Entry getEntry(String name, int arity)
+	{
+		final Entry entries[] = functions.get(name);
+		return entries == null || arity >= entries.length ? null : entries[arity];
+	}
+
+	public final boolean contains(String name, int arity)
+	{
+		return get(name, arity) != null;
+	}
+
+	/**
+	 * Registers a function, an existing function with the same name and number of parameters is replaced
+	 * @return the replaced factory or null
+	 */
+	public final Factory register(String name, int arity, Factory factory)
+	{
+		return set(name, arity, factory, null, true);
+	}
+
+	/**
+	 * Registers a function whose factory creates operations of the given class, an existing function with the same name and number of parameters is replaced.
+	 * The class tells {@link OperationWriter} that operations of this class can be stored by the name of the function.
+	 * @return the replaced factory or null
+	 */
+	public final Factory register(String name, int arity, Class<? extends Operation> type, Factory factory)
+	{
+		if (type == null)
+			throw new NullPointerException();
+		return set(name, arity, factory, type, true);
+	}
+
+	/**
+	 * Registers a function if there is no function with the same name and number of parameters
+	 * @return the existing factory or null if the function was registered
+	 */
+	public final Factory registerIfAbsent(String name, int arity, Factory factory)
+	{
+		return set(name, arity, factory, null, false);
+	}
+
+	/**
+	 * @return the removed factory or null
+	 */
+	public final Factory unregister(String name, int arity)
+	{
+		return set(name, arity, null, null, true);
+	}
+
+	private final Factory set(String name, int arity, Factory factory, Class<? extends Operation> type, boolean replace)
+	{
+		if (name == null)
+			throw new NullPointerException();
+		if (arity < 0)
+			throw new IllegalArgumentException("Negative number of parameters: " + arity);
+		final Factory previous[] = new Factory[1];
+		functions.compute(name, (key, entries) -> {
+			if (entries == null)
+				entries = EMPTY_ENTRY_ARRAY;
+			previous[0] = arity < entries.length && entries[arity] != null ? entries[arity].factory : null;
+			if (previous[0] != null && !replace)
+				return entries;
+			final Entry result[] = Arrays.copyOf(entries, Math.max(entries.length, arity + 1));
+			result[arity] = factory == null ? null : new Entry(factory, type);
+			int length = result.length;
+			while (length > 0 && result[length - 1] == null)
+				--length;
+			return length == 0 ? null : length == result.length ? result : Arrays.copyOf(result, length);
+		});
+		return previous[0];
+	}
+
+	private static final void registerBuildIn(FunctionRegistry registry)
+	{
+		registry.register("rand", 0, SystemFunctions.random.getClass(), p -> SystemFunctions.random);
+		registry.register("gc", 0, SystemFunctions.gc.getClass(), p -> SystemFunctions.gc);
+		registry.register("exit", 0, SystemFunctions.exit.getClass(), p -> SystemFunctions.exit);
+		registry.register("abs", 1, AbsoluteOperation.class, p -> new AbsoluteOperation(p[0]));
+		registry.register("acos", 1, ArcCosinusOperation.class, p -> new ArcCosinusOperation(p[0]));
+		registry.register("arg", 1, ArgumentOperation.class, p -> new ArgumentOperation(p[0]));
+		registry.register("asin", 1, ArcSinusOperation.class, p -> new ArcSinusOperation(p[0]));
+		registry.register("atan", 1, ArcTangensOperation.class, p -> new ArcTangensOperation(p[0]));
+		registry.register("cholesky", 1, CholeskyOperation.class, p -> new CholeskyOperation(p[0]));
+		registry.register("conjugate", 1, ConjugateOperation.class, p -> new ConjugateOperation(p[0]));
+		registry.register("cos", 1, CosinusOperation.class, p -> new CosinusOperation(p[0]));
+		registry.register("cosh", 1, CosinusHyperbolicOperation.class, p -> new CosinusHyperbolicOperation(p[0]));
+		registry.register("compile", 1, ToExpressionOperation.class, p -> new ToExpressionOperation(p[0]));
+		registry.register("char", 1, ToCharacterOperation.class, p -> new ToCharacterOperation(p[0]));
+		registry.register("cbrt", 1, PowerOperation.CubeRootOperation.class, p -> new PowerOperation.CubeRootOperation(p[0]));
+		registry.register("chartostring", 1, CharToStringOperation.class, p -> new CharToStringOperation(p[0]));
+		registry.register("cumsum", 1, CumSumOperation.class, p -> new CumSumOperation(p[0]));
+		registry.register("delete", 1, DeleteOperation.class, p -> new DeleteOperation(p[0]));
+		registry.register("define", 1, DefineOperation.class, p -> new DefineOperation(p[0]));
+		registry.register("det", 1, DeterminantenOperation.class, p -> new DeterminantenOperation(p[0]));
+		registry.register("exp", 1, PowerOperation.ExponentOperation.class, p -> new PowerOperation.ExponentOperation(p[0]));
+		registry.register("float", 1, ToDoubleOperation.class, p -> new ToDoubleOperation(p[0]));
+		registry.register("ifn", 1, NumericIfOperation.class, p -> new NumericIfOperation(p[0]));
+		registry.register("int", 1, ToLongOperation.class, p -> new ToLongOperation(p[0]));
+		registry.register("imag", 1, ImaginaryPartOperation.class, p -> new ImaginaryPartOperation(p[0]));
+		registry.register("java", 1, JavaCommand.class, p -> new JavaCommand(p[0]));
+		registry.register("kard", 1, KardOperation.class, p -> new KardOperation(p[0]));
+		registry.register("log", 1, LogarithmOperation.class, p -> new LogarithmOperation(p[0]));
+		registry.register("min", 1, MinimumOfArray.class, p -> new MinimumOfArray(p[0]));
+		registry.register("max", 1, MaximumOfArray.class, p -> new MaximumOfArray(p[0]));
+		registry.register("norm", 1, NormOperation.class, p -> new NormOperation(p[0]));
+		registry.register("program", 1, p -> ProgramOperation.getInstance(p[0]));
+		registry.register("range", 1, CreateListOperation.class, p -> new CreateListOperation(new UserVariableOperation("tmp"), ArrayOperation.getInstance(new Operation[] {new UserVariableOperation("tmp"), RealLongOperation.ZERO, p[0]})));
+		registry.register("round", 1, RoundOperation.class, p -> new RoundOperation(p[0]));
+		registry.register("randlist", 1, RandomListOperation.class, p -> new RandomListOperation(p[0]));
+		registry.register("request", 1, RequestOperation.class, p -> new RequestOperation(p[0]));
+		registry.register("read", 1, ReadOperation.class, p -> new ReadOperation(p[0]));
+		registry.register("rref", 1, RowReducedEchelonFormOperation.class, p -> new RowReducedEchelonFormOperation(p[0]));
+		registry.register("real", 1, RealPartOperation.class, p -> new RealPartOperation(p[0]));
+		registry.register("string", 1, ToStringOperation.class, p -> new ToStringOperation(p[0]));
+		registry.register("sum", 1, SumOfArrayOperation.class, p -> new SumOfArrayOperation(p[0]));
+		registry.register("sqrt", 1, PowerOperation.SquareRootOperation.class, p -> new PowerOperation.SquareRootOperation(p[0]));
+		registry.register("sin", 1, SinusOperation.class, p -> new SinusOperation(p[0]));
+		registry.register("sinh", 1, SinusHyperbolicOperation.class, p -> new SinusHyperbolicOperation(p[0]));
+		registry.register("sign", 1, SignOperation.class, p -> new SignOperation(p[0]));
+		registry.register("sort", 1, SortOperation.class, p -> new SortOperation(p[0]));
+		registry.register("sleep", 1, SleepOperation.class, p -> new SleepOperation(p[0]));
+		registry.register("tan", 1, TangensOperation.class, p -> new TangensOperation(p[0]));
+		registry.register("tanh", 1, TangensHyperbolicOperation.class, p -> new TangensHyperbolicOperation(p[0]));
+		registry.register("transpose", 1, TransposeOperation.class, p -> new TransposeOperation(p[0]));
+		registry.register("type", 1, TypeOperation.class, p -> new TypeOperation(p[0]));
+		registry.register("diff", 2, DifferentiationOperation.class, p -> new DifferentiationOperation(p[0], p[1]));
+		registry.register("format", 2, FormatOperation.class, p -> new FormatOperation(p[0], p[1]));
+		registry.register("ggt", 2, GgtOperation.class, p -> new GgtOperation(p[0], p[1]));
+		registry.register("kgv", 2, KgVOperation.class, p -> new KgVOperation(p[0], p[1]));
+		registry.register("list", 2, CreateListOperation.class, p -> new CreateListOperation(p[0],p[1]));
+		registry.register("min", 2, MinimumOperation.class, p -> new MinimumOperation(p[0], p[1]));
+		registry.register("max", 2, MaximumOperation.class, p -> new MaximumOperation(p[0], p[1]));
+		registry.register("ncr", 2, NcrOperation.class, p -> new NcrOperation(p[0], p[1]));
+		registry.register("npr", 2, NprOperation.class, p -> new NprOperation(p[0], p[1]));
+		registry.register("prod", 2, ProductIteratorOperation.class, p -> new ProductIteratorOperation(p[0],p[1]));
+		registry.register("range", 2, CreateListOperation.class, p -> new CreateListOperation(new UserVariableOperation("tmp"), ArrayOperation.getInstance(new Operation[] {new UserVariableOperation("tmp"), p[0], p[1]})));
+		registry.register("request", 2, RequestTimeoutOperation.class, p -> new RequestTimeoutOperation(p[0], p[1]));
+		registry.register("randmat", 2, RandomMatrixOperation.class, p -> new RandomMatrixOperation(p[0], p[1]));
+		registry.register("rotmat", 2, CreateRotationOperation.class, p -> new CreateRotationOperation(p[0], p[1]));
+		registry.register("affine", 2, CreateAffineTransformation.class, p -> new CreateAffineTransformation(p[0], p[1]));
+		registry.register("atan2", 2, ArcTangems2Operation.class, p -> new ArcTangems2Operation(p[0],p[1]));
+		registry.register("readcsv", 2, ReadCsvOperation.class, p -> new ReadCsvOperation(p[0], p[1]));
+		registry.register("writecsv", 2, WriteCsvOperation.class, p -> new WriteCsvOperation(p[0], p[1]));
+		registry.register("set", 2, p -> {
+			if (p[0] instanceof UserVariableOperation || p[0] instanceof UserFunctionOperation || p[0] instanceof ArrayIndexOperation)
+				return new AssignOperation(p[1], p[0]);
+			throw new OperationParseException("set(" + p[0] + ',' + p[1] + ')');
+		});
+		registry.register("solve", 2, SolveOperation.class, p -> new SolveOperation(p[0], p[1]));
+		registry.register("sum", 2, SumIteratorOperation.class, p -> new SumIteratorOperation(p[0], p[1]));
+		registry.register("while", 2, WhileOperation.class, p -> new WhileOperation(p[0], p[1]));
+		registry.register("write", 2, WriteOperation.class, p -> new WriteOperation(p[0], p[1]));
+		registry.register("if", 3, IfOperation.class, p -> new IfOperation(p[0], p[1], p[2]));
+		registry.register("binompdf", 3, BinomPdfOperation.class, p -> new BinomPdfOperation(p[0], p[1], p[2]));
+		registry.register("binomcdf", 3, BinomCdfOperation.class, p -> new BinomCdfOperation(p[0], p[1], p[2]));
+		registry.register("diff", 3, MultipleDifferentiationOperation.class, p -> new MultipleDifferentiationOperation(p[0], p[1], p[2]));
+		registry.register("for", 4, ForOperation.class, p -> new ForOperation(p[0], p[1], p[2], p[3]));
+		registry.register("makecol", 4, MakeColOperation.class, p -> new MakeColOperation(p[0], p[1], p[2], p[3]));
+		registry.register("taylor_polynom", 4, TaylorPolynomOperation.class, p -> new TaylorPolynomOperation(p[0], p[1], p[2], p[3]));
+		registry.register("nint", 4, NumericIntegralOperation.class, p -> new NumericIntegralOperation(p[0], p[1], p[2], p[3]));
+		registry.register("java", 4, CallProgramFunction.class, p -> new CallProgramFunction(p[0], p[1], p[2], p[3]));
+		registry.register("writecsv", 4, WriteCsvOperation.class, p -> new WriteCsvOperation(p[0], p[1], p[2], p[3]));
+	}
+}
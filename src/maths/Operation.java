@@ -22,6 +22,7 @@
 package maths;
 
 
+import java.io.IOException;
 import java.util.List;
 
 import maths.algorithm.OperationCalculate.OperationList;
@@ -48,19 +49,32 @@ public abstract class Operation
 	    BITMASK_CHARACTER          = 0x80,
 	    BITMASK_STRING             = 0x100;
 
+	public static final short BITMASK_NUMBER = BITMASK_INT_REAL | BITMASK_RATIONAL_REAL | BITMASK_FLOAT_REAL | BITMASK_INT_COMPLEX | BITMASK_RATIONAL_COMPLEX | BITMASK_FLOAT_COMPLEX;
+
+	/**
+	 * Number types in the order of their bits, from the most special to the most general one
+	 */
+	public static final byte NUMBER_INT_REAL = 0, NUMBER_RATIONAL_REAL = 1, NUMBER_FLOAT_REAL = 2, NUMBER_INT_COMPLEX = 3, NUMBER_RATIONAL_COMPLEX = 4, NUMBER_FLOAT_COMPLEX = 5, NUMBER_NONE = 6;
+	private static final byte NUMBER_TYPES[] = new byte[BITMASK_NUMBER + 1];
+	static{
+		for (int i = 0; i < NUMBER_TYPES.length; ++i)
+			NUMBER_TYPES[i] = i == 0 ? NUMBER_NONE : (byte)Integer.numberOfTrailingZeros(i);
+	}
+
+	/**
+	 * Returns the bits of all is...() methods of this operation which return true.
+	 */
 	public int getTypeBitmask(){
 		return 0;
-		/*return (isRealIntegerNumber() ? BITMASK_INT_REAL : 0)
-				| (isRealRationalNumber() ? BITMASK_RATIONAL_REAL : 0)
-				| (isRealFloatingNumber() ? BITMASK_FLOAT_REAL : 0)
-				| (isComplexIntegerNumber() ? BITMASK_INT_COMPLEX : 0)
-				| (isComplexRationalNumber() ? BITMASK_RATIONAL_COMPLEX : 0)
-				| (isComplexFloatingNumber() ? BITMASK_FLOAT_COMPLEX : 0)
-				| (isBoolean() ? BITMASK_BOOLEAN : 0)
-				| (isCharacter() ? BITMASK_CHARACTER : 0)
-				| (isString() ? BITMASK_STRING : 0);*/
 	}
-//		return BITMASK_INT_REAL | BITMASK_RATIONAL_REAL | BITMASK_FLOAT_REAL | BITMASK_INT_COMPLEX | BITMASK_RATIONAL_COMPLEX | BITMASK_FLOAT_COMPLEX | BITMASK_BOOLEAN | BITMASK_CHARACTER | BITMASK_STRING;
+
+	/**
+	 * Returns the most special number type of the bitmask.
+	 * For the and of the bitmasks of two operations this is the first type both operations belong to, which selects the kernel of a binary operation.
+	 */
+	public static final byte getNumberType(int bitmask){
+		return NUMBER_TYPES[bitmask & BITMASK_NUMBER];
+	}
 
 	public boolean isRealFloatingNumber()	{return false;}
 	public boolean isRealIntegerNumber()	{return false;}
@@ -96,6 +110,23 @@ public abstract class Operation
 
     public abstract Operation calculate (VariableAmount object, CalculationController control);
 
+    /**
+     * Calculates the operation as double, numeric operations override this without creating intermediate results.
+     * The value is the one of calculate(object, control).doubleValue(), but it is rounded like double arithmetic instead of exact integer or rational arithmetic.
+     * Nodes which give a complex result for real operands, like the square root of a negative number, return the real part of the interpreted result.
+     * So the values only differ if a complex intermediate result is used by a function or multiplied with another complex one.
+     */
+    public double calculateDouble (VariableAmount object, CalculationController control){
+    	return calculate(object, control).doubleValue();
+    }
+
+    /**
+     * Calculates the operation as long, the value is the one of calculate(object, control).longValue()
+     */
+    public long calculateLong (VariableAmount object, CalculationController control){
+    	return calculate(object, control).longValue();
+    }
+
     /**
      * Erzeugt einen String aus der Operation.
      * Wird der String wieder zu einer Operation kompiliert so entsteht die gleiche Operation
@@ -128,6 +159,14 @@ public abstract class Operation
      */
     public abstract StringBuilder toString (Print type, StringBuilder stringBuilder);
 
+    /**
+     * Calculation will be written to the given Appendable in small blocks, without building the complete string
+     * @see OperationPrinter
+     */
+    public final void print(Print type, Appendable out) throws IOException{
+    	new OperationPrinter(out, type).print(this).flush();
+    }
+
     /**
      * Returns the priority of the operation.
      * This is important for correct braces
@@ -150,6 +189,8 @@ public abstract class Operation
 
     @Override
 	public boolean equals(Object object){
+    	if (this == object)
+    		return true;
     	if (getClass() != object.getClass())
     		return false;
         Operation op = ((Operation)object);
@@ -161,6 +202,24 @@ public abstract class Operation
         return true;
     }
 
+    /**
+     * Structural hash which is consistent with equals, numbers which are equal have the same hash independent of their type.
+     * The hash isn't cached, because arrays can be changed after their creation
+     */
+    @Override
+	public int hashCode(){
+    	int result = getClass().getName().hashCode();
+    	for (int i=0;i<size();i++)
+    		result = result * 31 + get(i).hashCode();
+    	return result;
+    }
+
+    protected static final int hashNumber(double real, double imag){
+    	//Adding zero maps -0.0 to 0.0, which are equal
+    	final long bits = Double.doubleToLongBits(real + 0.) * 31 + Double.doubleToLongBits(imag + 0.);
+    	return (int)(bits ^ (bits >>> 32));
+    }
+
     public static final Operation[] EMPTY_OPERATION_ARRAY = new Operation[0];
 
     public static interface CalculationController{
@@ -21,8 +21,18 @@
  ******************************************************************************/
 package maths;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import maths.algorithm.MathematicStringUtil;
 import maths.data.ArrayOperation;
@@ -34,61 +44,13 @@ import maths.data.MapOperation;
 import maths.data.RealDoubleOperation;
 import maths.data.RealLongOperation;
 import maths.data.RelationOperation;
-import maths.data.StringOperation;
 import maths.exception.OperationParseException;
-import maths.functions.AbsoluteOperation;
-import maths.functions.ArgumentOperation;
-import maths.functions.ArrayIndexOperation;
-import maths.functions.BinomCdfOperation;
-import maths.functions.BinomPdfOperation;
-import maths.functions.CallProgramFunction;
-import maths.functions.CholeskyOperation;
-import maths.functions.ConjugateOperation;
-import maths.functions.CreateAffineTransformation;
-import maths.functions.CreateRotationOperation;
 import maths.functions.CrossProductOperation;
-import maths.functions.CumSumOperation;
-import maths.functions.DeterminantenOperation;
-import maths.functions.DifferentiationOperation;
-import maths.functions.Faculty;
-import maths.functions.ForOperation;
-import maths.functions.FormatOperation;
-import maths.functions.GgtOperation;
-import maths.functions.IfOperation;
-import maths.functions.ImaginaryPartOperation;
-import maths.functions.JavaCommand;
-import maths.functions.KardOperation;
-import maths.functions.KgVOperation;
-import maths.functions.LogarithmOperation;
-import maths.functions.MakeColOperation;
 import maths.functions.MatrixMultiplication;
-import maths.functions.MaximumOfArray;
-import maths.functions.MaximumOperation;
-import maths.functions.MinimumOfArray;
-import maths.functions.MinimumOperation;
 import maths.functions.Modulo;
-import maths.functions.MultipleDifferentiationOperation;
-import maths.functions.NcrOperation;
-import maths.functions.NormOperation;
-import maths.functions.NprOperation;
-import maths.functions.NumericIfOperation;
-import maths.functions.NumericIntegralOperation;
-import maths.functions.RandomListOperation;
-import maths.functions.RandomMatrixOperation;
-import maths.functions.RealPartOperation;
-import maths.functions.RoundOperation;
-import maths.functions.RowReducedEchelonFormOperation;
 import maths.functions.ScalarProductOpertion;
-import maths.functions.SignOperation;
-import maths.functions.SleepOperation;
-import maths.functions.SolveOperation;
-import maths.functions.SortOperation;
-import maths.functions.SumOfArrayOperation;
-import maths.functions.TaylorPolynomOperation;
 import maths.functions.TransposeOperation;
-import maths.functions.TypeOperation;
 import maths.functions.UnequalsOperation;
-import maths.functions.WhileOperation;
 import maths.functions.atomic.AdditionOperation;
 import maths.functions.atomic.AndOperation;
 import maths.functions.atomic.ConcatOperation;
@@ -108,36 +70,7 @@ import maths.functions.atomic.NotOperation;
 import maths.functions.atomic.OrOperation;
 import maths.functions.atomic.PowerOperation;
 import maths.functions.atomic.SubtractionOperation;
-import maths.functions.conversion.CharToStringOperation;
-import maths.functions.conversion.ToCharacterOperation;
-import maths.functions.conversion.ToDoubleOperation;
-import maths.functions.conversion.ToExpressionOperation;
-import maths.functions.conversion.ToLongOperation;
-import maths.functions.conversion.ToStringOperation;
-import maths.functions.hyperbolic.ArcCosinusOperation;
-import maths.functions.hyperbolic.ArcSinusOperation;
-import maths.functions.hyperbolic.ArcTangems2Operation;
-import maths.functions.hyperbolic.ArcTangensOperation;
-import maths.functions.hyperbolic.CosinusHyperbolicOperation;
-import maths.functions.hyperbolic.CosinusOperation;
-import maths.functions.hyperbolic.SinusHyperbolicOperation;
-import maths.functions.hyperbolic.SinusOperation;
-import maths.functions.hyperbolic.TangensHyperbolicOperation;
-import maths.functions.hyperbolic.TangensOperation;
-import maths.functions.interators.CreateListOperation;
-import maths.functions.interators.ProductIteratorOperation;
-import maths.functions.interators.SumIteratorOperation;
-import maths.functions.io.ReadCsvOperation;
-import maths.functions.io.ReadOperation;
-import maths.functions.io.RequestOperation;
-import maths.functions.io.RequestTimeoutOperation;
-import maths.functions.io.WriteCsvOperation;
-import maths.functions.io.WriteOperation;
 import maths.functions.variable.AssignOperation;
-import maths.functions.variable.DefineOperation;
-import maths.functions.variable.DeleteOperation;
-import maths.variable.UserVariableOperation;
-import maths.variable.Variable;
 import util.StringUtils;
 import util.data.IntegerArrayList;
 
@@ -148,9 +81,11 @@ import util.data.IntegerArrayList;
 */
 public final class OperationCompiler
 {
-    private static final char calculationCharacters[];
+    static final char calculationCharacters[];
     private static final byte calculationCharactersPrirority[];
-	private static ArrayList<ProgramFunction> programFunction = new ArrayList<>();
+	private static volatile CompileCache cache;
+	private static volatile int parallelThreshold = 0x4000;
+	private static final int PARALLEL_GRAIN = 0x1000;
 
 	static{
 	    final char characters[][] = {{Characters.END_COMMAND},
@@ -208,10 +143,13 @@ public final class OperationCompiler
         return new RealDoubleOperation (rechnung);
     }
 
-    public static void addProgramFunction(ProgramFunction pf){
+    /**
+     * Registers a function without parameters, existing functions with the same name are not replaced
+     */
+    public static void addProgramFunction(final ProgramFunction pf){
     	if (pf == null)
     		throw new NullPointerException();
-    	programFunction.add(pf);
+    	FunctionRegistry.getDefault().registerIfAbsent(pf.name, 0, p -> pf);
     }
 
     public static final StringBuilder toString(StringBuilder strB, double values[])
@@ -294,9 +232,44 @@ public final class OperationCompiler
         return calculationCharactersPrirority[Arrays.binarySearch(calculationCharacters, c)];
     }
 
-    public static class CompileOptions
+    public static class CompileOptions implements Cloneable
     {
     	boolean interpret_latex = true;
+
+    	@Override
+    	public CompileOptions clone()
+    	{
+    		try {
+    			return (CompileOptions)super.clone();
+    		} catch (CloneNotSupportedException e) {
+    			throw new RuntimeException(e);
+    		}
+    	}
+
+    	@Override
+    	public boolean equals(Object o)
+    	{
+    		return o instanceof CompileOptions && ((CompileOptions)o).interpret_latex == interpret_latex;
+    	}
+
+    	@Override
+    	public int hashCode()
+    	{
+    		return interpret_latex ? 1 : 0;
+    	}
+    }
+
+    /**
+     * Sets the cache which is used by all compile methods, null disables caching
+     */
+    public static final void setCache(CompileCache cache)
+    {
+    	OperationCompiler.cache = cache;
+    }
+
+    public static final CompileCache getCache()
+    {
+    	return cache;
     }
 
     public static final Operation compile(CharSequence str, CompileOptions opt) throws OperationParseException{
@@ -316,42 +289,140 @@ public final class OperationCompiler
     		throw new NullPointerException();
     	if (end-begin == 0)
     		throw new OperationParseException("");
-    	final StringBuilder res = new StringBuilder(end - begin);
-    	boolean isStr = false, isChar = false;
-    	for (int i=begin;i<end;i++){
-     		final char charAt = str.charAt(i);
-    		switch (charAt){
-    			case '\\':{
-    				res.append(charAt);
-    				if (++i >= str.length())
-        				throw new OperationParseException(str.subSequence(begin, end));
-    				res.append(str.charAt(i));
-    				continue;
-    			}case '"':{
-    				if (!isChar)
-    					isStr = !isStr;
-    				break;
-    			}case '\'':{
-    				if (!isStr)
-    					isChar = !isChar;
-    				break;
-    			}case ' ':
-    			case '\n':{
-    				if (!isStr && !isChar)
-    					continue;
-    				break;
-    			}
-    		}
-   			res.append(charAt);
+    	final CompileCache cache = OperationCompiler.cache;
+    	return cache == null ? parse(str, begin, end, opt) : cache.compile(str, begin, end, opt);
+    }
+
+    public static final Operation compile(Reader reader) throws OperationParseException, IOException{
+    	return compile(reader, new CompileOptions());
+    }
+
+    /**
+     * Compiles while reading, only the current token and a small lookahead are buffered. The reader is not closed and the cache is not used.
+     */
+    public static final Operation compile(Reader reader, CompileOptions opt) throws OperationParseException, IOException{
+    	return parse(new CharStream(reader), opt);
+    }
+
+    /**
+     * Compiles the bytes between the position and the limit, they are decoded on demand. The position of the buffer is not changed.
+     */
+    public static final Operation compile(ByteBuffer bytes, Charset charset, CompileOptions opt) throws OperationParseException, IOException{
+    	return parse(new CharStream(bytes.duplicate(), charset.newDecoder()), opt);
+    }
+
+    /**
+     * Maps the file into memory and compiles it while decoding
+     */
+    public static final Operation compile(File file, Charset charset) throws OperationParseException, IOException{
+    	try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    	{
+    		return compile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), charset, new CompileOptions());
     	}
-        return compileRek(res.toString(), 0, res.length(), opt);
     }
 
-    private static final Operation compileRek (final String str, final int begin, final int end, final CompileOptions opt) throws OperationParseException{
-    	if (begin == end)
+    private static final Operation parse(CharStream stream, CompileOptions opt) throws OperationParseException, IOException{
+    	try {
+    		return new OperationParser(stream, opt).parse();
+    	} catch (UncheckedIOException e) {
+    		throw e.getCause();
+    	}
+    }
+
+    /**
+     * Inputs with at least this number of characters are split into their commands, which are compiled in parallel. {@link Integer#MAX_VALUE} disables the parallel compilation.
+     */
+    public static final void setParallelThreshold(int threshold)
+    {
+    	if (threshold < 0)
+    		throw new IllegalArgumentException();
+    	parallelThreshold = threshold;
+    }
+
+    public static final int getParallelThreshold()
+    {
+    	return parallelThreshold;
+    }
+
+    static final Operation parse(CharSequence str, int begin, int end, CompileOptions opt) throws OperationParseException{
+    	if (end - begin >= parallelThreshold)
     	{
-            throw new OperationParseException(str);
+    		final Operation result = parseParallel(str, begin, end, opt);
+    		if (result != null)
+    			return result;
+    	}
+    	return new OperationParser(str, begin, end, opt).parse();
+    }
+
+    /**
+     * Compiles the commands on the common pool and joins them from the left like the parser does.
+     * @return null if the input can't be split or one of the commands is invalid, the parser gives the exact error in this case
+     */
+    private static final Operation parseParallel(CharSequence str, int begin, int end, CompileOptions opt){
+    	final IntegerArrayList separators = new IntegerArrayList();
+    	if (!OperationParser.splitCommands(str, begin, end, separators) || separators.size() == 0)
+    		return null;
+    	final int bounds[] = new int[separators.size() + 2];
+    	bounds[0] = begin - 1;
+    	separators.toArray(bounds, 1, 0, separators.size());
+    	bounds[bounds.length - 1] = end;
+    	final CommandTask task = new CommandTask(str, bounds, 0, bounds.length - 1, opt, new Operation[bounds.length - 1]);
+    	ForkJoinPool.commonPool().invoke(task);
+    	final Operation commands[] = task.result;
+    	for (Operation command : commands)
+    		if (command == null)
+    			return null;
+    	Operation result = commands[0];
+    	for (int i = 1; i < commands.length; ++i)
+    		result = get(Characters.END_COMMAND, result, commands[i]);
+    	return result;
+    }
+
+    private static final class CommandTask extends RecursiveAction{
+		private static final long serialVersionUID = 3712839520137623901L;
+		private final CharSequence str;
+    	/** The command i is between bounds[i] and bounds[i + 1], exclusive */
+    	private final int bounds[];
+    	private final int from, to;
+    	private final CompileOptions opt;
+    	private final Operation result[];
+
+    	private CommandTask(CharSequence str, int bounds[], int from, int to, CompileOptions opt, Operation result[]){
+    		this.str = str;
+    		this.bounds = bounds;
+    		this.from = from;
+    		this.to = to;
+    		this.opt = opt;
+    		this.result = result;
     	}
+
+		@Override
+		protected final void compute() {
+			if (to - from > 1 && bounds[to] - bounds[from] > PARALLEL_GRAIN)
+			{
+				final int middle = (from + to) >>> 1;
+				invokeAll(new CommandTask(str, bounds, from, middle, opt, result), new CommandTask(str, bounds, middle, to, opt, result));
+				return;
+			}
+			for (int i = from; i < to; ++i)
+			{
+				final int b = bounds[i] + 1, e = bounds[i + 1];
+				if (b == e)
+					return;
+				try {
+					result[i] = new OperationParser(str, b, e, opt).parse();
+				} catch (OperationParseException ex) {
+					return;
+				}
+			}
+		}
+    }
+
+    /**
+     * Interprets a complete token as constant or number literal
+     * @return the constant or null if the range is no literal
+     */
+    static final Operation getConstant (final CharSequence str, final int begin, final int end, final CompileOptions opt){
     	final int length = end - begin;
         final char firstChar = str.charAt(begin), lastChar = str.charAt(end-1);
         switch (length){
@@ -408,245 +479,44 @@ public final class OperationCompiler
         	return lo;
         try{
         	if (MathematicStringUtil.isDouble(str, begin, end))
-        		return new RealDoubleOperation(Double.parseDouble(str.substring(begin, end)));
+        		return new RealDoubleOperation(Double.parseDouble(str.subSequence(begin, end).toString()));
         } catch (NumberFormatException e){}
 
-        final int indexOfCharacter = MathematicStringUtil.lastIndexOf (str, begin, end, calculationCharacters, calculationCharactersPrirority);
-        if (indexOfCharacter != -1){
-        	final char c1 = str.charAt(indexOfCharacter), c0;
-        	final Operation o = (c1 == Characters.ADD || c1 == Characters.SUB) && indexOfCharacter != begin && isCalculationChar(c0 = str.charAt(indexOfCharacter - 1)) ?
-        			  get(c0, str, begin, indexOfCharacter-1, str, indexOfCharacter, end, opt)
-        			: get (c1, str, begin, indexOfCharacter, str, indexOfCharacter + 1, end, opt);
-        	if (o == null)
-        		throw new OperationParseException(str);
-        	return o;
-        }
-
-        if (Characters.isHighNumber(lastChar)){
-        	for (int i=end-2;i>=begin;i--)
-        		if (!Characters.isHighNumber(str.charAt(i)))
-        		{
-        			if (Characters.HIGH_SUB == str.charAt(i) || Characters.HIGH_PLUS == str.charAt(i))
-        			{
-        				--i;
-        			}
-        			return PowerOperation.getInstance(compileRek(str, begin,i+1, opt), RealLongOperation.valueOfHighNumber(str, i + 1, end, 10));
-        		}
-        	throw new OperationParseException(str);
-        }
+        return null;
+    }
 
-        switch(lastChar){
-	    	case '!':{
-	    		return new Faculty(compileRek(str, begin ,end - 1, opt));
-	    	}case ']':{
-	    		final int index = MathematicStringUtil.lastIndexOf(str, begin, end, '[');//TODO
-	            if (index != -1 && MathematicStringUtil.onlyBrackets(str, index, end, '[', ']'))
-	                return new ArrayIndexOperation(compileRek(str, begin, index, opt), compileRek(str, index + 1, end - 1, opt));
-	            break;
-	    	}case ')':{
-		        if (MathematicStringUtil.onlyBrackets(str, begin, end, '(', ')'))
-		            return compileRek(str, begin + 1, end - 1, opt);
-		        if (MathematicStringUtil.isFunction(str, begin, end)){
-		        	final int indexOfBracket = StringUtils.indexOf(str, begin, end, '(');
-		            final String functionName = str.substring(begin, indexOfBracket);
-		            final Operation parameter[];
-		            if (indexOfBracket + 2 < end)
-		            {
-		            	final IntegerArrayList ial = new IntegerArrayList(3);
-			            MathematicStringUtil.split(str, indexOfBracket+1,end-1, ',', ial);
-			            parameter = new Operation[ial.size() + 1];
-
-			            for (int i = 0; i < parameter.length;i++)
-			            {
-			            	int i0 = i == 0 ? indexOfBracket+1 : ial.getI(i - 1) + 1;
-			            	int i1 = i == ial.size() ? end - 1 : ial.getI(i);
-			                parameter[i] = compileRek(str, i0, i1, opt);
-			            }
-			        }
-		            else
-		            {
-		            	parameter = Operation.EMPTY_OPERATION_ARRAY;
-		            }
-
-		            switch (parameter.length){
-		                case 0:{
-		                	switch(functionName){
-		                		case "rand":   return SystemFunctions.random;
-		                		case "gc":     return SystemFunctions.gc;
-		                		case "exit":   return SystemFunctions.exit;
-		                	}
-	                		for (ProgramFunction pf : programFunction)
-	                			if (functionName.equals(pf.name))
-	                				return pf;
-		                    break;
-		                } case 1:{
-		                	final Operation a = parameter[0];
-		                	switch (functionName){
-		                		case "abs":		return new AbsoluteOperation(a);
-		                		case "acos":	return new ArcCosinusOperation(a);
-		                		case "arg":		return new ArgumentOperation(a);
-		                		case "asin":	return new ArcSinusOperation(a);
-		                		case "atan":	return new ArcTangensOperation(a);
-		                		case "cholesky":return new CholeskyOperation(a);
-		                		case "conjugate":return new ConjugateOperation(a);
-		                        case "cos":    	return new CosinusOperation(a);
-		                        case "cosh":   	return new CosinusHyperbolicOperation(a);
-		                        case "compile":	return new ToExpressionOperation (a);
-		                        case "char":   	return new ToCharacterOperation (a);
-		                        case "cbrt":   	return new PowerOperation.CubeRootOperation(a);
-		                        case "chartostring":return new CharToStringOperation(a);
-		                        case "cumsum":	return new CumSumOperation(a);
-		                        case "delete": 	return new DeleteOperation(a);
-		                        case "define": 	return new DefineOperation(a);
-		                        case "det":		return new DeterminantenOperation(a);
-		                        case "exp":		return new PowerOperation.ExponentOperation(a);
-		                        case "float":  	return new ToDoubleOperation (a);
-				                case "ifn":    	return new NumericIfOperation(a);
-		                        case "int":    	return new ToLongOperation (a);
-		                        case "imag":	return new ImaginaryPartOperation(a);
-		                        case "java":	return new JavaCommand(a);
-		                        case "kard":   	return new KardOperation(a);
-		                        case "log":		return new LogarithmOperation(a);
-		                        case "min":		return new MinimumOfArray(a);
-		                        case "max":		return new MaximumOfArray(a);
-		                        case "norm": 	return new NormOperation(a);
-		                        case "program":	return ProgramOperation.getInstance(a);
-		                		case "range":	return new CreateListOperation(new UserVariableOperation("tmp"), ArrayOperation.getInstance(new Operation[] {new UserVariableOperation("tmp"), RealLongOperation.ZERO, a}));
-		                        case "round":	return new RoundOperation(a);
-		                        case "randlist":return new RandomListOperation(a);
-		                        case "request":	return new RequestOperation(a);
-		                        case "read":	return new ReadOperation(a);
-		                        case "rref":	return new RowReducedEchelonFormOperation(a);
-		                        case "real":	return new RealPartOperation(a);
-		                        case "string":	return new ToStringOperation (a);
-		                        case "sum":    	return new SumOfArrayOperation(a);
-		                        case "sqrt":   	return new PowerOperation.SquareRootOperation(a);
-		                        case "sin":    	return new SinusOperation(a);
-		                        case "sinh":	return new SinusHyperbolicOperation(a);
-		                        case "sign":	return new SignOperation(a);
-		                        case "sort":	return new SortOperation(a);
-		                        case "sleep":	return new SleepOperation(a);
-		                        case "tan":    	return new TangensOperation(a);
-		                        case "tanh":   	return new TangensHyperbolicOperation(a);
-		                        case "transpose":return new TransposeOperation(a);
-		                        case "type":    return new TypeOperation(a);
-		                	}
-		                    break;
-		                } case 2:{
-		                	final Operation a = parameter[0], b = parameter[1];
-		                	switch(functionName){
-		                		case "diff"		:return new DifferentiationOperation(a, b);
-		                		case "format"	:return new FormatOperation(a, b);
-		                		case "ggt"		:return new GgtOperation(a, b);
-		                		case "kgv"		:return new KgVOperation(a, b);
-		                		case "list"		:return new CreateListOperation(a,b);
-		                		case "min"		:return new MinimumOperation (a, b);
-		                		case "max"		:return new MaximumOperation (a, b);
-		                		case "ncr"		:return new NcrOperation(a, b);
-		                		case "npr"		:return new NprOperation(a, b);
-		                		case "prod"		:return new ProductIteratorOperation(a,b);
-		                		case "range"	:return new CreateListOperation(new UserVariableOperation("tmp"), ArrayOperation.getInstance(new Operation[] {new UserVariableOperation("tmp"), a, b}));
-		                		case "request"	:return new RequestTimeoutOperation(a, b);
-		                		case "randmat"	:return new RandomMatrixOperation(a, b);
-		                		case "rotmat"	:return new CreateRotationOperation(a, b);
-		                        case "affine"	:return new CreateAffineTransformation(a, b);
-		                        case "atan2"    :return new ArcTangems2Operation(a,b);
-		                        case "readcsv"	:return new ReadCsvOperation(a, b);
-		                        case "writecsv" :return new WriteCsvOperation(a, b);
-		                		case "set":{
-		                        	if (a instanceof UserVariableOperation || a instanceof UserFunctionOperation || a instanceof ArrayIndexOperation)
-		                        		return new AssignOperation(b, a);
-		                        	throw new OperationParseException(str);
-		                        }case "solve":return new SolveOperation(a, b);
-				                case "sum":	return new SumIteratorOperation(a, b);
-		                        case "while":	return new WhileOperation(a, b);
-		                        case "write":	return new WriteOperation(a, b);
-		                	}
-		                    break;
-		                } case 3:{
-		                  	final Operation a = parameter[0], b = parameter[1], c=parameter[2];
-		                  	switch(functionName){
-				                case "if":    return new IfOperation(a, b, c);
-				                case "binompdf":return new BinomPdfOperation(a, b, c);
-				                case "binomcdf":return new BinomCdfOperation(a, b, c);
-				                case "diff":	return new MultipleDifferentiationOperation(a, b, c);
-                            }
-		                    break;
-		                }case 4:{
-		                  	final Operation a = parameter[0], b = parameter[1], c=parameter[2], d=parameter[3];
-		                  	switch(functionName){
-		                  		case "for":    return new ForOperation(a, b, c, d);
-		                  		case "makecol":return new MakeColOperation(a, b, c, d);
-		                  		case "taylor_polynom":return new TaylorPolynomOperation(a, b, c, d);
-		                  		case "nint":return new NumericIntegralOperation(a, b, c, d);
-				                case "java":  return new CallProgramFunction(a, b, c, d);
-		                        case "writecsv" :return new WriteCsvOperation(a, b, c, d);
-		                  	}
-		                  	break;
-		                }
-		            }
-		            return new UserFunctionOperation(functionName, parameter);
-		        }
-		        break;
-	    	}case '"':{
-		        if (MathematicStringUtil.justString(str, begin, end)){
-		        	final Operation o = StringOperation.getInstance(str, 1 + begin, end - 1);
-		        	if (o == null)
-		        		throw new OperationParseException(str);
-		        	return o;
-		        }
-		        break;
-	    	}case '}':{
-		        if (MathematicStringUtil.onlyBrackets(str, begin, end, '{', '}')){
-		        	final IntegerArrayList ial = new IntegerArrayList();
-		        	if (begin + 2 == end)
-		        	{
-		        		return ArrayOperation.EMPTY_ARRAY_OPERATION;
-		        	}
-		            MathematicStringUtil.split(str, begin + 1, end - 1, ',', ial);
-		            final Operation operations[] = new Operation[ial.size() + 1];
-		            boolean relation = false;
-		            boolean allrelation = true;
-		            for (int i=0;i<operations.length;i++) {
-		            	int i0 = i == 0 ? begin+1 : ial.getI(i - 1) + 1;
-		            	int i1 = i == ial.size() ? end - 1 : ial.getI(i);
-		                operations[i] = compileRek(str, i0, i1, opt);
-		                boolean tmp = operations[i] instanceof RelationOperation;
-		                relation |= tmp;
-		                allrelation &= tmp;
-		            }
-		            if (relation && !allrelation)
-		            {
-		                throw new OperationParseException(str);
-		            }
-		            if (allrelation) {
-		                MapOperation mo = new MapOperation();
-		                for (int i = 0; i < operations.length; ++i)
-	                    {
-		                    mo.set(operations[i].get(0), operations[i].get(1));
-	                    }
-		                return mo;
-		            }
-		            return ArrayOperation.getInstance(operations);
-		        }
-		        break;
-	    	}default:{
-	            if (Variable.isValidName(str, begin, end))
-	                return new UserVariableOperation (str, begin, end);
-	    	}
-	    }
-        throw new OperationParseException(str.substring(begin, end));
+    /**
+     * Creates the registered function with the given name and parameters or a user function if there is none
+     */
+    static final Operation getFunction(final String functionName, final Operation parameter[]) throws OperationParseException{
+        final FunctionRegistry.Factory factory = FunctionRegistry.getDefault().get(functionName, parameter.length);
+        return factory == null ? new UserFunctionOperation(functionName, parameter) : factory.create(parameter);
     }
 
-    private static final Operation get(char character, String operand0, int begin0, int end0, String operand1, int begin1, int end1, CompileOptions opt) throws OperationParseException{
-        final Operation b = compileRek(operand1, begin1, end1, opt);
-        if (begin0 != end0){
-            final Operation a = compileRek(operand0, begin0, end0, opt);
-            return get(character, a, b);
-        }else
+    /**
+     * Creates an array, or a map if all elements are relations
+     */
+    static final Operation getArray(final Operation operations[], final CharSequence str) throws OperationParseException{
+        boolean relation = false;
+        boolean allrelation = true;
+        for (int i=0;i<operations.length;i++) {
+            boolean tmp = operations[i] instanceof RelationOperation;
+            relation |= tmp;
+            allrelation &= tmp;
+        }
+        if (relation && !allrelation)
         {
-            return get(character, b);
+            throw new OperationParseException(str.toString());
+        }
+        if (allrelation) {
+            MapOperation mo = new MapOperation();
+            for (int i = 0; i < operations.length; ++i)
+            {
+                mo.set(operations[i].get(0), operations[i].get(1));
+            }
+            return mo;
         }
+        return ArrayOperation.getInstance(operations);
     }
 
     public static final Operation get(char character, Operation a, Operation b){
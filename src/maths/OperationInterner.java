@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import maths.variable.UserVariableOperation;
+import maths.variable.UserVariableOperationInserted;
+
+/**
+ * Hash consing of operation trees, structurally equal subtrees which are interned by the same interner share one instance.
+ * Comparisons of interned subtrees therefore end at the reference check, and results with repeated subterms need the memory of one subterm.
+ * The hashes of the interned nodes are only kept by the interner, the nodes themselves are not changed, so shared constants can be interned too.
+ * Subtrees are only merged if they have the same classes and numbers of the same type, so 2 and 2.0 stay different.
+ * Arrays can be changed by an indexed assignment, so arrays and their parents are not interned. The same holds for leafs which are no primitive or variable, like exceptions and program functions.
+ * Interned trees have to be treated as read only. Entries are weak, so nodes which are not used anymore are collectable.
+ * The interner is thread safe.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class OperationInterner
+{
+	private static final class Entry extends WeakReference<Operation>
+	{
+		private final int hash;
+		private Entry next;
+
+		private Entry(Operation op, int hash, Entry next, ReferenceQueue<Operation> queue)
+		{
+			super(op, queue);
+			this.hash = hash;
+			this.next = next;
+		}
+	}
+
+	private final ReferenceQueue<Operation> queue = new ReferenceQueue<Operation>();
+	private Entry table[] = new Entry[0x40];
+	private int size;
+
+	/**
+	 * The interned instance of a node of the tree which is interned
+	 */
+	private static final class Result
+	{
+		private final Operation op;
+		private final int hash;
+		private final boolean shared;
+
+		private Result(Operation op, int hash, boolean shared)
+		{
+			this.op = op;
+			this.hash = hash;
+			this.shared = shared;
+		}
+	}
+
+	/**
+	 * @return the shared instance of the tree, the children of the tree are interned recursively
+	 */
+	public final synchronized Operation intern(Operation op)
+	{
+		expunge();
+		//The tree is walked with an explicit stack, because the trees of long sums are as deep as the number of terms
+		final IdentityHashMap<Operation, Result> results = new IdentityHashMap<Operation, Result>();
+		final ArrayDeque<Operation> stack = new ArrayDeque<Operation>();
+		stack.push(op);
+		while (!stack.isEmpty())
+		{
+			final Operation current = stack.peek();
+			if (results.containsKey(current))
+			{
+				stack.pop();
+				continue;
+			}
+			boolean ready = true;
+			for (int i = current.size() - 1; i >= 0; --i)
+			{
+				final Operation child = current.get(i);
+				if (!results.containsKey(child))
+				{
+					stack.push(child);
+					ready = false;
+				}
+			}
+			if (ready)
+			{
+				stack.pop();
+				results.put(current, intern(current, results));
+			}
+		}
+		return results.get(op).op;
+	}
+
+	/**
+	 * @return the number of interned nodes which were not collected yet
+	 */
+	public final synchronized int size()
+	{
+		expunge();
+		return size;
+	}
+
+	/**
+	 * Interns the node, its children are already interned
+	 */
+	private final Result intern(Operation op, IdentityHashMap<Operation, Result> results)
+	{
+		final int length = op.size();
+		boolean shared = !op.isArray();
+		int hash;
+		if (length == 0)
+		{
+			shared &= op.isPrimitive() || op instanceof UserVariableOperation || op instanceof UserVariableOperationInserted;
+			hash = op.hashCode();
+		}
+		else
+		{
+			final Result children[] = new Result[length];
+			boolean changed = false;
+			for (int i = 0; i < length; ++i)
+			{
+				final Operation child = op.get(i);
+				children[i] = results.get(child);
+				changed |= children[i].op != child;
+			}
+			if (changed)
+			{
+				final Operation instances[] = new Operation[length];
+				for (int i = 0; i < length; ++i)
+				{
+					instances[i] = children[i].op;
+				}
+				op = op.getInstance(Arrays.asList(instances));
+			}
+			//The instance may have been simplified, only nodes over interned children are interned
+			if (op.size() != length)
+			{
+				return new Result(op, 0, false);
+			}
+			hash = op.getClass().getName().hashCode();
+			for (int i = 0; i < length; ++i)
+			{
+				shared &= children[i].shared && op.get(i) == children[i].op;
+				hash = hash * 31 + children[i].hash;
+			}
+		}
+		if (!shared)
+		{
+			return new Result(op, hash, false);
+		}
+		final int index = hash & (table.length - 1);
+		for (Entry e = table[index]; e != null; e = e.next)
+		{
+			if (e.hash == hash)
+			{
+				final Operation existing = e.get();
+				if (existing != null && isSame(existing, op))
+				{
+					return new Result(existing, hash, true);
+				}
+			}
+		}
+		table[index] = new Entry(op, hash, table[index], queue);
+		if (++size > table.length * 3 / 4)
+		{
+			resize();
+		}
+		return new Result(op, hash, true);
+	}
+
+	/**
+	 * The children of both nodes are interned, so they are compared by reference
+	 */
+	private static final boolean isSame(Operation a, Operation b)
+	{
+		if (a.getClass() != b.getClass())
+		{
+			return false;
+		}
+		final int length = a.size();
+		if (length != b.size())
+		{
+			return false;
+		}
+		for (int i = 0; i < length; ++i)
+		{
+			if (a.get(i) != b.get(i))
+			{
+				return false;
+			}
+		}
+		return a.equals(b);
+	}
+
+	private final void resize()
+	{
+		final Entry newTable[] = new Entry[table.length * 2];
+		for (Entry e : table)
+		{
+			while (e != null)
+			{
+				final Entry next = e.next;
+				final int index = e.hash & (newTable.length - 1);
+				e.next = newTable[index];
+				newTable[index] = e;
+				e = next;
+			}
+		}
+		table = newTable;
+	}
+
+	private final void expunge()
+	{
+		Object ref;
+		while ((ref = queue.poll()) != null)
+		{
+			final Entry entry = (Entry)ref;
+			final int index = entry.hash & (table.length - 1);
+			Entry prev = null;
+			for (Entry e = table[index]; e != null; prev = e, e = e.next)
+			{
+				if (e == entry)
+				{
+					if (prev == null)
+					{
+						table[index] = e.next;
+					}
+					else
+					{
+						prev.next = e.next;
+					}
+					--size;
+					break;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,546 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths;
+
+import java.util.ArrayList;
+
+import maths.OperationCompiler.CompileOptions;
+import maths.data.ArrayOperation;
+import maths.data.Characters;
+import maths.data.RealLongOperation;
+import maths.data.StringOperation;
+import maths.exception.OperationParseException;
+import maths.functions.ArrayIndexOperation;
+import maths.functions.Faculty;
+import maths.functions.atomic.NegativeOperation;
+import maths.functions.atomic.PowerOperation;
+import maths.variable.UserVariableOperation;
+import maths.variable.Variable;
+import util.data.IntegerArrayList;
+
+/**
+ * Single pass tokenizer and precedence climbing parser for the syntax of {@link OperationCompiler}.
+ * Blanks and line breaks outside of string and character literals are ignored within tokens, so "1 2" is read as "12" like before.
+ * All binary operators are left associative and have the priorities of the operator table of the compiler.
+ * A sign directly following an operator binds like an unary operator with the priority of the sign.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+final class OperationParser
+{
+	private static final byte EOF = 0, WORD = 1, STRING = 2, OPERATOR = 3, SUPERSCRIPT = 4, SYMBOL = 5;
+
+	private final CharSequence str;
+	private final CharStream stream;
+	private final int begin;
+	private int end;
+	private final CompileOptions opt;
+	private final StringBuilder text = new StringBuilder();
+	private int pos;
+	private byte type;
+	private char symbol;
+	private int tokenCount;
+
+	OperationParser(CharSequence str, int begin, int end, CompileOptions opt)
+	{
+		this.str = str;
+		this.stream = null;
+		this.begin = begin;
+		this.end = end;
+		this.opt = opt;
+		this.pos = begin;
+	}
+
+	/**
+	 * Parses the stream while reading it, only the current token and the following characters are kept
+	 */
+	OperationParser(CharStream stream, CompileOptions opt)
+	{
+		this.str = stream;
+		this.stream = stream;
+		this.begin = 0;
+		this.end = 0;
+		this.opt = opt;
+	}
+
+	final Operation parse() throws OperationParseException
+	{
+		next();
+		final Operation result = parse(0);
+		if (type != EOF)
+		{
+			throw error();
+		}
+		return result;
+	}
+
+	private final Operation parse(int minPriority) throws OperationParseException
+	{
+		Operation left = parseUnary();
+		while (type == OPERATOR)
+		{
+			final char c = symbol;
+			final int priority = OperationCompiler.getPriority(c);
+			if (priority < minPriority)
+			{
+				break;
+			}
+			next();
+			left = OperationCompiler.get(c, left, parse(priority + 1));
+			if (left == null)
+			{
+				throw error();
+			}
+		}
+		return left;
+	}
+
+	private final Operation parseUnary() throws OperationParseException
+	{
+		if (type != OPERATOR)
+		{
+			return parsePostfix(parsePrimary());
+		}
+		final char c = symbol;
+		next();
+		if (c == Characters.SUB && type == WORD && isNumberStart(text.charAt(0)))
+		{
+			//Negative number literals like "-9223372036854775808" have to be read in one piece
+			final String number = text.toString();
+			final int tokenIndex = tokenCount;
+			final Operation operand = parse(OperationCompiler.getPriority(c) + 1);
+			if (tokenCount == tokenIndex + 1)
+			{
+				final Operation negative = OperationCompiler.getConstant(Characters.SUB + number, 0, number.length() + 1, opt);
+				return negative == null ? new NegativeOperation(operand) : negative;
+			}
+			return new NegativeOperation(operand);
+		}
+		final Operation result = OperationCompiler.get(c, parse(OperationCompiler.getPriority(c) + 1));
+		if (result == null)
+		{
+			throw error();
+		}
+		return result;
+	}
+
+	private final Operation parsePrimary() throws OperationParseException
+	{
+		switch (type)
+		{
+			case WORD:
+			{
+				final int length = text.length();
+				if (Variable.isValidName(text, 0, length))
+				{
+					final String name = text.toString();
+					next();
+					if (type == SYMBOL && symbol == '(')
+					{
+						return OperationCompiler.getFunction(name, parseList(')'));
+					}
+					final Operation constant = OperationCompiler.getConstant(name, 0, length, opt);
+					return constant == null ? new UserVariableOperation(name) : constant;
+				}
+				final Operation constant = OperationCompiler.getConstant(text, 0, length, opt);
+				if (constant == null)
+				{
+					throw error();
+				}
+				next();
+				return constant;
+			}
+			case STRING:
+			{
+				final Operation result = StringOperation.getInstance(text, 1, text.length() - 1);
+				if (result == null)
+				{
+					throw error();
+				}
+				next();
+				return result;
+			}
+			case SYMBOL:
+			{
+				switch (symbol)
+				{
+					case '(':
+					{
+						next();
+						final Operation result = parse(0);
+						expect(')');
+						return result;
+					}
+					case '{':
+					{
+						final Operation operations[] = parseList('}');
+						return operations.length == 0 ? ArrayOperation.EMPTY_ARRAY_OPERATION : OperationCompiler.getArray(operations, source());
+					}
+				}
+			}
+		}
+		throw error();
+	}
+
+	private final Operation parsePostfix(Operation op) throws OperationParseException
+	{
+		while (true)
+		{
+			if (type == SUPERSCRIPT)
+			{
+				final RealLongOperation exponent = RealLongOperation.valueOfHighNumber(text, 0, text.length(), 10);
+				if (exponent == null)
+				{
+					throw error();
+				}
+				op = PowerOperation.getInstance(op, exponent);
+				next();
+			}
+			else if (type == SYMBOL && symbol == '!')
+			{
+				op = new Faculty(op);
+				next();
+			}
+			else if (type == SYMBOL && symbol == '[')
+			{
+				next();
+				final Operation index = parse(0);
+				expect(']');
+				op = new ArrayIndexOperation(op, index);
+			}
+			else
+			{
+				return op;
+			}
+		}
+	}
+
+	/**
+	 * Parses a comma separated list, the current token has to be the opening bracket
+	 */
+	private final Operation[] parseList(char close) throws OperationParseException
+	{
+		next();
+		if (type == SYMBOL && symbol == close)
+		{
+			next();
+			return Operation.EMPTY_OPERATION_ARRAY;
+		}
+		final ArrayList<Operation> list = new ArrayList<>(4);
+		while (true)
+		{
+			list.add(parse(0));
+			if (type != SYMBOL || symbol != ',')
+			{
+				break;
+			}
+			next();
+		}
+		expect(close);
+		return list.toArray(new Operation[list.size()]);
+	}
+
+	private final void expect(char c) throws OperationParseException
+	{
+		if (type != SYMBOL || symbol != c)
+		{
+			throw error();
+		}
+		next();
+	}
+
+	/**
+	 * Finds the command separators which are not enclosed by brackets or literals. They are the separators of the outermost commands, because no other operator has the lowest priority.
+	 * @param positions receives the positions of the separators
+	 * @return false if brackets or literals are not closed, the input has to be parsed as whole in this case
+	 */
+	static final boolean splitCommands(CharSequence str, int begin, int end, IntegerArrayList positions)
+	{
+		int depth = 0;
+		for (int i = begin; i < end; ++i)
+		{
+			final char c = str.charAt(i);
+			switch (c)
+			{
+				case '"':
+				case '\'':
+				{
+					//Same as readLiteral
+					while (true)
+					{
+						if (++i >= end)
+						{
+							return false;
+						}
+						final char l = str.charAt(i);
+						if (l == '\\')
+						{
+							++i;
+						}
+						else if (l == c)
+						{
+							break;
+						}
+					}
+					break;
+				}
+				case '\\':	++i;			break;
+				case '(':
+				case '{':
+				case '[':	++depth;		break;
+				case ')':
+				case '}':
+				case ']':
+				{
+					if (--depth < 0)
+					{
+						return false;
+					}
+					break;
+				}
+				case Characters.END_COMMAND:
+				{
+					if (depth == 0)
+					{
+						positions.add(i);
+					}
+					break;
+				}
+			}
+		}
+		return depth == 0;
+	}
+
+	private final OperationParseException error()
+	{
+		return new OperationParseException(source().toString());
+	}
+
+	/**
+	 * @return the input or the part of a stream around the current position
+	 */
+	private final CharSequence source()
+	{
+		return stream == null ? str.subSequence(begin, end) : stream.excerpt(pos);
+	}
+
+	/**
+	 * @return true if there is a character at the position, streams are read up to it
+	 */
+	private final boolean available(int p)
+	{
+		return p < end || (stream != null && p < (end = stream.fill(p)));
+	}
+
+	private static final boolean isBlank(char c)
+	{
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+	}
+
+	private static final boolean isNumberStart(char c)
+	{
+		return Character.isDigit(c) || c == Characters.INFTY;
+	}
+
+	private static final boolean isWordChar(char c)
+	{
+		return (Character.isLetterOrDigit(c) || c == '_') && c != Characters.HIGH_T;
+	}
+
+	private static final boolean isSuperscript(char c)
+	{
+		return Characters.isHighNumber(c) || c == Characters.HIGH_SUB || c == Characters.HIGH_PLUS;
+	}
+
+	/**
+	 * @return the next character which is no blank or -1 at the end of the input
+	 */
+	private final int peek()
+	{
+		while (available(pos))
+		{
+			final char c = str.charAt(pos);
+			if (!isBlank(c))
+			{
+				return c;
+			}
+			++pos;
+		}
+		return -1;
+	}
+
+	private final void next() throws OperationParseException
+	{
+		++tokenCount;
+		text.setLength(0);
+		final int c = peek();
+		if (c == -1)
+		{
+			type = EOF;
+			return;
+		}
+		if (stream != null)
+		{
+			stream.release(pos);
+		}
+		final char ch = (char)c;
+		switch (ch)
+		{
+			case '"':
+			{
+				readLiteral('"');
+				type = STRING;
+				return;
+			}
+			case '\'':
+			{
+				readLiteral('\'');
+				type = WORD;
+				return;
+			}
+			case '\\':
+			{
+				text.append(ch);
+				if (!available(++pos))
+				{
+					throw error();
+				}
+				text.append(str.charAt(pos++));
+				readWord();
+				type = WORD;
+				return;
+			}
+			case Characters.INFTY:
+			{
+				text.append(ch);
+				++pos;
+				type = WORD;
+				return;
+			}
+		}
+		if (Character.isDigit(ch))
+		{
+			readNumber();
+			type = WORD;
+		}
+		else if (isWordChar(ch))
+		{
+			readWord();
+			type = WORD;
+		}
+		else if (isSuperscript(ch))
+		{
+			readSuperscript();
+			type = SUPERSCRIPT;
+		}
+		else
+		{
+			symbol = ch;
+			++pos;
+			type = OperationCompiler.isCalculationChar(ch) ? OPERATOR : SYMBOL;
+		}
+	}
+
+	/**
+	 * Reads a string or character literal including the quotes, blanks are kept and backslashes escape the following character
+	 */
+	private final void readLiteral(char quote) throws OperationParseException
+	{
+		text.append(str.charAt(pos++));
+		while (available(pos))
+		{
+			final char c = str.charAt(pos++);
+			text.append(c);
+			if (c == '\\')
+			{
+				if (!available(pos))
+				{
+					break;
+				}
+				text.append(str.charAt(pos++));
+			}
+			else if (c == quote)
+			{
+				return;
+			}
+		}
+		throw error();
+	}
+
+	private final void readWord()
+	{
+		int c;
+		while ((c = peek()) != -1 && isWordChar((char)c))
+		{
+			text.append((char)c);
+			++pos;
+		}
+	}
+
+	/**
+	 * Reads a number, the sign of an exponent is part of decimal numbers
+	 */
+	private final void readNumber()
+	{
+		final boolean hex = str.charAt(pos) == '0' && available(pos + 1) && str.charAt(pos + 1) == 'x';
+		int c;
+		while ((c = peek()) != -1)
+		{
+			if (isWordChar((char)c) || c == '.')
+			{
+				text.append((char)c);
+				++pos;
+			}
+			else if ((c == '+' || c == '-') && !hex && (text.charAt(text.length() - 1) == 'e' || text.charAt(text.length() - 1) == 'E'))
+			{
+				final int signPos = pos++;
+				final int digit = peek();
+				pos = signPos;
+				if (digit == -1 || !Character.isDigit((char)digit))
+				{
+					return;
+				}
+				text.append((char)c);
+				++pos;
+			}
+			else
+			{
+				return;
+			}
+		}
+	}
+
+	private final void readSuperscript() throws OperationParseException
+	{
+		text.append(str.charAt(pos++));
+		int c;
+		while ((c = peek()) != -1 && Characters.isHighNumber((char)c))
+		{
+			text.append((char)c);
+			++pos;
+		}
+		if (!Characters.isHighNumber(text.charAt(text.length() - 1)))
+		{
+			throw error();
+		}
+	}
+}
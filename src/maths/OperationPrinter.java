@@ -0,0 +1,399 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import maths.Operation.Print;
+import maths.data.ArrayOperation;
+import maths.data.Characters;
+import maths.functions.FunctionOperation;
+import maths.functions.atomic.DivisionOperation;
+import maths.functions.atomic.LinkingOperation;
+import maths.functions.atomic.LowerEqualsOperation;
+import maths.functions.atomic.MultiplicationOperation;
+import maths.functions.atomic.NegativeOperation;
+import maths.functions.atomic.NotOperation;
+import maths.functions.atomic.PowerOperation;
+
+/**
+ * Writes operations to an {@link Appendable} or a channel with the same output as {@link Operation#toString(Print, StringBuilder)}.
+ * The tree is walked with an explicit stack and the output is passed on in small blocks, so the memory doesn't grow with the size of the tree.
+ * Operations which print themselves in a way unknown to the printer are written with their own method into the block, which is fine for leafs like numbers and variables.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class OperationPrinter implements Flushable
+{
+	private static final int BLOCK_SIZE = 0x2000;
+	/**
+	 * The class which implements the printing of a class
+	 */
+	private static final ClassValue<Class<?>> PRINTING_CLASS = new ClassValue<Class<?>>() {
+		@Override
+		protected Class<?> computeValue(Class<?> type) {
+			try {
+				return type.getMethod("toString", Print.class, StringBuilder.class).getDeclaringClass();
+			} catch (NoSuchMethodException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	};
+
+	private final Print type;
+	private final Appendable out;
+	private final WritableByteChannel channel;
+	private final CharsetEncoder encoder;
+	private final StringBuilder block = new StringBuilder(BLOCK_SIZE + 64);
+	private char chars[];
+	private CharBuffer charBuffer;
+	private ByteBuffer byteBuffer;
+	/** Pending operations, or strings and characters if the operation is null */
+	private Operation stackOperations[] = new Operation[16];
+	private String stackStrings[] = new String[16];
+	private char stackChars[] = new char[16];
+	private int stackSize;
+
+	public OperationPrinter(Appendable out, Print type)
+	{
+		if (out == null || type == null)
+			throw new NullPointerException();
+		this.out = out;
+		this.type = type;
+		this.channel = null;
+		this.encoder = null;
+	}
+
+	/**
+	 * Encodes the output with the charset, characters which can't be encoded are replaced
+	 */
+	public OperationPrinter(WritableByteChannel channel, Charset charset, Print type)
+	{
+		if (channel == null || type == null)
+			throw new NullPointerException();
+		this.out = null;
+		this.type = type;
+		this.channel = channel;
+		this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.chars = new char[BLOCK_SIZE];
+		this.charBuffer = CharBuffer.wrap(chars);
+		this.byteBuffer = ByteBuffer.allocate((int)Math.ceil(BLOCK_SIZE * encoder.maxBytesPerChar()));
+	}
+
+	public final Print getType()
+	{
+		return type;
+	}
+
+	public final OperationPrinter append(char c) throws IOException
+	{
+		block.append(c);
+		if (block.length() >= BLOCK_SIZE)
+			writeBlock();
+		return this;
+	}
+
+	public final OperationPrinter append(CharSequence str) throws IOException
+	{
+		block.append(str);
+		if (block.length() >= BLOCK_SIZE)
+			writeBlock();
+		return this;
+	}
+
+	public final OperationPrinter print(Operation op) throws IOException
+	{
+		push(op);
+		while (stackSize != 0)
+		{
+			--stackSize;
+			final Operation current = stackOperations[stackSize];
+			if (current == null)
+			{
+				final String str = stackStrings[stackSize];
+				if (str == null)
+					block.append(stackChars[stackSize]);
+				else
+					block.append(str);
+			}
+			else
+			{
+				stackOperations[stackSize] = null;
+				expand(current);
+			}
+			if (block.length() >= BLOCK_SIZE)
+				writeBlock();
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the beginning of the operation and pushes the rest in reverse order
+	 */
+	private final void expand(Operation op)
+	{
+		final Class<?> printing = PRINTING_CLASS.get(op.getClass());
+		if (printing == LinkingOperation.class
+				|| (type == Print.CALGRAPH && (printing == MultiplicationOperation.class || printing == DivisionOperation.class))
+				|| (type != Print.LATEX && printing == LowerEqualsOperation.class))
+		{
+			pushLinking((LinkingOperation)op, null);
+		}
+		else if (printing == MultiplicationOperation.class && type != Print.OPEN_OFFICE)
+		{
+			pushLinking((LinkingOperation)op, "\\cdot ");
+		}
+		else if (printing == MultiplicationOperation.class)
+		{
+			pushLinking((LinkingOperation)op, " cdot ");
+		}
+		else if (printing == LowerEqualsOperation.class)
+		{
+			pushLinking((LinkingOperation)op, "\\leq ");
+		}
+		else if (printing == DivisionOperation.class)
+		{
+			final boolean latex = type == Print.LATEX;
+			block.append(latex ? "\\frac{" : "{");
+			push('}');
+			push(op.get(1));
+			push(latex ? "}{" : "}over{");
+			push(op.get(0));
+		}
+		else if (printing == PowerOperation.class && type == Print.CALGRAPH)
+		{
+			final Operation a = op.get(0), b = op.get(1);
+			if (b.isRealIntegerNumber())
+			{
+				push(Characters.toHighString(String.valueOf(b.longValue())));
+			}
+			else
+			{
+				pushClipped(b, b.getPriority() <= op.getPriority());
+				push(Characters.POW);
+			}
+			pushClipped(a, a.getPriority() <= op.getPriority());
+		}
+		else if (printing == PowerOperation.class)
+		{
+			push('}');
+			push(op.get(1));
+			push("^{");
+			push(op.get(0));
+		}
+		else if (printing == NegativeOperation.class || printing == NotOperation.class)
+		{
+			final Operation a = op.get(0);
+			final boolean negative = printing == NegativeOperation.class;
+			block.append(negative ? Characters.SUB : Characters.NOT);
+			pushClipped(a, negative ? a.getPriority() <= op.getPriority() : a.getPriority() < op.getPriority());
+		}
+		else if (printing == FunctionOperation.class)
+		{
+			if (type == Print.LATEX)
+				block.append('\\');
+			block.append(((FunctionOperation)op).getFunctionName()).append('(');
+			pushList(op, ')');
+		}
+		else if (printing == CommandOperation.class)
+		{
+			push(op.get(1));
+			push(';');
+			push(op.get(0));
+		}
+		else if (printing == ArrayOperation.class && type == Print.CALGRAPH)
+		{
+			block.append('{');
+			pushList(op, '}');
+		}
+		else
+		{
+			op.toString(type, block);
+		}
+	}
+
+	/**
+	 * @param separator the separator or null for the character of the operation
+	 */
+	private final void pushLinking(LinkingOperation op, String separator)
+	{
+		pushClipped(op.get(1), op.needClip(1));
+		if (separator == null)
+			push(op.getChar());
+		else
+			push(separator);
+		pushClipped(op.get(0), op.needClip(0));
+	}
+
+	private final void pushClipped(Operation op, boolean clip)
+	{
+		if (clip)
+		{
+			push(')');
+			push(op);
+			push('(');
+		}
+		else
+		{
+			push(op);
+		}
+	}
+
+	private final void pushList(Operation op, char close)
+	{
+		push(close);
+		for (int i = op.size() - 1; i >= 0; --i)
+		{
+			push(op.get(i));
+			if (i != 0)
+				push(',');
+		}
+	}
+
+	private final void push(Operation op)
+	{
+		ensureStackCapacity();
+		stackOperations[stackSize++] = op;
+	}
+
+	private final void push(String str)
+	{
+		ensureStackCapacity();
+		stackStrings[stackSize++] = str;
+	}
+
+	private final void push(char c)
+	{
+		ensureStackCapacity();
+		stackStrings[stackSize] = null;
+		stackChars[stackSize++] = c;
+	}
+
+	private final void ensureStackCapacity()
+	{
+		if (stackSize == stackOperations.length)
+		{
+			stackOperations = Arrays.copyOf(stackOperations, stackSize * 2);
+			stackStrings = Arrays.copyOf(stackStrings, stackSize * 2);
+			stackChars = Arrays.copyOf(stackChars, stackSize * 2);
+		}
+	}
+
+	private final void writeBlock() throws IOException
+	{
+		if (channel != null)
+		{
+			encode(false);
+		}
+		else if (out instanceof Writer)
+		{
+			if (chars == null)
+				chars = new char[BLOCK_SIZE];
+			for (int i = 0; i < block.length(); i += chars.length)
+			{
+				final int length = Math.min(chars.length, block.length() - i);
+				block.getChars(i, i + length, chars, 0);
+				((Writer)out).write(chars, 0, length);
+			}
+		}
+		else
+		{
+			out.append(block);
+		}
+		block.setLength(0);
+	}
+
+	private final void encode(boolean endOfInput) throws IOException
+	{
+		for (int i = 0; i < block.length();)
+		{
+			final int length = Math.min(charBuffer.remaining(), block.length() - i);
+			block.getChars(i, i + length, chars, charBuffer.position());
+			charBuffer.position(charBuffer.position() + length);
+			i += length;
+			charBuffer.flip();
+			encode(charBuffer, false);
+			charBuffer.compact();
+		}
+		if (endOfInput)
+		{
+			charBuffer.flip();
+			encode(charBuffer, true);
+			charBuffer.clear();
+			CoderResult result;
+			do
+			{
+				result = encoder.flush(byteBuffer);
+				writeBytes();
+			}while (result.isOverflow());
+			encoder.reset();
+		}
+	}
+
+	private final void encode(CharBuffer in, boolean endOfInput) throws IOException
+	{
+		while (true)
+		{
+			final CoderResult result = encoder.encode(in, byteBuffer, endOfInput);
+			if (result.isError())
+				result.throwException();
+			writeBytes();
+			if (result.isUnderflow())
+				return;
+		}
+	}
+
+	private final void writeBytes() throws IOException
+	{
+		byteBuffer.flip();
+		while (byteBuffer.hasRemaining())
+			channel.write(byteBuffer);
+		byteBuffer.clear();
+	}
+
+	/**
+	 * Passes the buffered characters on and flushes the target if it is flushable. A channel receives all characters, the encoder is reset afterwards.
+	 */
+	@Override
+	public final void flush() throws IOException
+	{
+		if (channel != null)
+		{
+			encode(true);
+			block.setLength(0);
+			return;
+		}
+		writeBlock();
+		if (out instanceof Flushable)
+			((Flushable)out).flush();
+	}
+}
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import maths.data.ArrayOperation;
+import maths.data.BooleanOperation;
+import maths.data.CharacterOperation;
+import maths.data.ComplexDoubleOperation;
+import maths.data.ComplexLongOperation;
+import maths.data.ComplexRationalOperation;
+import maths.data.RealDoubleOperation;
+import maths.data.RealLongOperation;
+import maths.data.RealRationalOperation;
+import maths.data.StringId;
+import maths.data.StringOperation;
+import maths.exception.OperationParseException;
+import maths.functions.ArrayIndexOperation;
+import maths.functions.Faculty;
+import maths.variable.UserVariableOperation;
+
+/**
+ * Reads bundles which were written by {@link OperationWriter}.
+ * Only the string table and the offset table are read when the bundle is opened, every entry is decoded on its first request.
+ * The buffer is only accessed with absolute reads, so a bundle can be shared between threads.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class OperationReader
+{
+	private final ByteBuffer buffer;
+	private final FunctionRegistry registry;
+	private final String strings[];
+	private final StringId.StringIdObject names[];
+	private final int offsetTable, data;
+	private final AtomicReferenceArray<Operation> entries;
+
+	public OperationReader(byte data[])
+	{
+		this(ByteBuffer.wrap(data));
+	}
+
+	public OperationReader(ByteBuffer buffer)
+	{
+		this(buffer, FunctionRegistry.getDefault());
+	}
+
+	/**
+	 * @param buffer the bundle, the content between the position and the limit is read
+	 * @param registry the registry which creates the functions
+	 */
+	public OperationReader(ByteBuffer buffer, FunctionRegistry registry)
+	{
+		if (registry == null)
+			throw new NullPointerException();
+		this.buffer = buffer.slice();
+		this.registry = registry;
+		final Decoder decoder = new Decoder(0);
+		if (decoder.readInt() != OperationWriter.MAGIC)
+			throw new IllegalArgumentException("Not an operation bundle");
+		final byte version = this.buffer.get(decoder.pos++);
+		if (version != OperationWriter.VERSION)
+			throw new IllegalArgumentException("Unsupported version " + version);
+		strings = new String[decoder.readVarint()];
+		for (int i = 0; i < strings.length; ++i)
+		{
+			final char ch[] = new char[decoder.readVarint()];
+			for (int j = 0; j < ch.length; ++j)
+			{
+				ch[j] = (char)decoder.readVarint();
+			}
+			strings[i] = new String(ch);
+		}
+		names = new StringId.StringIdObject[strings.length];
+		entries = new AtomicReferenceArray<>(decoder.readVarint());
+		offsetTable = decoder.pos;
+		data = offsetTable + entries.length() * 4;
+	}
+
+	/**
+	 * Maps the file into memory and opens it as bundle
+	 */
+	public static final OperationReader map(File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			return new OperationReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Reads the first entry of a bundle
+	 */
+	public static final Operation read(byte data[]) throws OperationParseException
+	{
+		return new OperationReader(data).get(0);
+	}
+
+	public final int size()
+	{
+		return entries.length();
+	}
+
+	/**
+	 * Returns the entry with the given index and decodes it if it wasn't requested before
+	 */
+	public final Operation get(int index) throws OperationParseException
+	{
+		Operation op = entries.get(index);
+		if (op == null)
+		{
+			op = new Decoder(data + new Decoder(offsetTable + index * 4).readInt()).read();
+			if (!entries.compareAndSet(index, null, op))
+			{
+				op = entries.get(index);
+			}
+		}
+		return op;
+	}
+
+	private final StringId.StringIdObject getName(int index)
+	{
+		StringId.StringIdObject name = names[index];
+		if (name == null)
+		{
+			names[index] = name = StringId.getStringAndId(strings[index]);
+		}
+		return name;
+	}
+
+	private final class Decoder
+	{
+		private int pos;
+
+		private Decoder(int pos)
+		{
+			this.pos = pos;
+		}
+
+		private final Operation read() throws OperationParseException
+		{
+			final byte tag = buffer.get(pos++);
+			switch (tag)
+			{
+				case OperationWriter.TEXT:				return OperationCompiler.compile(readString());
+				case OperationWriter.LONG:				return new RealLongOperation(readLong());
+				case OperationWriter.DOUBLE:			return new RealDoubleOperation(readDouble());
+				case OperationWriter.RATIONAL:			return RealRationalOperation.getInstance(readLong(), readLong());
+				case OperationWriter.COMPLEX_LONG:		return ComplexLongOperation.get(readLong(), readLong());
+				case OperationWriter.COMPLEX_DOUBLE:	return ComplexDoubleOperation.get(readDouble(), readDouble());
+				case OperationWriter.COMPLEX_RATIONAL:	return ComplexRationalOperation.getInstance(readLong(), readLong(), readLong(), readLong());
+				case OperationWriter.TRUE:				return BooleanOperation.TRUE;
+				case OperationWriter.FALSE:				return BooleanOperation.FALSE;
+				case OperationWriter.CHARACTER:			return CharacterOperation.getInstance((char)readVarint());
+				case OperationWriter.STRING:			return new StringOperation(readString());
+				case OperationWriter.VARIABLE:			return new UserVariableOperation(getName(readVarint()));
+				case OperationWriter.ARRAY:
+				{
+					final Operation operations[] = readChildren();
+					return operations.length == 0 ? ArrayOperation.EMPTY_ARRAY_OPERATION : ArrayOperation.getInstance(operations);
+				}
+				case OperationWriter.UNARY:
+				{
+					final char c = (char)readVarint();
+					return check(OperationCompiler.get(c, read()), c);
+				}
+				case OperationWriter.BINARY:
+				{
+					final char c = (char)readVarint();
+					final Operation a = read();
+					return check(OperationCompiler.get(c, a, read()), c);
+				}
+				case OperationWriter.FUNCTION:
+				{
+					final String name = readString();
+					final Operation parameter[] = readChildren();
+					final FunctionRegistry.Factory factory = registry.get(name, parameter.length);
+					if (factory == null)
+						throw new IllegalArgumentException("Unknown function " + name + " with " + parameter.length + " parameters");
+					return factory.create(parameter);
+				}
+				case OperationWriter.USER_FUNCTION:
+				{
+					final StringId.StringIdObject name = getName(readVarint());
+					return new UserFunctionOperation(name, readChildren());
+				}
+				case OperationWriter.FACULTY:			return new Faculty(read());
+				case OperationWriter.INDEX:
+				{
+					final Operation a = read();
+					return new ArrayIndexOperation(a, read());
+				}
+			}
+			throw new IllegalArgumentException("Unknown tag " + tag + " at " + (pos - 1));
+		}
+
+		private final Operation check(Operation op, char c)
+		{
+			if (op == null)
+				throw new IllegalArgumentException("Unknown operator " + c + " at " + pos);
+			return op;
+		}
+
+		private final Operation[] readChildren() throws OperationParseException
+		{
+			final int size = readVarint();
+			if (size == 0)
+			{
+				return Operation.EMPTY_OPERATION_ARRAY;
+			}
+			final Operation operations[] = new Operation[size];
+			for (int i = 0; i < size; ++i)
+			{
+				operations[i] = read();
+			}
+			return operations;
+		}
+
+		private final String readString()
+		{
+			return strings[readVarint()];
+		}
+
+		private final int readVarint()
+		{
+			int result = 0;
+			for (int shift = 0;; shift += 7)
+			{
+				final byte b = buffer.get(pos++);
+				result |= (b & 0x7F) << shift;
+				if (b >= 0)
+				{
+					return result;
+				}
+			}
+		}
+
+		private final int readInt()
+		{
+			final int result = buffer.getInt(pos);
+			pos += 4;
+			return result;
+		}
+
+		private final long readLong()
+		{
+			final long result = buffer.getLong(pos);
+			pos += 8;
+			return result;
+		}
+
+		private final double readDouble()
+		{
+			return Double.longBitsToDouble(readLong());
+		}
+	}
+}
@@ -0,0 +1,358 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import maths.data.ArrayOperation;
+import maths.data.BooleanOperation;
+import maths.data.CharacterOperation;
+import maths.data.Characters;
+import maths.data.ComplexDoubleOperation;
+import maths.data.ComplexLongOperation;
+import maths.data.ComplexRationalOperation;
+import maths.data.RealDoubleOperation;
+import maths.data.RealLongOperation;
+import maths.data.RealRationalOperation;
+import maths.data.StringOperation;
+import maths.functions.ArrayIndexOperation;
+import maths.functions.Faculty;
+import maths.functions.FunctionOperation;
+import maths.functions.atomic.PowerOperation;
+import maths.variable.UserVariableOperation;
+
+/**
+ * Writes compiled operations in the binary format which is read by {@link OperationReader}.
+ * A bundle starts with a magic number and the version, followed by a table of all names and strings, a table of the entry offsets and the encoded trees.
+ * Every node starts with a type tag, numbers are stored as raw long and double values, names and strings as varint references into the string table.
+ * Operators are stored by their character and functions by their name and number of parameters, so the reader builds the trees with the same classes as the compiler.
+ * Nodes of any other class are stored in their textual form and compiled while reading.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class OperationWriter
+{
+	static final int MAGIC = 0x4A534D42;
+	static final byte VERSION = 1;
+
+	static final byte TEXT = 0, LONG = 1, DOUBLE = 2, RATIONAL = 3, COMPLEX_LONG = 4, COMPLEX_DOUBLE = 5, COMPLEX_RATIONAL = 6,
+			TRUE = 7, FALSE = 8, CHARACTER = 9, STRING = 10, VARIABLE = 11, ARRAY = 12, UNARY = 13, BINARY = 14,
+			FUNCTION = 15, USER_FUNCTION = 16, FACULTY = 17, INDEX = 18;
+
+	private static final HashMap<Class<?>, Character> unaryOperators = new HashMap<>();
+	private static final HashMap<Class<?>, Character> binaryOperators = new HashMap<>();
+	static{
+		final Operation a = new UserVariableOperation("a"), b = new UserVariableOperation("b");
+		for (char c : OperationCompiler.calculationCharacters)
+		{
+			Operation op = OperationCompiler.get(c, a);
+			if (op != null && op != a && !unaryOperators.containsKey(op.getClass()))
+			{
+				unaryOperators.put(op.getClass(), c);
+			}
+			op = OperationCompiler.get(c, a, b);
+			if (op != null && !binaryOperators.containsKey(op.getClass()))
+			{
+				binaryOperators.put(op.getClass(), c);
+			}
+		}
+	}
+
+	private final ArrayList<Operation> entries = new ArrayList<>();
+	private final HashMap<String, Integer> stringIndex = new HashMap<>();
+	private final ArrayList<String> strings = new ArrayList<>();
+	private final FunctionRegistry registry;
+	private byte data[] = new byte[256];
+	private int size;
+
+	public OperationWriter()
+	{
+		this(FunctionRegistry.getDefault());
+	}
+
+	/**
+	 * @param registry the registry which is used by the reader
+	 */
+	public OperationWriter(FunctionRegistry registry)
+	{
+		if (registry == null)
+			throw new NullPointerException();
+		this.registry = registry;
+	}
+
+	/**
+	 * Adds an operation to the bundle
+	 * @return the index of the operation in the bundle
+	 */
+	public final int add(Operation op)
+	{
+		if (op == null)
+			throw new NullPointerException();
+		entries.add(op);
+		return entries.size() - 1;
+	}
+
+	public final int size()
+	{
+		return entries.size();
+	}
+
+	public final byte[] toByteArray()
+	{
+		size = 0;
+		final int offsets[] = new int[entries.size()];
+		for (int i = 0; i < offsets.length; ++i)
+		{
+			offsets[i] = size;
+			write(entries.get(i));
+		}
+		final byte body[] = Arrays.copyOf(data, size);
+		size = 0;
+		writeInt(MAGIC);
+		writeByte(VERSION);
+		writeVarint(strings.size());
+		for (int i = 0; i < strings.size(); ++i)
+		{
+			final String str = strings.get(i);
+			writeVarint(str.length());
+			for (int j = 0; j < str.length(); ++j)
+			{
+				writeVarint(str.charAt(j));
+			}
+		}
+		writeVarint(offsets.length);
+		for (int i = 0; i < offsets.length; ++i)
+		{
+			writeInt(offsets[i]);
+		}
+		final byte result[] = Arrays.copyOf(data, size + body.length);
+		System.arraycopy(body, 0, result, size, body.length);
+		return result;
+	}
+
+	public final void write(OutputStream out) throws IOException
+	{
+		out.write(toByteArray());
+	}
+
+	public static final byte[] toByteArray(Operation op)
+	{
+		final OperationWriter writer = new OperationWriter();
+		writer.add(op);
+		return writer.toByteArray();
+	}
+
+	public static final byte[] toByteArray(List<Operation> list)
+	{
+		final OperationWriter writer = new OperationWriter();
+		for (int i = 0; i < list.size(); ++i)
+		{
+			writer.add(list.get(i));
+		}
+		return writer.toByteArray();
+	}
+
+	private final void write(Operation op)
+	{
+		final Class<?> cl = op.getClass();
+		if (cl == RealLongOperation.class)
+		{
+			writeByte(LONG);
+			writeLong(op.longValue());
+		}
+		else if (cl == RealDoubleOperation.class)
+		{
+			writeByte(DOUBLE);
+			writeLong(Double.doubleToRawLongBits(op.doubleValue()));
+		}
+		else if (cl == RealRationalOperation.class)
+		{
+			writeByte(RATIONAL);
+			writeLong(op.longNumeratorValue());
+			writeLong(op.longDenumeratorValue());
+		}
+		else if (cl == ComplexLongOperation.class)
+		{
+			writeByte(COMPLEX_LONG);
+			writeLong(op.longValue());
+			writeLong(op.longValueImag());
+		}
+		else if (cl == ComplexDoubleOperation.class)
+		{
+			writeByte(COMPLEX_DOUBLE);
+			writeLong(Double.doubleToRawLongBits(op.doubleValue()));
+			writeLong(Double.doubleToRawLongBits(op.doubleValueImag()));
+		}
+		else if (cl == ComplexRationalOperation.class)
+		{
+			writeByte(COMPLEX_RATIONAL);
+			writeLong(op.longNumeratorValue());
+			writeLong(op.longDenumeratorValue());
+			writeLong(op.longNumeratorValueImag());
+			writeLong(op.longDenumeratorValueImag());
+		}
+		else if (op == BooleanOperation.TRUE)
+		{
+			writeByte(TRUE);
+		}
+		else if (op == BooleanOperation.FALSE)
+		{
+			writeByte(FALSE);
+		}
+		else if (cl == CharacterOperation.class)
+		{
+			writeByte(CHARACTER);
+			writeVarint((char)op.longValue());
+		}
+		else if (cl == StringOperation.class)
+		{
+			writeByte(STRING);
+			writeString(op.stringValue());
+		}
+		else if (cl == UserVariableOperation.class)
+		{
+			writeByte(VARIABLE);
+			writeString(((UserVariableOperation)op).nameObject.string);
+		}
+		else if (cl == ArrayOperation.class)
+		{
+			writeByte(ARRAY);
+			writeChildren(op);
+		}
+		else if (cl == Faculty.class)
+		{
+			writeByte(FACULTY);
+			write(op.get(0));
+		}
+		else if (cl == ArrayIndexOperation.class)
+		{
+			writeByte(INDEX);
+			write(op.get(0));
+			write(op.get(1));
+		}
+		else if (cl == UserFunctionOperation.class)
+		{
+			writeByte(USER_FUNCTION);
+			writeString(((UserFunctionOperation)op).getFunctionName());
+			writeChildren(op);
+		}
+		else if (op.size() == 1 && unaryOperators.containsKey(cl))
+		{
+			writeByte(UNARY);
+			writeVarint(unaryOperators.get(cl));
+			write(op.get(0));
+		}
+		else if (op.size() == 2 && (binaryOperators.containsKey(cl) || op instanceof PowerOperation))
+		{
+			//Subclasses of the power are created again by the factory method of the power
+			writeByte(BINARY);
+			writeVarint(op instanceof PowerOperation ? Characters.POW : binaryOperators.get(cl));
+			write(op.get(0));
+			write(op.get(1));
+		}
+		else if (op instanceof FunctionOperation && isRegistered((FunctionOperation)op))
+		{
+			writeByte(FUNCTION);
+			writeString(((FunctionOperation)op).getFunctionName());
+			writeChildren(op);
+		}
+		else
+		{
+			writeByte(TEXT);
+			writeString(op.toString());
+		}
+	}
+
+	/**
+	 * A function is only stored by its name if it was registered with its class, so the reader creates the same operation again
+	 */
+	private final boolean isRegistered(FunctionOperation op)
+	{
+		return registry.getType(op.getFunctionName(), op.size()) == op.getClass();
+	}
+
+	private final void writeChildren(Operation op)
+	{
+		final int size = op.size();
+		writeVarint(size);
+		for (int i = 0; i < size; ++i)
+		{
+			write(op.get(i));
+		}
+	}
+
+	private final void writeString(String str)
+	{
+		Integer index = stringIndex.get(str);
+		if (index == null)
+		{
+			stringIndex.put(str, index = strings.size());
+			strings.add(str);
+		}
+		writeVarint(index);
+	}
+
+	private final void ensureCapacity(int capacity)
+	{
+		if (capacity > data.length)
+		{
+			data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+		}
+	}
+
+	private final void writeByte(int value)
+	{
+		ensureCapacity(size + 1);
+		data[size++] = (byte)value;
+	}
+
+	private final void writeVarint(int value)
+	{
+		ensureCapacity(size + 5);
+		while ((value & ~0x7F) != 0)
+		{
+			data[size++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data[size++] = (byte)value;
+	}
+
+	private final void writeInt(int value)
+	{
+		ensureCapacity(size + 4);
+		data[size++] = (byte)(value >>> 24);
+		data[size++] = (byte)(value >>> 16);
+		data[size++] = (byte)(value >>> 8);
+		data[size++] = (byte)value;
+	}
+
+	private final void writeLong(long value)
+	{
+		writeInt((int)(value >>> 32));
+		writeInt((int)value);
+	}
+}
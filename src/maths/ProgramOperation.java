@@ -22,10 +22,12 @@
 package maths;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import maths.data.BooleanOperation;
 import maths.exception.ExceptionOperation;
+import maths.algorithm.ProgramMachine;
 import maths.exception.OperationParseException;
 import maths.functions.FunctionOperation;
 import maths.variable.VariableAmount;
@@ -46,6 +48,11 @@ public class ProgramOperation extends FunctionOperation {
 
 	public final Operation a;
 	private final Item top;
+	/**
+	 * Created when the program is calculated first, so the interpretation of edited programs doesn't lower them
+	 */
+	private volatile ProgramMachine machine;
+	private static volatile boolean machineEnabled = true;
 
 	public static Operation getInstance(Operation a){
 		if (a == null)
@@ -58,10 +65,124 @@ public class ProgramOperation extends FunctionOperation {
 	}
 
 	public ProgramOperation(Operation a) throws InterpretException{
-		if ((this.a = a).isString()){
-			top = interpret(a.stringValue());
-		}else{
-			top = null;
+		this(a, a.isString() ? interpret(a.stringValue(), null) : null);
+	}
+
+	private ProgramOperation(Operation a, Item top){
+		this.a = a;
+		this.top = top;
+	}
+
+	private static ProgramMachine lower(Item top){
+		final ProgramMachine.Builder builder = new ProgramMachine.Builder();
+		top.lower(builder);
+		return builder.build();
+	}
+
+	/**
+	 * Enables the {@link ProgramMachine}, if disabled every program is calculated by walking its items
+	 */
+	public static final void setMachineEnabled(boolean enabled){
+		machineEnabled = enabled;
+	}
+
+	public static final boolean isMachineEnabled(){
+		return machineEnabled;
+	}
+
+	/**
+	 * Interpreter for programs which are edited, like in an editor.
+	 * Compiled lines are cached by their content and blocks by their lines, so after a change only the changed lines are compiled and only the blocks which contain them are build again.
+	 * Blocks of the previous interpretation which are not used anymore are released.
+	 */
+	public static final class Interpreter{
+		private final CompileCache cache;
+		private final OperationCompiler.CompileOptions opt = new OperationCompiler.CompileOptions();
+		private HashMap<Block, Item> items = new HashMap<>(), previousItems = new HashMap<>();
+		private long reusedItems, builtItems;
+
+		/**
+		 * @param maxLines the maximum number of compiled lines which are cached
+		 */
+		public Interpreter(int maxLines){
+			cache = new CompileCache(maxLines, CompileCache.Eviction.LRU);
+		}
+
+		/**
+		 * Interprets the program like {@link ProgramOperation#getInstance(Operation)}
+		 */
+		public final synchronized Operation getInstance(Operation a){
+			if (a == null)
+				throw new NullPointerException();
+			if (!a.isString())
+				return new ProgramOperation(a, null);
+			previousItems = items;
+			items = new HashMap<>();
+			try {
+				return new ProgramOperation(a, interpret(a.stringValue(), this));
+			} catch (InterpretException e) {
+				return new ExceptionOperation("Fehler beim \u00FCbersetzen in Zeile " + e.line);
+			}
+		}
+
+		private final Operation compile(String line, int begin, int end) throws OperationParseException{
+			return cache.compile(line, begin, end, opt);
+		}
+
+		private final Item get(Block block){
+			Item item = items.get(block);
+			if (item == null && (item = previousItems.get(block)) != null)
+				items.put(block, item);
+			return item;
+		}
+
+		public final CompileCache getCache(){
+			return cache;
+		}
+
+		public final synchronized long getReusedItems(){
+			return reusedItems;
+		}
+
+		public final synchronized long getBuiltItems(){
+			return builtItems;
+		}
+	}
+
+	/**
+	 * Lines of a block and the index of the first line, which is part of the interpreted items
+	 */
+	private static final class Block{
+		private final String lines[];
+		private final int start, end;
+		private final int hash;
+
+		private Block(String lines[], int start, int end){
+			this.lines = lines;
+			this.start = start;
+			this.end = end;
+			int hash = start;
+			for (int i = start; i < end; ++i)
+				hash = hash * 31 + lines[i].hashCode();
+			this.hash = hash;
+		}
+
+		@Override
+		public final int hashCode(){
+			return hash;
+		}
+
+		@Override
+		public final boolean equals(Object o){
+			if (!(o instanceof Block))
+				return false;
+			final Block b = (Block)o;
+			if (b.hash != hash || b.start != start || b.end != end)
+				return false;
+			for (int i = start; i < end; ++i)
+				if (!lines[i].equals(b.lines[i]))
+					return false;
+			return true;
 		}
 	}
 
@@ -90,7 +211,15 @@ public class ProgramOperation extends FunctionOperation {
 		return -1;
 	}
 
-	private static Item interpret(String str) throws InterpretException{
+	private static Operation compile(String line, int begin, Interpreter interpreter) throws OperationParseException{
+		final int end = begin == 0 ? line.length() : line.length() - 1;
+		return interpreter == null ? OperationCompiler.compile(line, begin, end) : interpreter.compile(line, begin, end);
+	}
+
+	/**
+	 * Every line is compiled once, conditions and returned values are stored at the index of their line
+	 */
+	private static Item interpret(String str, Interpreter interpreter) throws InterpretException{
 		str = str.replace("\r","");
 		ArrayList<String> al = new ArrayList<>();
 		StringUtils.split(str, 0, str.length(), '\n', true, al);
@@ -106,59 +235,67 @@ public class ProgramOperation extends FunctionOperation {
 				j++;
 			lines[i] = line = line.substring(j);
 			types[i] = getType(line);
-			switch(types[i]){
-				case IF:{
-					stack = ArrayTools.push_back(stack, size, IF);
-					break;
-				}case ELSE:{
-					if (stack[size - 1] != IF)
-						throw new InterpretException(i);
-					stack[size - 1] = ELSE;
-					break;
-				}case ENDIF:{
-					final int top = stack[--size];
-					if (top != IF && top != ELSE)
-						throw new InterpretException(i);
-					break;
-				}case WHILE:{
-					stack = ArrayTools.push_back(stack, size, WHILE);
-					break;
-				}case ENDWHILE:{
-					if (stack[--size]!= WHILE)
-						throw new InterpretException(i);
-					break;
-				}case RETURN:{
-					break;
-				}case SCIP:{
-					break;
-				}default:{
-					try {
-						ops[i] = OperationCompiler.compile(line);
-					} catch (OperationParseException e) {
-						throw new InterpretException(i);
+			try{
+				switch(types[i]){
+					case IF:{
+						stack = ArrayTools.push_back(stack, size++, IF);
+						ops[i] = compile(line, 3, interpreter);
+						break;
+					}case ELSE:{
+						if (size == 0 || stack[size - 1] != IF)
+							throw new InterpretException(i);
+						stack[size - 1] = ELSE;
+						break;
+					}case ENDIF:{
+						final int top = size == 0 ? -1 : stack[--size];
+						if (top != IF && top != ELSE)
+							throw new InterpretException(i);
+						break;
+					}case WHILE:{
+						stack = ArrayTools.push_back(stack, size++, WHILE);
+						ops[i] = compile(line, 6, interpreter);
+						break;
+					}case ENDWHILE:{
+						if (size == 0 || stack[--size]!= WHILE)
+							throw new InterpretException(i);
+						break;
+					}case RETURN:{
+						ops[i] = compile(line, 7, interpreter);
+						break;
+					}case SCIP:{
+						break;
+					}default:{
+						ops[i] = compile(line, 0, interpreter);
 					}
 				}
+			} catch (OperationParseException e) {
+				throw new InterpretException(i);
 			}
 		}
-		return interpret(0, lines.length, lines, types, ops);
+		return interpret(0, lines.length, lines, types, ops, interpreter);
+	}
 
+	private static Item interpret(final int start, final int end, final String lines[], final byte lineTypes[], final Operation lineOps[], final Interpreter interpreter) throws InterpretException{
+		if (interpreter == null)
+			return build(start, end, lines, lineTypes, lineOps, interpreter);
+		final Block block = new Block(lines, start, end);
+		Item item = interpreter.get(block);
+		if (item == null){
+			item = build(start, end, lines, lineTypes, lineOps, interpreter);
+			interpreter.items.put(block, item);
+			++interpreter.builtItems;
+		}else{
+			++interpreter.reusedItems;
+		}
+		return item;
 	}
 
-	private static Item interpret(final int start, final int end, final String lines[], final byte lineTypes[], final Operation lineOps[]) throws InterpretException{
+	private static Item build(final int start, final int end, final String lines[], final byte lineTypes[], final Operation lineOps[], final Interpreter interpreter) throws InterpretException{
 		if (end-start == 1){
-			String line = lines[start];
 			if (lineTypes[start] == -1)
-				try {
-					return new StatementItem(OperationCompiler.compile(line), start);
-				} catch (OperationParseException e) {
-					throw new InterpretException(start);
-				}
-			if (lineTypes[start] == 6)
-				try {
-					return new ReturnItem(OperationCompiler.compile(line, 7,line.length()-1), start);
-				} catch (OperationParseException e) {
-					throw new InterpretException(start);
-				}
+				return new StatementItem(lineOps[start], start);
+			if (lineTypes[start] == RETURN)
+				return new ReturnItem(lineOps[start], start);
 		}
 
 		ArrayList<Item> statements = new ArrayList<>();
@@ -177,10 +314,10 @@ public class ProgramOperation extends FunctionOperation {
 						if (--rek == 0){
 							if (lastBegin == start && i+1==end){
 								if (elseIndex == -1)
-									return new IfItem(OperationCompiler.compile(lines[start], 3, lines[start].length()-1), interpret(start+1, end-1, lines, lineTypes, lineOps), start);
-								return new IfElseItem(OperationCompiler.compile(lines[start], 3, lines[start].length()-1), interpret(start+1, elseIndex, lines, lineTypes, lineOps), interpret(elseIndex+1, end-1, lines, lineTypes, lineOps), start);
+									return new IfItem(lineOps[start], interpret(start+1, end-1, lines, lineTypes, lineOps, interpreter), start);
+								return new IfElseItem(lineOps[start], interpret(start+1, elseIndex, lines, lineTypes, lineOps, interpreter), interpret(elseIndex+1, end-1, lines, lineTypes, lineOps, interpreter), start);
 							}
-							statements.add(interpret(lastBegin,i+1, lines, lineTypes, lineOps));
+							statements.add(interpret(lastBegin,i+1, lines, lineTypes, lineOps, interpreter));
 						}
 						break;
 					}case WHILE:{
@@ -190,9 +327,9 @@ public class ProgramOperation extends FunctionOperation {
 					}case ENDWHILE:{
 						if (--rek == 0){
 							if (lastBegin == start && i+1==end){
-								return new WhileItem(OperationCompiler.compile(lines[start], 6, lines[start].length()-1), interpret(start+1, end-1, lines, lineTypes, lineOps), start);
+								return new WhileItem(lineOps[start], interpret(start+1, end-1, lines, lineTypes, lineOps, interpreter), start);
 							}
-							statements.add(interpret(lastBegin,i+1, lines, lineTypes, lineOps));
+							statements.add(interpret(lastBegin,i+1, lines, lineTypes, lineOps, interpreter));
 						}
 						break;
 					}case ELSE:{
@@ -201,7 +338,7 @@ public class ProgramOperation extends FunctionOperation {
 						break;
 					}case RETURN:{
 						if (rek == 0)
-							statements.add(new ReturnItem(OperationCompiler.compile(line, 7,line.length()-1), start));
+							statements.add(new ReturnItem(lineOps[i], i));
 						break;
 					}case SCIP:{
 						break;
@@ -224,12 +361,21 @@ public class ProgramOperation extends FunctionOperation {
 	@Override
 	public Operation calculate(VariableAmount object, CalculationController control) {
 		Item top = this.top;
+		if (machineEnabled && top != null){
+			ProgramMachine machine = this.machine;
+			if (machine == null)
+				this.machine = machine = lower(top);
+			if (machine.canRun(object)){
+				final Operation op = machine.run(object, control);
+				return op == null ? BooleanOperation.TRUE : op;
+			}
+		}
 		if (top == null){
 			final Operation a = this.a.calculate(object, control);
 			if (!(a.isString()))
 				return getInstance(a);
 			try {
-				top = interpret(a.stringValue());
+				top = interpret(a.stringValue(), null);
 			} catch (InterpretException e) {
 				return new ExceptionOperation("Error in Code line " + e.line);
 			}
@@ -268,6 +414,8 @@ public class ProgramOperation extends FunctionOperation {
 			this.line = line;
 		}
 		protected abstract Operation calculate(VariableStack vs, CalculationController control);
+
+		protected abstract void lower(ProgramMachine.Builder builder);
 	}
 
 	private static class IfElseItem extends Item{
@@ -290,6 +438,17 @@ public class ProgramOperation extends FunctionOperation {
 				return b.calculate(vs, control);
 			return new ExceptionOperation("Weder true noch false in Abfrage in Zeile:" + line);
 		}
+
+		@Override
+		protected void lower(ProgramMachine.Builder builder) {
+			final int elseLabel = builder.createLabel(), endLabel = builder.createLabel();
+			builder.branch(question, elseLabel, "Weder true noch false in Abfrage in Zeile:" + line);
+			a.lower(builder);
+			builder.jump(endLabel);
+			builder.mark(elseLabel);
+			b.lower(builder);
+			builder.mark(endLabel);
+		}
 	}
 
 	private static class IfItem extends Item{
@@ -311,6 +470,14 @@ public class ProgramOperation extends FunctionOperation {
 				return null;
 			return new ExceptionOperation("Weder true noch false in Abfrage in Zeile:" + line);
 		}
+
+		@Override
+		protected void lower(ProgramMachine.Builder builder) {
+			final int endLabel = builder.createLabel();
+			builder.branch(question, endLabel, "Weder true noch false in Abfrage in Zeile:" + line);
+			a.lower(builder);
+			builder.mark(endLabel);
+		}
 	}
 
 	private static class WhileItem extends Item{
@@ -339,6 +506,17 @@ public class ProgramOperation extends FunctionOperation {
 			}
 			return new ExceptionOperation("Stopped");
 		}
+
+		@Override
+		protected void lower(ProgramMachine.Builder builder) {
+			final int beginLabel = builder.createLabel(), endLabel = builder.createLabel();
+			builder.checkStop();
+			builder.mark(beginLabel);
+			builder.branch(question, endLabel, "Weder true noch false in Abfrage int Zeile: " + line);
+			a.lower(builder);
+			builder.loop(beginLabel);
+			builder.mark(endLabel);
+		}
 	}
 
 	private static class StatementItem extends Item{
@@ -353,6 +531,11 @@ public class ProgramOperation extends FunctionOperation {
 			o.calculate(vs, control);
 			return null;
 		}
+
+		@Override
+		protected void lower(ProgramMachine.Builder builder) {
+			builder.statement(o);
+		}
 	}
 
 	private static class ReturnItem extends Item{
@@ -366,6 +549,11 @@ public class ProgramOperation extends FunctionOperation {
 		protected Operation calculate(VariableStack vs, CalculationController control) {
 			return o.calculate(vs, control);
 		}
+
+		@Override
+		protected void lower(ProgramMachine.Builder builder) {
+			builder.ret(o);
+		}
 	}
 
 	private static class Statements extends Item{
@@ -386,6 +574,12 @@ public class ProgramOperation extends FunctionOperation {
 			}
 			return null;
 		}
+
+		@Override
+		protected void lower(ProgramMachine.Builder builder) {
+			for (Item item : statements)
+				item.lower(builder);
+		}
 	}
 
 	private static class InterpretException extends Exception{
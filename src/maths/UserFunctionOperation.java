@@ -28,7 +28,6 @@ import maths.functions.FunctionOperation;
 import maths.variable.UserVariableOperation;
 import maths.variable.Variable;
 import maths.variable.VariableAmount;
-import maths.variable.VariableStack;
 
 public class UserFunctionOperation extends FunctionOperation {
     public final int nameId;
@@ -67,16 +66,7 @@ public class UserFunctionOperation extends FunctionOperation {
     			insert = false;
     	
     	if (insert){
-        	VariableStack stack = new VariableStack(object);
-        	try{
-    	    	for (int i=0;i<operands.length;i++){
-    	    		Variable v = new Variable(variable.operand(i), op[i]);
-    	    		stack.addLocal(v);
-    	    	}
-    	    	return variable.getValue().calculate(stack, control);
-        	}catch(RuntimeException e){
-            	throw e;
-        	}
+    		return variable.call(object, op, control);
     	}else{
     		return new UserFunctionOperation(nameObject, op);
     	}
@@ -93,6 +83,11 @@ public class UserFunctionOperation extends FunctionOperation {
 		return operands[index];
 	}
 
+	@Override
+	public boolean equals(Object o){
+		return o instanceof UserFunctionOperation && ((UserFunctionOperation)o).nameId == nameId && super.equals(o);
+	}
+
 	@Override
 	public Operation getInstance(List<Operation> subclasses) {
 		return this;
@@ -0,0 +1,534 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.algorithm;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import maths.Controller;
+import maths.Operation;
+import maths.data.RealDoubleOperation;
+import maths.data.RealLongOperation;
+import maths.data.RealRationalOperation;
+import maths.functions.AbsoluteOperation;
+import maths.functions.LogarithmOperation;
+import maths.functions.MaximumOperation;
+import maths.functions.MinimumOperation;
+import maths.functions.atomic.AdditionOperation;
+import maths.functions.atomic.DivisionOperation;
+import maths.functions.atomic.MultiplicationOperation;
+import maths.functions.atomic.NegativeOperation;
+import maths.functions.atomic.PowerOperation;
+import maths.functions.atomic.SubtractionOperation;
+import maths.functions.hyperbolic.ArcCosinusOperation;
+import maths.functions.hyperbolic.ArcSinusOperation;
+import maths.functions.hyperbolic.ArcTangems2Operation;
+import maths.functions.hyperbolic.ArcTangensOperation;
+import maths.functions.hyperbolic.CosinusHyperbolicOperation;
+import maths.functions.hyperbolic.CosinusOperation;
+import maths.functions.hyperbolic.SinusHyperbolicOperation;
+import maths.functions.hyperbolic.SinusOperation;
+import maths.functions.hyperbolic.TangensHyperbolicOperation;
+import maths.functions.hyperbolic.TangensOperation;
+import maths.variable.UserVariableOperation;
+import maths.variable.VariableAmount;
+import util.data.DoubleList;
+
+/**
+ * Evaluates an operation for many rows of variable values, which are given as columns of doubles.
+ * The rows are processed in blocks, each node of the tree is computed for a whole block in one loop over primitive arrays.
+ * Subtrees which aren't numeric are evaluated row by row with an {@link EvaluationPlan} and converted with {@link Operation#doubleValue()}.
+ * Powers, square roots and logarithms give NaN if the result is complex, rows with NaN results are evaluated again by the interpreter.
+ * So the result is the real part of the complex result, like the one of calculate(...).doubleValue().
+ * Batches with at least {@link #getParallelThreshold()} rows are split into parts which are evaluated in the common fork join pool.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class BatchEvaluator
+{
+	private static final int BLOCK = 0x400;
+	private static final int PARALLEL_GRAIN = 0x4000;
+	private static volatile int parallelThreshold = 0x10000;
+
+	private static final byte ADD = 0, SUB = 1, MUL = 2, DIV = 3, POW = 4, ATAN2 = 5, MIN = 6, MAX = 7;
+	private static final byte NEG = 0, SQUARE = 1, INVERS = 2, SQRT = 3, CBRT = 4, EXP = 5, SIN = 6, COS = 7, TAN = 8, ASIN = 9, ACOS = 10, ATAN = 11,
+			SINH = 12, COSH = 13, TANH = 14, LOG = 15, ABS = 16;
+
+	private final String names[];
+	private final VariableAmount outer;
+	private final Node root;
+	private final Interpreted fallback;
+	private int levels;
+	private boolean canBeComplex;
+
+	public BatchEvaluator(Operation op, String variables[])
+	{
+		this(op, variables, null);
+	}
+
+	/**
+	 * @param outer the variables which are visible to interpreted subtrees, or null
+	 */
+	public BatchEvaluator(Operation op, String variables[], VariableAmount outer)
+	{
+		this.names = variables.clone();
+		this.outer = outer;
+		this.root = create(op, 0);
+		this.fallback = canBeComplex ? new Interpreted(new EvaluationPlan(op, names, outer)) : null;
+	}
+
+	/**
+	 * Evaluates the operation for each row of the columns, the number of rows is the length of the output
+	 * @param columns the values of the variables by name, each at least as long as the output
+	 */
+	public static final void evaluate(Operation op, Map<String, double[]> columns, double out[])
+	{
+		final String variables[] = columns.keySet().toArray(new String[columns.size()]);
+		final double values[][] = new double[variables.length][];
+		for (int i = 0; i < variables.length; ++i)
+		{
+			values[i] = columns.get(variables[i]);
+		}
+		new BatchEvaluator(op, variables).evaluate(values, out);
+	}
+
+	/**
+	 * Evaluates the operation for each row of the columns, the output is resized to the number of rows
+	 * @param columns the values of the variables by name, all of the same size
+	 */
+	public static final void evaluate(Operation op, Map<String, ? extends DoubleList> columns, DoubleList out)
+	{
+		final String variables[] = columns.keySet().toArray(new String[columns.size()]);
+		final DoubleList values[] = new DoubleList[variables.length];
+		for (int i = 0; i < variables.length; ++i)
+		{
+			values[i] = columns.get(variables[i]);
+		}
+		new BatchEvaluator(op, variables).evaluate(values, out);
+	}
+
+	/**
+	 * @param columns the values of the variables in the order of the names, each at least as long as the output
+	 */
+	public final void evaluate(double columns[][], double out[])
+	{
+		checkColumns(columns.length);
+		for (int i = 0; i < columns.length; ++i)
+		{
+			if (columns[i].length < out.length)
+			{
+				throw new IllegalArgumentException("Column " + names[i] + " has " + columns[i].length + " rows but " + out.length + " are needed");
+			}
+		}
+		run(new Task(this, columns, null, out, null, 0, out.length));
+	}
+
+	/**
+	 * @param columns the values of the variables in the order of the names, all of the same size
+	 */
+	public final void evaluate(DoubleList columns[], DoubleList out)
+	{
+		checkColumns(columns.length);
+		final int rows = columns.length == 0 ? out.size() : columns[0].size();
+		for (int i = 1; i < columns.length; ++i)
+		{
+			if (columns[i].size() != rows)
+			{
+				throw new IllegalArgumentException("Column " + names[i] + " has " + columns[i].size() + " rows but " + names[0] + " has " + rows);
+			}
+		}
+		if (out.size() != rows)
+		{
+			out.setSize(rows);
+		}
+		run(new Task(this, null, columns, null, out, 0, rows));
+	}
+
+	private final void checkColumns(int count)
+	{
+		if (count != names.length)
+		{
+			throw new IllegalArgumentException("Expected " + names.length + " columns but got " + count);
+		}
+	}
+
+	private static final void run(Task task)
+	{
+		if (task.to - task.from >= parallelThreshold)
+		{
+			ForkJoinPool.commonPool().invoke(task);
+		}
+		else
+		{
+			task.compute();
+		}
+	}
+
+	/**
+	 * Sets the number of rows from which on a batch is evaluated in parallel
+	 */
+	public static final void setParallelThreshold(int threshold)
+	{
+		parallelThreshold = threshold;
+	}
+
+	public static final int getParallelThreshold()
+	{
+		return parallelThreshold;
+	}
+
+	private final int getIndex(Operation op)
+	{
+		if (op instanceof UserVariableOperation)
+		{
+			final String name = ((UserVariableOperation)op).nameObject.string;
+			for (int i = 0; i < names.length; ++i)
+			{
+				if (names[i].equals(name))
+				{
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static final byte getBinary(Operation op)
+	{
+		final Class<?> c = op.getClass();
+		if (c == AdditionOperation.class)		return ADD;
+		if (c == SubtractionOperation.class)	return SUB;
+		if (c == MultiplicationOperation.class)	return MUL;
+		if (c == DivisionOperation.class)		return DIV;
+		if (c == PowerOperation.class)			return POW;
+		if (c == ArcTangems2Operation.class)	return ATAN2;
+		if (c == MinimumOperation.class)		return MIN;
+		if (c == MaximumOperation.class)		return MAX;
+		return -1;
+	}
+
+	private static final byte getUnary(Operation op)
+	{
+		final Class<?> c = op.getClass();
+		if (c == NegativeOperation.class)					return NEG;
+		if (c == PowerOperation.SquareOperation.class)		return SQUARE;
+		if (c == PowerOperation.InversOperation.class)		return INVERS;
+		if (c == PowerOperation.SquareRootOperation.class)	return SQRT;
+		if (c == PowerOperation.CubeRootOperation.class)	return CBRT;
+		if (c == PowerOperation.ExponentOperation.class)	return EXP;
+		if (c == SinusOperation.class)						return SIN;
+		if (c == CosinusOperation.class)					return COS;
+		if (c == TangensOperation.class)					return TAN;
+		if (c == ArcSinusOperation.class)					return ASIN;
+		if (c == ArcCosinusOperation.class)					return ACOS;
+		if (c == ArcTangensOperation.class)					return ATAN;
+		if (c == SinusHyperbolicOperation.class)			return SINH;
+		if (c == CosinusHyperbolicOperation.class)			return COSH;
+		if (c == TangensHyperbolicOperation.class)			return TANH;
+		if (c == LogarithmOperation.class)					return LOG;
+		if (c == AbsoluteOperation.class)					return ABS;
+		return -1;
+	}
+
+	/**
+	 * @param level the index of the first scratch block the node may use
+	 */
+	private final Node create(Operation op, int level)
+	{
+		if (op instanceof RealLongOperation || op instanceof RealDoubleOperation || op instanceof RealRationalOperation)
+		{
+			return new Constant(op.doubleValue());
+		}
+		final int index = getIndex(op);
+		if (index != -1)
+		{
+			return new Column(index);
+		}
+		final byte binary = getBinary(op);
+		if (binary != -1)
+		{
+			levels = Math.max(levels, level + 1);
+			canBeComplex |= binary == POW;
+			return new Binary(binary, level, create(op.get(0), level), create(op.get(1), level + 1));
+		}
+		final byte unary = getUnary(op);
+		if (unary != -1)
+		{
+			canBeComplex |= unary == SQRT || unary == LOG;
+			//The exponent function keeps the base as first child
+			return new Unary(unary, create(op.get(unary == EXP ? 1 : 0), level));
+		}
+		return new Interpreted(new EvaluationPlan(op, names, outer));
+	}
+
+	/**
+	 * Evaluates a range of rows, ranges which are larger than the grain are split
+	 */
+	private static final class Task extends RecursiveAction
+	{
+		private static final long serialVersionUID = -4390867286421938461L;
+		private final BatchEvaluator evaluator;
+		private final double arrays[][];
+		private final DoubleList lists[];
+		private final double out[];
+		private final DoubleList outList;
+		private final int from, to;
+
+		private Task(BatchEvaluator evaluator, double arrays[][], DoubleList lists[], double out[], DoubleList outList, int from, int to)
+		{
+			this.evaluator = evaluator;
+			this.arrays = arrays;
+			this.lists = lists;
+			this.out = out;
+			this.outList = outList;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected final void compute()
+		{
+			if (to - from > PARALLEL_GRAIN && getPool() != null)
+			{
+				final int middle = (from + to) >>> 1;
+				invokeAll(new Task(evaluator, arrays, lists, out, outList, from, middle), new Task(evaluator, arrays, lists, out, outList, middle, to));
+				return;
+			}
+			final Block block = new Block(evaluator.names.length, evaluator.levels);
+			final double result[] = new double[BLOCK];
+			for (int begin = from; begin < to; begin += BLOCK)
+			{
+				final int length = Math.min(BLOCK, to - begin);
+				for (int i = 0; i < block.columns.length; ++i)
+				{
+					if (arrays != null)
+					{
+						System.arraycopy(arrays[i], begin, block.columns[i], 0, length);
+					}
+					else
+					{
+						lists[i].toArray(block.columns[i], 0, begin, begin + length);
+					}
+				}
+				block.length = length;
+				evaluator.root.evaluate(block, result);
+				if (evaluator.fallback != null)
+				{
+					for (int i = 0; i < length; ++i)
+					{
+						if (result[i] != result[i])
+						{
+							result[i] = evaluator.fallback.evaluate(block, i);
+						}
+					}
+				}
+				if (out != null)
+				{
+					System.arraycopy(result, 0, out, begin, length);
+				}
+				else
+				{
+					for (int i = 0; i < length; ++i)
+					{
+						outList.setElem(begin + i, result[i]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The values of the variables for some rows and the buffers for intermediate results, used by one thread
+	 */
+	private static final class Block
+	{
+		private final double columns[][];
+		private final double scratch[][];
+		private final Operation values[];
+		private final Controller control = new Controller();
+		private int length;
+
+		private Block(int columns, int levels)
+		{
+			this.columns = new double[columns][BLOCK];
+			this.scratch = new double[levels][BLOCK];
+			this.values = new Operation[columns];
+		}
+	}
+
+	private static abstract class Node
+	{
+		/**
+		 * Writes the values of the node for the rows of the block into the first entries of the result
+		 */
+		abstract void evaluate(Block block, double result[]);
+	}
+
+	private static final class Constant extends Node
+	{
+		private final double value;
+
+		private Constant(double value)
+		{
+			this.value = value;
+		}
+
+		@Override
+		final void evaluate(Block block, double result[])
+		{
+			Arrays.fill(result, 0, block.length, value);
+		}
+	}
+
+	private static final class Column extends Node
+	{
+		private final int index;
+
+		private Column(int index)
+		{
+			this.index = index;
+		}
+
+		@Override
+		final void evaluate(Block block, double result[])
+		{
+			System.arraycopy(block.columns[index], 0, result, 0, block.length);
+		}
+	}
+
+	private static final class Binary extends Node
+	{
+		private final byte code;
+		private final int level;
+		private final Node a, b;
+
+		private Binary(byte code, int level, Node a, Node b)
+		{
+			this.code = code;
+			this.level = level;
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		final void evaluate(Block block, double result[])
+		{
+			a.evaluate(block, result);
+			final double b[];
+			if (this.b instanceof Column)
+			{
+				b = block.columns[((Column)this.b).index];
+			}
+			else
+			{
+				this.b.evaluate(block, b = block.scratch[level]);
+			}
+			final int length = block.length;
+			switch (code)
+			{
+				case ADD:	for (int i = 0; i < length; ++i) {result[i] += b[i];}					break;
+				case SUB:	for (int i = 0; i < length; ++i) {result[i] -= b[i];}					break;
+				case MUL:	for (int i = 0; i < length; ++i) {result[i] *= b[i];}					break;
+				case DIV:	for (int i = 0; i < length; ++i) {result[i] = b[i] == 0 ? Double.NaN : result[i] / b[i];}	break;
+				case POW:	for (int i = 0; i < length; ++i) {result[i] = Math.pow(result[i], b[i]);}	break;
+				case ATAN2:	for (int i = 0; i < length; ++i) {result[i] = Math.atan2(result[i], b[i]);}	break;
+				case MIN:	for (int i = 0; i < length; ++i) {result[i] = Math.min(result[i], b[i]);}	break;
+				case MAX:	for (int i = 0; i < length; ++i) {result[i] = Math.max(result[i], b[i]);}	break;
+				default:	throw new IllegalStateException();
+			}
+		}
+	}
+
+	private static final class Unary extends Node
+	{
+		private final byte code;
+		private final Node a;
+
+		private Unary(byte code, Node a)
+		{
+			this.code = code;
+			this.a = a;
+		}
+
+		@Override
+		final void evaluate(Block block, double result[])
+		{
+			a.evaluate(block, result);
+			final int length = block.length;
+			switch (code)
+			{
+				case NEG:	for (int i = 0; i < length; ++i) {result[i] = -result[i];}			break;
+				case SQUARE:for (int i = 0; i < length; ++i) {result[i] *= result[i];}			break;
+				case INVERS:for (int i = 0; i < length; ++i) {result[i] = 1 / result[i];}		break;
+				case SQRT:	for (int i = 0; i < length; ++i) {result[i] = Math.sqrt(result[i]);}	break;
+				case CBRT:	for (int i = 0; i < length; ++i) {result[i] = Math.cbrt(result[i]);}	break;
+				case EXP:	for (int i = 0; i < length; ++i) {result[i] = Math.exp(result[i]);}	break;
+				case SIN:	for (int i = 0; i < length; ++i) {result[i] = Math.sin(result[i]);}	break;
+				case COS:	for (int i = 0; i < length; ++i) {result[i] = Math.cos(result[i]);}	break;
+				case TAN:	for (int i = 0; i < length; ++i) {result[i] = Math.tan(result[i]);}	break;
+				case ASIN:	for (int i = 0; i < length; ++i) {result[i] = Math.asin(result[i]);}	break;
+				case ACOS:	for (int i = 0; i < length; ++i) {result[i] = Math.acos(result[i]);}	break;
+				case ATAN:	for (int i = 0; i < length; ++i) {result[i] = Math.atan(result[i]);}	break;
+				case SINH:	for (int i = 0; i < length; ++i) {result[i] = Math.sinh(result[i]);}	break;
+				case COSH:	for (int i = 0; i < length; ++i) {result[i] = Math.cosh(result[i]);}	break;
+				case TANH:	for (int i = 0; i < length; ++i) {result[i] = Math.tanh(result[i]);}	break;
+				case LOG:	for (int i = 0; i < length; ++i) {result[i] = Math.log(result[i]);}	break;
+				case ABS:	for (int i = 0; i < length; ++i) {result[i] = Math.abs(result[i]);}	break;
+				default:	throw new IllegalStateException();
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the subtree row by row
+	 */
+	private static final class Interpreted extends Node
+	{
+		private final EvaluationPlan plan;
+
+		private Interpreted(EvaluationPlan plan)
+		{
+			this.plan = plan;
+		}
+
+		@Override
+		final void evaluate(Block block, double result[])
+		{
+			for (int i = 0; i < block.length; ++i)
+			{
+				result[i] = evaluate(block, i);
+			}
+		}
+
+		private final double evaluate(Block block, int row)
+		{
+			final Operation values[] = block.values;
+			for (int j = 0; j < values.length; ++j)
+			{
+				values[j] = new RealDoubleOperation(block.columns[j][row]);
+			}
+			return plan.evaluate(values, block.control).doubleValue();
+		}
+	}
+}
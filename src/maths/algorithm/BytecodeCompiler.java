@@ -0,0 +1,600 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.algorithm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import maths.Controller;
+import maths.Operation;
+import maths.data.RealDoubleOperation;
+import maths.data.RealLongOperation;
+import maths.data.RealRationalOperation;
+import maths.data.StringId;
+import maths.functions.AbsoluteOperation;
+import maths.functions.LogarithmOperation;
+import maths.functions.MaximumOperation;
+import maths.functions.MinimumOperation;
+import maths.functions.atomic.AdditionOperation;
+import maths.functions.atomic.DivisionOperation;
+import maths.functions.atomic.MultiplicationOperation;
+import maths.functions.atomic.NegativeOperation;
+import maths.functions.atomic.PowerOperation;
+import maths.functions.atomic.SubtractionOperation;
+import maths.functions.hyperbolic.ArcCosinusOperation;
+import maths.functions.hyperbolic.ArcSinusOperation;
+import maths.functions.hyperbolic.ArcTangems2Operation;
+import maths.functions.hyperbolic.ArcTangensOperation;
+import maths.functions.hyperbolic.CosinusHyperbolicOperation;
+import maths.functions.hyperbolic.CosinusOperation;
+import maths.functions.hyperbolic.SinusHyperbolicOperation;
+import maths.functions.hyperbolic.SinusOperation;
+import maths.functions.hyperbolic.TangensHyperbolicOperation;
+import maths.functions.hyperbolic.TangensOperation;
+import maths.variable.UserVariableOperation;
+import maths.variable.VariableAmount;
+import maths.variable.VariableStack;
+
+/**
+ * Translates numeric operations into Java bytecode, the generated class evaluates the operation with doubles and without allocations.
+ * The values of the variables are passed as array in the order of the given names.
+ * Subtrees which aren't supported are evaluated by {@link Operation#calculateDouble(VariableAmount, maths.Operation.CalculationController)}.
+ * Powers, square roots and logarithms give NaN if the result is complex, in this case the whole operation is evaluated again by the interpreter.
+ * So the result is the real part of the complex result, like the one of calculate(...).doubleValue().
+ * Each generated class has its own class loader, so it is unloaded together with the returned function.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class BytecodeCompiler
+{
+	private static final String CLASS_PREFIX = "maths/algorithm/CompiledFunction";
+	private static final String INTERFACE = "maths/algorithm/DoubleFunctionDoubleArray";
+	private static final String APPLY = "([D)D";
+	private static final String FALLBACK_FIELD = "fallback";
+	private static final String FALLBACK_FIELD_TYPE = "[L" + INTERFACE + ';';
+	private static final int MAX_CODE_LENGTH = 0xFFFF;
+	private static final AtomicInteger classCount = new AtomicInteger();
+
+	private static final byte ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, DCONST_0 = 0x0e, DCONST_1 = 0x0f, BIPUSH = 0x10, SIPUSH = 0x11, LDC_W = 0x13, LDC2_W = 0x14,
+			DALOAD = 0x31, AALOAD = 0x32, DUP2 = 0x5c, DADD = 0x63, DSUB = 0x67, DMUL = 0x6b, DDIV = 0x6f, DNEG = 0x77, DRETURN = (byte)0xaf, RETURN = (byte)0xb1,
+			GETFIELD = (byte)0xb4, PUTFIELD = (byte)0xb5, INVOKESPECIAL = (byte)0xb7, INVOKESTATIC = (byte)0xb8, INVOKEINTERFACE = (byte)0xb9;
+
+	private final StringId.StringIdObject names[];
+	private final VariableAmount outer;
+	private final ClassBuilder builder = new ClassBuilder();
+	private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+	private final ArrayList<DoubleFunctionDoubleArray> fallbacks = new ArrayList<>();
+	private int maxStack;
+
+	private BytecodeCompiler(String variables[], VariableAmount outer)
+	{
+		this.names = StringId.getStringAndId(variables);
+		this.outer = outer;
+	}
+
+	public static final DoubleFunctionDoubleArray compile(Operation op, String variables[])
+	{
+		return compile(op, variables, null);
+	}
+
+	/**
+	 * @param outer the variables which are visible to interpreted subtrees, or null
+	 */
+	public static final DoubleFunctionDoubleArray compile(Operation op, String variables[], VariableAmount outer)
+	{
+		final BytecodeCompiler compiler = new BytecodeCompiler(variables, outer);
+		if (compiler.isInterpreted(op))
+		{
+			return compiler.new Fallback(op, true);
+		}
+		compiler.maxStack = compiler.emit(op);
+		compiler.code.write(DRETURN);
+		if (compiler.code.size() > MAX_CODE_LENGTH)
+		{
+			return compiler.new Fallback(op, true);
+		}
+		try
+		{
+			final DoubleFunctionDoubleArray function = compiler.define();
+			return canBeComplex(op) ? new Checked(function, compiler.new Fallback(op, true)) : function;
+		}
+		catch (ReflectiveOperationException | IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return true if the root is evaluated by the interpreter
+	 */
+	private final boolean isInterpreted(Operation op)
+	{
+		return getIndex(op) == -1 && getConstant(op) == null && getMethod(op) == null && !isArithmetic(op);
+	}
+
+	private static final boolean isArithmetic(Operation op)
+	{
+		final Class<?> c = op.getClass();
+		return c == AdditionOperation.class || c == SubtractionOperation.class || c == MultiplicationOperation.class || c == DivisionOperation.class
+				|| c == NegativeOperation.class || c == PowerOperation.SquareOperation.class || c == PowerOperation.InversOperation.class;
+	}
+
+	/**
+	 * @return true if a compiled node of the tree gives NaN for a complex result
+	 */
+	private static final boolean canBeComplex(Operation op)
+	{
+		final Class<?> c = op.getClass();
+		if (c == PowerOperation.class || c == PowerOperation.SquareRootOperation.class || c == LogarithmOperation.class)
+		{
+			return true;
+		}
+		for (int i = 0; i < op.size(); ++i)
+		{
+			if (canBeComplex(op.get(i)))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static final Double getConstant(Operation op)
+	{
+		return op instanceof RealLongOperation || op instanceof RealDoubleOperation || op instanceof RealRationalOperation ? op.doubleValue() : null;
+	}
+
+	/**
+	 * @return the name of the static method of {@link Math} which computes the operation, the parameters are the children in their order
+	 */
+	private static final String getMethod(Operation op)
+	{
+		final Class<?> c = op.getClass();
+		if (c == PowerOperation.class)					return "pow";
+		if (c == PowerOperation.SquareRootOperation.class)	return "sqrt";
+		if (c == PowerOperation.CubeRootOperation.class)	return "cbrt";
+		if (c == PowerOperation.ExponentOperation.class)	return "exp";
+		if (c == SinusOperation.class)					return "sin";
+		if (c == CosinusOperation.class)				return "cos";
+		if (c == TangensOperation.class)				return "tan";
+		if (c == ArcSinusOperation.class)				return "asin";
+		if (c == ArcCosinusOperation.class)				return "acos";
+		if (c == ArcTangensOperation.class)				return "atan";
+		if (c == ArcTangems2Operation.class)			return "atan2";
+		if (c == SinusHyperbolicOperation.class)		return "sinh";
+		if (c == CosinusHyperbolicOperation.class)		return "cosh";
+		if (c == TangensHyperbolicOperation.class)		return "tanh";
+		if (c == LogarithmOperation.class)				return "log";
+		if (c == AbsoluteOperation.class)				return "abs";
+		if (c == MinimumOperation.class)				return "min";
+		if (c == MaximumOperation.class)				return "max";
+		return null;
+	}
+
+	private final int getIndex(Operation op)
+	{
+		if (op instanceof UserVariableOperation)
+		{
+			final int id = ((UserVariableOperation)op).nameId;
+			for (int i = 0; i < names.length; ++i)
+			{
+				if (names[i].id == id)
+				{
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes the code which pushes the value of the operation
+	 * @return the needed stack size in slots
+	 */
+	private final int emit(Operation op)
+	{
+		final int index = getIndex(op);
+		if (index != -1)
+		{
+			code.write(ALOAD_1);
+			pushInt(index);
+			code.write(DALOAD);
+			return 2;
+		}
+		final Double constant = getConstant(op);
+		if (constant != null)
+		{
+			final double value = constant;
+			if (Double.doubleToRawLongBits(value) == 0)
+			{
+				code.write(DCONST_0);
+			}
+			else if (value == 1)
+			{
+				code.write(DCONST_1);
+			}
+			else
+			{
+				code.write(LDC2_W);
+				writeShort(builder.doubleConstant(value));
+			}
+			return 2;
+		}
+		final Class<?> c = op.getClass();
+		if (c == PowerOperation.SquareOperation.class)
+		{
+			final int stack = emit(op.get(0));
+			code.write(DUP2);
+			code.write(DMUL);
+			return Math.max(stack, 4);
+		}
+		if (c == PowerOperation.InversOperation.class)
+		{
+			code.write(DCONST_1);
+			final int stack = 2 + emit(op.get(0));
+			code.write(DDIV);
+			return stack;
+		}
+		if (c == NegativeOperation.class)
+		{
+			final int stack = emit(op.get(0));
+			code.write(DNEG);
+			return stack;
+		}
+		if (c == DivisionOperation.class)
+		{
+			//A zero divisor gives NaN like the interpreter
+			final int stack = Math.max(emit(op.get(0)), 2 + emit(op.get(1)));
+			code.write(INVOKESTATIC);
+			writeShort(builder.methodConstant(false, "maths/algorithm/Calculate", "divide", "(DD)D"));
+			return stack;
+		}
+		final byte instruction = c == AdditionOperation.class ? DADD : c == SubtractionOperation.class ? DSUB : c == MultiplicationOperation.class ? DMUL : 0;
+		if (instruction != 0)
+		{
+			final int stack = Math.max(emit(op.get(0)), 2 + emit(op.get(1)));
+			code.write(instruction);
+			return stack;
+		}
+		final String method = getMethod(op);
+		if (method != null)
+		{
+			//The special powers keep their constant as second child, the exponent function has the base as first child
+			final boolean power = op instanceof PowerOperation && c != PowerOperation.class;
+			final int first = c == PowerOperation.ExponentOperation.class ? 1 : 0;
+			final int parameters = power ? 1 : op.size();
+			int stack = 0;
+			for (int i = 0; i < parameters; ++i)
+			{
+				stack = Math.max(stack, 2 * i + emit(op.get(first + i)));
+			}
+			code.write(INVOKESTATIC);
+			writeShort(builder.methodConstant(false, "java/lang/Math", method, parameters == 1 ? "(D)D" : "(DD)D"));
+			return stack;
+		}
+		code.write(ALOAD_0);
+		code.write(GETFIELD);
+		writeShort(builder.fieldConstant(FALLBACK_FIELD, FALLBACK_FIELD_TYPE));
+		pushInt(fallbacks.size());
+		code.write(AALOAD);
+		code.write(ALOAD_1);
+		code.write(INVOKEINTERFACE);
+		writeShort(builder.methodConstant(true, INTERFACE, "apply", APPLY));
+		code.write(2);
+		code.write(0);
+		fallbacks.add(new Fallback(op, false));
+		return 2;
+	}
+
+	private final void pushInt(int value)
+	{
+		if (value <= 5)
+		{
+			code.write(0x03 + value);
+		}
+		else if (value <= Byte.MAX_VALUE)
+		{
+			code.write(BIPUSH);
+			code.write(value);
+		}
+		else if (value <= Short.MAX_VALUE)
+		{
+			code.write(SIPUSH);
+			writeShort(value);
+		}
+		else
+		{
+			code.write(LDC_W);
+			writeShort(builder.intConstant(value));
+		}
+	}
+
+	private final void writeShort(int value)
+	{
+		code.write(value >> 8);
+		code.write(value);
+	}
+
+	private final DoubleFunctionDoubleArray define() throws IOException, ReflectiveOperationException
+	{
+		final ByteArrayOutputStream init = new ByteArrayOutputStream();
+		init.write(ALOAD_0);
+		init.write(INVOKESPECIAL);
+		final int superInit = builder.methodConstant(false, "java/lang/Object", "<init>", "()V");
+		init.write(superInit >> 8);
+		init.write(superInit);
+		init.write(ALOAD_0);
+		init.write(ALOAD_1);
+		init.write(PUTFIELD);
+		final int field = builder.fieldConstant(FALLBACK_FIELD, FALLBACK_FIELD_TYPE);
+		init.write(field >> 8);
+		init.write(field);
+		init.write(RETURN);
+		final byte data[] = builder.toByteArray(init.toByteArray(), code.toByteArray(), maxStack);
+		final Class<?> cl = new Loader().define(builder.className.replace('/', '.'), data);
+		return (DoubleFunctionDoubleArray)cl.getConstructor(DoubleFunctionDoubleArray[].class).newInstance((Object)fallbacks.toArray(new DoubleFunctionDoubleArray[fallbacks.size()]));
+	}
+
+	private static final class Loader extends ClassLoader
+	{
+		private Loader()
+		{
+			super(BytecodeCompiler.class.getClassLoader());
+		}
+
+		private final Class<?> define(String name, byte data[])
+		{
+			return defineClass(name, data, 0, data.length);
+		}
+	}
+
+	/**
+	 * Evaluates the whole operation with the interpreter if the compiled function gives NaN
+	 */
+	private static final class Checked implements DoubleFunctionDoubleArray
+	{
+		private final DoubleFunctionDoubleArray function, fallback;
+
+		private Checked(DoubleFunctionDoubleArray function, DoubleFunctionDoubleArray fallback)
+		{
+			this.function = function;
+			this.fallback = fallback;
+		}
+
+		@Override
+		public final double apply(double values[])
+		{
+			final double result = function.apply(values);
+			return result != result ? fallback.apply(values) : result;
+		}
+	}
+
+	/**
+	 * Evaluates an operation with the interpreter
+	 */
+	private final class Fallback implements DoubleFunctionDoubleArray
+	{
+		private final Operation op;
+		private final boolean root;
+
+		/**
+		 * @param root if true the operation is calculated like {@link Operation#calculate(VariableAmount, maths.Operation.CalculationController)}, otherwise by the primitive path of a subtree
+		 */
+		private Fallback(Operation op, boolean root)
+		{
+			this.op = op;
+			this.root = root;
+		}
+
+		@Override
+		public final double apply(double values[])
+		{
+			final VariableStack stack = new VariableStack(names.length, outer);
+			for (int i = 0; i < names.length; ++i)
+			{
+				stack.setLocal(names[i], new RealDoubleOperation(values[i]));
+			}
+			return root ? op.calculate(stack, new Controller()).doubleValue() : op.calculateDouble(stack, new Controller());
+		}
+	}
+
+	/**
+	 * Writes a class with a constructor taking the fallback functions and the apply method
+	 */
+	private static final class ClassBuilder
+	{
+		private static final byte UTF8 = 1, INTEGER = 3, DOUBLE = 6, CLASS = 7, FIELD = 9, METHOD = 10, INTERFACE_METHOD = 11, NAME_AND_TYPE = 12;
+		private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+		private final DataOutputStream poolOut = new DataOutputStream(pool);
+		private final HashMap<Object, Integer> poolIndices = new HashMap<>();
+		private int poolCount = 1;
+		private final String className = CLASS_PREFIX + classCount.incrementAndGet();
+		private final int thisClass = classConstant(className);
+
+		/**
+		 * Starts a new entry of the pool
+		 * @return the index of the new entry
+		 */
+		private final int add(Object key, int slots, byte tag) throws IOException
+		{
+			final int index = poolCount;
+			poolCount += slots;
+			poolIndices.put(key, index);
+			poolOut.writeByte(tag);
+			return index;
+		}
+
+		private final int utf8Constant(String str)
+		{
+			final String key = "U" + str;
+			Integer index = poolIndices.get(key);
+			if (index == null)
+			{
+				try
+				{
+					index = add(key, 1, UTF8);
+					poolOut.writeUTF(str);
+				}
+				catch (IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+			return index;
+		}
+
+		private final int classConstant(String name)
+		{
+			return reference("C" + name, CLASS, utf8Constant(name), -1);
+		}
+
+		private final int nameAndTypeConstant(String name, String type)
+		{
+			return reference("N" + name + ' ' + type, NAME_AND_TYPE, utf8Constant(name), utf8Constant(type));
+		}
+
+		private final int methodConstant(boolean isInterface, String owner, String name, String type)
+		{
+			return reference((isInterface ? "J" : "M") + owner + ' ' + name + ' ' + type, isInterface ? INTERFACE_METHOD : METHOD, classConstant(owner), nameAndTypeConstant(name, type));
+		}
+
+		private final int fieldConstant(String name, String type)
+		{
+			return reference("F" + name + ' ' + type, FIELD, thisClass, nameAndTypeConstant(name, type));
+		}
+
+		/**
+		 * @param second the second referenced entry, -1 if there is only one
+		 */
+		private final int reference(String key, byte tag, int first, int second)
+		{
+			Integer index = poolIndices.get(key);
+			if (index == null)
+			{
+				try
+				{
+					index = add(key, 1, tag);
+					poolOut.writeShort(first);
+					if (second != -1)
+					{
+						poolOut.writeShort(second);
+					}
+				}
+				catch (IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+			return index;
+		}
+
+		private final int doubleConstant(double value)
+		{
+			final Long key = Double.doubleToRawLongBits(value);
+			Integer index = poolIndices.get(key);
+			if (index == null)
+			{
+				try
+				{
+					index = add(key, 2, DOUBLE);
+					poolOut.writeDouble(value);
+				}
+				catch (IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+			return index;
+		}
+
+		private final int intConstant(int value)
+		{
+			final Integer key = value;
+			Integer index = poolIndices.get(key);
+			if (index == null)
+			{
+				try
+				{
+					index = add(key, 1, INTEGER);
+					poolOut.writeInt(value);
+				}
+				catch (IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+			return index;
+		}
+
+		private final byte[] toByteArray(byte init[], byte apply[], int maxStack) throws IOException
+		{
+			final int objectClass = classConstant("java/lang/Object");
+			final int interfaceClass = classConstant(INTERFACE);
+			final int fieldName = utf8Constant(FALLBACK_FIELD), fieldType = utf8Constant(FALLBACK_FIELD_TYPE);
+			final int initName = utf8Constant("<init>"), initType = utf8Constant("(" + FALLBACK_FIELD_TYPE + ")V");
+			final int applyName = utf8Constant("apply"), applyType = utf8Constant(APPLY);
+			final int codeName = utf8Constant("Code");
+			final ByteArrayOutputStream result = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(result);
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(52);
+			out.writeShort(poolCount);
+			pool.writeTo(out);
+			out.writeShort(0x0031);	//public final super
+			out.writeShort(thisClass);
+			out.writeShort(objectClass);
+			out.writeShort(1);
+			out.writeShort(interfaceClass);
+			out.writeShort(1);
+			out.writeShort(0x0012);	//private final
+			out.writeShort(fieldName);
+			out.writeShort(fieldType);
+			out.writeShort(0);
+			out.writeShort(2);
+			writeMethod(out, 0x0001, initName, initType, codeName, init, 2);	//public
+			writeMethod(out, 0x0011, applyName, applyType, codeName, apply, maxStack);	//public final
+			out.writeShort(0);
+			return result.toByteArray();
+		}
+
+		private static final void writeMethod(DataOutputStream out, int access, int name, int type, int codeName, byte code[], int maxStack) throws IOException
+		{
+			out.writeShort(access);
+			out.writeShort(name);
+			out.writeShort(type);
+			out.writeShort(1);
+			out.writeShort(codeName);
+			out.writeInt(12 + code.length);
+			out.writeShort(maxStack);
+			out.writeShort(2);
+			out.writeInt(code.length);
+			out.write(code);
+			out.writeShort(0);
+			out.writeShort(0);
+		}
+	}
+}
@@ -574,6 +574,13 @@ public abstract class Calculate
     	return ergd;
     }
 
+    /**
+     * Divides like the interpreter, a zero divisor gives NaN instead of an infinite value
+     */
+    public static final double divide (double dividend, double divisor){
+    	return divisor == 0 ? Double.NaN : dividend / divisor;
+    }
+
     public static final double pow (double x, long exp){
     	if (exp < 0){
     		exp = -exp;
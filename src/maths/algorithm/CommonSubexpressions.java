@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.algorithm;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import maths.Operation;
+import maths.UserFunctionOperation;
+import maths.data.StringId;
+import maths.functions.LetOperation;
+import maths.variable.UserVariableOperation;
+import util.data.SortedIntegerArrayList;
+
+/**
+ * Rewrites a tree into a {@link LetOperation}, which calculates every distinct subexpression once per calculation.
+ * Subtrees are numbered bottom up by a hash table of their class and the numbers of their children, so the pass is linear in the size of the tree and works without recursion.
+ * Only subtrees of operations which calculate their children with the given variables, like arithmetic and elementary functions, are merged.
+ * Other operations, like sums, loops or function calls, bind variables themselves or have side effects, their subtrees are kept as they are.
+ * Merged subtrees which are used more than once and aren't leafs become temporaries.
+ * The temporaries are local variables, so names of variables and functions which are used in the tree are skipped.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class CommonSubexpressions
+{
+	private static final String TEMPORARY_PREFIX = "_cse";
+	private static StringId.StringIdObject temporaryNames[] = new StringId.StringIdObject[0];
+
+	private Operation nodes[] = new Operation[0x100];
+	private int hashes[] = new int[0x100];
+	private int childBegin[] = new int[0x101];
+	private int refs[] = new int[0x100];
+	private int children[] = new int[0x100];
+	private int table[] = new int[0x200];
+	private SortedIntegerArrayList usedNames = new SortedIntegerArrayList();
+	private int nodeCount, treeNodes;
+	private final Operation result;
+	private final int temporaries;
+
+	public CommonSubexpressions(Operation op)
+	{
+		Arrays.fill(table, -1);
+		final int root = number(op);
+		++refs[root];
+		int temporaries = 0;
+		for (int i = 0; i < nodeCount; ++i)
+		{
+			if (isTemporary(i))
+			{
+				++temporaries;
+			}
+		}
+		this.temporaries = temporaries;
+		result = temporaries == 0 ? op : build(root);
+		//Only the result is kept
+		nodes = null;
+		usedNames = null;
+		hashes = childBegin = refs = children = table = null;
+	}
+
+	/**
+	 * @return the tree with the temporaries, or the given tree if no subexpression is used more than once
+	 */
+	public final Operation getResult()
+	{
+		return result;
+	}
+
+	/**
+	 * @return the number of nodes of the tree which are calculated by a temporary or are merged leafs
+	 */
+	public final int getEliminatedCount()
+	{
+		return treeNodes - nodeCount;
+	}
+
+	public final int getTemporaryCount()
+	{
+		return temporaries;
+	}
+
+	public static final Operation eliminate(Operation op)
+	{
+		return new CommonSubexpressions(op).getResult();
+	}
+
+	/**
+	 * @return true if the children of the operation may be merged with other subtrees
+	 */
+	private static final boolean isPure(Operation op)
+	{
+		return op.size() != 0 && EvaluationPlan.isPure(op);
+	}
+
+	/**
+	 * @return true if equal leafs can be merged
+	 */
+	private static final boolean isMergeableLeaf(Operation op)
+	{
+		return op.size() == 0 && (op.isPrimitive() || op instanceof UserVariableOperation);
+	}
+
+	private final boolean isTemporary(int node)
+	{
+		return refs[node] > 1 && childBegin[node + 1] != childBegin[node];
+	}
+
+	/**
+	 * Numbers the tree in post order, the stack keeps the operations and the index of the next child
+	 */
+	private final int number(Operation root)
+	{
+		Operation stack[] = new Operation[0x40];
+		int next[] = new int[0x40];
+		int ids[] = new int[0x40];
+		int size = 0, idCount = 0;
+		stack[size] = root;
+		next[size++] = 0;
+		while (size != 0)
+		{
+			final Operation op = stack[size - 1];
+			final int index = next[size - 1];
+			if (index == 0 && !isPure(op))
+			{
+				addNames(op);
+			}
+			if (isPure(op) && index < op.size())
+			{
+				next[size - 1] = index + 1;
+				if (size == stack.length)
+				{
+					stack = Arrays.copyOf(stack, size * 2);
+					next = Arrays.copyOf(next, size * 2);
+				}
+				stack[size] = op.get(index);
+				next[size++] = 0;
+				continue;
+			}
+			stack[--size] = null;
+			final int childCount = isPure(op) ? op.size() : 0;
+			idCount -= childCount;
+			final int id = add(op, ids, idCount, childCount);
+			if (idCount == ids.length)
+			{
+				ids = Arrays.copyOf(ids, idCount * 2);
+			}
+			ids[idCount++] = id;
+			++treeNodes;
+		}
+		return ids[0];
+	}
+
+	/**
+	 * Adds the names of the variables and functions of a subtree which isn't numbered, its children aren't visited by the numbering
+	 */
+	private final void addNames(Operation op)
+	{
+		if (op.size() == 0)
+		{
+			addName(op);
+			return;
+		}
+		final ArrayDeque<Operation> stack = new ArrayDeque<Operation>();
+		stack.push(op);
+		while (!stack.isEmpty())
+		{
+			final Operation current = stack.pop();
+			addName(current);
+			for (int i = 0; i < current.size(); ++i)
+			{
+				stack.push(current.get(i));
+			}
+		}
+	}
+
+	private final void addName(Operation op)
+	{
+		if (op instanceof UserVariableOperation)
+		{
+			usedNames.add(((UserVariableOperation)op).nameId);
+		}
+		else if (op instanceof UserFunctionOperation)
+		{
+			usedNames.add(((UserFunctionOperation)op).nameId);
+		}
+	}
+
+	/**
+	 * @return the number of the subtree, a new one if there is no equal subtree
+	 */
+	private final int add(Operation op, int ids[], int begin, int childCount)
+	{
+		int hash;
+		if (childCount == 0)
+		{
+			if (!isMergeableLeaf(op))
+			{
+				return insert(op, 0, ids, begin, 0);
+			}
+			hash = op.hashCode();
+		}
+		else
+		{
+			hash = op.getClass().hashCode();
+			for (int i = 0; i < childCount; ++i)
+			{
+				hash = hash * 31 + ids[begin + i];
+			}
+		}
+		hash ^= hash >>> 16;
+		int slot = hash & (table.length - 1);
+		for (int node; (node = table[slot]) != -1; slot = (slot + 1) & (table.length - 1))
+		{
+			if (hashes[node] == hash && isSame(node, op, ids, begin, childCount))
+			{
+				return node;
+			}
+		}
+		final int node = insert(op, hash, ids, begin, childCount);
+		table[slot] = node;
+		if (nodeCount * 2 > table.length)
+		{
+			rehash();
+		}
+		return node;
+	}
+
+	private final boolean isSame(int node, Operation op, int ids[], int begin, int childCount)
+	{
+		final Operation other = nodes[node];
+		if (other.getClass() != op.getClass() || childBegin[node + 1] - childBegin[node] != childCount)
+		{
+			return false;
+		}
+		if (childCount == 0)
+		{
+			return isMergeableLeaf(other) && other.equals(op);
+		}
+		for (int i = 0; i < childCount; ++i)
+		{
+			if (children[childBegin[node] + i] != ids[begin + i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private final int insert(Operation op, int hash, int ids[], int begin, int childCount)
+	{
+		final int node = nodeCount++;
+		if (nodeCount == nodes.length)
+		{
+			nodes = Arrays.copyOf(nodes, nodeCount * 2);
+			hashes = Arrays.copyOf(hashes, nodeCount * 2);
+			refs = Arrays.copyOf(refs, nodeCount * 2);
+			childBegin = Arrays.copyOf(childBegin, nodeCount * 2 + 1);
+		}
+		nodes[node] = op;
+		hashes[node] = hash;
+		final int childEnd = childBegin[node] + childCount;
+		if (childEnd > children.length)
+		{
+			children = Arrays.copyOf(children, Math.max(childEnd, children.length * 2));
+		}
+		for (int i = 0; i < childCount; ++i)
+		{
+			final int child = ids[begin + i];
+			children[childBegin[node] + i] = child;
+			++refs[child];
+		}
+		childBegin[node + 1] = childEnd;
+		return node;
+	}
+
+	private final void rehash()
+	{
+		table = new int[table.length * 2];
+		Arrays.fill(table, -1);
+		for (int node = 0; node < nodeCount; ++node)
+		{
+			if (isMergeableLeaf(nodes[node]) || childBegin[node + 1] != childBegin[node])
+			{
+				int slot = hashes[node] & (table.length - 1);
+				while (table[slot] != -1)
+				{
+					slot = (slot + 1) & (table.length - 1);
+				}
+				table[slot] = node;
+			}
+		}
+	}
+
+	/**
+	 * Builds the subtrees in the order of their numbers, children are numbered before their parents
+	 */
+	private final Operation build(int root)
+	{
+		final Operation replacement[] = new Operation[nodeCount];
+		final StringId.StringIdObject names[] = getTemporaryNames(temporaries, usedNames);
+		final Operation values[] = new Operation[temporaries];
+		Operation childList[] = new Operation[0x10];
+		int temporary = 0;
+		for (int node = 0; node < nodeCount; ++node)
+		{
+			final Operation op = nodes[node];
+			final int begin = childBegin[node], childCount = childBegin[node + 1] - begin;
+			Operation built = op;
+			if (childCount != 0)
+			{
+				if (childList.length < childCount)
+				{
+					childList = new Operation[childCount];
+				}
+				boolean changed = false;
+				for (int i = 0; i < childCount; ++i)
+				{
+					changed |= (childList[i] = replacement[children[begin + i]]) != op.get(i);
+				}
+				if (changed)
+				{
+					built = op.getInstance(Arrays.asList(Arrays.copyOf(childList, childCount)));
+				}
+			}
+			if (isTemporary(node) && node != root)
+			{
+				values[temporary] = built;
+				built = new UserVariableOperation(names[temporary++]);
+			}
+			replacement[node] = built;
+		}
+		return new LetOperation(names, values, replacement[root]);
+	}
+
+	/**
+	 * @return the first names of temporaries which aren't used
+	 */
+	private static final synchronized StringId.StringIdObject[] getTemporaryNames(int count, SortedIntegerArrayList usedNames)
+	{
+		final StringId.StringIdObject names[] = new StringId.StringIdObject[count];
+		for (int i = 0, name = 0; i < count; ++name)
+		{
+			if (name == temporaryNames.length)
+			{
+				temporaryNames = Arrays.copyOf(temporaryNames, Math.max(count, name * 2));
+				for (int j = name; j < temporaryNames.length; ++j)
+				{
+					temporaryNames[j] = StringId.getStringAndId(TEMPORARY_PREFIX + j);
+				}
+			}
+			if (!usedNames.contains(temporaryNames[name].id))
+			{
+				names[i++] = temporaryNames[name];
+			}
+		}
+		return names;
+	}
+}
@@ -0,0 +1,487 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.algorithm;
+
+import java.util.Arrays;
+
+import maths.Operation;
+import maths.Operation.CalculationController;
+import maths.data.StringId;
+import maths.functions.AbsoluteOperation;
+import maths.functions.ConjugateOperation;
+import maths.functions.ImaginaryPartOperation;
+import maths.functions.LogarithmOperation;
+import maths.functions.MaximumOperation;
+import maths.functions.MinimumOperation;
+import maths.functions.Modulo;
+import maths.functions.RealPartOperation;
+import maths.functions.RoundOperation;
+import maths.functions.atomic.AdditionOperation;
+import maths.functions.atomic.AndOperation;
+import maths.functions.atomic.ConcatOperation;
+import maths.functions.atomic.DivisionOperation;
+import maths.functions.atomic.EqualsOperation;
+import maths.functions.atomic.HigherEqualsOperation;
+import maths.functions.atomic.HigherOperation;
+import maths.functions.atomic.LowerEqualsOperation;
+import maths.functions.atomic.LowerOperation;
+import maths.functions.atomic.MultiplicationOperation;
+import maths.functions.atomic.NegativeOperation;
+import maths.functions.atomic.NotOperation;
+import maths.functions.atomic.OrOperation;
+import maths.functions.atomic.PowerOperation;
+import maths.functions.atomic.SubtractionOperation;
+import maths.functions.hyperbolic.ArcCosinusOperation;
+import maths.functions.hyperbolic.ArcSinusOperation;
+import maths.functions.hyperbolic.ArcTangems2Operation;
+import maths.functions.hyperbolic.ArcTangensOperation;
+import maths.functions.hyperbolic.CosinusHyperbolicOperation;
+import maths.functions.hyperbolic.CosinusOperation;
+import maths.functions.hyperbolic.SinusHyperbolicOperation;
+import maths.functions.hyperbolic.SinusOperation;
+import maths.functions.hyperbolic.TangensHyperbolicOperation;
+import maths.functions.hyperbolic.TangensOperation;
+import maths.variable.UserVariableOperation;
+import maths.variable.VariableAmount;
+import maths.variable.VariableStack;
+
+/**
+ * Evaluates an operation many times with different values of its variables.
+ * The tree is walked once, each variable is bound to the index of its value in the array given to {@link #evaluate(Operation[], CalculationController)}
+ * and each node to the static calculate method of its class, so an evaluation doesn't search any variables.
+ * The values can be of every data type, the results are the same as the ones of {@link Operation#calculate(VariableAmount, CalculationController)}.
+ * Subtrees which bind variables themselves, like sums, loops or function calls, are evaluated by the interpreter with a stack containing the values.
+ * A plan is immutable and can be shared between threads.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class EvaluationPlan
+{
+	static final byte ADD = 0, SUB = 1, MUL = 2, DIV = 3, POW = 4, EQ = 5, LT = 6, LE = 7, GT = 8, GE = 9, MIN = 10, MAX = 11, ATAN2 = 12, CONCAT = 13, MOD = 14;
+	private static final byte NEG = 0, NOT = 1, ABS = 2, LOG = 3, SQRT = 4, CBRT = 5, SQUARE = 6, INVERS = 7, EXP = 8, SIN = 9, COS = 10, ASIN = 11, ACOS = 12,
+			SINH = 13, COSH = 14, ROUND = 15, CONJUGATE = 16, REAL = 17, IMAGINARY = 18;
+
+	private final StringId.StringIdObject names[];
+	private final VariableAmount outer;
+	private final Node root;
+	private boolean interpreted;
+
+	/**
+	 * @param variables the names of the variables in the order of their values
+	 */
+	public EvaluationPlan(Operation op, String variables[])
+	{
+		this(op, variables, null);
+	}
+
+	/**
+	 * @param outer the variables which are visible to interpreted subtrees, or null
+	 */
+	public EvaluationPlan(Operation op, String variables[], VariableAmount outer)
+	{
+		this.names = StringId.getStringAndId(variables);
+		this.outer = outer;
+		this.root = create(op);
+	}
+
+	/**
+	 * @param values the values of the variables, a null value leaves the variable unset
+	 */
+	public final Operation evaluate(Operation values[], CalculationController control)
+	{
+		if (values.length != names.length)
+		{
+			throw new IllegalArgumentException("Expected " + names.length + " values but got " + values.length);
+		}
+		return root.evaluate(new Frame(values, control));
+	}
+
+	public final int getVariableCount()
+	{
+		return names.length;
+	}
+
+	/**
+	 * @return true if at least one subtree is evaluated by the interpreter
+	 */
+	public final boolean isInterpreted()
+	{
+		return interpreted;
+	}
+
+	private final int getIndex(Operation op)
+	{
+		final int id = ((UserVariableOperation)op).nameId;
+		for (int i = 0; i < names.length; ++i)
+		{
+			if (names[i].id == id)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	static final byte getBinary(Operation op)
+	{
+		final Class<?> c = op.getClass();
+		if (c == AdditionOperation.class)		return ADD;
+		if (c == SubtractionOperation.class)	return SUB;
+		if (c == MultiplicationOperation.class)	return MUL;
+		if (c == DivisionOperation.class)		return DIV;
+		if (c == PowerOperation.class)			return POW;
+		if (c == EqualsOperation.class)			return EQ;
+		if (c == LowerOperation.class)			return LT;
+		if (c == LowerEqualsOperation.class)	return LE;
+		if (c == HigherOperation.class)			return GT;
+		if (c == HigherEqualsOperation.class)	return GE;
+		if (c == MinimumOperation.class)		return MIN;
+		if (c == MaximumOperation.class)		return MAX;
+		if (c == ArcTangems2Operation.class)	return ATAN2;
+		if (c == ConcatOperation.class)			return CONCAT;
+		if (c == Modulo.class)					return MOD;
+		return -1;
+	}
+
+	static final byte getUnary(Operation op)
+	{
+		final Class<?> c = op.getClass();
+		if (c == NegativeOperation.class)					return NEG;
+		if (c == NotOperation.class)						return NOT;
+		if (c == AbsoluteOperation.class)					return ABS;
+		if (c == LogarithmOperation.class)					return LOG;
+		if (c == PowerOperation.SquareRootOperation.class)	return SQRT;
+		if (c == PowerOperation.CubeRootOperation.class)	return CBRT;
+		if (c == PowerOperation.SquareOperation.class)		return SQUARE;
+		if (c == PowerOperation.InversOperation.class)		return INVERS;
+		if (c == PowerOperation.ExponentOperation.class)	return EXP;
+		if (c == SinusOperation.class)						return SIN;
+		if (c == CosinusOperation.class)					return COS;
+		if (c == ArcSinusOperation.class)					return ASIN;
+		if (c == ArcCosinusOperation.class)					return ACOS;
+		if (c == SinusHyperbolicOperation.class)			return SINH;
+		if (c == CosinusHyperbolicOperation.class)			return COSH;
+		if (c == RoundOperation.class)						return ROUND;
+		if (c == ConjugateOperation.class)					return CONJUGATE;
+		if (c == RealPartOperation.class)					return REAL;
+		if (c == ImaginaryPartOperation.class)				return IMAGINARY;
+		return -1;
+	}
+
+	/**
+	 * @return the index of the child which is the operand of the unary operation
+	 */
+	static final int getOperandIndex(byte unary)
+	{
+		return unary == EXP ? 1 : 0;
+	}
+
+	static final Operation calculateUnary(byte unary, Operation a, CalculationController control)
+	{
+		return Unary.calculate(unary, a, control);
+	}
+
+	static final Operation calculateBinary(byte binary, Operation a, Operation b, CalculationController control)
+	{
+		return Binary.calculate(binary, a, b, control);
+	}
+
+	/**
+	 * @return true if the class calculates all of its children with the given variables and then combines the results, but has no public method for the combination
+	 */
+	private static final boolean isRebuilt(Operation op)
+	{
+		final Class<?> c = op.getClass();
+		return c == TangensOperation.class || c == ArcTangensOperation.class || c == TangensHyperbolicOperation.class || c == AndOperation.class || c == OrOperation.class;
+	}
+
+	/**
+	 * @return true if the operation only calculates its children with the given variables and combines the results
+	 */
+	static final boolean isPure(Operation op)
+	{
+		return getBinary(op) != -1 || getUnary(op) != -1 || isRebuilt(op);
+	}
+
+	/**
+	 * Combines the calculated children of a pure operation like {@link Operation#calculate(VariableAmount, CalculationController)} does, without calculating the children again
+	 */
+	static final Operation calculate(Operation op, Operation children[], CalculationController control)
+	{
+		final byte binary = getBinary(op);
+		if (binary != -1)
+		{
+			return Binary.calculate(binary, children[0], children[1], control);
+		}
+		final byte unary = getUnary(op);
+		if (unary != -1)
+		{
+			return Unary.calculate(unary, children[getOperandIndex(unary)], control);
+		}
+		return op.getInstance(Arrays.asList(children)).calculate(null, control);
+	}
+
+	private final Node create(Operation op)
+	{
+		if (op.isPrimitive())
+		{
+			return new Constant(op);
+		}
+		if (op instanceof UserVariableOperation)
+		{
+			final int index = getIndex(op);
+			if (index != -1)
+			{
+				return new Slot(index, op);
+			}
+		}
+		else
+		{
+			final byte binary = getBinary(op);
+			if (binary != -1)
+			{
+				return new Binary(binary, create(op.get(0)), create(op.get(1)));
+			}
+			final byte unary = getUnary(op);
+			if (unary != -1)
+			{
+				return new Unary(unary, create(op.get(getOperandIndex(unary))));
+			}
+			if (isRebuilt(op))
+			{
+				final Node children[] = new Node[op.size()];
+				for (int i = 0; i < children.length; ++i)
+				{
+					children[i] = create(op.get(i));
+				}
+				return new Rebuild(op, children);
+			}
+		}
+		interpreted = true;
+		return new Interpreted(op);
+	}
+
+	/**
+	 * The state of one evaluation, the stack for the interpreter is created when it is needed first
+	 */
+	private final class Frame
+	{
+		private final Operation values[];
+		private final CalculationController control;
+		private VariableStack stack;
+
+		private Frame(Operation values[], CalculationController control)
+		{
+			this.values = values;
+			this.control = control;
+		}
+
+		private final VariableStack getStack()
+		{
+			if (stack == null)
+			{
+				stack = new VariableStack(names.length, outer);
+				for (int i = 0; i < names.length; ++i)
+				{
+					if (values[i] != null)
+					{
+						stack.setLocal(names[i], values[i]);
+					}
+				}
+			}
+			return stack;
+		}
+	}
+
+	private static abstract class Node
+	{
+		abstract Operation evaluate(Frame frame);
+	}
+
+	private static final class Constant extends Node
+	{
+		private final Operation value;
+
+		private Constant(Operation value)
+		{
+			this.value = value;
+		}
+
+		@Override
+		final Operation evaluate(Frame frame)
+		{
+			return value;
+		}
+	}
+
+	private static final class Slot extends Node
+	{
+		private final int index;
+		private final Operation variable;
+
+		private Slot(int index, Operation variable)
+		{
+			this.index = index;
+			this.variable = variable;
+		}
+
+		@Override
+		final Operation evaluate(Frame frame)
+		{
+			final Operation value = frame.values[index];
+			if (value == null)
+			{
+				return variable.calculate(frame.getStack(), frame.control);
+			}
+			return value.isPrimitive() ? value : value.calculate(frame.getStack(), frame.control);
+		}
+	}
+
+	private static final class Unary extends Node
+	{
+		private final byte code;
+		private final Node a;
+
+		private Unary(byte code, Node a)
+		{
+			this.code = code;
+			this.a = a;
+		}
+
+		@Override
+		final Operation evaluate(Frame frame)
+		{
+			return calculate(code, this.a.evaluate(frame), frame.control);
+		}
+
+		private static final Operation calculate(byte code, Operation a, CalculationController control)
+		{
+			switch (code)
+			{
+				case NEG:		return NegativeOperation.calculate(a, control);
+				case NOT:		return NotOperation.calculate(a);
+				case ABS:		return AbsoluteOperation.calculate(a);
+				case LOG:		return LogarithmOperation.calculate(a);
+				case SQRT:		return PowerOperation.SquareRootOperation.calculate(a);
+				case CBRT:		return PowerOperation.CubeRootOperation.calculate(a, control);
+				case SQUARE:	return PowerOperation.SquareOperation.calculate(a, null);
+				case INVERS:	return PowerOperation.InversOperation.calculate(a, null);
+				case EXP:		return PowerOperation.ExponentOperation.calculate(a, null);
+				case SIN:		return SinusOperation.calculate(a);
+				case COS:		return CosinusOperation.calculate(a);
+				case ASIN:		return ArcSinusOperation.calculate(a);
+				case ACOS:		return ArcCosinusOperation.calculate(a);
+				case SINH:		return SinusHyperbolicOperation.calculate(a);
+				case COSH:		return CosinusHyperbolicOperation.calculate(a);
+				case ROUND:		return RoundOperation.calculate(a);
+				case CONJUGATE:	return ConjugateOperation.calculate(a);
+				case REAL:		return RealPartOperation.calculate(a);
+				case IMAGINARY:	return ImaginaryPartOperation.calculate(a);
+				default:		throw new IllegalStateException();
+			}
+		}
+	}
+
+	private static final class Binary extends Node
+	{
+		private final byte code;
+		private final Node a, b;
+
+		private Binary(byte code, Node a, Node b)
+		{
+			this.code = code;
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		final Operation evaluate(Frame frame)
+		{
+			return calculate(code, this.a.evaluate(frame), this.b.evaluate(frame), frame.control);
+		}
+
+		private static final Operation calculate(byte code, Operation a, Operation b, CalculationController control)
+		{
+			switch (code)
+			{
+				case ADD:		return AdditionOperation.calculate(a, b, control);
+				case SUB:		return SubtractionOperation.calculate(a, b, control);
+				case MUL:		return MultiplicationOperation.calculate(a, b, control);
+				case DIV:		return DivisionOperation.calculate(a, b, control);
+				case POW:		return PowerOperation.calculate(a, b, control);
+				case EQ:		return EqualsOperation.calculate(a, b);
+				case LT:		return LowerOperation.calculate(a, b);
+				case LE:		return LowerEqualsOperation.calculate(a, b);
+				case GT:		return HigherOperation.calculate(a, b);
+				case GE:		return HigherEqualsOperation.calculate(a, b);
+				case MIN:		return MinimumOperation.calculate(a, b);
+				case MAX:		return MaximumOperation.calculate(a, b);
+				case ATAN2:		return ArcTangems2Operation.calculate(a, b);
+				case CONCAT:	return ConcatOperation.calculate(a, b);
+				case MOD:		return Modulo.calculate(a, b);
+				default:		throw new IllegalStateException();
+			}
+		}
+	}
+
+	/**
+	 * Creates the operation again with the values of the children and calculates it, which needs no variables
+	 */
+	private static final class Rebuild extends Node
+	{
+		private final Operation op;
+		private final Node children[];
+
+		private Rebuild(Operation op, Node children[])
+		{
+			this.op = op;
+			this.children = children;
+		}
+
+		@Override
+		final Operation evaluate(Frame frame)
+		{
+			final Operation values[] = new Operation[children.length];
+			for (int i = 0; i < values.length; ++i)
+			{
+				values[i] = children[i].evaluate(frame);
+			}
+			return op.getInstance(Arrays.asList(values)).calculate(null, frame.control);
+		}
+	}
+
+	private static final class Interpreted extends Node
+	{
+		private final Operation op;
+
+		private Interpreted(Operation op)
+		{
+			this.op = op;
+		}
+
+		@Override
+		final Operation evaluate(Frame frame)
+		{
+			return op.calculate(frame.getStack(), frame.control);
+		}
+	}
+}
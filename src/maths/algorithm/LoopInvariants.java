@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.algorithm;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import maths.Operation;
+import maths.Operation.CalculationController;
+import maths.UserFunctionOperation;
+import maths.exception.ExceptionOperation;
+import maths.functions.ForOperation;
+import maths.functions.WhileOperation;
+import maths.functions.variable.AssignAdditionOperation;
+import maths.functions.variable.AssignOperation;
+import maths.variable.UserVariableOperation;
+import maths.variable.Variable;
+import maths.variable.VariableAmount;
+import util.data.SortedIntegerArrayList;
+
+/**
+ * Replaces the subtrees of a loop which don't depend on the variables assigned in the loop by their values, so they are calculated once before the loop instead of in every iteration.
+ * A subtree is invariant if it has no side effects, calls no user defined functions, contains no loops and all its variables are neither assigned in the loop nor depend on an assigned variable.
+ * Assignments in the definitions of the called functions and used variables count as assignments in the loop.
+ * Variables which are operands of functions like sum or diff can be bound by them, subtrees with these variables are only invariant if they contain the function.
+ * Only subtrees with a primitive value are replaced, loops which do anything else than assigning variables stay unchanged.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class LoopInvariants
+{
+	private final VariableAmount va;
+	private final CalculationController control;
+	private final SortedIntegerArrayList assigned = new SortedIntegerArrayList();
+	/**
+	 * Variables which are operands of other functions and could be bound by them, like the variables of sum or diff
+	 */
+	private final SortedIntegerArrayList bound = new SortedIntegerArrayList();
+	private final IdentityHashMap<Variable, Boolean> variables = new IdentityHashMap<Variable, Boolean>();
+	/**
+	 * Variables and functions whose definitions were searched for assignments
+	 */
+	private final IdentityHashMap<Variable, Boolean> definitions = new IdentityHashMap<Variable, Boolean>();
+
+	private LoopInvariants(VariableAmount va, CalculationController control)
+	{
+		this.va = va;
+		this.control = control;
+	}
+
+	/**
+	 * @param va the variables before the first iteration
+	 * @param parts the operations which are calculated in each iteration
+	 * @return the parts with the invariant subtrees replaced, the array is the given one if nothing was replaced
+	 */
+	public static final Operation[] hoist(VariableAmount va, CalculationController control, Operation ...parts)
+	{
+		final LoopInvariants invariants = new LoopInvariants(va, control);
+		for (Operation op : parts)
+		{
+			if (!invariants.collectAssigned(op))
+			{
+				return parts;
+			}
+		}
+		Operation erg[] = parts;
+		for (int i = 0; i < parts.length; ++i)
+		{
+			final Operation op = invariants.replace(parts[i]);
+			if (op != parts[i])
+			{
+				if (erg == parts)
+				{
+					erg = parts.clone();
+				}
+				erg[i] = op;
+			}
+		}
+		return erg;
+	}
+
+	/**
+	 * @return false if the operation, or the definition of a variable or function it uses, has other side effects than assignments of variables
+	 */
+	private final boolean collectAssigned(Operation op)
+	{
+		if (op instanceof UserVariableOperation || op instanceof UserFunctionOperation)
+		{
+			final Variable v = va == null ? null : op instanceof UserVariableOperation ? va.getById(((UserVariableOperation)op).nameId) : va.getById(((UserFunctionOperation)op).nameId, op.size());
+			if (v == null)
+			{
+				if (op instanceof UserFunctionOperation)
+				{
+					//The definition is unknown
+					return false;
+				}
+			}
+			else if (v.getValue() != null && definitions.put(v, Boolean.TRUE) == null && !collectAssigned(v.getValue()))
+			{
+				return false;
+			}
+		}
+		if (op instanceof AssignOperation)
+		{
+			assigned.add(((AssignOperation)op).nameId);
+		}
+		else if (op instanceof AssignAdditionOperation)
+		{
+			assigned.add(((AssignAdditionOperation)op).nameId);
+		}
+		else if (OperationCalculate.hasSideEffect(op))
+		{
+			return false;
+		}
+		else if (!op.isArray() && !EvaluationPlan.isPure(op))
+		{
+			for (int i = 0; i < op.size(); ++i)
+			{
+				Operation child = op.get(i);
+				if (child.isArray() && child.size() != 0)
+				{
+					child = child.get(0);
+				}
+				if (child instanceof UserVariableOperation)
+				{
+					bound.add(((UserVariableOperation)child).nameId);
+				}
+			}
+		}
+		for (int i = 0; i < op.size(); ++i)
+		{
+			if (!collectAssigned(op.get(i)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private final Operation replace(Operation op)
+	{
+		if (op.isPrimitive() || (op.size() == 0 && !(op instanceof UserVariableOperation)))
+		{
+			return op;
+		}
+		if (isInvariant(op, false))
+		{
+			final Operation value = op.calculate(va, control);
+			if (value.isPrimitive() && !(value instanceof ExceptionOperation))
+			{
+				return value;
+			}
+		}
+		if (op instanceof AssignOperation)
+		{
+			final AssignOperation assign = (AssignOperation)op;
+			final Operation a = assign.isIndexed() ? assign.a : replace(assign.a);
+			return a == assign.a ? op : new AssignOperation(a, assign.b);
+		}
+		if (op instanceof AssignAdditionOperation)
+		{
+			final AssignAdditionOperation assign = (AssignAdditionOperation)op;
+			final Operation a = assign.isIndexed() ? assign.a : replace(assign.a);
+			return a == assign.a ? op : new AssignAdditionOperation(a, assign.b);
+		}
+		ArrayList<Operation> children = null;
+		for (int i = 0; i < op.size(); ++i)
+		{
+			final Operation child = op.get(i);
+			final Operation replaced = replace(child);
+			if (replaced != child && children == null)
+			{
+				children = new ArrayList<Operation>(op.size());
+				for (int j = 0; j < i; ++j)
+				{
+					children.add(op.get(j));
+				}
+			}
+			if (children != null)
+			{
+				children.add(replaced);
+			}
+		}
+		return children == null ? op : op.getInstance(children);
+	}
+
+	/**
+	 * @param inBinder true if the operation is part of a function which can bind variables, inside the tested subtree
+	 */
+	private final boolean isInvariant(Operation op, boolean inBinder)
+	{
+		if (op.isPrimitive())
+		{
+			return true;
+		}
+		if (op instanceof UserVariableOperation)
+		{
+			final int nameId = ((UserVariableOperation)op).nameId;
+			if (assigned.contains(nameId) || (!inBinder && bound.contains(nameId)))
+			{
+				return false;
+			}
+			final Variable v = va == null ? null : va.getById(nameId);
+			if (v == null || v.getValue() == null || variables.containsKey(v))
+			{
+				return v == null || v.getValue() == null || variables.get(v).booleanValue();
+			}
+			variables.put(v, Boolean.FALSE);
+			final boolean erg = isInvariant(v.getValue(), false);
+			variables.put(v, Boolean.valueOf(erg));
+			return erg;
+		}
+		if (op instanceof UserFunctionOperation || op instanceof WhileOperation || op instanceof ForOperation || op instanceof AssignOperation
+				|| op instanceof AssignAdditionOperation || OperationCalculate.hasSideEffect(op))
+		{
+			return false;
+		}
+		inBinder |= !op.isArray() && !EvaluationPlan.isPure(op);
+		for (int i = 0; i < op.size(); ++i)
+		{
+			if (!isInvariant(op.get(i), inBinder))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
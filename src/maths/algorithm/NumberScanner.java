@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.algorithm;
+
+import java.math.BigInteger;
+
+import maths.Operation;
+import maths.data.RealDoubleOperation;
+import maths.data.RealLongOperation;
+
+/**
+ * Scanner for plain decimal number literals in character arrays, which gives the same values as the compiler.
+ * Integers which fit into a long are read as long, all other numbers as double. Blanks around the number are ignored.
+ * Doubles with up to 18 significant digits are computed without creating a string, the result is rounded like the one of {@link Double#parseDouble(String)}.
+ * The scanner keeps the value of the last scan, so an instance must not be shared between threads.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class NumberScanner
+{
+	public static final byte NONE = 0, LONG = 1, DOUBLE = 2;
+	private static final double POWERS_OF_TEN[] = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	private static final int MAX_EXACT_DIGITS = 15, MAX_DIGITS = 18;
+	private static final int SMALLEST_POWER = -342, LARGEST_POWER = 308;
+
+	/**
+	 * Powers of five normalized to 128 bits, high and low half alternating
+	 */
+	private static final class PowersOfFive
+	{
+		private static final long TABLE[] = new long[(LARGEST_POWER - SMALLEST_POWER + 1) * 2];
+		static{
+			final BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+			final BigInteger limit = BigInteger.ONE.shiftLeft(128);
+			for (int q = SMALLEST_POWER; q <= LARGEST_POWER; ++q)
+			{
+				final BigInteger power5 = BigInteger.valueOf(5).pow(Math.abs(q));
+				BigInteger c;
+				if (q < 0)
+				{
+					int z = power5.bitLength();
+					if (power5.bitCount() == 1)
+						--z;
+					c = BigInteger.ONE.shiftLeft(q >= -27 ? z + 127 : 2 * z + 128).divide(power5).add(BigInteger.ONE);
+					while (c.compareTo(limit) >= 0)
+						c = c.shiftRight(1);
+				}
+				else
+				{
+					c = power5.bitLength() < 128 ? power5.shiftLeft(128 - power5.bitLength()) : power5.shiftRight(power5.bitLength() - 128);
+				}
+				TABLE[(q - SMALLEST_POWER) * 2] = c.shiftRight(64).longValue();
+				TABLE[(q - SMALLEST_POWER) * 2 + 1] = c.and(mask).longValue();
+			}
+		}
+	}
+
+	private byte type;
+	private long longValue;
+	private double doubleValue;
+
+	/**
+	 * @return the type of the number, {@link #NONE} if the range is no plain number literal
+	 */
+	public final byte scan(final char s[], int begin, int end)
+	{
+		while (begin < end && isBlank(s[begin]))
+			++begin;
+		while (end > begin && isBlank(s[end - 1]))
+			--end;
+		type = NONE;
+		if (begin == end)
+			return NONE;
+		int i = begin;
+		final boolean negative = s[i] == '-';
+		if (negative || s[i] == '+')
+			++i;
+		if (i == end || !isDigit(s[i]))
+			return NONE;
+		//Digits are accumulated negative, so Long.MIN_VALUE can be read
+		long result = 0;
+		boolean overflow = false;
+		//Significant digits without leading zeros, the value is mantissa * 10^exponent
+		long mantissa = 0;
+		int digits = 0, exponent = 0;
+		for (; i < end && isDigit(s[i]); ++i)
+		{
+			final int digit = s[i] - '0';
+			if (result < Long.MIN_VALUE / 10 || (result *= 10) < Long.MIN_VALUE + digit)
+				overflow = true;
+			result -= digit;
+			if (digits < MAX_DIGITS)
+			{
+				if (mantissa != 0 || digit != 0)
+				{
+					mantissa = mantissa * 10 + digit;
+					++digits;
+				}
+			}
+			else
+			{
+				++digits;
+				++exponent;
+			}
+		}
+		if (i == end)
+		{
+			if (!overflow && (negative || result != Long.MIN_VALUE))
+			{
+				longValue = negative ? result : -result;
+				return type = LONG;
+			}
+			return scanDouble(s, begin, end);
+		}
+		if (s[i] == '.')
+		{
+			for (++i; i < end && isDigit(s[i]); ++i)
+			{
+				final int digit = s[i] - '0';
+				if (digits < MAX_DIGITS)
+				{
+					if (mantissa != 0 || digit != 0)
+					{
+						mantissa = mantissa * 10 + digit;
+						++digits;
+					}
+					--exponent;
+				}
+				else
+				{
+					++digits;
+				}
+			}
+		}
+		if (i < end && (s[i] == 'e' || s[i] == 'E'))
+		{
+			if (++i == end)
+				return NONE;
+			final boolean negativeExponent = s[i] == '-';
+			if (negativeExponent || s[i] == '+')
+				++i;
+			if (i == end)
+				return NONE;
+			int value = 0;
+			for (; i < end && isDigit(s[i]); ++i)
+				if (value < 10000)
+					value = value * 10 + s[i] - '0';
+			exponent += negativeExponent ? -value : value;
+		}
+		if (i != end)
+			return NONE;
+		if (digits > MAX_DIGITS)
+			return scanDouble(s, begin, end);
+		if (mantissa == 0)
+		{
+			doubleValue = negative ? -0. : 0.;
+			return type = DOUBLE;
+		}
+		if (digits <= MAX_EXACT_DIGITS && exponent >= -22 && exponent <= 22)
+		{
+			//Both numbers are exact, so the result is rounded once
+			final double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+			doubleValue = negative ? -value : value;
+			return type = DOUBLE;
+		}
+		if (exponent >= SMALLEST_POWER && exponent <= LARGEST_POWER)
+		{
+			final long bits = computeDouble(mantissa, exponent);
+			if (bits != -1)
+			{
+				doubleValue = Double.longBitsToDouble(negative ? bits | Long.MIN_VALUE : bits);
+				return type = DOUBLE;
+			}
+		}
+		return scanDouble(s, begin, end);
+	}
+
+	/**
+	 * Computes the nearest double of mantissa * 10^power with the algorithm of Eisel and Lemire
+	 * @return the bits of the double or -1 if the result can't be decided with 128 bits
+	 */
+	private static final long computeDouble(long i, int power)
+	{
+		final int index = (power - SMALLEST_POWER) * 2;
+		final long factorHigh = PowersOfFive.TABLE[index];
+		final long exponent = (((152170 + 65536) * power) >> 16) + 1024 + 63;
+		int lz = Long.numberOfLeadingZeros(i);
+		i <<= lz;
+		long lower = i * factorHigh;
+		long upper = multiplyHighUnsigned(i, factorHigh);
+		if ((upper & 0x1FF) == 0x1FF && Long.compareUnsigned(lower + i, lower) < 0)
+		{
+			final long factorLow = PowersOfFive.TABLE[index + 1];
+			final long productLow = i * factorLow;
+			final long productMiddle = lower + multiplyHighUnsigned(i, factorLow);
+			if (Long.compareUnsigned(productMiddle, lower) < 0)
+				++upper;
+			if (productMiddle + 1 == 0 && (upper & 0x1FF) == 0x1FF && Long.compareUnsigned(productLow + i, productLow) < 0)
+				return -1;
+			lower = productMiddle;
+		}
+		final long upperBit = upper >>> 63;
+		long mantissa = upper >>> (upperBit + 9);
+		lz += (int)(1 ^ upperBit);
+		if (lower == 0 && (upper & 0x1FF) == 0 && (mantissa & 3) == 1)
+			return -1;
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+		if (mantissa >= (1L << 53))
+		{
+			mantissa = 1L << 52;
+			--lz;
+		}
+		mantissa &= ~(1L << 52);
+		final long realExponent = exponent - lz;
+		if (realExponent < 1 || realExponent > 2046)
+			return -1;
+		return mantissa | (realExponent << 52);
+	}
+
+	private static final long multiplyHighUnsigned(long a, long b)
+	{
+		final long aLow = a & 0xFFFFFFFFL, aHigh = a >>> 32, bLow = b & 0xFFFFFFFFL, bHigh = b >>> 32;
+		final long low = aLow * bLow, middle0 = aLow * bHigh, middle1 = aHigh * bLow;
+		final long carry = (low >>> 32) + (middle0 & 0xFFFFFFFFL) + (middle1 & 0xFFFFFFFFL);
+		return aHigh * bHigh + (middle0 >>> 32) + (middle1 >>> 32) + (carry >>> 32);
+	}
+
+	private final byte scanDouble(final char s[], int begin, int end)
+	{
+		try
+		{
+			doubleValue = Double.parseDouble(new String(s, begin, end - begin));
+			return type = DOUBLE;
+		}catch(NumberFormatException e){
+			return NONE;
+		}
+	}
+
+	/**
+	 * @return the number as operation or null if the range is no plain number literal
+	 */
+	public final Operation parse(final char s[], int begin, int end)
+	{
+		switch (scan(s, begin, end))
+		{
+			case LONG:	return new RealLongOperation(longValue);
+			case DOUBLE:return new RealDoubleOperation(doubleValue);
+			default:	return null;
+		}
+	}
+
+	public final byte getType()
+	{
+		return type;
+	}
+
+	public final long longValue()
+	{
+		return longValue;
+	}
+
+	public final double doubleValue()
+	{
+		return type == LONG ? longValue : doubleValue;
+	}
+
+	private static final boolean isDigit(char c)
+	{
+		return c >= '0' && c <= '9';
+	}
+
+	private static final boolean isBlank(char c)
+	{
+		return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+	}
+}
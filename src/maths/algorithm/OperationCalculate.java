@@ -25,10 +25,13 @@ import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 
 import maths.Controller;
 import maths.Operation;
+import maths.ProgramOperation;
+import maths.SystemFunctions;
 import maths.UserFunctionOperation;
 import maths.Operation.CalculationController;
 import maths.data.ArrayOperation;
@@ -37,7 +40,13 @@ import maths.data.RealLongOperation;
 import maths.data.StringId;
 import maths.data.StringId.StringIdObject;
 import maths.exception.ExceptionOperation;
+import maths.functions.CallProgramFunction;
 import maths.functions.FunctionOperation;
+import maths.functions.JavaCommand;
+import maths.functions.RandomListOperation;
+import maths.functions.RandomMatrixOperation;
+import maths.functions.SleepOperation;
+import maths.functions.SystemOperation;
 import maths.functions.atomic.AdditionOperation;
 import maths.functions.atomic.DivisionOperation;
 import maths.functions.atomic.MultiplicationOperation;
@@ -176,6 +185,101 @@ public final class OperationCalculate {
         return erg;
 	}
 	
+	/**
+	 * Simplifies the operation once, so a stored formula doesn't repeat the simplifications on every calculation.
+	 * Constant subtrees are folded and the identities x+0, x-0, x*1 and x^1 are removed, they hold for every value of x.
+	 * Simplifications like x/x, x-x or 0*x are left out, because they change the value if x is zero, infinite or undefined.
+	 * Only subtrees of primitives, variables, arrays and operations which combine their calculated children are simplified,
+	 * loops, function calls and random numbers stay at their place and only their children are simplified.
+	 * The values of the result equal the ones of the given operation.
+	 */
+	public static final Operation optimize(Operation op){
+		return optimize(op, new Controller());
+	}
+
+	public static final Operation optimize(Operation op, CalculationController control){
+		return optimize(op, control, new boolean[1]);
+	}
+
+	/**
+	 * @param impure set to true if the subtree contains an operation which can't be simplified
+	 */
+	private static final Operation optimize(Operation op, CalculationController control, boolean impure[]){
+		final int size = op.size();
+		if (op.isPrimitive() || size == 0){
+			impure[0] = !(op.isPrimitive() || op.isArray() || op instanceof UserVariableOperation);
+			return op;
+		}
+		Operation children[] = null;
+		boolean childImpure = false;
+		for (int i = 0; i < size; ++i){
+			final Operation child = op.get(i);
+			final Operation optimized = optimize(child, control, impure);
+			childImpure |= impure[0];
+			if (optimized != child && children == null){
+				children = new Operation[size];
+				for (int j = 0; j < i; ++j)
+					children[j] = op.get(j);
+			}
+			if (children != null)
+				children[i] = optimized;
+		}
+		if (childImpure || op.isArray() || !EvaluationPlan.isPure(op)){
+			impure[0] = childImpure || !op.isArray();
+			return children == null ? op : op.getInstance(Arrays.asList(children));
+		}
+		impure[0] = false;
+		if (children == null){
+			children = new Operation[size];
+			for (int i = 0; i < size; ++i)
+				children[i] = op.get(i);
+		}
+		boolean constant = true;
+		for (int i = 0; i < size && constant; ++i)
+			constant = isConstant(children[i]);
+		if (constant)
+			return EvaluationPlan.calculate(op, children, control);
+		if (size == 2){
+			final Operation a = children[0], b = children[1];
+			if (op instanceof AdditionOperation){
+				if (isLong(a, 0))
+					return b;
+				if (isLong(b, 0))
+					return a;
+			}else if (op instanceof SubtractionOperation){
+				if (isLong(b, 0))
+					return a;
+			}else if (op instanceof MultiplicationOperation){
+				if (isLong(a, 1))
+					return b;
+				if (isLong(b, 1))
+					return a;
+			}else if (op.getClass() == PowerOperation.class){
+				if (isLong(b, 1))
+					return a;
+			}
+		}
+		return op.getInstance(Arrays.asList(children));
+	}
+
+	/**
+	 * @return true if the operation is a primitive or an array of constants
+	 */
+	private static final boolean isConstant(Operation op){
+		if (op.isPrimitive())
+			return true;
+		if (!op.isArray())
+			return false;
+		for (int i = 0; i < op.size(); ++i)
+			if (!isConstant(op.get(i)))
+				return false;
+		return true;
+	}
+
+	private static final boolean isLong(Operation op, long value){
+		return op.isRealIntegerNumber() && op.longValue() == value;
+	}
+
 	public static final int nodeCount(Operation op){
 		int erg = 1;
 		for (int i=0;i<op.size();i++)
@@ -329,6 +433,30 @@ public final class OperationCalculate {
     		}
     		return children.length != 0 || op.equals(other.op);
     	}
+
+    	@Override
+    	public boolean equals(Object other)
+    	{
+    		return other instanceof OperationTreeItem && equals((OperationTreeItem)other);
+    	}
+
+    	/**
+    	 * Consistent with equals, the children are compared by reference
+    	 */
+    	@Override
+    	public int hashCode()
+    	{
+    		if (children.length == 0)
+    		{
+    			return op.hashCode();
+    		}
+    		int hash = op.getClass().hashCode();
+    		for (int i = 0; i < children.length; ++i)
+    		{
+    			hash = hash * 31 + System.identityHashCode(children[i]);
+    		}
+    		return hash;
+    	}
     	
     	private StringBuilder toString(StringBuilder strB, int depth){
     		for (int i = 0; i < depth; ++i)
@@ -354,22 +482,25 @@ public final class OperationCalculate {
     {
     	ArrayList<ArrayList<OperationTreeItem>> itemList = new ArrayList<ArrayList<OperationTreeItem>>();
     	new OperationTreeItem(o, itemList);
+    	//The layers are merged from the leafs on, so equal subtrees have the same children
+    	HashMap<OperationTreeItem, OperationTreeItem> first = new HashMap<OperationTreeItem, OperationTreeItem>();
     	for (int i = 0; i < itemList.size(); ++i)
     	{
     		ArrayList<OperationTreeItem> layer = itemList.get(i);
-        		
-    		for (int j = 0; j < layer.size() - 1; ++j)
+    		first.clear();
+    		for (int j = 0; j < layer.size(); ++j)
     		{
-    			OperationTreeItem oti0 = layer.get(j);
-    			for (int k = j + 1; k < layer.size(); ++k)
+    			OperationTreeItem oti1 = layer.get(j);
+    			OperationTreeItem oti0 = first.get(oti1);
+    			if (oti0 == null)
     			{
-    				OperationTreeItem oti1 = layer.get(k);
-    				if (oti0.equals(oti1))
-    				{
-    					oti1.parent.children[oti1.parentIndex] = oti0;
-    					++oti0.refs;
-    					--oti1.refs;
-    				}    					
+    				first.put(oti1, oti1);
+    			}
+    			else
+    			{
+    				oti1.parent.children[oti1.parentIndex] = oti0;
+    				++oti0.refs;
+    				--oti1.refs;
     			}
     		}
     	}
@@ -618,6 +749,18 @@ public final class OperationCalculate {
     	return tree;
     }
     
+    /**
+     * Checks only the operation itself, not its children and not the definitions of called functions
+     * @return true if calculating the operation can create random numbers, do input or output, wait or change variables
+     */
+    public static final boolean hasSideEffect(Operation op){
+    	if (op instanceof SystemFunctions || op instanceof RandomListOperation || op instanceof RandomMatrixOperation || op instanceof SleepOperation
+    			|| op instanceof SystemOperation || op instanceof JavaCommand || op instanceof CallProgramFunction || op instanceof ProgramOperation)
+    		return true;
+    	final String packageName = op.getClass().getPackage().getName();
+    	return packageName.equals("maths.functions.io") || packageName.equals("maths.functions.variable");
+    }
+
     public static final SortedIntegerArrayList getVariables(Operation op, SortedIntegerArrayList list){
     	if (op instanceof UserVariableOperation) {
     		list.add(((UserVariableOperation)op).nameId);
@@ -654,6 +797,10 @@ public final class OperationCalculate {
     		return size;
     	}
 
+		public final int capacity(){
+			return operations.length;
+		}
+
 		@Override
 		public void add(int index, Operation obj) {
     		if (size == operations.length)
@@ -70,6 +70,20 @@ public abstract class OperationIterator {
 	public final boolean isValid(){
 		return iterator != null;
 	}
+
+	/**
+	 * @return the name of the loop variable, or null if the iteration has none
+	 */
+	public final StringIdObject getName(){
+		return iterator.getName();
+	}
+
+	/**
+	 * @return the value of the loop variable in the iteration with the given index
+	 */
+	public final long getValue(long i){
+		return iterator.getValue(i);
+	}
 	
 	public abstract Operation getErg();
 
@@ -84,6 +98,10 @@ public abstract class OperationIterator {
 		public abstract void run(VariableAmount vs);
 
 		public abstract long getRuns();
+
+		public abstract StringIdObject getName();
+
+		public abstract long getValue(long i);
 	}
 	
 	private final class Class1Iterator implements OperationIteratorInterface{
@@ -102,6 +120,14 @@ public abstract class OperationIterator {
 		public final long getRuns() {
 			return runs;
 		}
+		@Override
+		public final StringIdObject getName() {
+			return null;
+		}
+		@Override
+		public final long getValue(long i) {
+			return i;
+		}
 	}
 
 	private final class Class2Iterator implements OperationIteratorInterface{
@@ -125,6 +151,14 @@ public abstract class OperationIterator {
 		public final long getRuns() {
 			return runs;
 		}
+		@Override
+		public final StringIdObject getName() {
+			return name;
+		}
+		@Override
+		public final long getValue(long i) {
+			return i + 1;
+		}
 	}
 	
 	private final class Class3Iterator implements OperationIteratorInterface{
@@ -148,6 +182,14 @@ public abstract class OperationIterator {
 		public final long getRuns() {
 			return runs;
 		}
+		@Override
+		public final StringIdObject getName() {
+			return name;
+		}
+		@Override
+		public final long getValue(long i) {
+			return start + i;
+		}
 	}
 	
 	private final class Class4Iterator implements OperationIteratorInterface{
@@ -171,5 +213,13 @@ public abstract class OperationIterator {
 		public final long getRuns() {
 			return runs;
 		}
+		@Override
+		public final StringIdObject getName() {
+			return name;
+		}
+		@Override
+		public final long getValue(long i) {
+			return start + i * step;
+		}
 	}
 }
@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.algorithm;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import maths.Operation;
+import maths.Operation.CalculationController;
+import maths.UserFunctionOperation;
+import maths.data.StringId;
+import maths.functions.atomic.AdditionOperation;
+import maths.functions.atomic.MultiplicationOperation;
+import maths.variable.UserVariableOperation;
+import maths.variable.Variable;
+import maths.variable.VariableAmount;
+import maths.variable.VariableStack;
+
+/**
+ * Calculates the iterations of an {@link OperationIterator} in parts in the common fork join pool.
+ * Each part has an own stack with the loop variable on top of the given variables.
+ * The range is always split at the same positions and the partial results are combined in the order of the tree, so the result doesn't depend on the scheduling or the number of threads.
+ * Only iterations with at least {@link #getParallelThreshold()} runs and a body without side effects are calculated in parallel.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class ParallelIteration
+{
+	private static final long PARALLEL_GRAIN = 0x1000;
+	private static volatile long parallelThreshold = 0x10000;
+
+	public static interface Combiner
+	{
+		public Operation combine(Operation a, Operation b, CalculationController control);
+	}
+
+	public static final Combiner ADD = new Combiner() {
+		@Override
+		public final Operation combine(Operation a, Operation b, CalculationController control)
+		{
+			return AdditionOperation.calculate(a, b, control);
+		}
+	};
+
+	public static final Combiner MULTIPLY = new Combiner() {
+		@Override
+		public final Operation combine(Operation a, Operation b, CalculationController control)
+		{
+			return MultiplicationOperation.calculate(a, b, control);
+		}
+	};
+
+	private ParallelIteration(){}
+
+	/**
+	 * @return true if the iteration is large enough and the body can be calculated in different threads
+	 */
+	public static final boolean isParallel(OperationIterator oi, Operation body, VariableAmount va)
+	{
+		return oi.getRuns() >= parallelThreshold && isSideEffectFree(body, va, new IdentityHashMap<Variable, Boolean>());
+	}
+
+	/**
+	 * Checks the operation and the values of the variables and functions it uses
+	 */
+	private static final boolean isSideEffectFree(Operation op, VariableAmount va, IdentityHashMap<Variable, Boolean> visited)
+	{
+		if (OperationCalculate.hasSideEffect(op))
+		{
+			return false;
+		}
+		if (va != null && (op instanceof UserVariableOperation || op instanceof UserFunctionOperation))
+		{
+			final Variable v = op instanceof UserVariableOperation ? va.getById(((UserVariableOperation)op).nameId) : va.getById(((UserFunctionOperation)op).nameId, op.size());
+			if (v != null && v.getValue() != null && visited.put(v, Boolean.TRUE) == null && !isSideEffectFree(v.getValue(), va, visited))
+			{
+				return false;
+			}
+		}
+		for (int i = 0; i < op.size(); ++i)
+		{
+			if (!isSideEffectFree(op.get(i), va, visited))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Combines the calculated bodies of all iterations, starting with the identity in each part
+	 */
+	public static final Operation reduce(OperationIterator oi, Operation body, VariableAmount va, Operation identity, Combiner combiner, CalculationController control)
+	{
+		return ForkJoinPool.commonPool().invoke(new Reduction(oi, body, va, identity, combiner, control, 0, oi.getRuns()));
+	}
+
+	public static final double sumDouble(OperationIterator oi, Operation body, VariableAmount va, CalculationController control)
+	{
+		return ForkJoinPool.commonPool().invoke(new DoubleReduction(oi, body, va, false, control, 0, oi.getRuns())).doubleValue();
+	}
+
+	public static final double productDouble(OperationIterator oi, Operation body, VariableAmount va, CalculationController control)
+	{
+		return ForkJoinPool.commonPool().invoke(new DoubleReduction(oi, body, va, true, control, 0, oi.getRuns())).doubleValue();
+	}
+
+	/**
+	 * Writes the calculated body of each iteration to the position of its index, each part fills its own slice
+	 */
+	public static final void fill(OperationIterator oi, Operation body, VariableAmount va, Operation erg[], CalculationController control)
+	{
+		ForkJoinPool.commonPool().invoke(new Fill(oi, body, va, erg, control, 0, oi.getRuns()));
+	}
+
+	/**
+	 * Sets the number of iterations from which on the body is calculated in parallel
+	 */
+	public static final void setParallelThreshold(long threshold)
+	{
+		parallelThreshold = threshold;
+	}
+
+	public static final long getParallelThreshold()
+	{
+		return parallelThreshold;
+	}
+
+	/**
+	 * The stack of one part, which contains the loop variable
+	 */
+	private static final class Part
+	{
+		private final OperationIterator oi;
+		private final VariableStack stack;
+		private final Variable variable;
+
+		private Part(OperationIterator oi, VariableAmount va)
+		{
+			this.oi = oi;
+			stack = new VariableStack(1, va);
+			final StringId.StringIdObject name = oi.getName();
+			if (name != null)
+			{
+				stack.add(variable = new Variable(name));
+			}
+			else
+			{
+				variable = null;
+			}
+		}
+
+		/**
+		 * @return the stack with the loop variable of the iteration
+		 */
+		private final VariableStack get(long i)
+		{
+			if (variable != null)
+			{
+				variable.setValue(oi.getValue(i));
+			}
+			return stack;
+		}
+	}
+
+	private static final class Reduction extends RecursiveTask<Operation>
+	{
+		private static final long serialVersionUID = 2405637186240982316L;
+		private final OperationIterator oi;
+		private final Operation body, identity;
+		private final VariableAmount va;
+		private final Combiner combiner;
+		private final CalculationController control;
+		private final long from, to;
+
+		private Reduction(OperationIterator oi, Operation body, VariableAmount va, Operation identity, Combiner combiner, CalculationController control, long from, long to)
+		{
+			this.oi = oi;
+			this.body = body;
+			this.va = va;
+			this.identity = identity;
+			this.combiner = combiner;
+			this.control = control;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected final Operation compute()
+		{
+			if (to - from > PARALLEL_GRAIN)
+			{
+				final long middle = (from + to) >>> 1;
+				final Reduction right = new Reduction(oi, body, va, identity, combiner, control, middle, to);
+				right.fork();
+				final Operation left = new Reduction(oi, body, va, identity, combiner, control, from, middle).compute();
+				return combiner.combine(left, right.join(), control);
+			}
+			final Part part = new Part(oi, va);
+			Operation erg = identity;
+			for (long i = from; i < to; ++i)
+			{
+				erg = combiner.combine(erg, body.calculate(part.get(i), control), control);
+			}
+			return erg;
+		}
+	}
+
+	private static final class DoubleReduction extends RecursiveTask<Double>
+	{
+		private static final long serialVersionUID = -6313725830286374934L;
+		private final OperationIterator oi;
+		private final Operation body;
+		private final VariableAmount va;
+		private final boolean product;
+		private final CalculationController control;
+		private final long from, to;
+
+		private DoubleReduction(OperationIterator oi, Operation body, VariableAmount va, boolean product, CalculationController control, long from, long to)
+		{
+			this.oi = oi;
+			this.body = body;
+			this.va = va;
+			this.product = product;
+			this.control = control;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected final Double compute()
+		{
+			if (to - from > PARALLEL_GRAIN)
+			{
+				final long middle = (from + to) >>> 1;
+				final DoubleReduction right = new DoubleReduction(oi, body, va, product, control, middle, to);
+				right.fork();
+				final double left = new DoubleReduction(oi, body, va, product, control, from, middle).compute().doubleValue();
+				return product ? left * right.join().doubleValue() : left + right.join().doubleValue();
+			}
+			final Part part = new Part(oi, va);
+			double erg = product ? 1 : 0;
+			for (long i = from; i < to; ++i)
+			{
+				final double value = body.calculateDouble(part.get(i), control);
+				erg = product ? erg * value : erg + value;
+			}
+			return erg;
+		}
+	}
+
+	private static final class Fill extends RecursiveAction
+	{
+		private static final long serialVersionUID = 7745318532901482577L;
+		private final OperationIterator oi;
+		private final Operation body;
+		private final VariableAmount va;
+		private final Operation erg[];
+		private final CalculationController control;
+		private final long from, to;
+
+		private Fill(OperationIterator oi, Operation body, VariableAmount va, Operation erg[], CalculationController control, long from, long to)
+		{
+			this.oi = oi;
+			this.body = body;
+			this.va = va;
+			this.erg = erg;
+			this.control = control;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected final void compute()
+		{
+			if (to - from > PARALLEL_GRAIN)
+			{
+				final long middle = (from + to) >>> 1;
+				invokeAll(new Fill(oi, body, va, erg, control, from, middle), new Fill(oi, body, va, erg, control, middle, to));
+				return;
+			}
+			final Part part = new Part(oi, va);
+			for (long i = from; i < to; ++i)
+			{
+				erg[(int)i] = body.calculate(part.get(i), control);
+			}
+		}
+	}
+}
@@ -0,0 +1,720 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import maths.Operation;
+import maths.Operation.CalculationController;
+import maths.data.ArrayOperation;
+import maths.data.BooleanOperation;
+import maths.data.RealDoubleOperation;
+import maths.data.RealLongOperation;
+import maths.exception.ExceptionOperation;
+import maths.functions.variable.AssignOperation;
+import maths.variable.UserVariableOperation;
+import maths.variable.Variable;
+import maths.variable.VariableAmount;
+import maths.variable.VariableStack;
+
+/**
+ * Register machine for the statements of a program.
+ * The control flow is lowered to jumps and the expressions to instructions on registers, which hold the values of the assigned variables, the constants and the intermediate results.
+ * Assigned variables are bound to their register once, so loops run without searching variables and without walking the trees of the statements.
+ * Real integer and floating numbers are kept unboxed in numeric registers while they are combined by the basic arithmetic and comparisons, with the same results as the interpreter.
+ * Subtrees and statements without instruction are calculated by the interpreter with a stack which contains the values of the registers.
+ * A machine is immutable and can be shared between threads.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class ProgramMachine
+{
+	private static final byte OBJECT = 0, LONG = 1, DOUBLE = 2;
+	private static final byte BINARY = 0, UNARY = 1, INTERPRET = 2, STATEMENT = 3, ASSIGN = 4, BRANCH = 5, BRANCH_BINARY = 6, JUMP = 7, LOOP = 8, RETURN = 9, CHECK_STOP = 10, LABEL = 11;
+
+	private final int code[];
+	/**
+	 * Initial values of the registers, the first registers belong to the assigned variables
+	 */
+	private final Operation registers[];
+	private final UserVariableOperation variables[];
+	private final Operation interpreted[];
+	private final String messages[];
+
+	private ProgramMachine(int code[], Operation registers[], UserVariableOperation variables[], Operation interpreted[], String messages[])
+	{
+		this.code = code;
+		this.registers = registers;
+		this.variables = variables;
+		this.interpreted = interpreted;
+		this.messages = messages;
+	}
+
+	/**
+	 * @return false if an assigned variable is visible in the given variables, assignments would change it and the program has to be interpreted
+	 */
+	public final boolean canRun(VariableAmount object)
+	{
+		if (object != null)
+		{
+			for (UserVariableOperation variable : variables)
+			{
+				if (object.getById(variable.nameId) != null)
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	public final int getRegisterCount()
+	{
+		return registers.length;
+	}
+
+	/**
+	 * @return the number of instructions which are calculated by the interpreter
+	 */
+	public final int getInterpretedCount()
+	{
+		return interpreted.length;
+	}
+
+	/**
+	 * Runs the program like the interpreter with a new stack on top of the given variables
+	 * @return the returned value, or null if the program ends without return
+	 */
+	public final Operation run(VariableAmount object, CalculationController control)
+	{
+		final Frame frame = new Frame(object, control);
+		final int code[] = this.code;
+		int pc = 0;
+		while (pc < code.length)
+		{
+			switch (code[pc])
+			{
+				case BINARY:{
+					final byte binary = (byte)code[pc + 1];
+					final int dst = code[pc + 2], a = code[pc + 3], b = code[pc + 4];
+					if (!frame.calculateNumeric(binary, dst, a, b))
+					{
+						frame.set(dst, EvaluationPlan.calculateBinary(binary, frame.read(a), frame.read(b), control));
+					}
+					pc += 5;
+					break;
+				}
+				case UNARY:
+					frame.set(code[pc + 2], EvaluationPlan.calculateUnary((byte)code[pc + 1], frame.read(code[pc + 3]), control));
+					pc += 4;
+					break;
+				case INTERPRET:
+					frame.set(code[pc + 1], interpreted[code[pc + 2]].calculate(frame.getStack(), control));
+					frame.load();
+					pc += 3;
+					break;
+				case STATEMENT:
+					interpreted[code[pc + 1]].calculate(frame.getStack(), control);
+					frame.load();
+					pc += 2;
+					break;
+				case ASSIGN:
+					frame.assign(code[pc + 1], code[pc + 2]);
+					pc += 3;
+					break;
+				case BRANCH:
+				case BRANCH_BINARY:{
+					//Both instructions end with the target and the message
+					final Operation value;
+					final int next;
+					if (code[pc] == BRANCH)
+					{
+						value = frame.read(code[pc + 1]);
+						next = pc + 4;
+					}
+					else
+					{
+						final byte binary = (byte)code[pc + 1];
+						final int dst = code[pc + 2], a = code[pc + 3], b = code[pc + 4];
+						if (!frame.calculateNumeric(binary, dst, a, b))
+						{
+							frame.set(dst, EvaluationPlan.calculateBinary(binary, frame.read(a), frame.read(b), control));
+						}
+						value = frame.read(dst);
+						next = pc + 7;
+					}
+					if (value == BooleanOperation.TRUE)
+					{
+						pc = next;
+					}
+					else if (value == BooleanOperation.FALSE)
+					{
+						pc = code[next - 2];
+					}
+					else
+					{
+						return new ExceptionOperation(messages[code[next - 1]]);
+					}
+					break;
+				}
+				case JUMP:
+					pc = code[pc + 1];
+					break;
+				case LOOP:
+					if (control != null && control.getStopFlag())
+					{
+						return new ExceptionOperation("Stopped");
+					}
+					pc = code[pc + 1];
+					break;
+				case RETURN:
+					return frame.read(code[pc + 1]);
+				case CHECK_STOP:
+					if (control != null && control.getStopFlag())
+					{
+						return new ExceptionOperation("Stopped");
+					}
+					++pc;
+					break;
+				default:
+					throw new IllegalStateException();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Registers of one run and the stack for the interpreted instructions, which is created when it is needed first
+	 */
+	private final class Frame
+	{
+		private final Operation regs[] = registers.clone();
+		/**
+		 * The type of each register, the value of registers of type LONG or DOUBLE is in the numeric registers
+		 */
+		private final byte types[] = new byte[registers.length];
+		private final long longs[] = new long[registers.length];
+		private final double doubles[] = new double[registers.length];
+		private final VariableAmount object;
+		private final CalculationController control;
+		private VariableStack stack;
+		private boolean stackValid = true;
+
+		private Frame(VariableAmount object, CalculationController control)
+		{
+			this.object = object;
+			this.control = control;
+		}
+
+		/**
+		 * Reads a register like the interpreter reads a variable, values which aren't primitive are calculated again
+		 */
+		private final Operation read(int index)
+		{
+			switch (types[index])
+			{
+				case LONG:		return new RealLongOperation(longs[index]);
+				case DOUBLE:	return new RealDoubleOperation(doubles[index]);
+			}
+			final Operation value = regs[index];
+			if (index >= variables.length)
+			{
+				return value;
+			}
+			if (value == null)
+			{
+				return variables[index];
+			}
+			return value.isPrimitive() ? value : value.calculate(getStack(), control);
+		}
+
+		/**
+		 * @return a stack which contains the values of the variable registers
+		 */
+		private final VariableStack getStack()
+		{
+			if (stack == null)
+			{
+				stack = new VariableStack(variables.length, object);
+				stackValid = false;
+			}
+			if (!stackValid)
+			{
+				for (int i = 0; i < variables.length; ++i)
+				{
+					if (types[i] != OBJECT)
+					{
+						stack.setLocal(variables[i].nameObject, read(i));
+					}
+					else if (regs[i] != null)
+					{
+						stack.setLocal(variables[i].nameObject, regs[i]);
+					}
+				}
+				stackValid = true;
+			}
+			return stack;
+		}
+
+		/**
+		 * Loads the variables of the stack into the registers after the interpreter could have changed them
+		 */
+		private final void load()
+		{
+			for (int i = 0; i < variables.length; ++i)
+			{
+				final Variable v = stack.getLocalById(variables[i].nameId);
+				if (v != null)
+				{
+					regs[i] = v.getValue();
+					types[i] = OBJECT;
+				}
+			}
+		}
+
+		private final void set(int index, Operation value)
+		{
+			if (index < variables.length)
+			{
+				if (value.isArray())
+				{
+					value = new ArrayOperation((ArrayOperation)value);
+				}
+				stackValid = false;
+			}
+			regs[index] = value;
+			types[index] = OBJECT;
+		}
+
+		private final void assign(int variable, int index)
+		{
+			final byte type = types[index];
+			if (type == OBJECT)
+			{
+				Operation value = read(index);
+				if (value.isArray())
+				{
+					value = new ArrayOperation((ArrayOperation)value);
+				}
+				regs[variable] = value;
+			}
+			else
+			{
+				longs[variable] = longs[index];
+				doubles[variable] = doubles[index];
+			}
+			types[variable] = type;
+			stackValid = false;
+		}
+
+		/**
+		 * @return LONG or DOUBLE if the register contains a real number of this type, which is then in the numeric register
+		 */
+		private final byte getNumericType(int index)
+		{
+			final byte type = types[index];
+			if (type != OBJECT)
+			{
+				return type;
+			}
+			final Operation value = regs[index];
+			if (value instanceof RealLongOperation)
+			{
+				longs[index] = value.longValue();
+				return LONG;
+			}
+			if (value instanceof RealDoubleOperation)
+			{
+				doubles[index] = value.doubleValue();
+				return DOUBLE;
+			}
+			return OBJECT;
+		}
+
+		/**
+		 * Calculates the operation without boxing, if both operands are real integer or floating numbers, the results are the ones of the static calculate methods
+		 * @return false if the operation has to be calculated by the static calculate method
+		 */
+		private final boolean calculateNumeric(byte binary, int dst, int a, int b)
+		{
+			final byte ta = getNumericType(a);
+			if (ta == OBJECT)
+			{
+				return false;
+			}
+			final byte tb = getNumericType(b);
+			if (tb == OBJECT)
+			{
+				return false;
+			}
+			if (ta == LONG && tb == LONG)
+			{
+				final long al = longs[a], bl = longs[b];
+				switch (binary)
+				{
+					case EvaluationPlan.ADD:{
+						final long erg = al + bl;
+						return Calculate.additionOverflowTest(al, bl, erg) ? setLong(dst, erg) : setDouble(dst, (double)al + bl);
+					}
+					case EvaluationPlan.SUB:{
+						final long erg = al - bl;
+						return Calculate.subtractionOverflowTest(al, bl, erg) ? setLong(dst, erg) : setDouble(dst, (double)al - bl);
+					}
+					case EvaluationPlan.MUL:{
+						if (bl == 0)
+						{
+							return setLong(dst, 0);
+						}
+						final long erg = al * bl;
+						return erg / bl == al ? setLong(dst, erg) : setDouble(dst, (double)al * bl);
+					}
+					case EvaluationPlan.MOD:	return bl == 0 ? setDouble(dst, Double.NaN) : setLong(dst, al % bl);
+					case EvaluationPlan.EQ:		return setBoolean(dst, al == bl);
+					case EvaluationPlan.LT:		return setBoolean(dst, al < bl);
+					case EvaluationPlan.LE:		return setBoolean(dst, al <= bl);
+					case EvaluationPlan.GT:		return setBoolean(dst, al > bl);
+					case EvaluationPlan.GE:		return setBoolean(dst, al >= bl);
+					default:					return false;
+				}
+			}
+			final double ad = ta == LONG ? (double)longs[a] : doubles[a], bd = tb == LONG ? (double)longs[b] : doubles[b];
+			switch (binary)
+			{
+				case EvaluationPlan.ADD:	return setDouble(dst, ad + bd);
+				case EvaluationPlan.SUB:	return setDouble(dst, ad - bd);
+				case EvaluationPlan.MUL:	return setDouble(dst, ad * bd);
+				case EvaluationPlan.DIV:	return setDouble(dst, bd == 0 ? Double.NaN : ad / bd);
+				case EvaluationPlan.MOD:	return setDouble(dst, ad % bd);
+				case EvaluationPlan.EQ:		return setBoolean(dst, ad == bd);
+			}
+			if (Double.isNaN(ad) || Double.isNaN(bd))
+			{
+				return false;
+			}
+			switch (binary)
+			{
+				case EvaluationPlan.LT:		return setBoolean(dst, ad < bd);
+				case EvaluationPlan.LE:		return setBoolean(dst, ad <= bd);
+				case EvaluationPlan.GT:		return setBoolean(dst, ad > bd);
+				case EvaluationPlan.GE:		return setBoolean(dst, ad >= bd);
+				default:					return false;
+			}
+		}
+
+		private final boolean setLong(int index, long value)
+		{
+			if (index < variables.length)
+			{
+				stackValid = false;
+			}
+			longs[index] = value;
+			types[index] = LONG;
+			return true;
+		}
+
+		private final boolean setDouble(int index, double value)
+		{
+			if (index < variables.length)
+			{
+				stackValid = false;
+			}
+			doubles[index] = value;
+			types[index] = DOUBLE;
+			return true;
+		}
+
+		private final boolean setBoolean(int index, boolean value)
+		{
+			if (index < variables.length)
+			{
+				stackValid = false;
+			}
+			regs[index] = BooleanOperation.get(value);
+			types[index] = OBJECT;
+			return true;
+		}
+	}
+
+	/**
+	 * Collects the statements and jumps of a program, which are lowered to instructions by {@link #build()}, after all assigned variables are known
+	 */
+	public static final class Builder
+	{
+		private final ArrayList<Command> commands = new ArrayList<Command>();
+		private int labelCount;
+
+		private static final class Command
+		{
+			private final byte type;
+			private final Operation op;
+			private final int label;
+			private final String message;
+
+			private Command(byte type, Operation op, int label, String message)
+			{
+				this.type = type;
+				this.op = op;
+				this.label = label;
+				this.message = message;
+			}
+		}
+
+		public final int createLabel()
+		{
+			return labelCount++;
+		}
+
+		/**
+		 * The following instructions start at the label
+		 */
+		public final void mark(int label)
+		{
+			commands.add(new Command(LABEL, null, label, null));
+		}
+
+		public final void statement(Operation op)
+		{
+			commands.add(new Command(STATEMENT, op, -1, null));
+		}
+
+		public final void ret(Operation op)
+		{
+			commands.add(new Command(RETURN, op, -1, null));
+		}
+
+		/**
+		 * Continues if the condition is true, jumps to the label if it is false and returns an exception with the message otherwise
+		 */
+		public final void branch(Operation condition, int label, String message)
+		{
+			commands.add(new Command(BRANCH, condition, label, message));
+		}
+
+		public final void jump(int label)
+		{
+			commands.add(new Command(JUMP, null, label, null));
+		}
+
+		/**
+		 * Returns an exception if the stop flag of the controller is set and jumps to the label otherwise
+		 */
+		public final void loop(int label)
+		{
+			commands.add(new Command(LOOP, null, label, null));
+		}
+
+		/**
+		 * Returns an exception if the stop flag of the controller is set
+		 */
+		public final void checkStop()
+		{
+			commands.add(new Command(CHECK_STOP, null, -1, null));
+		}
+
+		private static final boolean isVariableAssignment(Operation op)
+		{
+			return op instanceof AssignOperation && ((AssignOperation)op).b instanceof UserVariableOperation && !((AssignOperation)op).isIndexed();
+		}
+
+		public final ProgramMachine build()
+		{
+			return new Lowering().build();
+		}
+
+		private final class Lowering
+		{
+			private int code[] = new int[64];
+			private int size;
+			private final ArrayList<Operation> registers = new ArrayList<Operation>();
+			private final HashMap<Integer, Integer> variableRegisters = new HashMap<Integer, Integer>();
+			private final ArrayList<UserVariableOperation> variables = new ArrayList<UserVariableOperation>();
+			private final IdentityHashMap<Operation, Integer> constants = new IdentityHashMap<Operation, Integer>();
+			private final ArrayList<Operation> interpreted = new ArrayList<Operation>();
+			private final ArrayList<String> messages = new ArrayList<String>();
+			private final int labels[] = new int[labelCount];
+			/**
+			 * Positions in the code which contain a label instead of an address
+			 */
+			private final ArrayList<Integer> jumps = new ArrayList<Integer>();
+
+			private final ProgramMachine build()
+			{
+				for (Command command : commands)
+				{
+					if (command.type == STATEMENT && isVariableAssignment(command.op))
+					{
+						final UserVariableOperation variable = (UserVariableOperation)((AssignOperation)command.op).b;
+						if (!variableRegisters.containsKey(variable.nameId))
+						{
+							variableRegisters.put(variable.nameId, registers.size());
+							registers.add(null);
+							variables.add(variable);
+						}
+					}
+				}
+				for (Command command : commands)
+				{
+					lower(command);
+				}
+				for (int position : jumps)
+				{
+					code[position] = labels[code[position]];
+				}
+				return new ProgramMachine(
+						Arrays.copyOf(code, size),
+						registers.toArray(new Operation[registers.size()]),
+						variables.toArray(new UserVariableOperation[variables.size()]),
+						interpreted.toArray(new Operation[interpreted.size()]),
+						messages.toArray(new String[messages.size()]));
+			}
+
+			private final void lower(Command command)
+			{
+				switch (command.type)
+				{
+					case STATEMENT:
+						if (isVariableAssignment(command.op))
+						{
+							final AssignOperation assign = (AssignOperation)command.op;
+							final int variable = variableRegisters.get(assign.nameId), value = lower(assign.a, variable);
+							if (value != variable)
+							{
+								emit(ASSIGN, variable, value);
+							}
+						}
+						else
+						{
+							emit(STATEMENT, addInterpreted(command.op));
+						}
+						break;
+					case RETURN:
+						emit(RETURN, lower(command.op));
+						break;
+					case BRANCH:{
+						messages.add(command.message);
+						final byte binary = EvaluationPlan.getBinary(command.op);
+						if (binary != -1)
+						{
+							final int a = lower(command.op.get(0)), b = lower(command.op.get(1));
+							emit(BRANCH_BINARY, binary, createRegister(), a, b, command.label, messages.size() - 1);
+						}
+						else
+						{
+							emit(BRANCH, lower(command.op), command.label, messages.size() - 1);
+						}
+						jumps.add(size - 2);
+						break;
+					}
+					case JUMP:
+					case LOOP:
+						emit(command.type, command.label);
+						jumps.add(size - 1);
+						break;
+					case CHECK_STOP:
+						emit(CHECK_STOP);
+						break;
+					case LABEL:
+						labels[command.label] = size;
+						break;
+					default:
+						throw new IllegalArgumentException();
+				}
+			}
+
+			private final int lower(Operation op)
+			{
+				return lower(op, -1);
+			}
+
+			/**
+			 * @param destination the register which should contain the value, or -1 for a new register
+			 * @return the register which contains the value of the operation after the emitted instructions, the destination if its value was calculated by an instruction
+			 */
+			private final int lower(Operation op, int destination)
+			{
+				if (op.isPrimitive())
+				{
+					Integer register = constants.get(op);
+					if (register == null)
+					{
+						constants.put(op, register = registers.size());
+						registers.add(op);
+					}
+					return register;
+				}
+				if (op instanceof UserVariableOperation)
+				{
+					final Integer register = variableRegisters.get(((UserVariableOperation)op).nameId);
+					if (register != null)
+					{
+						return register;
+					}
+				}
+				else
+				{
+					final byte binary = EvaluationPlan.getBinary(op);
+					if (binary != -1)
+					{
+						final int a = lower(op.get(0)), b = lower(op.get(1)), register = destination == -1 ? createRegister() : destination;
+						emit(BINARY, binary, register, a, b);
+						return register;
+					}
+					final byte unary = EvaluationPlan.getUnary(op);
+					if (unary != -1)
+					{
+						final int a = lower(op.get(EvaluationPlan.getOperandIndex(unary))), register = destination == -1 ? createRegister() : destination;
+						emit(UNARY, unary, register, a);
+						return register;
+					}
+				}
+				final int register = createRegister();
+				emit(INTERPRET, register, addInterpreted(op));
+				return register;
+			}
+
+			private final int createRegister()
+			{
+				registers.add(null);
+				return registers.size() - 1;
+			}
+
+			private final int addInterpreted(Operation op)
+			{
+				interpreted.add(op);
+				return interpreted.size() - 1;
+			}
+
+			private final void emit(int ...instruction)
+			{
+				if (size + instruction.length > code.length)
+				{
+					code = Arrays.copyOf(code, Math.max(code.length * 2, size + instruction.length));
+				}
+				System.arraycopy(instruction, 0, code, size, instruction.length);
+				size += instruction.length;
+			}
+		}
+	}
+}
@@ -54,7 +54,7 @@ public final class CharacterOperation extends Operation
 
 	@Override
 	public int getTypeBitmask(){
-		return BITMASK_INT_REAL | BITMASK_RATIONAL_REAL | BITMASK_FLOAT_REAL | BITMASK_INT_COMPLEX | BITMASK_RATIONAL_COMPLEX | BITMASK_FLOAT_COMPLEX | BITMASK_CHARACTER;
+		return BITMASK_INT_REAL | BITMASK_FLOAT_REAL | BITMASK_INT_COMPLEX | BITMASK_FLOAT_COMPLEX | BITMASK_CHARACTER;
 	}
 
 	@Override
@@ -94,6 +94,11 @@ public final class CharacterOperation extends Operation
 		Operation op = (Operation)o;
 		return op.isIntegral() && op.longValue()==value && op.longValueImag() == 0;
 	}
+
+	@Override
+	public final int hashCode(){
+		return hashNumber(value, 0);
+	}
 	
     
 	@Override public final int size() 			{return 0;}
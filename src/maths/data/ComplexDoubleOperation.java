@@ -186,6 +186,11 @@ public final class ComplexDoubleOperation extends Operation
 		return op.doubleValue() == real && op.doubleValueImag() == imag;
 	}
 
+	@Override
+	public int hashCode(){
+		return hashNumber(real, imag);
+	}
+
 	@Override
 	public Operation getInstance(List<Operation> subclasses) {
 		return this;
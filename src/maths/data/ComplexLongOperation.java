@@ -211,10 +211,8 @@ public class ComplexLongOperation extends Operation{
 		if (!(obj instanceof Operation))
 			return false;
 		Operation op = (Operation)obj;
-		if (op.isRealIntegerNumber())
-			return op.longValue() == real;
 		if (op.isRealFloatingNumber())
-			return op.doubleValue() == real;
+			return imag == 0 && op.doubleValue() == real;
 		if (op.isComplexIntegerNumber())
 			return op.longValue() == real && op.longValueImag() == imag;
 		if (op.isComplexFloatingNumber())
@@ -222,6 +220,11 @@ public class ComplexLongOperation extends Operation{
 		return false;
 	}
 
+	@Override
+	public int hashCode(){
+		return hashNumber(real, imag);
+	}
+
 	@Override
 	public Operation getInstance(List<Operation> subclasses) {
 		return this;
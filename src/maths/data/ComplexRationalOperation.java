@@ -219,6 +219,11 @@ public final class ComplexRationalOperation extends Operation
 		return op.doubleValue() == (double)numeratorReal/denumeratorReal && op.doubleValueImag() == (double)numeratorImag/denumeratorImag;
 	}
 
+	@Override
+	public int hashCode(){
+		return hashNumber((double)numeratorReal/denumeratorReal, (double)numeratorImag/denumeratorImag);
+	}
+
 	@Override
 	public boolean isNaN() {
 		return false;
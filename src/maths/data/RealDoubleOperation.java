@@ -210,6 +210,11 @@ public final class RealDoubleOperation extends Operation
 		return op.doubleValue() == value && op.doubleValueImag() == 0;
 	}
 
+	@Override
+	public int hashCode(){
+		return hashNumber(value, 0);
+	}
+
 	@Override
 	public Operation getInstance(List<Operation> subclasses) {
 		return this;
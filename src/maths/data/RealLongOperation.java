@@ -127,7 +127,7 @@ public final class RealLongOperation extends Operation
         return new RealLongOperation(negative ? result : -result);
     }
        
-    public static final RealLongOperation valueOf(String s, int begin, int end, int radix){
+    public static final RealLongOperation valueOf(CharSequence s, int begin, int end, int radix){
     	if (s == null || radix < Character.MIN_RADIX || radix > Character.MAX_RADIX || begin == end)
     		return null;
         long result = 0, limit = -Long.MAX_VALUE;
@@ -391,7 +391,7 @@ public final class RealLongOperation extends Operation
 	}
 	
 	public final int hashCode(){
-		return (int)value;
+		return hashNumber(value, 0);
 	}
 
 	@Override
@@ -214,6 +214,11 @@ public final class RealRationalOperation extends Operation
 		return op.doubleValue() == (double)numerator/denumerator && op.doubleValueImag() == 0;
 	}
 
+	@Override
+	public int hashCode(){
+		return hashNumber((double)numerator/denumerator, 0);
+	}
+
 	@Override
 	public boolean isNaN() {
 		return false;
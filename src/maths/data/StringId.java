@@ -32,9 +32,22 @@ public class StringId {
 	public static final StringIdObject EMPTY_ARRAY[] = new StringId.StringIdObject[0];
     public static final List<StringIdObject> EMPTY_LIST = ArrayTools.unmodifiableList(EMPTY_ARRAY);
 
-	private static StringIdObject dataNameSorted[] = new StringIdObject[1];
-	private static StringIdObject dataIdSorted[] = new StringIdObject[1];
-	private static int length=0;
+	/**
+	 * The table is replaced on every insertion, so readers never see a partially shifted array
+	 */
+	private static final class Table{
+		private final StringIdObject nameSorted[];
+		private final StringIdObject idSorted[];
+		private final int length;
+
+		private Table(StringIdObject nameSorted[], StringIdObject idSorted[], int length){
+			this.nameSorted = nameSorted;
+			this.idSorted = idSorted;
+			this.length = length;
+		}
+	}
+
+	private static volatile Table table = new Table(EMPTY_ARRAY, new StringIdObject[1], 0);
 
 	public void clean()
 	{
@@ -76,7 +89,8 @@ public class StringId {
 	 * @return The searched StringIdObject
 	 */
 	public static final StringIdObject getStringAndId(int stringId){
-		return stringId >= 0 && stringId < length ? dataIdSorted[stringId] : null;
+		final Table t = table;
+		return stringId >= 0 && stringId < t.length ? t.idSorted[stringId] : null;
 	}
 
 	public static final StringIdObject[] getStringAndId(String str[]){
@@ -97,25 +111,9 @@ public class StringId {
 	 * @return The found or created StringIdObject
 	 */
 	public static final StringIdObject getStringAndId(String str){
-		int index = getIndex(str);
-		if (index >= 0)
-			return dataNameSorted[index];
-		synchronized(StringId.class){
-			index =  getIndex(str);
-			if (index >= 0)
-				return dataNameSorted[index];
-			if (length >= dataNameSorted.length){
-				dataNameSorted = Arrays.copyOf(dataNameSorted, dataNameSorted.length * 2);
-				dataIdSorted = Arrays.copyOf(dataIdSorted, dataNameSorted.length * 2);
-			}
-			System.arraycopy(dataNameSorted, -index-1, dataNameSorted, -index, 1+length+index);
-			StringIdObject obj =  dataIdSorted[length] = dataNameSorted[-index-1] = new StringIdObject(str, length);
-			++length;
-			for (int i=-index-1;i<length;++i){
-				dataNameSorted[i].nameSortedIndex = i;
-			}
-			return obj;
-		}
+		final Table t = table;
+		final int index = getIndex(t, str);
+		return index >= 0 ? t.nameSorted[index] : insert(str, 0, str.length());
 	}
 
 	/**
@@ -125,40 +123,46 @@ public class StringId {
 	 * @return The found or created StringIdObject
 	 */
 	public static final StringIdObject getStringAndId(String str, int begin, int end){
-		int index = getIndex(str, begin, end);
+		final Table t = table;
+		final int index = getIndex(t, str, begin, end);
+		return index >= 0 ? t.nameSorted[index] : insert(str, begin, end);
+	}
+
+	private static final synchronized StringIdObject insert(String str, int begin, int end){
+		final Table t = table;
+		int index = getIndex(t, str, begin, end);
 		if (index >= 0)
-			return dataNameSorted[index];
-		synchronized(StringId.class){
-			index =  getIndex(str, begin, end);
-			if (index >= 0)
-				return dataNameSorted[index];
-			if (length >= dataNameSorted.length){
-				dataNameSorted = Arrays.copyOf(dataNameSorted, dataNameSorted.length * 2);
-				dataIdSorted = Arrays.copyOf(dataIdSorted, dataNameSorted.length * 2);
-			}
-			System.arraycopy(dataNameSorted, -index-1, dataNameSorted, -index, 1+length+index);
-			StringIdObject obj =  dataIdSorted[length] = dataNameSorted[-index-1] = new StringIdObject(str.substring(begin, end), length);
-			++length;
-			for (int i=-index-1;i<length;++i){
-				dataNameSorted[i].nameSortedIndex = i;
-			}
-			return obj;
+			return t.nameSorted[index];
+		index = -index - 1;
+		final StringIdObject nameSorted[] = new StringIdObject[t.length + 1];
+		System.arraycopy(t.nameSorted, 0, nameSorted, 0, index);
+		System.arraycopy(t.nameSorted, index, nameSorted, index + 1, t.length - index);
+		//Ids above the length of the published table are not read, so the slot can be written in place
+		final StringIdObject idSorted[] = t.length < t.idSorted.length ? t.idSorted : Arrays.copyOf(t.idSorted, t.idSorted.length * 2);
+		final StringIdObject obj = idSorted[t.length] = nameSorted[index] = new StringIdObject(str.substring(begin, end), t.length);
+		for (int i = index; i < nameSorted.length; ++i){
+			nameSorted[i].nameSortedIndex = i;
 		}
+		table = new Table(nameSorted, idSorted, nameSorted.length);
+		return obj;
 	}
 
 	public static final int getIdIfExist(String name) {
-		int index = getIndex(name);
-		return index >= 0 ? dataNameSorted[index].id : -1;
+		final Table t = table;
+		int index = getIndex(t, name);
+		return index >= 0 ? t.nameSorted[index].id : -1;
 	}
 
 	public static final StringIdObject getStringAndIdIfExist(String name) {
-		int index = getIndex(name);
-		return index >= 0 ? dataNameSorted[index] : null;
+		final Table t = table;
+		int index = getIndex(t, name);
+		return index >= 0 ? t.nameSorted[index] : null;
 	}
 
 	public static final StringIdObject getStringAndIdIfExist(String name, int begin, int end) {
-		int index = getIndex(name, begin, end);
-		return index >= 0 ? dataNameSorted[index] : null;
+		final Table t = table;
+		int index = getIndex(t, name, begin, end);
+		return index >= 0 ? t.nameSorted[index] : null;
 	}
 
 	/**
@@ -166,8 +170,9 @@ public class StringId {
 	 * @param name
 	 * @return The index of the StringIdObject
 	 */
-    private static final int getIndex (String name){
-		int low = 0, high = length-1;
+    private static final int getIndex (Table t, String name){
+		final StringIdObject dataNameSorted[] = t.nameSorted;
+		int low = 0, high = t.length-1;
 		while (low<=high){
 			final int middle=(low+high)/2;
 			final int c =name.compareTo(dataNameSorted[middle].string);
@@ -197,8 +202,9 @@ public class StringId {
         return len1 - len2;
     }
 
-    private static final int getIndex (String name, int begin, int end){
-		int low = 0, high = length-1;
+    private static final int getIndex (Table t, String name, int begin, int end){
+		final StringIdObject dataNameSorted[] = t.nameSorted;
+		int low = 0, high = t.length-1;
 		while (low<=high){
 			final int middle=(low+high)/2;
 			final int c = compareTo(name, begin, end, dataNameSorted[middle].string);
@@ -215,7 +221,7 @@ public class StringId {
 	public static final class StringIdObject implements Comparable<StringId.StringIdObject>{
 		public final String string;
 		public final int id;
-		private int nameSortedIndex;
+		private volatile int nameSortedIndex;
 
 		private StringIdObject(String str, int id){
 			this.string = str;
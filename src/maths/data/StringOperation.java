@@ -52,7 +52,7 @@ public final class StringOperation extends Operation implements CharSequence
     		throw new NullPointerException();
      }
     
-    public static final StringOperation getInstance(String value, int begin, int end){
+    public static final StringOperation getInstance(CharSequence value, int begin, int end){
     	if (value == null)
     		throw new NullPointerException();
     	final int length = value.length();
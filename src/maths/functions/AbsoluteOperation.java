@@ -88,6 +88,11 @@ public final class AbsoluteOperation extends FunctionOperation
         return calculate(a.calculate(object, control));
     }
 
+	@Override
+	public final double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.abs(a.calculateDouble(object, control));
+    }
+
 	
 	@Override
 	public final int size() {
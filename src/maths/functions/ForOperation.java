@@ -25,6 +25,7 @@ package maths.functions;
 import java.util.List;
 
 import maths.Operation;
+import maths.algorithm.LoopInvariants;
 import maths.data.RealDoubleOperation;
 import maths.exception.ExceptionOperation;
 import maths.variable.VariableAmount;
@@ -48,16 +49,18 @@ public class ForOperation extends FunctionOperation {
 		if (control.calculateLoop()){
 			final VariableStack vs = new VariableStack(object);
 			a.calculate(vs, control);
+			final Operation parts[] = LoopInvariants.hoist(vs, control, b, c, d);
+			final Operation condition = parts[0], step = parts[1], body = parts[2];
 			while(control == null || !control.getStopFlag()){
-				final Operation op = b.calculate(object, control);
+				final Operation op = condition.calculate(vs, control);
 				if (op.isBoolean()){
 					if (!op.booleanValue())
 						return RealDoubleOperation.NaN;
 				}else{
 					return new ExceptionOperation("Test ergab weder wahr noch falsch");
 				}
-				d.calculate(vs, control);
-				c.calculate(vs, control);
+				body.calculate(vs, control);
+				step.calculate(vs, control);
 			}
 			return new ExceptionOperation("Stopped");
 		}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.functions;
+
+import java.util.Arrays;
+import java.util.List;
+
+import maths.Operation;
+import maths.data.StringId;
+import maths.variable.UserVariableOperation;
+import maths.variable.VariableAmount;
+import maths.variable.VariableStack;
+
+/**
+ * Calculates temporaries once and the body with the temporaries as local variables, each temporary can use the ones before.
+ * The children are the values of the temporaries followed by the body.
+ * The operation is printed with the temporaries inserted, so the text compiles to the original tree.
+ * @see maths.algorithm.CommonSubexpressions
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class LetOperation extends Operation
+{
+	private final StringId.StringIdObject names[];
+	private final Operation values[];
+	public final Operation body;
+
+	public LetOperation(StringId.StringIdObject names[], Operation values[], Operation body){
+		if (names.length != values.length)
+			throw new IllegalArgumentException("Got " + names.length + " names but " + values.length + " values");
+		if ((this.body = body) == null)
+			throw new NullPointerException();
+		this.names = names.clone();
+		this.values = values.clone();
+		for (int i=0;i<values.length;i++)
+			if (this.names[i] == null || this.values[i] == null)
+				throw new NullPointerException();
+	}
+
+	@Override
+	public final Operation calculate(VariableAmount object, CalculationController control) {
+		final VariableStack stack = new VariableStack(names.length, object);
+		for (int i=0;i<names.length;i++)
+			stack.setLocal(names[i], values[i].calculate(stack, control));
+		return body.calculate(stack, control);
+	}
+
+	@Override
+	public final double calculateDouble(VariableAmount object, CalculationController control) {
+		final VariableStack stack = new VariableStack(names.length, object);
+		for (int i=0;i<names.length;i++)
+			stack.setLocal(names[i], values[i].calculate(stack, control));
+		return body.calculateDouble(stack, control);
+	}
+
+	/**
+	 * @return the body with all temporaries inserted
+	 */
+	public final Operation expand(){
+		final Operation expanded[] = new Operation[values.length];
+		for (int i=0;i<values.length;i++)
+			expanded[i] = insert(values[i], expanded);
+		return insert(body, expanded);
+	}
+
+	private final Operation insert(Operation op, Operation expanded[]){
+		if (op instanceof UserVariableOperation){
+			final int id = ((UserVariableOperation)op).nameId;
+			for (int i=0;i<names.length;i++)
+				if (names[i].id == id)
+					return expanded[i];
+			return op;
+		}
+		final int size = op.size();
+		if (size == 0 || op instanceof LetOperation)
+			return op;
+		Operation children[] = null;
+		for (int i=0;i<size;i++){
+			final Operation child = op.get(i), inserted = insert(child, expanded);
+			if (inserted != child && children == null){
+				children = new Operation[size];
+				for (int j=0;j<i;j++)
+					children[j] = op.get(j);
+			}
+			if (children != null)
+				children[i] = inserted;
+		}
+		return children == null ? op : op.getInstance(Arrays.asList(children));
+	}
+
+	public final int getTemporaryCount(){
+		return values.length;
+	}
+
+	@Override
+	public final StringBuilder toString(Print type, StringBuilder stringBuilder) {
+		return expand().toString(type, stringBuilder);
+	}
+
+	@Override
+	public final int getPriority(){
+		return body.getPriority();
+	}
+
+	@Override
+	public final int size() {
+		return values.length + 1;
+	}
+
+	@Override
+	public final Operation get(int index) {
+		return index == values.length ? body : values[index];
+	}
+
+	@Override
+	public final Operation getInstance(List<Operation> subclasses) {
+		return new LetOperation(names, subclasses.subList(0, values.length).toArray(new Operation[values.length]), subclasses.get(values.length));
+	}
+
+	@Override
+	public final boolean equals(Object o){
+		if (!(o instanceof LetOperation))
+			return false;
+		final LetOperation let = (LetOperation)o;
+		if (let.names.length != names.length)
+			return false;
+		for (int i=0;i<names.length;i++)
+			if (let.names[i].id != names[i].id)
+				return false;
+		return super.equals(o);
+	}
+}
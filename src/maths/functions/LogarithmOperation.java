@@ -71,6 +71,12 @@ public final class LogarithmOperation extends FunctionOperation
         return calculate(a.calculate(object, control));
     }
 
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        final double value = a.calculateDouble(object, control);
+        return value < 0 ? calculate(new RealDoubleOperation(value)).doubleValue() : Math.log(value);
+    }
+
 	@Override
 	public final int size() {
 		return 1;
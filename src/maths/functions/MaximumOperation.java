@@ -89,6 +89,11 @@ public final class MaximumOperation extends FunctionOperation
 	public Operation calculate (VariableAmount object, CalculationController control){
         return calculate(a.calculate(object, control),b.calculate(object, control));
     }
+
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.max(a.calculateDouble(object, control), b.calculateDouble(object, control));
+    }
 	
 	@Override
 	public String getFunctionName() {
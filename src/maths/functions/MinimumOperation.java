@@ -87,6 +87,11 @@ public final class MinimumOperation extends FunctionOperation
 	public Operation calculate (VariableAmount object, CalculationController control){
         return calculate(a.calculate(object, control),b.calculate(object, control));
     }
+
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.min(a.calculateDouble(object, control), b.calculateDouble(object, control));
+    }
 	
 	@Override
 	public final int size() {
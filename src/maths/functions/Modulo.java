@@ -47,7 +47,7 @@ public final class Modulo extends LinkingOperation
     		throw new NullPointerException();
     }
 
-    private static Operation calculate (final Operation a, final Operation b){
+    public static final Operation calculate (final Operation a, final Operation b){
         if (a.isRealIntegerNumber() && b.isRealIntegerNumber())
             return b.longValue() == 0 ? RealDoubleOperation.NaN : new RealLongOperation(a.longValue()%b.longValue());
         if (a.isRealFloatingNumber() && b.isRealFloatingNumber())
@@ -25,7 +25,6 @@ package maths.functions;
 import java.util.List;
 
 import maths.Operation;
-import maths.data.RealDoubleOperation;
 import maths.data.RealLongOperation;
 import maths.functions.atomic.AdditionOperation;
 import maths.functions.atomic.DivisionOperation;
@@ -60,14 +59,10 @@ public class NumericIntegralOperation extends FunctionOperation {
 			VariableStack st = new VariableStack(va);
 			Variable v = new Variable(((UserVariableOperation)d).nameObject);
 			st.add(v);
+			final double begin = b.doubleValue(), end = c.doubleValue();
 			Operation sum = RealLongOperation.ZERO;
 			for (int i=0;i<n;++i){
-				Operation pos = AdditionOperation.calculate(
-						MultiplicationOperation.calculate(b, new RealDoubleOperation((double)i/n), control),
-						MultiplicationOperation.calculate(c, new RealDoubleOperation((double)(n-i)/n), control),						
-						control);
-				v.setValue(pos);
-				
+				v.setValue(getPosition(begin, end, i, n));
 				sum = AdditionOperation.calculate(sum, a.calculate(st, control), control);
 			}
 			sum = DivisionOperation.calculate(sum, new RealLongOperation(n), control);
@@ -77,11 +72,42 @@ public class NumericIntegralOperation extends FunctionOperation {
 		return null;
 	}
 	
+	private static final double getPosition(double begin, double end, int i, int n){
+		return begin * ((double)i/n) + end * ((double)(n-i)/n);
+	}
+
+	/**
+	 * Sums the integrand as doubles, so the loop only creates the values of the variable
+	 */
+	public static double calculateDouble(Operation a, Operation b, Operation c, Operation d, VariableAmount va, CalculationController control){
+		if (!(d instanceof UserVariableOperation && b.isRealFloatingNumber() && c.isRealFloatingNumber()) || Double.isInfinite(c.doubleValue()) || Double.isInfinite(a.doubleValue())){
+			//Infinite bounds aren't integrated yet, the boxed path gives null for them
+			final Operation erg = calculate(a, b, c, d, va, control);
+			return erg == null ? Double.NaN : erg.doubleValue();
+		}
+		int n = 1000;
+		VariableStack st = new VariableStack(va);
+		Variable v = new Variable(((UserVariableOperation)d).nameObject);
+		st.add(v);
+		final double begin = b.doubleValue(), end = c.doubleValue();
+		double sum = 0;
+		for (int i=0;i<n;++i){
+			v.setValue(getPosition(begin, end, i, n));
+			sum += a.calculateDouble(st, control);
+		}
+		return (end - begin) * (sum / n);
+	}
+
 	@Override
 	public Operation calculate(VariableAmount object, CalculationController control) {
 		return calculate(a.calculate(object, control), b.calculate(object, control), c.calculate(object, control), d, object, control);
 	}
 
+	@Override
+	public double calculateDouble(VariableAmount object, CalculationController control) {
+		return calculateDouble(a.calculate(object, control), b.calculate(object, control), c.calculate(object, control), d, object, control);
+	}
+
 	@Override
 	public int size() {
 		return 4;
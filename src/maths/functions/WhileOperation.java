@@ -25,6 +25,7 @@ package maths.functions;
 import java.util.List;
 
 import maths.Operation;
+import maths.algorithm.LoopInvariants;
 import maths.variable.VariableAmount;
 import maths.data.RealDoubleOperation;
 import maths.exception.ExceptionOperation;
@@ -45,15 +46,17 @@ public class WhileOperation extends FunctionOperation {
 	@Override
 	public final Operation calculate(VariableAmount object, CalculationController control) {
 		if (control == null || control.calculateLoop()){
+			final Operation parts[] = LoopInvariants.hoist(object, control, a, b);
+			final Operation condition = parts[0], body = parts[1];
 			while(control == null || !control.getStopFlag()){
-				Operation op = a.calculate(object, control);
+				Operation op = condition.calculate(object, control);
 				if (op.isBoolean()){
 					if (!op.booleanValue())
 						return RealDoubleOperation.NaN;
 				}else{
 					return new ExceptionOperation("Test ergab weder wahr noch falsch");
 				}
-				b.calculate(object, control);
+				body.calculate(object, control);
 			}
 			return new ExceptionOperation("Stopped");
 		}
@@ -53,57 +53,59 @@ public final class AdditionOperation extends LinkingOperation
     }
 
     public static final Operation calculate(final Operation a, final Operation b, final CalculationController control){
-    	if (a.isRealIntegerNumber() && b.isRealIntegerNumber()){
-            final long al = a.longValue(), bl = b.longValue(), erg = al + bl;
-            if (Calculate.additionOverflowTest(al, bl, erg))
-                return new RealLongOperation(erg);
-            return new RealDoubleOperation((double)al + bl);
-        }
-        if (a.isRealRationalNumber() && b.isRealRationalNumber()){
-        	final long an = a.longNumeratorValue(), ad = a.longDenumeratorValue();
-        	final long bn = b.longNumeratorValue(), bd = b.longDenumeratorValue();
-        	final long kgv = Calculate.kgvUnchecked(ad, bd);
-        	if (kgv != -1){
-	        	final long lmult = kgv/ad, rmult = kgv/bd;
-	        	final long aen = an*lmult, ben = bn*rmult;
-	        	if (aen/lmult == an && ben/rmult == bn){
-	        		final long erg = aen + ben;
-	                if (Calculate.additionOverflowTest(aen, ben, erg))
-	                	return RealRationalOperation.getInstance(erg, kgv);
-                    return new RealDoubleOperation(((double)aen + ben)/kgv);
+    	switch (getNumberType(a.getTypeBitmask() & b.getTypeBitmask())){
+    		case NUMBER_INT_REAL:{
+	            final long al = a.longValue(), bl = b.longValue(), erg = al + bl;
+	            if (Calculate.additionOverflowTest(al, bl, erg))
+	                return new RealLongOperation(erg);
+	            return new RealDoubleOperation((double)al + bl);
+    		}
+    		case NUMBER_RATIONAL_REAL:{
+	        	final long an = a.longNumeratorValue(), ad = a.longDenumeratorValue();
+	        	final long bn = b.longNumeratorValue(), bd = b.longDenumeratorValue();
+	        	final long kgv = Calculate.kgvUnchecked(ad, bd);
+	        	if (kgv != -1){
+		        	final long lmult = kgv/ad, rmult = kgv/bd;
+		        	final long aen = an*lmult, ben = bn*rmult;
+		        	if (aen/lmult == an && ben/rmult == bn){
+		        		final long erg = aen + ben;
+		                if (Calculate.additionOverflowTest(aen, ben, erg))
+		                	return RealRationalOperation.getInstance(erg, kgv);
+	                    return new RealDoubleOperation(((double)aen + ben)/kgv);
+		        	}
 	        	}
-        	}
-    		return new RealDoubleOperation((double)an/ad + (double)bn/bd);
-        }
-    	if (a.isRealFloatingNumber() && b.isRealFloatingNumber()){
-            return new RealDoubleOperation(a.doubleValue() + b.doubleValue());
-        }
-        if (a.isComplexIntegerNumber() && b.isComplexIntegerNumber()){
-            final long ar = a.longValue(), ai=a.longValueImag(), br = b.longValue(), bi=b.longValueImag();
-            final long ergR = ar + br, ergI = ai + bi;
-            if (Calculate.additionOverflowTest(ar, br, ergR) && Calculate.additionOverflowTest(ai, bi, ergI))
-            	return ComplexLongOperation.get(ergR, ergI);
-            return ComplexDoubleOperation.get((double)ar + br, (double)ai + bi);
-        }
-        if (a.isComplexRationalNumber() && b.isComplexRationalNumber()){
-        	final long anr = a.longNumeratorValue(), adr = a.longDenumeratorValue(), ani = a.longNumeratorValueImag(), adi = a.longDenumeratorValueImag();
-        	final long bnr = b.longNumeratorValue(), bdr = b.longDenumeratorValue(), bni = b.longNumeratorValueImag(), bdi = b.longDenumeratorValueImag();
-        	final long kgvr = Calculate.kgvUnchecked(adr, bdr), kgvi = Calculate.kgvUnchecked(adi, bdi);
-        	if (kgvr != -1 && kgvi != -1){
-	        	final long lmultr = kgvr/adr, rmultr = kgvr/bdr, lmulti = kgvi/adi, rmulti = kgvi/bdi;
-	        	final long aenr = anr*lmultr, benr = bnr*rmultr, aeni = ani*lmulti, beni = bni*rmulti;
-	        	if (aenr/lmultr == anr && benr/rmultr == bnr && aeni/lmulti == ani && beni/rmulti == bni){
-	        		final long ergr = aenr + benr, ergi = aeni + beni;
-	                if (Calculate.additionOverflowTest(aenr, benr, ergr) && Calculate.additionOverflowTest(aeni, beni, ergi))
-	                	return ComplexRationalOperation.getInstance(ergr, kgvr, ergi, kgvi);
-                    return ComplexDoubleOperation.get(((double)aenr + benr)/kgvr, ((double)aeni + beni)/kgvi);
+	    		return new RealDoubleOperation((double)an/ad + (double)bn/bd);
+    		}
+    		case NUMBER_FLOAT_REAL:{
+	            return new RealDoubleOperation(a.doubleValue() + b.doubleValue());
+    		}
+    		case NUMBER_INT_COMPLEX:{
+	            final long ar = a.longValue(), ai=a.longValueImag(), br = b.longValue(), bi=b.longValueImag();
+	            final long ergR = ar + br, ergI = ai + bi;
+	            if (Calculate.additionOverflowTest(ar, br, ergR) && Calculate.additionOverflowTest(ai, bi, ergI))
+	            	return ComplexLongOperation.get(ergR, ergI);
+	            return ComplexDoubleOperation.get((double)ar + br, (double)ai + bi);
+    		}
+    		case NUMBER_RATIONAL_COMPLEX:{
+	        	final long anr = a.longNumeratorValue(), adr = a.longDenumeratorValue(), ani = a.longNumeratorValueImag(), adi = a.longDenumeratorValueImag();
+	        	final long bnr = b.longNumeratorValue(), bdr = b.longDenumeratorValue(), bni = b.longNumeratorValueImag(), bdi = b.longDenumeratorValueImag();
+	        	final long kgvr = Calculate.kgvUnchecked(adr, bdr), kgvi = Calculate.kgvUnchecked(adi, bdi);
+	        	if (kgvr != -1 && kgvi != -1){
+		        	final long lmultr = kgvr/adr, rmultr = kgvr/bdr, lmulti = kgvi/adi, rmulti = kgvi/bdi;
+		        	final long aenr = anr*lmultr, benr = bnr*rmultr, aeni = ani*lmulti, beni = bni*rmulti;
+		        	if (aenr/lmultr == anr && benr/rmultr == bnr && aeni/lmulti == ani && beni/rmulti == bni){
+		        		final long ergr = aenr + benr, ergi = aeni + beni;
+		                if (Calculate.additionOverflowTest(aenr, benr, ergr) && Calculate.additionOverflowTest(aeni, beni, ergi))
+		                	return ComplexRationalOperation.getInstance(ergr, kgvr, ergi, kgvi);
+	                    return ComplexDoubleOperation.get(((double)aenr + benr)/kgvr, ((double)aeni + beni)/kgvi);
+		        	}
 	        	}
-        	}
-    		return ComplexDoubleOperation.get((double)anr/adr + (double)bnr/bdr, (double)ani/adi + (double)bni/bdi);
-        }
-        if (a.isComplexFloatingNumber() && b.isComplexFloatingNumber()){
-        	return ComplexDoubleOperation.get(a.doubleValue() + b.doubleValue(), a.doubleValueImag() + b.doubleValueImag());
-        }
+	    		return ComplexDoubleOperation.get((double)anr/adr + (double)bnr/bdr, (double)ani/adi + (double)bni/bdi);
+    		}
+    		case NUMBER_FLOAT_COMPLEX:{
+	        	return ComplexDoubleOperation.get(a.doubleValue() + b.doubleValue(), a.doubleValueImag() + b.doubleValueImag());
+    		}
+    	}
         if (a.isArray() && b.isArray()){
         	if (a.size() != b.size())
         		return new ArrayIndexOutOfBoundsExceptionOperation();
@@ -151,106 +153,6 @@ public final class AdditionOperation extends LinkingOperation
         return new AdditionOperation(a, b);
     }
 
-    /*public static final Operation calculate(final Operation a, final Operation b, final CalculationController control){
-    	int type = a.getTypeBitmask() & b.getTypeBitmask();
-    	if ((type & BITMASK_INT_REAL) != 0){
-            final long al = a.longValue(), bl = b.longValue(), erg = al + bl;
-            if (Calculate.additionOverflowTest(al, bl, erg))
-                return new RealLongOperation(erg);
-            return new RealDoubleOperation((double)al + bl);
-        }
-    	if ((type & BITMASK_RATIONAL_REAL) != 0){
-        	final long an = a.longNumeratorValue(), ad = a.longDenumeratorValue();
-        	final long bn = b.longNumeratorValue(), bd = b.longDenumeratorValue();
-        	final long kgv = Calculate.kgvUnchecked(ad, bd);
-        	if (kgv != -1){
-	        	final long lmult = kgv/ad, rmult = kgv/bd;
-	        	final long aen = an*lmult, ben = bn*rmult;
-	        	if (aen/lmult == an && ben/rmult == bn){
-	        		final long erg = aen + ben;
-	                if (Calculate.additionOverflowTest(aen, ben, erg))
-	                	return RealRationalOperation.getInstance(erg, kgv);
-                    return new RealDoubleOperation(((double)aen + ben)/kgv);
-	        	}
-        	}
-    		return new RealDoubleOperation((double)an/ad + (double)bn/bd);
-        }
-    	if ((type & BITMASK_FLOAT_REAL) != 0){
-            return new RealDoubleOperation(a.doubleValue() + b.doubleValue());
-        }
-    	if ((type & BITMASK_INT_COMPLEX) != 0){
-            final long ar = a.longValue(), ai=a.longValueImag(), br = b.longValue(), bi=b.longValueImag();
-            final long ergR = ar + br, ergI = ai + bi;
-            if (Calculate.additionOverflowTest(ar, br, ergR) && Calculate.additionOverflowTest(ai, bi, ergI))
-            	return ComplexLongOperation.get(ergR, ergI);
-            return ComplexDoubleOperation.get((double)ar + br, (double)ai + bi);
-        }
-    	if ((type & BITMASK_RATIONAL_COMPLEX) != 0){
-        	final long anr = a.longNumeratorValue(), adr = a.longDenumeratorValue(), ani = a.longNumeratorValueImag(), adi = a.longDenumeratorValueImag();
-        	final long bnr = b.longNumeratorValue(), bdr = b.longDenumeratorValue(), bni = b.longNumeratorValueImag(), bdi = b.longDenumeratorValueImag();
-        	final long kgvr = Calculate.kgvUnchecked(adr, bdr), kgvi = Calculate.kgvUnchecked(adi, bdi);
-        	if (kgvr != -1 && kgvi != -1){
-	        	final long lmultr = kgvr/adr, rmultr = kgvr/bdr, lmulti = kgvi/adi, rmulti = kgvi/bdi;
-	        	final long aenr = anr*lmultr, benr = bnr*rmultr, aeni = ani*lmulti, beni = bni*rmulti;
-	        	if (aenr/lmultr == anr && benr/rmultr == bnr && aeni/lmulti == ani && beni/rmulti == bni){
-	        		final long ergr = aenr + benr, ergi = aeni + beni;
-	                if (Calculate.additionOverflowTest(aenr, benr, ergr) && Calculate.additionOverflowTest(aeni, beni, ergi))
-	                	return ComplexRationalOperation.getInstance(ergr, kgvr, ergi, kgvi);
-                    return ComplexDoubleOperation.get(((double)aenr + benr)/kgvr, ((double)aeni + beni)/kgvi);
-	        	}
-        	}
-    		return ComplexDoubleOperation.get((double)anr/adr + (double)bnr/bdr, (double)ani/adi + (double)bni/bdi);
-        }
-    	if ((type & BITMASK_FLOAT_COMPLEX) != 0){
-        	return ComplexDoubleOperation.get(a.doubleValue() + b.doubleValue(), a.doubleValueImag() + b.doubleValueImag());
-        }
-        if (a.isArray() && b.isArray()){
-        	if (a.subClassCount() != b.subClassCount())
-        		return new ArrayIndexOutOfBoundsExceptionOperation();
-        	return new ArrayOperation.ArrayCreator(a.subClassCount()){
-
-				@Override
-				public final Operation get(int index) {
-					return calculate(a.get(index), b.get(index), control);
-				}
-        	}.getArray();
-        }
-        if (a.equals(b))
-        	return MultiplicationOperation.calculate(a, RealLongOperation.POSITIVE_TWO, control);
-        Operation erg = twoSideCalculate(a, b, control);
-        if (erg != null || (erg = twoSideCalculate(b, a, control)) != null || (erg = OperationCalculate.standardCalculations(a, b))!=null)
-        	return erg;
-        if (a instanceof MultiplicationOperation && b instanceof MultiplicationOperation){
-        	Operation a0 = a.get(0), a1 = a.get(1), b0 = b.get(0), b1 = b.get(1);
-        	if (!(a0.isComplexFloatingNumber())){
-        		Operation tmp = a0;
-        		a0 = a1;
-        		a1 = tmp;
-        	}
-        	if (!(b0.isComplexFloatingNumber())){
-        		Operation tmp = b0;
-        		b0 = b1;
-        		b1 = tmp;
-        	}
-        	if (a0.isComplexFloatingNumber() && b0.isComplexFloatingNumber()){
-        		if (a1.equals(b1)){
-        			return MultiplicationOperation.calculate(calculate(a0, b0, control), b1, control);
-        		}
-        	}
-
-        }
-        final OperationCalculate.OperationList up = control.getOperationList(), down = control.getOperationList();
-        OperationCalculate.fillWithAddUpAndDowns(a, up, down);
-        OperationCalculate.fillWithAddUpAndDowns(b, up, down);
-        if (up.size()+down.size()>2)
-	        return OperationCalculate.calculateBigSubtraction(up, down, control);
-        if (control != null){
-			control.returnToChached(up);
-	        control.returnToChached(down);
-        }
-        return new AdditionOperation(a, b);
-    }*/
-
     private static final Operation twoSideCalculate(final Operation a, final Operation b, final CalculationController control){
         if (a.isComplexFloatingNumber() && a.isZero())
             return b;
@@ -286,6 +188,11 @@ public final class AdditionOperation extends LinkingOperation
         return calculate(a.calculate(object, control), b.calculate(object, control), control);
     }
 
+	@Override
+	public final double calculateDouble (VariableAmount object, CalculationController control){
+        return a.calculateDouble(object, control) + b.calculateDouble(object, control);
+    }
+
 
 	@Override
 	public final int size() {
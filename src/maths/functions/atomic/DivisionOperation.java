@@ -52,27 +52,32 @@ public final class DivisionOperation extends LinkingOperation
     }
 
     public static final Operation calculate (final Operation a, final Operation b, final CalculationController control){
-        if (a.isRealIntegerNumber() && b.isRealIntegerNumber() && b.longValue() != 0)
-            return RealRationalOperation.getInstance(a.longValue(),b.longValue());
-        if (a.isRealRationalNumber() && b.isRealRationalNumber()){
-        	final long numerator = a.longNumeratorValue() * b.longDenumeratorValue();
-        	final long denumerator = a.longDenumeratorValue() * b.longNumeratorValue();
-        	if (denumerator == 0)
-        		return RealDoubleOperation.NaN;
-        	if (numerator == 0)
-        		return RealLongOperation.ZERO;
-        	if (numerator / a.longNumeratorValue() == b.longDenumeratorValue() && denumerator / a.longDenumeratorValue() == b.longNumeratorValue())
-        		return RealRationalOperation.getInstance(numerator, denumerator);
-        }
-        if (a.isRealFloatingNumber() && b.isRealFloatingNumber())
-            return b.isZero() ? RealDoubleOperation.NaN : new RealDoubleOperation(a.doubleValue()/b.doubleValue());
-        if (a.isComplexFloatingNumber() && b.isComplexFloatingNumber()){
-        	final double ar = a.doubleValue(), ai = a.doubleValueImag(), br = b.doubleValue(), bi = b.doubleValueImag();
-        	final double invers = 1/(br * br + bi * bi);
-        	final double re = (ar * br + ai * bi)*invers, im = (ai * br - ar * bi)*invers;
-        	if (Double.isNaN(re) || Double.isNaN(im))
-        		return RealDoubleOperation.NaN;
-        	return ComplexDoubleOperation.get(re, im);
+        switch (getNumberType(a.getTypeBitmask() & b.getTypeBitmask())){
+        	case NUMBER_INT_REAL:
+	        	return b.longValue() != 0 ? RealRationalOperation.getInstance(a.longValue(),b.longValue()) : RealDoubleOperation.NaN;
+        	case NUMBER_RATIONAL_REAL:{
+	        	final long numerator = a.longNumeratorValue() * b.longDenumeratorValue();
+	        	final long denumerator = a.longDenumeratorValue() * b.longNumeratorValue();
+	        	if (denumerator == 0)
+	        		return RealDoubleOperation.NaN;
+	        	if (numerator == 0)
+	        		return RealLongOperation.ZERO;
+	        	if (numerator / a.longNumeratorValue() == b.longDenumeratorValue() && denumerator / a.longDenumeratorValue() == b.longNumeratorValue())
+	        		return RealRationalOperation.getInstance(numerator, denumerator);
+	        	return new RealDoubleOperation(a.doubleValue()/b.doubleValue());
+        	}
+        	case NUMBER_FLOAT_REAL:
+	            return b.isZero() ? RealDoubleOperation.NaN : new RealDoubleOperation(a.doubleValue()/b.doubleValue());
+        	case NUMBER_INT_COMPLEX:
+        	case NUMBER_RATIONAL_COMPLEX:
+        	case NUMBER_FLOAT_COMPLEX:{
+	        	final double ar = a.doubleValue(), ai = a.doubleValueImag(), br = b.doubleValue(), bi = b.doubleValueImag();
+	        	final double invers = 1/(br * br + bi * bi);
+	        	final double re = (ar * br + ai * bi)*invers, im = (ai * br - ar * bi)*invers;
+	        	if (Double.isNaN(re) || Double.isNaN(im))
+	        		return RealDoubleOperation.NaN;
+	        	return ComplexDoubleOperation.get(re, im);
+        	}
         }
         if (b.isRealFloatingNumber()){
             if (b.doubleValue() == 1)
@@ -142,6 +147,12 @@ public final class DivisionOperation extends LinkingOperation
         return calculate(a.calculate(object, control), b.calculate(object, control), control);
     }
 
+	@Override
+	public final double calculateDouble (VariableAmount object, CalculationController control){
+        final double dividend = a.calculateDouble(object, control), divisor = b.calculateDouble(object, control);
+        return divisor == 0 ? Double.NaN : dividend / divisor;
+    }
+
 
 	@Override
 	public final StringBuilder toString (final Print type, StringBuilder stringBuilder){
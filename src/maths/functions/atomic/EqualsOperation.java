@@ -44,12 +44,14 @@ public final class EqualsOperation extends LinkingOperation
     }
 
     public static final Operation calculate(Operation a, Operation b){
-        if (a.isComplexIntegerNumber() && b.isComplexIntegerNumber())
-        	return BooleanOperation.get(a.longValue() == b.longValue() && a.longValueImag() == b.longValueImag());
-        if (a.isComplexRationalNumber() && b.isComplexRationalNumber())
-        	return BooleanOperation.get(a.longNumeratorValue() == b.longNumeratorValue() && a.longDenumeratorValueImag() == b.longDenumeratorValueImag());
-        if (a.isComplexFloatingNumber() && b.isComplexFloatingNumber())
-        	return BooleanOperation.get(a.doubleValue() == b.doubleValue() && a.doubleValueImag() == b.doubleValueImag());
+        switch (getNumberType(a.getTypeBitmask() & b.getTypeBitmask() & (BITMASK_INT_COMPLEX | BITMASK_RATIONAL_COMPLEX | BITMASK_FLOAT_COMPLEX))){
+        	case NUMBER_INT_COMPLEX:
+        		return BooleanOperation.get(a.longValue() == b.longValue() && a.longValueImag() == b.longValueImag());
+        	case NUMBER_RATIONAL_COMPLEX:
+        		return BooleanOperation.get(a.longNumeratorValue() == b.longNumeratorValue() && a.longDenumeratorValueImag() == b.longDenumeratorValueImag());
+        	case NUMBER_FLOAT_COMPLEX:
+        		return BooleanOperation.get(a.doubleValue() == b.doubleValue() && a.doubleValueImag() == b.doubleValueImag());
+        }
         if (a.isString() && b.isString())
             return BooleanOperation.get(a.stringValue().equals(b.stringValue()));
         if (a.isBoolean() && b.isBoolean())
@@ -46,9 +46,10 @@ public class HigherOperation extends LinkingOperation
     }
 
     public static Operation calculate(final Operation a, final Operation b){
-        if (a.isRealIntegerNumber() && b.isRealIntegerNumber())
+        final int type = a.getTypeBitmask() & b.getTypeBitmask();
+        if ((type & BITMASK_INT_REAL) != 0)
             return BooleanOperation.get(a.longValue() > b.longValue());
-        if (a.isRealFloatingNumber() && b.isRealFloatingNumber() && !a.isNaN() && !b.isNaN())
+        if ((type & BITMASK_FLOAT_REAL) != 0 && !a.isNaN() && !b.isNaN())
             return BooleanOperation.get(a.doubleValue() > b.doubleValue());
         if (a.isString() && b.isString())
         	return BooleanOperation.get(a.stringValue().compareTo(b.stringValue()) > 0);
@@ -51,54 +51,58 @@ public class MultiplicationOperation extends LinkingOperation
     }
 
     public static final Operation calculate (final Operation a, final Operation b, final CalculationController control){
-        if (a.isRealIntegerNumber() && b.isRealIntegerNumber()){
-            final long al = a.longValue(), bl = b.longValue();
-            if (bl == 0)
-                return RealLongOperation.ZERO;
-            final long erg = al * bl;
-            return erg / bl == al ? new RealLongOperation(erg) : new RealDoubleOperation((double)al*bl);
-        }
-        if (a.isRealRationalNumber() && b.isRealRationalNumber()){
-        	final long numerator = a.longNumeratorValue() * b.longNumeratorValue();
-        	final long denumerator = a.longDenumeratorValue() * b.longDenumeratorValue();
-        	if (denumerator == 0)
-        		return RealDoubleOperation.NaN;
-        	if (numerator == 0)
-        		return RealLongOperation.ZERO;
-        	if (numerator / a.longNumeratorValue() == b.longNumeratorValue() && denumerator / a.longDenumeratorValue() == b.longDenumeratorValue())
-        		return RealRationalOperation.getInstance(numerator, denumerator);
-        }
-        if (a.isRealFloatingNumber() && b.isRealFloatingNumber()){
-        	return new RealDoubleOperation(a.doubleValue()*b.doubleValue());
-        }
-        if (a.isComplexIntegerNumber() && b.isComplexIntegerNumber()){
-            final long ar = a.longValue(), ai = a.longValueImag(), br = b.longValue(), bi = b.longValueImag();
-            if (ar == 0){
-            	if (ai == 0)
-            		return RealLongOperation.ZERO;
-              	final long r1 = ai * bi, i1 = ai * br;
-              	if (r1 / ai == bi && i1 / ai == br)
-              		return ComplexLongOperation.get(-r1, i1);
-            }else{
-            	final long r0 = ar * br, i0 = ar * bi;
-              	if (r0 / ar == br && i0 / ar == bi){
-	              	if (ai == 0){
-	              		return ComplexLongOperation.get(-r0, i0);
-	            	}else{
-		            	final long r1 = ai * bi, i1 = ai * br;
-		              	if (r1 / ai == bi && i1 / ai == br){
-		                    final long real = r0-r1, imag = i0 + i1;
-		                    if (Calculate.subtractionOverflowTest(r0, r1, real) && Calculate.additionOverflowTest(i0, i1, imag))
-		                        return ComplexLongOperation.get(real, imag);
-		              	}
-	            	}
-              	}
-            }
-            return ComplexDoubleOperation.get((double) ar * br - (double)ai * bi,(double) ar * bi + (double)ai * br);
-        }
-        if (a.isComplexFloatingNumber() && b.isComplexFloatingNumber()){
-            final double ar = a.doubleValue(), ai = a.doubleValueImag(), br = b.doubleValue(), bi = b.doubleValueImag();
-            return ComplexDoubleOperation.get(ar * br - ai * bi, ar * bi + ai * br);
+        switch (getNumberType(a.getTypeBitmask() & b.getTypeBitmask())){
+        	case NUMBER_INT_REAL:{
+	            final long al = a.longValue(), bl = b.longValue();
+	            if (bl == 0)
+	                return RealLongOperation.ZERO;
+	            final long erg = al * bl;
+	            return erg / bl == al ? new RealLongOperation(erg) : new RealDoubleOperation((double)al*bl);
+        	}
+        	case NUMBER_RATIONAL_REAL:{
+	        	final long numerator = a.longNumeratorValue() * b.longNumeratorValue();
+	        	final long denumerator = a.longDenumeratorValue() * b.longDenumeratorValue();
+	        	if (denumerator == 0)
+	        		return RealDoubleOperation.NaN;
+	        	if (numerator == 0)
+	        		return RealLongOperation.ZERO;
+	        	if (numerator / a.longNumeratorValue() == b.longNumeratorValue() && denumerator / a.longDenumeratorValue() == b.longDenumeratorValue())
+	        		return RealRationalOperation.getInstance(numerator, denumerator);
+	        	return new RealDoubleOperation(a.doubleValue()*b.doubleValue());
+        	}
+        	case NUMBER_FLOAT_REAL:{
+	        	return new RealDoubleOperation(a.doubleValue()*b.doubleValue());
+        	}
+        	case NUMBER_INT_COMPLEX:{
+	            final long ar = a.longValue(), ai = a.longValueImag(), br = b.longValue(), bi = b.longValueImag();
+	            if (ar == 0){
+	            	if (ai == 0)
+	            		return RealLongOperation.ZERO;
+	              	final long r1 = ai * bi, i1 = ai * br;
+	              	if (r1 / ai == bi && i1 / ai == br)
+	              		return ComplexLongOperation.get(-r1, i1);
+	            }else{
+	            	final long r0 = ar * br, i0 = ar * bi;
+	              	if (r0 / ar == br && i0 / ar == bi){
+		              	if (ai == 0){
+		              		return ComplexLongOperation.get(-r0, i0);
+		            	}else{
+			            	final long r1 = ai * bi, i1 = ai * br;
+			              	if (r1 / ai == bi && i1 / ai == br){
+			                    final long real = r0-r1, imag = i0 + i1;
+			                    if (Calculate.subtractionOverflowTest(r0, r1, real) && Calculate.additionOverflowTest(i0, i1, imag))
+			                        return ComplexLongOperation.get(real, imag);
+			              	}
+		            	}
+	              	}
+	            }
+	            return ComplexDoubleOperation.get((double) ar * br - (double)ai * bi,(double) ar * bi + (double)ai * br);
+        	}
+        	case NUMBER_RATIONAL_COMPLEX:
+        	case NUMBER_FLOAT_COMPLEX:{
+	            final double ar = a.doubleValue(), ai = a.doubleValueImag(), br = b.doubleValue(), bi = b.doubleValueImag();
+	            return ComplexDoubleOperation.get(ar * br - ai * bi, ar * bi + ai * br);
+        	}
         }
         if (a.isArray() && b.isArray()){
         	if (a.size() != b.size())
@@ -137,6 +141,11 @@ public class MultiplicationOperation extends LinkingOperation
         return calculate(a.calculate(object, control), b.calculate(object, control), control);
     }
 
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        return a.calculateDouble(object, control) * b.calculateDouble(object, control);
+    }
+
 	@Override
 	public final int size() {
 		return 2;
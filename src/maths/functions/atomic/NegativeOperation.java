@@ -87,6 +87,11 @@ public final class NegativeOperation extends Operation
         return calculate(a.calculate(object, control), control);
     }
 
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        return -a.calculateDouble(object, control);
+    }
+
 	@Override
 	public final StringBuilder toString(Print type, StringBuilder stringBuilder){
         if (a.getPriority()<=getPriority())
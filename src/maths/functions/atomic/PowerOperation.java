@@ -96,13 +96,14 @@ public class PowerOperation extends LinkingOperation
     }
 
     public static final Operation calculate (final Operation a, final Operation b, final CalculationController control){
-    	if (a.isRealIntegerNumber() && b.isRealIntegerNumber()){
+    	final int ta = a.getTypeBitmask(), tb = b.getTypeBitmask();
+    	if ((ta & tb & BITMASK_INT_REAL) != 0){
     		return pow(a.longValue(), b.longValue());
     	}
-        if (a.isRealFloatingNumber()){
-            if (b.isRealIntegerNumber())
+        if ((ta & BITMASK_FLOAT_REAL) != 0){
+            if ((tb & BITMASK_INT_REAL) != 0)
                 return new RealDoubleOperation(Calculate.pow(a.doubleValue(), b.longValue()));
-            if (b.isRealFloatingNumber()){
+            if ((tb & BITMASK_FLOAT_REAL) != 0){
             	final double va = a.doubleValue();
             	if (va > 0){
             		return new RealDoubleOperation(Math.pow(va, b.doubleValue()));
@@ -113,7 +114,7 @@ public class PowerOperation extends LinkingOperation
             	}
             }
         }
-        if (a.isComplexFloatingNumber() && b.isRealIntegerNumber() && b.longValue() >= 0){
+        if ((ta & BITMASK_FLOAT_COMPLEX) != 0 && (tb & BITMASK_INT_REAL) != 0 && b.longValue() >= 0){
         	long exp = b.longValue();
         	double xr = a.doubleValue(), xi = a.doubleValueImag();
         	double re=1, im=0;
@@ -134,20 +135,20 @@ public class PowerOperation extends LinkingOperation
         	}
         	return ComplexDoubleOperation.get(re, im);
         }
-        if (a.isRealFloatingNumber() && b.isComplexFloatingNumber()){
+        if ((ta & BITMASK_FLOAT_REAL) != 0 && (tb & BITMASK_FLOAT_COMPLEX) != 0){
         	final double ar = a.doubleValue(), br = b.doubleValue(), bi = b.doubleValueImag();
         	final double pytl = Math.log(ar*ar)*0.5;
         	final double same_inner_part = pytl * bi;
         	final double same_outer_part = Math.exp(pytl * br);
         	return ComplexDoubleOperation.get(Math.cos(same_inner_part)*same_outer_part, Math.sin(same_inner_part)*same_outer_part);
         }
-        if (a.isComplexFloatingNumber() && b.isRealFloatingNumber()){
+        if ((ta & BITMASK_FLOAT_COMPLEX) != 0 && (tb & BITMASK_FLOAT_REAL) != 0){
         	final double ar = a.doubleValue(), ai = a.doubleValueImag(), br = b.doubleValue();
         	final double same_inner_part = ((ai > 0 ? PI_HALF_POS : PI_HALF_NEG)-Math.atan2(ar,ai)) * br;
         	final double same_outer_part = Math.pow(ai*ai+ar*ar, 0.5 * br);
         	return ComplexDoubleOperation.get(Math.cos(same_inner_part)*same_outer_part, Math.sin(same_inner_part)*same_outer_part);
         }
-        if (a.isComplexFloatingNumber() && b.isComplexFloatingNumber()){
+        if ((ta & tb & BITMASK_FLOAT_COMPLEX) != 0){
         	final double ar = a.doubleValue(), ai = a.doubleValueImag(), br = b.doubleValue(), bi = b.doubleValueImag();
         	final double pytl = Math.log(ai*ai+ar*ar)*0.5, tan_sign = (ai > 0 ? PI_HALF_POS : PI_HALF_NEG)-Math.atan2(ar,ai);
         	final double same_inner_part = pytl * bi + tan_sign * br;
@@ -246,6 +247,14 @@ public class PowerOperation extends LinkingOperation
         return calculate (a.calculate(object, control), b.calculate(object, control), control);
     }
 
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        final double base = a.calculateDouble(object, control), exponent = b.calculateDouble(object, control);
+        if ((base < 0 && exponent != Math.rint(exponent)) || (base == 0 && exponent < 0))
+        	return calculate(new RealDoubleOperation(base), new RealDoubleOperation(exponent), control).doubleValue();
+        return Math.pow(base, exponent);
+    }
+
 	@Override
 	public StringBuilder toString(final Print type, StringBuilder stringBuilder){
     	switch(type){
@@ -305,6 +314,11 @@ public class PowerOperation extends LinkingOperation
 	        return calculate (a.calculate(object, control), null);
 	    }
 
+		@Override
+		public double calculateDouble (VariableAmount object, CalculationController control){
+	        return 1 / a.calculateDouble(object, control);
+	    }
+
 	    public static final Operation calculate (Operation a, CalculationController control){
 	        if (a.isComplexFloatingNumber())
 	        	return a.getInvers();
@@ -369,6 +383,12 @@ public class PowerOperation extends LinkingOperation
 	        return calculate(a.calculate(object, control));
 	    }
 
+		@Override
+		public final double calculateDouble (VariableAmount object, CalculationController control){
+	        final double value = a.calculateDouble(object, control);
+	        return value < 0 ? calculate(new RealDoubleOperation(value)).doubleValue() : Math.sqrt(value);
+	    }
+
 		@Override
 		public final StringBuilder toString(Print type, StringBuilder stringBuilder){
 	    	switch(type){
@@ -405,6 +425,11 @@ public class PowerOperation extends LinkingOperation
 	        return calculate(a.calculate(object, control), control);
 	    }
 
+		@Override
+		public double calculateDouble (VariableAmount object, CalculationController control){
+	        return Math.cbrt(a.calculateDouble(object, control));
+	    }
+
 		@Override
         public final StringBuilder toString(Print type, StringBuilder stringBuilder){
     		return a.toString(type, stringBuilder.append("cbrt(")).append(')');
@@ -421,6 +446,12 @@ public class PowerOperation extends LinkingOperation
 	        return calculate (a.calculate(object, control), null);
 	    }
 
+		@Override
+		public double calculateDouble (VariableAmount object, CalculationController control){
+	        final double value = a.calculateDouble(object, control);
+	        return value * value;
+	    }
+
 	    public static final Operation calculate (Operation a, CalculationController control){
 	        if (a.isRealIntegerNumber()){
 	        	long val = a.longValue();
@@ -466,6 +497,11 @@ public class PowerOperation extends LinkingOperation
 	        return calculate (b.calculate(object, control), null);
 	    }
 
+		@Override
+		public double calculateDouble (VariableAmount object, CalculationController control){
+	        return Math.exp(b.calculateDouble(object, control));
+	    }
+
 	    public static final Operation calculate (Operation b, CalculationController control){
 	        if (b.isRealIntegerNumber()){
 	        	long value = b.longValue();
@@ -51,39 +51,42 @@ public final class SubtractionOperation extends LinkingOperation
     }
 
     public static final Operation calculate (final Operation a, final Operation b, final CalculationController control){
-        if (a.isRealIntegerNumber() && b.isRealIntegerNumber()){
-            final long al = a.longValue(), bl = b.longValue(), erg = al - bl;
-            if (Calculate.subtractionOverflowTest(al, bl, erg))
-                return new RealLongOperation (erg);
-            return new RealDoubleOperation((double)al - bl);
-        }
-        if (a.isRealRationalNumber() && b.isRealRationalNumber()){
-        	final long an = a.longNumeratorValue(), ad = a.longDenumeratorValue();
-        	final long bn = b.longNumeratorValue(), bd = b.longDenumeratorValue();
-        	final long kgv = Calculate.kgv(ad, bd);
-           	if (kgv != -1){
-	        	final long lmult = kgv/ad, rmult = kgv/bd;
-	        	final long aen = an*lmult, ben = bn*rmult;
-	        	if (aen/lmult == an || ben/rmult == bn){
-	        		final long erg = aen - ben;
-	                if (Calculate.subtractionOverflowTest(aen, ben, erg))
-	                	return RealRationalOperation.getInstance(erg, kgv);
-                    return new RealDoubleOperation(((double)aen - ben)/kgv);
+        switch (getNumberType(a.getTypeBitmask() & b.getTypeBitmask())){
+        	case NUMBER_INT_REAL:{
+	            final long al = a.longValue(), bl = b.longValue(), erg = al - bl;
+	            if (Calculate.subtractionOverflowTest(al, bl, erg))
+	                return new RealLongOperation (erg);
+	            return new RealDoubleOperation((double)al - bl);
+        	}
+        	case NUMBER_RATIONAL_REAL:{
+	        	final long an = a.longNumeratorValue(), ad = a.longDenumeratorValue();
+	        	final long bn = b.longNumeratorValue(), bd = b.longDenumeratorValue();
+	        	final long kgv = Calculate.kgv(ad, bd);
+	           	if (kgv != -1){
+		        	final long lmult = kgv/ad, rmult = kgv/bd;
+		        	final long aen = an*lmult, ben = bn*rmult;
+		        	if (aen/lmult == an || ben/rmult == bn){
+		        		final long erg = aen - ben;
+		                if (Calculate.subtractionOverflowTest(aen, ben, erg))
+		                	return RealRationalOperation.getInstance(erg, kgv);
+	                    return new RealDoubleOperation(((double)aen - ben)/kgv);
+		        	}
 	        	}
+	    		return new RealDoubleOperation((double)an/ad - (double)bn/bd);
+        	}
+        	case NUMBER_FLOAT_REAL:
+	            return new RealDoubleOperation(a.doubleValue() - b.doubleValue());
+        	case NUMBER_INT_COMPLEX:{
+	            final long ar = a.longValue(), ai=a.longValueImag(), br = b.longValue(), bi=b.longValueImag();
+	            final long realErg = ar-br, imagErg = ai-bi;
+	            if (Calculate.subtractionOverflowTest(ar, br, realErg) && Calculate.subtractionOverflowTest(ai, bi, imagErg))
+	            	return ComplexLongOperation.get(realErg, imagErg);
+	            return ComplexDoubleOperation.get(ar-br,ai-bi);
+        	}
+        	case NUMBER_RATIONAL_COMPLEX:
+        	case NUMBER_FLOAT_COMPLEX:{
+	        	return ComplexDoubleOperation.get(a.doubleValue() - b.doubleValue(), a.doubleValueImag() - b.doubleValueImag());
         	}
-    		return new RealDoubleOperation((double)an/ad - (double)bn/bd);
-        }
-        if (a.isRealFloatingNumber() && b.isRealFloatingNumber())
-            return new RealDoubleOperation(a.doubleValue() - b.doubleValue());
-        if (a.isComplexIntegerNumber() && b.isComplexIntegerNumber()){
-            final long ar = a.longValue(), ai=a.longValueImag(), br = b.longValue(), bi=b.longValueImag();
-            final long realErg = ar-br, imagErg = ai-bi;
-            if (Calculate.subtractionOverflowTest(ar, br, realErg) && Calculate.subtractionOverflowTest(ai, bi, imagErg))
-            	return ComplexLongOperation.get(realErg, imagErg);
-            return ComplexDoubleOperation.get(ar-br,ai-bi);
-        }
-        if (a.isComplexFloatingNumber() && b.isComplexFloatingNumber()){
-        	return ComplexDoubleOperation.get(a.doubleValue() - b.doubleValue(), a.doubleValueImag() - b.doubleValueImag());
         }
         if (a.isArray() && b.isArray()){
         	if (a.size() != b.size())
@@ -154,6 +157,11 @@ public final class SubtractionOperation extends LinkingOperation
         return calculate(a.calculate(object, control), b.calculate(object, control), control);
     }
 
+	@Override
+	public final double calculateDouble (VariableAmount object, CalculationController control){
+        return a.calculateDouble(object, control) - b.calculateDouble(object, control);
+    }
+
 	@Override
 	public final int size() {return 2;}
 
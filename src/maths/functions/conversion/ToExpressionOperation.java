@@ -22,7 +22,11 @@
 package maths.functions.conversion;
 
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import maths.Operation;
 import maths.OperationCompiler;
@@ -33,12 +37,42 @@ import maths.exception.OperationParseException;
 import maths.functions.FunctionOperation;
 
 /** 
+* Compiles strings at runtime. Each node remembers the last string and its result, so a loop which compiles the same string again skips the parser.
+* Results are also shared between the nodes through a cache which only keeps them as long as they are referenced elsewhere.
+* Primitive results and strings which can't be compiled are not shared, they may be static constants which are never collected.
 * @author  Paul Stahr
 * @version 26.02.2012
 */
 public final class ToExpressionOperation extends FunctionOperation
 {
+    private static final ConcurrentHashMap<String, SharedEntry> shared = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Operation> collected = new ReferenceQueue<>();
+    private static final LongAdder memoHits = new LongAdder(), sharedHits = new LongAdder(), misses = new LongAdder();
     private final Operation a;
+    private volatile Memo memo;
+
+    private static final class Memo
+    {
+    	private final String str;
+    	private final Operation op;
+
+    	private Memo(String str, Operation op)
+    	{
+    		this.str = str;
+    		this.op = op;
+    	}
+    }
+
+    private static final class SharedEntry extends WeakReference<Operation>
+    {
+    	private final String str;
+
+    	private SharedEntry(String str, Operation op)
+    	{
+    		super(op, collected);
+    		this.str = str;
+    	}
+    }
 
     public ToExpressionOperation (Operation a){
     	if ((this.a = a) == null)
@@ -47,11 +81,7 @@ public final class ToExpressionOperation extends FunctionOperation
 
     public static Operation calculate(final Operation a){
         if (a.isString())
-			try {
-				return OperationCompiler.compile(a.stringValue());
-			} catch (OperationParseException e) {
-				return RealDoubleOperation.NaN;
-			}
+			return compile(a.stringValue());
         if (a.isArray()){
         	return new ArrayOperation.ArrayCreator(a.size()){
 				
@@ -62,12 +92,85 @@ public final class ToExpressionOperation extends FunctionOperation
         	}.getArray();
         }
         return a;
-    }        
+    }
+
+    /**
+     * Compiles the string or takes the result from the shared cache, strings which can't be compiled give NaN
+     */
+    private static final Operation compile(String str){
+    	SharedEntry entry;
+    	while ((entry = (SharedEntry)collected.poll()) != null)
+    		shared.remove(entry.str, entry);
+    	entry = shared.get(str);
+    	Operation op = entry == null ? null : entry.get();
+    	if (op != null)
+    	{
+    		sharedHits.increment();
+    		return op;
+    	}
+    	misses.increment();
+    	try {
+			op = OperationCompiler.compile(str);
+		} catch (OperationParseException e) {
+			return RealDoubleOperation.NaN;
+		}
+    	if (!op.isPrimitive())
+    		shared.put(str, new SharedEntry(str, op));
+    	return op;
+    }
+
+    private final Operation calculateMemo(final Operation a){
+    	if (!a.isString())
+    		return calculate(a);
+    	final String str = a.stringValue();
+    	final Memo m = memo;
+    	if (m != null && m.str.equals(str))
+    	{
+    		memoHits.increment();
+    		return m.op;
+    	}
+    	final Operation op = compile(str);
+    	memo = new Memo(str, op);
+    	return op;
+    }
+
+    /**
+     * @return how often a node compiled the same string as the last time
+     */
+    public static final long getMemoHits(){
+    	return memoHits.sum();
+    }
+
+    /**
+     * @return how often a string was found in the shared cache
+     */
+    public static final long getSharedHits(){
+    	return sharedHits.sum();
+    }
+
+    /**
+     * @return how often a string had to be compiled
+     */
+    public static final long getMisses(){
+    	return misses.sum();
+    }
+
+    /**
+     * @return the number of strings in the shared cache, including entries which were collected but not removed yet
+     */
+    public static final int getSharedSize(){
+    	return shared.size();
+    }
+
+    public static final void resetCounters(){
+    	memoHits.reset();
+    	sharedHits.reset();
+    	misses.reset();
+    }
 
-    
 	@Override
 	public Operation calculate (VariableAmount object, CalculationController control){
-        return calculate(a.calculate(object, control)).calculate(object, control);
+        return calculateMemo(a.calculate(object, control)).calculate(object, control);
     }
 
 	@Override
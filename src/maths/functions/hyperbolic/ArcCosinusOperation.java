@@ -72,6 +72,11 @@ public final class ArcCosinusOperation extends FunctionOperation
         return calculate(a.calculate(object, control));
     }
 
+	@Override
+	public final double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.acos(a.calculateDouble(object, control));
+    }
+
 	@Override
 	public final int size() {
 		return 1;
@@ -88,6 +88,11 @@ public final class ArcTangems2Operation extends FunctionOperation
     public Operation calculate (VariableAmount object, CalculationController control){
         return calculate(a.calculate(object, control),b.calculate(object, control));
     }
+
+    @Override
+    public double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.atan2(a.calculateDouble(object, control), b.calculateDouble(object, control));
+    }
     
     @Override
     public final int size() {
@@ -68,6 +68,11 @@ public final class ArcTangensOperation extends FunctionOperation
         return calculate(a.calculate(object, control));
     }
 
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.atan(a.calculateDouble(object, control));
+    }
+
 	@Override
 	public final int size() {
 		return 1;
@@ -69,6 +69,11 @@ public final class CosinusHyperbolicOperation extends FunctionOperation
         return calculate(a.calculate(object, control));
     }
 
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.cosh(a.calculateDouble(object, control));
+    }
+
 	@Override
 	public final int size() {
 		return 1;
@@ -75,6 +75,11 @@ public final class CosinusOperation extends FunctionOperation
         return calculate(a.calculate(object, control));
     }
 
+	@Override
+	public final double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.cos(a.calculateDouble(object, control));
+    }
+
 	@Override
 	public final int size() {
 		return 1;
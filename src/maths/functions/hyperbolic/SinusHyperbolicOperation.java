@@ -72,6 +72,11 @@ public final class SinusHyperbolicOperation extends FunctionOperation
         return calculate(a.calculate(object, control));
     }
 
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.sinh(a.calculateDouble(object, control));
+    }
+
 	@Override
 	public final int size() {
 		return 1;
@@ -73,6 +73,11 @@ public final class SinusOperation extends FunctionOperation
         return calculate(a.calculate(object, control));
     }
 
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.sin(a.calculateDouble(object, control));
+    }
+
 	@Override
 	public final int size() {
 		return 1;
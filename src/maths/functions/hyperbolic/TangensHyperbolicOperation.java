@@ -68,6 +68,11 @@ public final class TangensHyperbolicOperation extends FunctionOperation
         return calculate(a.calculate(object, control));
     }
 
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.tanh(a.calculateDouble(object, control));
+    }
+
 	@Override
 	public final int size() {
 		return 1;
@@ -75,6 +75,11 @@ public final class TangensOperation extends FunctionOperation
         return calculate(a.calculate(object, control));
     }
 
+	@Override
+	public double calculateDouble (VariableAmount object, CalculationController control){
+        return Math.tan(a.calculateDouble(object, control));
+    }
+
 	@Override
 	public final int size() {
 		return 1;
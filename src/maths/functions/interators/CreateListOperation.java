@@ -27,6 +27,7 @@ import maths.Operation;
 import maths.variable.VariableAmount;
 import maths.algorithm.OperationCalculate;
 import maths.algorithm.OperationIterator;
+import maths.algorithm.ParallelIteration;
 import maths.data.ArrayOperation;
 import maths.functions.FunctionOperation;
 
@@ -52,11 +53,19 @@ public class CreateListOperation extends FunctionOperation {
 			return erg;
 		if (control.calculateLoop()){
 			OperationIterator oi = new OperationIterator(b.calculate(va, control)){
-				private Operation erg[] = new Operation[(int)getRuns()];
+				private final Operation erg[] = isValid() ? new Operation[(int)getRuns()] : null;
 				@Override
 				protected void calculate(VariableAmount va, long i) {
 					erg[(int)i] = a.calculate(va, control);
 				}
+
+				@Override
+				public void run(VariableAmount va) {
+					if (ParallelIteration.isParallel(this, a, va))
+						ParallelIteration.fill(this, a, va, erg, control);
+					else
+						super.run(va);
+				}
 	
 				@Override
 				public Operation getErg() {
@@ -64,7 +73,7 @@ public class CreateListOperation extends FunctionOperation {
 				}
 			};
 			if (!oi.isValid())
-				return new ProductIteratorOperation(a, b);
+				return new CreateListOperation(a, b);
 			oi.run(va);
 			return oi.getErg();
 		}
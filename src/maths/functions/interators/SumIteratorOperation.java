@@ -27,6 +27,8 @@ import java.util.List;
 import maths.Operation;
 import maths.algorithm.OperationCalculate;
 import maths.algorithm.OperationIterator;
+import maths.algorithm.ParallelIteration;
+import maths.data.RealDoubleOperation;
 import maths.data.RealLongOperation;
 import maths.functions.FunctionOperation;
 import maths.functions.atomic.AdditionOperation;
@@ -52,6 +54,14 @@ public class SumIteratorOperation extends FunctionOperation {
 					erg = AdditionOperation.calculate(erg,a.calculate(va, control), control);
 				}
 
+				@Override
+				public void run(VariableAmount va) {
+					if (ParallelIteration.isParallel(this, a, va))
+						erg = ParallelIteration.reduce(this, a, va, RealLongOperation.ZERO, ParallelIteration.ADD, control);
+					else
+						super.run(va);
+				}
+
 				@Override
 				public Operation getErg() {
 					return erg;
@@ -66,11 +76,49 @@ public class SumIteratorOperation extends FunctionOperation {
 	}
 
 
+	/**
+	 * Adds the terms as doubles, so the loop creates no intermediate results
+	 */
+	public static final double calculateDouble(final Operation a, Operation b, VariableAmount va, final CalculationController control){
+		if (OperationCalculate.standardCalculations(a, b) == null && (control == null || control.calculateLoop())){
+			OperationIterator oi = new OperationIterator(b){
+				private double erg = 0;
+				@Override
+				protected void calculate(VariableAmount va, long i) {
+					erg += a.calculateDouble(va, control);
+				}
+
+				@Override
+				public void run(VariableAmount va) {
+					if (ParallelIteration.isParallel(this, a, va))
+						erg = ParallelIteration.sumDouble(this, a, va, control);
+					else
+						super.run(va);
+				}
+
+				@Override
+				public Operation getErg() {
+					return new RealDoubleOperation(erg);
+				}
+			};
+			if (oi.isValid()){
+				oi.run(va);
+				return oi.getErg().doubleValue();
+			}
+		}
+		return calculate(a, b, va, control).doubleValue();
+	}
+
 	@Override
 	public final Operation calculate(VariableAmount object, CalculationController control) {
 		return calculate(a.calculate(object, control), b.calculate(object, control), object, control);
 	}
 
+	@Override
+	public final double calculateDouble(VariableAmount object, CalculationController control) {
+		return calculateDouble(a.calculate(object, control), b.calculate(object, control), object, control);
+	}
+
 
 	@Override
 	public final int size() {
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.functions.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads lines into a reused character buffer, the lines are separated like by {@link java.io.BufferedReader#readLine()}.
+ * After {@link #next()} the current line is the range from {@link #begin} to {@link #end} of {@link #buffer}, it is only valid until the next call.
+ */
+final class CharLineReader implements Closeable
+{
+	private final Reader reader;
+	char buffer[] = new char[0x10000];
+	int begin, end;
+	private int pos, length;
+	private boolean skipLineFeed, eof;
+
+	CharLineReader(Reader reader)
+	{
+		this.reader = reader;
+	}
+
+	/**
+	 * @return false if there are no more lines
+	 */
+	final boolean next() throws IOException
+	{
+		int i = pos;
+		while (true)
+		{
+			if (i == length)
+			{
+				if (eof)
+				{
+					if (pos == length)
+						return false;
+					begin = pos;
+					end = pos = length;
+					return true;
+				}
+				i -= fill();
+				continue;
+			}
+			final char c = buffer[i];
+			if (skipLineFeed)
+			{
+				skipLineFeed = false;
+				if (c == '\n')
+				{
+					pos = ++i;
+					continue;
+				}
+			}
+			if (c == '\n' || c == '\r')
+			{
+				begin = pos;
+				end = i;
+				pos = i + 1;
+				skipLineFeed = c == '\r';
+				return true;
+			}
+			++i;
+		}
+	}
+
+	/**
+	 * Moves the current line to the beginning of the buffer and reads more characters
+	 * @return the distance by which the characters were moved
+	 */
+	private final int fill() throws IOException
+	{
+		final int shift = pos;
+		if (shift != 0)
+		{
+			System.arraycopy(buffer, shift, buffer, 0, length - shift);
+			length -= shift;
+			pos = 0;
+		}
+		else if (length == buffer.length)
+		{
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		final int read = reader.read(buffer, length, buffer.length - length);
+		if (read < 0)
+			eof = true;
+		else
+			length += read;
+		return shift;
+	}
+
+	@Override
+	public final void close() throws IOException
+	{
+		reader.close();
+	}
+}
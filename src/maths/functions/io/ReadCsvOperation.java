@@ -21,7 +21,6 @@
  ******************************************************************************/
 package maths.functions.io;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
@@ -31,6 +30,7 @@ import java.util.List;
 
 import maths.Operation;
 import maths.OperationCompiler;
+import maths.algorithm.NumberScanner;
 import maths.data.ArrayOperation;
 import maths.exception.ExceptionOperation;
 import maths.exception.OperationParseException;
@@ -59,17 +59,22 @@ public class ReadCsvOperation extends FunctionOperation{
 			return new ExceptionOperation("File doesn't exist");
 		try
 		{
-			final FileReader reader = new FileReader(file);
-			final BufferedReader inBuf = new BufferedReader(reader);
-			String line;
+			final CharLineReader reader = new CharLineReader(new FileReader(file));
 			final char seperationChars[][] = new char[seperator.size()][];
-			for (int i = 0; i < seperator.size(); ++i)
+			//Level of the ascii characters, which are the usual seperators
+			final byte asciiLevels[] = new byte[0x80];
+			Arrays.fill(asciiLevels, (byte)-1);
+			for (int i = seperator.size() - 1; i >= 0; --i)
 			{
 				Operation column = seperator.get(i);
 				seperationChars[i] = new char[column.size()];
 				for (int j = 0; j < column.size(); ++j)
 				{
-					seperationChars[i][j] = (char)column.get(j).longValue();
+					final char c = seperationChars[i][j] = (char)column.get(j).longValue();
+					if (c < asciiLevels.length)
+					{
+						asciiLevels[c] = (byte)i;
+					}
 				}
 				Arrays.sort(seperationChars[i]);
 			}
@@ -79,36 +84,48 @@ public class ReadCsvOperation extends FunctionOperation{
 			{
 				operationStack[i] = new  ArrayList<>();
 			}
-			StringBuilder strB = new StringBuilder();
-			while ((line = inBuf.readLine()) != null)
+			final NumberScanner scanner = new NumberScanner();
+			//Cells which continue after a line break are collected here
+			char cell[] = new char[64];
+			int cellLength = 0;
+			while (reader.next())
 			{
-				for (int i = 0; i <= line.length(); ++i)
+				final char line[] = reader.buffer;
+				final int end = reader.end;
+				int cellBegin = reader.begin;
+				for (int i = cellBegin; i <= end; ++i)
 				{
-					char c = i == line.length() ? '\n' : line.charAt(i);
-					parseChar:{
-						for (int j = 0; j < seperationChars.length; ++j)
-						{
-							if (Arrays.binarySearch(seperationChars[j], c) >= 0)
-							{
-								try {
-									operationStack[operationStack.length - 1].add(OperationCompiler.compile(strB));
-								} catch (OperationParseException e) {
-									operationStack[operationStack.length - 1].add(new ExceptionOperation(e.toString()));
-								}
-								strB.setLength(0);
-								for (int k = operationStack.length - 2; k >= j; --k)
-								{
-									operationStack[k].add(new ArrayOperation(operationStack[k+1]));
-									operationStack[k+1].clear();
-								}
-								break parseChar;
-							}
-						}
-						strB.append(c);
+					final char c = i == end ? '\n' : line[i];
+					final int level = c < asciiLevels.length ? asciiLevels[c] : getLevel(seperationChars, c);
+					if (level < 0)
+					{
+						continue;
+					}
+					if (cellLength == 0)
+					{
+						operationStack[operationStack.length - 1].add(parseCell(scanner, line, cellBegin, i));
+					}
+					else
+					{
+						cell = append(cell, cellLength, line, cellBegin, i);
+						operationStack[operationStack.length - 1].add(parseCell(scanner, cell, 0, cellLength + i - cellBegin));
+						cellLength = 0;
 					}
+					cellBegin = i + 1;
+					for (int k = operationStack.length - 2; k >= level; --k)
+					{
+						operationStack[k].add(new ArrayOperation(operationStack[k+1]));
+						operationStack[k+1].clear();
+					}
+				}
+				if (cellBegin <= end)
+				{
+					cell = append(cell, cellLength, line, cellBegin, end);
+					cellLength += end - cellBegin;
+					cell = append(cell, cellLength, NEW_LINE, 0, 1);
+					++cellLength;
 				}
 			}
-			inBuf.close();
 			reader.close();
 			return new ArrayOperation(operationStack[0]);
 		}catch(IOException e){
@@ -116,6 +133,47 @@ public class ReadCsvOperation extends FunctionOperation{
 		}
 	}
 	
+	private static final char NEW_LINE[] = {'\n'};
+
+	private static final int getLevel(char seperationChars[][], char c)
+	{
+		for (int j = 0; j < seperationChars.length; ++j)
+		{
+			if (Arrays.binarySearch(seperationChars[j], c) >= 0)
+			{
+				return j;
+			}
+		}
+		return -1;
+	}
+
+	private static final char[] append(char data[], int length, char source[], int begin, int end)
+	{
+		if (length + end - begin > data.length)
+		{
+			data = Arrays.copyOf(data, Math.max(data.length * 2, length + end - begin));
+		}
+		System.arraycopy(source, begin, data, length, end - begin);
+		return data;
+	}
+
+	/**
+	 * Reads a plain number directly and compiles every other content
+	 */
+	static final Operation parseCell(NumberScanner scanner, char data[], int begin, int end)
+	{
+		final Operation op = scanner.parse(data, begin, end);
+		if (op != null)
+		{
+			return op;
+		}
+		try {
+			return OperationCompiler.compile(new String(data, begin, end - begin));
+		} catch (OperationParseException e) {
+			return new ExceptionOperation(e.toString());
+		}
+	}
+
 	@Override
 	public final int size() {
 		return 2;
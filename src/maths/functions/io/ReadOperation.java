@@ -22,7 +22,6 @@
 package maths.functions.io;
 
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
@@ -37,16 +36,13 @@ import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 import maths.Operation;
-import maths.OperationCompiler;
-import maths.OperationCompiler.CompileOptions;
+import maths.algorithm.NumberScanner;
 import maths.data.ArrayOperation;
 import maths.data.RealLongOperation;
 import maths.data.StringOperation;
 import maths.exception.ExceptionOperation;
-import maths.exception.OperationParseException;
 import maths.functions.FunctionOperation;
 import maths.variable.VariableAmount;
-import util.StringUtils;
 
 public class ReadOperation extends FunctionOperation{
 	final Operation a;
@@ -101,30 +97,25 @@ public class ReadOperation extends FunctionOperation{
 		{
 			try
 			{
-				final FileReader reader = new FileReader(file);
-				final BufferedReader inBuf = new BufferedReader(reader);
-				String line;
+				final CharLineReader reader = new CharLineReader(new FileReader(file));
 				final ArrayList<Operation> lines = new ArrayList<Operation>();
-				StringUtils.StringSplitIterator2 splitIterator = new StringUtils.StringSplitIterator2();
 				final ArrayList<Operation> operationList = new ArrayList<Operation>();
-				final char seperators[] = new char[] {' ','\t',',',';'};
-				CompileOptions cp = new CompileOptions();
-				while ((line = inBuf.readLine()) != null)
+				final NumberScanner scanner = new NumberScanner();
+				while (reader.next())
 				{
-					splitIterator.reset(line, 0, line.length(), seperators, false);
-					while (splitIterator.hasNext())
-					{//set(csv,read("/media/paul/Data1/Caesar/Scripts/rotations.csv"))
-						try {
-							operationList.add(OperationCompiler.compile(splitIterator, cp));
-						} catch (OperationParseException e) {
-							operationList.add(new ExceptionOperation(e.toString()));
-						}
-						splitIterator.increment();
+					final char line[] = reader.buffer;
+					for (int i = reader.begin, lineEnd = reader.end; i < lineEnd; ++i)
+					{
+						if (isSeperator(line[i]))
+							continue;
+						final int begin = i;
+						while (i < lineEnd && !isSeperator(line[i]))
+							++i;
+						operationList.add(ReadCsvOperation.parseCell(scanner, line, begin, i));
 					}
 					lines.add(new ArrayOperation(operationList));
 					operationList.clear();
 				}
-				inBuf.close();
 				reader.close();
 				return new ArrayOperation(lines);
 			}catch(IOException e){
@@ -161,6 +152,10 @@ public class ReadOperation extends FunctionOperation{
 		return new ExceptionOperation("File Type not known");
 	}
 	
+	private static final boolean isSeperator(char c){
+		return c == ' ' || c == '\t' || c == ',' || c == ';';
+	}
+
 	@Override
 	public final int size() {
 		return 1;
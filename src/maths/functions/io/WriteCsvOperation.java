@@ -21,12 +21,12 @@
  ******************************************************************************/
 package maths.functions.io;
 
-import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.List;
 
 import maths.Operation;
+import maths.OperationPrinter;
 import maths.algorithm.OperationCalculate;
 import maths.data.BooleanOperation;
 import maths.data.CharacterOperation;
@@ -52,10 +52,8 @@ public class WriteCsvOperation extends FunctionOperation {
 			final String path = a.stringValue();
 			char csepChar = (char)csep.longValue();
 			char rsepChar = (char)rsep.longValue();
-			try {
-				FileWriter fw = new FileWriter(path);
-				BufferedWriter outBuf = new BufferedWriter(fw);
-				StringBuilder strB = new StringBuilder();
+			try (FileWriter fw = new FileWriter(path)){
+				final OperationPrinter printer = new OperationPrinter(fw, Print.CALGRAPH);
 				if (b.isArray())
 				{
 					for (int i = 0; i < b.size(); ++i)
@@ -65,29 +63,25 @@ public class WriteCsvOperation extends FunctionOperation {
 						{
 							if (op.size() != 0)
 							{
-								op.get(0).toString(strB);
+								printer.print(op.get(0));
 								for (int j = 1; j < op.size(); ++j)
 								{
-									op.get(j).toString(strB.append(csepChar));
+									printer.append(csepChar).print(op.get(j));
 								}
 							}
 						}
 						else
 						{
-							op.toString(strB);
+							printer.print(op);
 						}
-						strB.append(rsepChar);
-						outBuf.append(strB);
-						strB.setLength(0);
+						printer.append(rsepChar);
 					}
 				}
 				else
 				{
-					b.toString(strB);
-					outBuf.append(strB);
+					printer.print(b);
 				}
-				outBuf.close();
-				fw.close();
+				printer.flush();
 				return BooleanOperation.TRUE;
 			} catch (IOException e) {
 				return new ExceptionOperation(e.getMessage());
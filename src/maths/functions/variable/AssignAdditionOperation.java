@@ -125,6 +125,13 @@ public final class AssignAdditionOperation extends LinkingOperation
         return new AssignAdditionOperation(a,b);
     }
 
+	/**
+	 * @return true if the value is added to elements of an array, like in a[1]
+	 */
+	public final boolean isIndexed(){
+		return indexes != null;
+	}
+
 	@Override
 	public final int size() {
 		return 2;
@@ -122,6 +122,13 @@ public final class AssignOperation extends LinkingOperation
         return new AssignOperation(a,b);
     }
 
+	/**
+	 * @return true if the value is assigned to elements of an array, like in a[1]
+	 */
+	public final boolean isIndexed(){
+		return indexes != null;
+	}
+
 	@Override
 	public final int size() {
 		return 2;
@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.variable;
+
+import maths.Operation;
+import maths.data.StringId;
+
+/**
+ * Variables of one call of a user defined function.
+ * The parameters are bound to fixed slots, which belong to the function and are reused by the frames of later calls, so a call doesn't create variables and doesn't register listeners.
+ * Variables which the body adds beside the parameters are stored in a stack on top of the caller.
+ * A frame is used by one call at a time, frames are taken from the pool of the function by {@link Variable#acquireFrame(VariableAmount)} and returned after the call.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class CallFrame implements VariableAmount
+{
+	private final Variable slots[];
+	/**
+	 * Slots which are visible in this call, deleted parameters are null
+	 */
+	private final Variable bound[];
+	private VariableAmount parent;
+	private VariableStack locals;
+	private int modCount;
+
+	CallFrame(StringId.StringIdObject parameters[])
+	{
+		slots = new Variable[parameters.length];
+		for (int i = 0; i < parameters.length; ++i)
+		{
+			slots[i] = new Variable(parameters[i]);
+		}
+		bound = new Variable[parameters.length];
+	}
+
+	/**
+	 * Prepares the frame for a call with the given arguments
+	 */
+	final void bind(VariableAmount parent, Operation arguments[])
+	{
+		this.parent = parent;
+		for (int i = 0; i < slots.length; ++i)
+		{
+			(bound[i] = slots[i]).setValue(arguments[i]);
+		}
+		++modCount;
+	}
+
+	/**
+	 * Drops all references to the caller and the arguments
+	 */
+	final void release()
+	{
+		parent = null;
+		locals = null;
+		for (int i = 0; i < slots.length; ++i)
+		{
+			slots[i].setValue((Operation)null);
+			bound[i] = null;
+		}
+	}
+
+	private final int getSlot(int nameId)
+	{
+		for (int i = 0; i < bound.length; ++i)
+		{
+			if (bound[i] != null && bound[i].nameId == nameId)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the variables beside the parameters
+	 */
+	private final VariableAmount getOuter()
+	{
+		return locals == null ? parent : locals;
+	}
+
+	private final VariableStack getLocals()
+	{
+		if (locals == null)
+		{
+			locals = new VariableStack(parent);
+		}
+		return locals;
+	}
+
+	@Override
+	public final Variable getById(int nameId)
+	{
+		final int slot = getSlot(nameId);
+		return slot < 0 ? getOuter().getById(nameId) : bound[slot];
+	}
+
+	@Override
+	public final Variable getById(int nameId, int operandCount)
+	{
+		final int slot = operandCount == -1 ? getSlot(nameId) : -1;
+		return slot < 0 ? getOuter().getById(nameId, operandCount) : bound[slot];
+	}
+
+	@Override
+	public final Variable get(String name)
+	{
+		for (Variable v : bound)
+		{
+			if (v != null && v.nameObject.string.equals(name))
+			{
+				return v;
+			}
+		}
+		return getOuter().get(name);
+	}
+
+	@Override
+	public final Variable assign(int nameId, Operation value)
+	{
+		final int slot = getSlot(nameId);
+		if (slot < 0)
+		{
+			return getOuter().assign(nameId, value);
+		}
+		bound[slot].setValue(value);
+		++modCount;
+		return bound[slot];
+	}
+
+	@Override
+	public final boolean assign(Variable v)
+	{
+		final int slot = getSlot(v.nameId);
+		if (slot < 0)
+		{
+			return getOuter().assign(v);
+		}
+		bound[slot] = v;
+		++modCount;
+		return true;
+	}
+
+	@Override
+	public final Variable setLocal(StringId.StringIdObject name, Operation value)
+	{
+		final int slot = getSlot(name.id);
+		return slot < 0 ? getLocals().setLocal(name, value) : assign(name.id, value);
+	}
+
+	@Override
+	public final Variable setLocal(String name, Operation value)
+	{
+		return setLocal(StringId.getStringAndId(name), value);
+	}
+
+	@Override
+	public final Variable assignAddLocal(StringId.StringIdObject name, Operation value)
+	{
+		final int slot = getSlot(name.id);
+		return slot < 0 ? getLocals().assignAddLocal(name, value) : assign(name.id, value);
+	}
+
+	@Override
+	public final void replaceAddLocal(Variable v)
+	{
+		if (!assign(v))
+		{
+			getLocals().addLocal(v);
+		}
+	}
+
+	@Override
+	public final boolean add(Variable v)
+	{
+		return getSlot(v.nameId) < 0 && getLocals().add(v);
+	}
+
+	@Override
+	public final void setGlobal(String name, Operation value)
+	{
+		parent.setGlobal(name, value);
+	}
+
+	@Override
+	public final void setGlobal(StringId.StringIdObject name, Operation value)
+	{
+		parent.setGlobal(name, value);
+	}
+
+	@Override
+	public final void replaceAddGlobal(Variable v)
+	{
+		parent.replaceAddGlobal(v);
+	}
+
+	@Override
+	public final Variable assignAddGlobal(Variable v)
+	{
+		return parent.assignAddGlobal(v);
+	}
+
+	@Override
+	public final boolean del(Variable v)
+	{
+		final int slot = getSlot(v.nameId);
+		if (slot < 0 || bound[slot] != v)
+		{
+			return locals != null && locals.del(v);
+		}
+		bound[slot] = null;
+		++modCount;
+		return true;
+	}
+
+	@Override
+	public final boolean delById(int nameId)
+	{
+		final int slot = getSlot(nameId);
+		if (slot < 0)
+		{
+			return getOuter().delById(nameId);
+		}
+		bound[slot] = null;
+		++modCount;
+		return true;
+	}
+
+	@Override
+	public final void clear()
+	{
+		for (int i = 0; i < bound.length; ++i)
+		{
+			bound[i] = null;
+		}
+		if (locals != null)
+		{
+			locals.clear();
+		}
+		++modCount;
+	}
+
+	@Override
+	public final int modCount()
+	{
+		return getOuter().modCount() + modCount;
+	}
+
+	@Override
+	public final int size()
+	{
+		int size = getOuter().size();
+		for (Variable v : bound)
+		{
+			if (v != null)
+			{
+				++size;
+			}
+		}
+		return size;
+	}
+}
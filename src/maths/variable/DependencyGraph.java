@@ -0,0 +1,456 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.variable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import maths.Controller;
+import maths.Operation;
+import maths.Operation.CalculationController;
+import maths.exception.ExceptionOperation;
+import util.data.SortedIntegerArrayList.ReadOnlySortedIntegerArrayList;
+
+/**
+ * Caches the calculated values of variables whose definitions reference each other.
+ * The graph listens to the variables it has computed, a change of a definition only invalidates the variables which depend on it transitively.
+ * Invalid values are recalculated lazily by {@link #get(Variable)}, or by {@link #update()} in topological order, where variables of the same depth are calculated in the common fork join pool.
+ * If an executor is set, changes schedule one update, so a burst of changes is recalculated once.
+ * Variables with operands are functions and are looked up in the variables as usual. They have nodes without values,
+ * which link the variables calling them to the variables of their definitions. Recursive functions are no cycles, other cyclic definitions give an exception operation.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class DependencyGraph
+{
+	private static final Node EMPTY_NODE_ARRAY[] = new Node[0];
+	private static volatile int parallelThreshold = 0x10;
+
+	private final class Node implements VariableListener
+	{
+		private final Variable variable;
+		private Node dependencies[] = EMPTY_NODE_ARRAY;
+		private final ArrayList<Node> dependents = new ArrayList<Node>();
+		private Operation value;
+		private boolean valid;
+		private boolean calculating;
+		private boolean cyclic;
+		private int pending;
+
+		private Node(Variable variable)
+		{
+			this.variable = variable;
+		}
+
+		@Override
+		public final void variableChanged()
+		{
+			changed(this);
+		}
+	}
+
+	private final VariableAmount variables;
+	private final CalculationController control;
+	private final HashMap<Variable, Node> nodes = new HashMap<Variable, Node>();
+	private int variablesModCount;
+	private Executor executor;
+	private boolean updateScheduled;
+	private int calculationCount;
+
+	/**
+	 * @param control the settings of the calculations, like calculateLoop
+	 */
+	public DependencyGraph(VariableAmount variables, CalculationController control)
+	{
+		if ((this.variables = variables) == null || (this.control = control) == null)
+		{
+			throw new NullPointerException();
+		}
+		variablesModCount = variables.modCount();
+	}
+
+	/**
+	 * @param executor the executor which runs the updates after changes, or null to recalculate lazily
+	 */
+	public final synchronized void setExecutor(Executor executor)
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * @return the calculated value of the variable or null if there is no such variable
+	 */
+	public final synchronized Operation get(String name)
+	{
+		final Variable variable = variables.get(name);
+		return variable == null ? null : get(variable);
+	}
+
+	/**
+	 * @return the calculated value of the variable, null if the variable has no value or is a function
+	 */
+	public final synchronized Operation get(Variable variable)
+	{
+		if (variable.operandCount() != -1)
+		{
+			return null;
+		}
+		checkVariables();
+		return calculate(getNode(variable));
+	}
+
+	/**
+	 * Recalculates all invalid values in topological order
+	 */
+	public final synchronized void update()
+	{
+		updateScheduled = false;
+		checkVariables();
+		final ArrayList<Node> level = new ArrayList<Node>();
+		int invalid = 0;
+		for (Node node : nodes.values())
+		{
+			if (!node.valid)
+			{
+				++invalid;
+				node.pending = 0;
+				for (Node dependency : node.dependencies)
+				{
+					if (!dependency.valid)
+					{
+						++node.pending;
+					}
+				}
+				if (node.pending == 0)
+				{
+					level.add(node);
+				}
+			}
+		}
+		final ArrayList<Node> next = new ArrayList<Node>();
+		while (!level.isEmpty())
+		{
+			final Node current[] = level.toArray(new Node[level.size()]);
+			if (current.length >= parallelThreshold)
+			{
+				ForkJoinPool.commonPool().invoke(new Task(current, 0, current.length));
+			}
+			else
+			{
+				for (Node node : current)
+				{
+					node.value = calculate(node, control);
+				}
+			}
+			calculationCount += current.length;
+			invalid -= current.length;
+			for (Node node : current)
+			{
+				node.valid = true;
+			}
+			for (Node node : current)
+			{
+				for (Node dependent : node.dependents)
+				{
+					if (!dependent.valid && --dependent.pending == 0)
+					{
+						next.add(dependent);
+					}
+				}
+			}
+			level.clear();
+			level.addAll(next);
+			next.clear();
+		}
+		if (invalid != 0)
+		{
+			//The remaining nodes are on or behind cycles
+			for (Node node : nodes.values())
+			{
+				if (!node.valid)
+				{
+					calculate(node);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the listeners from all variables and forgets the calculated values
+	 */
+	public final synchronized void clear()
+	{
+		for (Node node : nodes.values())
+		{
+			node.variable.removeAllVariableListener(node);
+		}
+		nodes.clear();
+	}
+
+	/**
+	 * @return the number of variable calculations since the creation of the graph
+	 */
+	public final synchronized int getCalculationCount()
+	{
+		return calculationCount;
+	}
+
+	public static final void setParallelThreshold(int threshold)
+	{
+		parallelThreshold = threshold;
+	}
+
+	/**
+	 * @return the number of variables of the same depth from which on they are calculated in parallel
+	 */
+	public static final int getParallelThreshold()
+	{
+		return parallelThreshold;
+	}
+
+	private final Node getNode(Variable variable)
+	{
+		Node node = nodes.get(variable);
+		if (node == null)
+		{
+			node = new Node(variable);
+			nodes.put(variable, node);
+			variable.addVariableListener(node);
+			link(node);
+		}
+		return node;
+	}
+
+	/**
+	 * Connects the node with the nodes of the variables of its current definition
+	 */
+	private final void link(Node node)
+	{
+		for (Node dependency : node.dependencies)
+		{
+			dependency.dependents.remove(node);
+		}
+		final ReadOnlySortedIntegerArrayList ids = node.variable.getPendentVariables();
+		Node dependencies[] = new Node[ids.size()];
+		int count = 0;
+		for (int i = 0; i < ids.size(); ++i)
+		{
+			final Variable variable = variables.getById(ids.getI(i));
+			if (variable != null)
+			{
+				dependencies[count++] = getNode(variable);
+			}
+		}
+		dependencies = count == 0 ? EMPTY_NODE_ARRAY : Arrays.copyOf(dependencies, count);
+		for (Node dependency : dependencies)
+		{
+			dependency.dependents.add(node);
+		}
+		node.dependencies = dependencies;
+	}
+
+	/**
+	 * Variables may have been added, removed or replaced, so all links are checked.
+	 * The mod count of the variables also changes with the values, so a change doesn't imply any invalidation.
+	 */
+	private final void checkVariables()
+	{
+		final int modCount = variables.modCount();
+		if (modCount == variablesModCount)
+		{
+			return;
+		}
+		variablesModCount = modCount;
+		final Node all[] = nodes.values().toArray(new Node[nodes.size()]);
+		for (Node node : all)
+		{
+			if (variables.getById(node.variable.nameId) != node.variable)
+			{
+				//The variable was replaced or removed, the current one gets its own node
+				node.variable.removeAllVariableListener(node);
+				nodes.remove(node.variable);
+				for (Node dependency : node.dependencies)
+				{
+					dependency.dependents.remove(node);
+				}
+				invalidate(node);
+				continue;
+			}
+			final ReadOnlySortedIntegerArrayList ids = node.variable.getPendentVariables();
+			boolean changed = false;
+			int count = 0;
+			for (int i = 0; i < ids.size() && !changed; ++i)
+			{
+				final Variable variable = variables.getById(ids.getI(i));
+				if (variable != null)
+				{
+					changed = count == node.dependencies.length || node.dependencies[count++].variable != variable;
+				}
+			}
+			if (changed || count != node.dependencies.length)
+			{
+				link(node);
+				invalidate(node);
+			}
+		}
+	}
+
+	private final void changed(Node node)
+	{
+		final Executor executor;
+		synchronized(this)
+		{
+			if (nodes.get(node.variable) != node)
+			{
+				return;
+			}
+			link(node);
+			invalidate(node);
+			if ((executor = this.executor) == null || updateScheduled)
+			{
+				return;
+			}
+			updateScheduled = true;
+		}
+		executor.execute(new Runnable() {
+			@Override
+			public void run()
+			{
+				update();
+			}
+		});
+	}
+
+	/**
+	 * Invalidates the node and all nodes which depend on it, the dependents of invalid nodes are always invalid
+	 */
+	private final void invalidate(Node node)
+	{
+		if (!node.valid)
+		{
+			return;
+		}
+		node.valid = false;
+		node.cyclic = false;
+		node.value = null;
+		for (Node dependent : node.dependents)
+		{
+			invalidate(dependent);
+		}
+	}
+
+	/**
+	 * Calculates the node after its dependencies
+	 */
+	private final Operation calculate(Node node)
+	{
+		if (node.valid)
+		{
+			return node.value;
+		}
+		node.calculating = true;
+		try
+		{
+			final boolean function = node.variable.operandCount() != -1;
+			for (Node dependency : node.dependencies)
+			{
+				if (!dependency.calculating)
+				{
+					calculate(dependency);
+				}
+				if (!function && (dependency.calculating || dependency.cyclic))
+				{
+					//Nodes on a cycle and the nodes behind it can't be calculated
+					node.cyclic = true;
+					node.value = new ExceptionOperation("Cyclic definition of " + node.variable.getName());
+					node.valid = true;
+					return node.value;
+				}
+			}
+			node.value = calculate(node, control);
+			++calculationCount;
+		}
+		finally
+		{
+			node.calculating = false;
+		}
+		node.valid = true;
+		return node.value;
+	}
+
+	/**
+	 * Calculates the definition of the node with the cached values of its dependencies
+	 */
+	private final Operation calculate(Node node, CalculationController control)
+	{
+		if (node.variable.operandCount() != -1)
+		{
+			return null;
+		}
+		final VariableStack stack = new VariableStack(node.dependencies.length, variables);
+		for (Node dependency : node.dependencies)
+		{
+			if (dependency.value != null)
+			{
+				stack.setLocal(dependency.variable.nameObject, dependency.value);
+			}
+		}
+		return node.variable.calculate(stack, control);
+	}
+
+	/**
+	 * Calculates nodes of the same depth, their dependencies are valid
+	 */
+	private final class Task extends RecursiveAction
+	{
+		private static final long serialVersionUID = 6283711931785920532L;
+		private final Node level[];
+		private final int from, to;
+
+		private Task(Node level[], int from, int to)
+		{
+			this.level = level;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected final void compute()
+		{
+			if (to - from > 4)
+			{
+				final int middle = (from + to) >>> 1;
+				invokeAll(new Task(level, from, middle), new Task(level, middle, to));
+				return;
+			}
+			final CalculationController control = DependencyGraph.this.control instanceof Controller ? DependencyGraph.this.control : new Controller(DependencyGraph.this.control);
+			for (int i = from; i < to; ++i)
+			{
+				level[i].value = calculate(level[i], control);
+			}
+		}
+	}
+}
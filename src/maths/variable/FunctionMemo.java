@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Paul Stahr
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package maths.variable;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import maths.Operation;
+import maths.UserFunctionOperation;
+import maths.algorithm.OperationCalculate;
+import maths.exception.ExceptionOperation;
+
+/**
+ * Results of a user defined function for primitive arguments, with the least recently used results removed when the capacity is reached.
+ * Results are only stored if the body of the function depends on nothing but the parameters and calls of the function itself, so it doesn't read other variables, create random numbers or do input or output.
+ * The memo listens to its function and is cleared when the definition changes.
+ * @author  Paul Stahr
+ * @version 04.02.2012
+ */
+public final class FunctionMemo implements VariableListener
+{
+	private final Variable function;
+	private final LinkedHashMap<Key, Operation> results;
+	private final int capacity;
+	/**
+	 * 0 if the body wasn't checked since the last change, 1 if it can be memoized and -1 otherwise
+	 */
+	private int memoizable = 0;
+	private long hitCount, missCount;
+
+	/**
+	 * Arguments which are only equal if the types are equal too, because the result for a long could differ from the result for the equal double
+	 */
+	private static final class Key
+	{
+		private final Operation arguments[];
+		private final int hash;
+
+		private Key(Operation arguments[])
+		{
+			this.arguments = arguments;
+			int hash = Arrays.hashCode(arguments);
+			for (Operation op : arguments)
+			{
+				hash = hash * 31 + op.getClass().hashCode();
+			}
+			this.hash = hash;
+		}
+
+		@Override
+		public final int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public final boolean equals(Object o)
+		{
+			if (!(o instanceof Key))
+			{
+				return false;
+			}
+			final Operation other[] = ((Key)o).arguments;
+			if (other.length != arguments.length)
+			{
+				return false;
+			}
+			for (int i = 0; i < arguments.length; ++i)
+			{
+				if (other[i].getClass() != arguments[i].getClass() || !other[i].equals(arguments[i]))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	FunctionMemo(Variable function, final int capacity)
+	{
+		if (capacity <= 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.function = function;
+		this.capacity = capacity;
+		results = new LinkedHashMap<Key, Operation>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected final boolean removeEldestEntry(Map.Entry<Key, Operation> eldest)
+			{
+				return size() > capacity;
+			}
+		};
+	}
+
+	@Override
+	public final synchronized void variableChanged()
+	{
+		results.clear();
+		memoizable = 0;
+	}
+
+	/**
+	 * @return the stored result, or null if it isn't stored or can't be stored
+	 */
+	final synchronized Operation get(Operation arguments[])
+	{
+		if (!isMemoizable(arguments))
+		{
+			return null;
+		}
+		final Operation result = results.get(new Key(arguments));
+		if (result == null)
+		{
+			++missCount;
+		}
+		else
+		{
+			++hitCount;
+		}
+		return result;
+	}
+
+	final synchronized void put(Operation arguments[], Operation result)
+	{
+		if (result.isPrimitive() && !(result instanceof ExceptionOperation) && isMemoizable(arguments))
+		{
+			results.put(new Key(arguments.clone()), result);
+		}
+	}
+
+	private final boolean isMemoizable(Operation arguments[])
+	{
+		if (memoizable == 0)
+		{
+			memoizable = function.getValue() != null && isMemoizable(function.getValue()) ? 1 : -1;
+		}
+		if (memoizable < 0)
+		{
+			return false;
+		}
+		for (Operation op : arguments)
+		{
+			if (!op.isPrimitive())
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the result of the operation only depends on the parameters of the function
+	 */
+	private final boolean isMemoizable(Operation op)
+	{
+		if (op instanceof UserVariableOperation)
+		{
+			final int nameId = ((UserVariableOperation)op).nameId;
+			for (int i = 0; i < function.operandCount(); ++i)
+			{
+				if (function.operand(i).id == nameId)
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+		if (op instanceof UserFunctionOperation && (((UserFunctionOperation)op).nameId != function.nameId || op.size() != function.operandCount()))
+		{
+			return false;
+		}
+		if (OperationCalculate.hasSideEffect(op))
+		{
+			return false;
+		}
+		for (int i = 0; i < op.size(); ++i)
+		{
+			if (!isMemoizable(op.get(i)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public final int getCapacity()
+	{
+		return capacity;
+	}
+
+	public final synchronized int size()
+	{
+		return results.size();
+	}
+
+	public final synchronized long getHitCount()
+	{
+		return hitCount;
+	}
+
+	public final synchronized long getMissCount()
+	{
+		return missCount;
+	}
+
+	public final synchronized void clear()
+	{
+		results.clear();
+	}
+}
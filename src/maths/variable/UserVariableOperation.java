@@ -64,6 +64,28 @@ public final class UserVariableOperation extends Operation
         return control.connectEmptyVariables() ? variable.inserted : this;
     }
 
+	@Override
+	public final double calculateDouble (VariableAmount object, CalculationController control){
+        final Operation erg = getValue(object);
+        return erg == null ? calculate(object, control).doubleValue() : erg.calculateDouble(object, control);
+    }
+
+	@Override
+	public final long calculateLong (VariableAmount object, CalculationController control){
+        final Operation erg = getValue(object);
+        return erg == null ? calculate(object, control).longValue() : erg.calculateLong(object, control);
+    }
+
+	/**
+	 * @return the value of the variable or null if it is not set
+	 */
+	private final Operation getValue(VariableAmount object){
+        if (object == null)
+            return null;
+        final Variable variable = object.getById(nameId);
+        return variable == null ? null : variable.getValue();
+    }
+
 	@Override
 	public final StringBuilder toString(Print type, StringBuilder stringBuilder){
         return stringBuilder.append(nameObject.string);
@@ -88,6 +110,11 @@ public final class UserVariableOperation extends Operation
 	public final boolean equals(Object o){
     	return o instanceof UserVariableOperation && ((UserVariableOperation)o).nameId == nameId;
     }
+
+	@Override
+	public final int hashCode(){
+		return nameId;
+	}
 	
 	@Override
 	public Operation getInstance(List<Operation> subclasses) {
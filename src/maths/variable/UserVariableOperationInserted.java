@@ -70,6 +70,11 @@ public final class UserVariableOperationInserted extends Operation
 	public final boolean equals(Object o){
     	return o instanceof UserVariableOperationInserted && ((UserVariableOperationInserted)o).nameId == nameId;
     }
+
+	@Override
+	public final int hashCode(){
+		return nameId;
+	}
 	
 	@Override
 	public Operation getInstance(List<Operation> subclasses) {
@@ -67,6 +67,10 @@ public final class Variable implements Comparable<Variable>{
     private ReadOnlySortedIntegerArrayList includedVariables = SortedIntegerArrayList.EMPTY_LIST;
     private int includedVariablesChCount = 0;
     public final UserVariableOperationInserted inserted;
+    private static final int MAX_FRAME_POOL_SIZE = 16;
+    private CallFrame frames[];
+    private int frameCount = 0;
+    private volatile FunctionMemo memo;
 
     public Variable(String name){
     	this (name, (Operation)null);
@@ -308,23 +312,90 @@ public final class Variable implements Comparable<Variable>{
     public final Operation calculate(final VariableAmount object, final Operation operandValues[], final CalculationController control){
     	if (value == null || this.operands == null || operandValues.length != this.operands.length)
     		return null;
+    	final Operation arguments[] = new Operation[operandValues.length];
+    	for (int i=0;i<arguments.length;i++)
+    		arguments[i] = operandValues[i].calculate(object, control);
+    	return call(object, arguments, control);
+    }
+
+    /**
+     * Calculates the function with the already calculated arguments as values of the parameters
+     */
+    public final Operation call(VariableAmount object, Operation arguments[], CalculationController control){
+    	final FunctionMemo memo = this.memo;
+    	if (memo != null){
+    		final Operation erg = memo.get(arguments);
+    		if (erg != null)
+    			return erg;
+    	}
+    	final CallFrame frame = acquireFrame(object, arguments);
+    	final Operation erg;
+    	try{
+    		erg = value.calculate(frame, control);
+    	}finally{
+    		releaseFrame(frame);
+    	}
+    	if (memo != null)
+    		memo.put(arguments, erg);
+    	return erg;
+    }
+
+    /**
+     * Stores up to capacity results of this function for primitive arguments, if the body only depends on the parameters
+     * @param capacity the maximal number of stored results, 0 disables the memo
+     */
+    public final synchronized void setMemoCapacity(int capacity){
+    	if (operands == null)
+    		throw new IllegalStateException("Not a function");
+    	if (memo != null){
+    		if (memo.getCapacity() == capacity)
+    			return;
+    		removeVariableListener(memo);
+    		memo = null;
+    	}
+    	if (capacity > 0){
+    		FunctionMemo memo = new FunctionMemo(this, capacity);
+    		addVariableListener(memo);
+    		this.memo = memo;
+    	}
+    }
 
-    	VariableStack stack = new VariableStack(new AbstractList<Variable>() {
-			@Override
-			public Variable get(int index) {
-				return new Variable(operands[index], operandValues[index].calculate(object, control));
-			}
-
-			@Override
-			public int size() {
-				return operandValues.length;
-			}
-		}, object);
+    /**
+     * @return the memo of this function or null if it is disabled
+     */
+    public final FunctionMemo getMemo(){
+    	return memo;
+    }
 
-    	try{
-	    	return value.calculate(stack, control);
-    	}catch(RuntimeException e){
-        	throw e;
+    /**
+     * Returns a frame of the pool, or a new frame if the pool is empty, which binds the parameters to the arguments
+     */
+    public final CallFrame acquireFrame(VariableAmount object, Operation arguments[]){
+    	if (operands == null || arguments.length != operands.length)
+    		throw new IllegalArgumentException();
+    	CallFrame frame = null;
+    	synchronized(this){
+    		if (frameCount > 0){
+    			frame = frames[--frameCount];
+    			frames[frameCount] = null;
+    		}
+    	}
+    	if (frame == null)
+    		frame = new CallFrame(operands);
+    	frame.bind(object, arguments);
+    	return frame;
+    }
+
+    /**
+     * Returns a frame after the call, the frame must not be used afterwards
+     */
+    public final void releaseFrame(CallFrame frame){
+    	frame.release();
+    	synchronized(this){
+    		if (frames == null)
+    			frames = new CallFrame[MAX_FRAME_POOL_SIZE];
+    		if (frameCount < frames.length)
+    			frames[frameCount++] = frame;
     	}
     }
 
@@ -0,0 +1,127 @@
+package test.algorithm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.algorithm.BatchEvaluator;
+import maths.data.RealDoubleOperation;
+import maths.exception.OperationParseException;
+import maths.variable.VariableStack;
+import test.maths.NumericExpressions;
+import util.data.DoubleArrayList;
+
+@RunWith(Parameterized.class)
+public class BatchEvaluatorTest {
+    private static final String VARIABLES[] = {"x", "y", "z"};
+    private static final int ROWS = 0x5000;
+
+    @Parameters
+    public static List<String> params() {
+        return NumericExpressions.get();
+    }
+
+    private final String str;
+
+    public BatchEvaluatorTest(String str) {
+        this.str = str;
+    }
+
+    private static double[][] createColumns()
+    {
+        Random rand = new Random(0);
+        double columns[][] = new double[VARIABLES.length][ROWS];
+        for (double column[] : columns)
+        {
+            for (int i = 0; i < ROWS; ++i)
+            {
+                column[i] = rand.nextDouble() * 4 - 1;
+            }
+        }
+        for (int i = 0; i < ROWS; i += 5)
+        {
+            columns[1][i] = 0;
+        }
+        return columns;
+    }
+
+    private void check(Operation op, double columns[][], double out[])
+    {
+        for (int i = 0; i < ROWS; ++i)
+        {
+            VariableStack stack = new VariableStack();
+            for (int j = 0; j < VARIABLES.length; ++j)
+            {
+                stack.setLocal(VARIABLES[j], new RealDoubleOperation(columns[j][i]));
+            }
+            double expected = op.calculate(stack, new Controller()).doubleValue();
+            assertEquals(str + " row " + i, expected, out[i], Math.abs(expected) * 1e-14);
+        }
+    }
+
+    @Test
+    public void testArrays() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile(str);
+        double columns[][] = createColumns();
+        Map<String, double[]> map = new HashMap<>();
+        for (int i = 0; i < VARIABLES.length; ++i)
+        {
+            map.put(VARIABLES[i], columns[i]);
+        }
+        double out[] = new double[ROWS];
+        BatchEvaluator.evaluate(op, map, out);
+        check(op, columns, out);
+    }
+
+    @Test
+    public void testLists() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile(str);
+        double columns[][] = createColumns();
+        Map<String, DoubleArrayList> map = new HashMap<>();
+        for (int i = 0; i < VARIABLES.length; ++i)
+        {
+            DoubleArrayList list = new DoubleArrayList();
+            for (double value : columns[i])
+            {
+                list.add(value);
+            }
+            map.put(VARIABLES[i], list);
+        }
+        DoubleArrayList out = new DoubleArrayList();
+        BatchEvaluator.evaluate(op, map, out);
+        assertEquals(ROWS, out.size());
+        check(op, columns, out.toArrayD());
+    }
+
+    @Test
+    public void testParallel() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile(str);
+        double columns[][] = createColumns();
+        double out[] = new double[ROWS];
+        int threshold = BatchEvaluator.getParallelThreshold();
+        BatchEvaluator.setParallelThreshold(1);
+        try
+        {
+            new BatchEvaluator(op, VARIABLES).evaluate(columns, out);
+        }
+        finally
+        {
+            BatchEvaluator.setParallelThreshold(threshold);
+        }
+        check(op, columns, out);
+    }
+}
@@ -0,0 +1,58 @@
+package test.algorithm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.algorithm.BytecodeCompiler;
+import maths.algorithm.DoubleFunctionDoubleArray;
+import maths.data.RealDoubleOperation;
+import maths.exception.OperationParseException;
+import maths.variable.VariableStack;
+import test.maths.NumericExpressions;
+
+@RunWith(Parameterized.class)
+public class BytecodeCompilerTest {
+    private static final String VARIABLES[] = {"x", "y", "z"};
+
+    @Parameters
+    public static List<String> params() {
+        return NumericExpressions.get();
+    }
+
+    private final String str;
+
+    public BytecodeCompilerTest(String str) {
+        this.str = str;
+    }
+
+    @Test
+    public void testSameAsInterpreter() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile(str);
+        DoubleFunctionDoubleArray function = BytecodeCompiler.compile(op, VARIABLES);
+        Random rand = new Random(0);
+        double values[] = new double[VARIABLES.length];
+        for (int i = 0; i < 20; ++i)
+        {
+            VariableStack stack = new VariableStack();
+            for (int j = 0; j < values.length; ++j)
+            {
+                values[j] = VARIABLES[j].equals("y") && i % 5 == 0 ? 0 : rand.nextDouble() * 4 - 1;
+                stack.setLocal(VARIABLES[j], new RealDoubleOperation(values[j]));
+            }
+            double expected = op.calculate(stack, new Controller()).doubleValue();
+            assertEquals(str + ' ' + Arrays.toString(values), expected, function.apply(values), Math.abs(expected) * 1e-14);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package test.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.algorithm.CommonSubexpressions;
+import maths.data.RealDoubleOperation;
+import maths.exception.OperationParseException;
+import maths.functions.LetOperation;
+import maths.functions.atomic.AdditionOperation;
+import maths.functions.hyperbolic.SinusOperation;
+import maths.variable.UserVariableOperation;
+import maths.variable.VariableStack;
+import test.maths.NumericExpressions;
+
+@RunWith(Parameterized.class)
+public class CommonSubexpressionsTest {
+    @Parameters
+    public static List<String> params() {
+        return Arrays.asList(
+            "diff(sin(x*y)^3*cos(x*y),x)", "diff(diff(sin(x*y)^3*cos(x*y)/(1+x^2*y^2),x),y)", "diff(exp(x*y)*sin(x)/(x+y),x)",
+            "(x+y)*(x+y)-sin(x+y)", "sum(i*x,{i,1,3})+sum(i*x,{i,1,3})*(x+y)*(x+y)", "x", "2");
+    }
+
+    private final String str;
+
+    public CommonSubexpressionsTest(String str) {
+        this.str = str;
+    }
+
+    @Test
+    public void testSameAsCalculate() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile(str).calculate(null, NumericExpressions.createController());
+        CommonSubexpressions cse = new CommonSubexpressions(op);
+        Operation result = cse.getResult();
+        assertEquals(str, cse.getTemporaryCount() != 0, result instanceof LetOperation);
+        assertEquals(str, op, result instanceof LetOperation ? ((LetOperation)result).expand() : result);
+        assertEquals(str, op.toString(), result.toString());
+        for (int i = 0; i < NumericExpressions.POINTS; ++i)
+        {
+            VariableStack stack = NumericExpressions.createStack(i);
+            double expected = op.calculate(stack, NumericExpressions.createController()).doubleValue();
+            assertEquals(str, expected, result.calculate(stack, NumericExpressions.createController()).doubleValue(), Math.abs(expected) * 1e-14);
+            assertEquals(str, expected, result.calculateDouble(stack, NumericExpressions.createController()), Math.abs(expected) * 1e-14);
+        }
+    }
+
+    @Test
+    public void testLargeSharedTree()
+    {
+        //The tree has 3 * 2^20 - 2 nodes but only 41 distinct ones
+        Operation op = new UserVariableOperation("x");
+        for (int i = 0; i < 20; ++i)
+        {
+            op = new AdditionOperation(new SinusOperation(op), op);
+        }
+        CommonSubexpressions cse = new CommonSubexpressions(op);
+        assertEquals(3 * (1 << 20) - 2 - 41, cse.getEliminatedCount());
+        assertEquals(19, cse.getTemporaryCount());
+        assertTrue(cse.getResult() instanceof LetOperation);
+        assertEquals(op, ((LetOperation)CommonSubexpressions.eliminate(op)).expand());
+    }
+
+    @Test
+    public void testVariableNamedLikeTemporary() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile("_cse0+sin(x)*sin(x)");
+        Operation result = CommonSubexpressions.eliminate(op);
+        assertTrue(result instanceof LetOperation);
+        VariableStack stack = new VariableStack();
+        stack.setLocal("x", new RealDoubleOperation(0.5));
+        stack.setLocal("_cse0", new RealDoubleOperation(100));
+        double expected = 100 + Math.sin(0.5) * Math.sin(0.5);
+        assertEquals(expected, op.calculate(stack, NumericExpressions.createController()).doubleValue(), 1e-12);
+        assertEquals(expected, result.calculate(stack, NumericExpressions.createController()).doubleValue(), 1e-12);
+        assertEquals(expected, result.calculateDouble(stack, NumericExpressions.createController()), 1e-12);
+    }
+}
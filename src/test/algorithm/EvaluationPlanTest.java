@@ -0,0 +1,106 @@
+package test.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.algorithm.EvaluationPlan;
+import maths.data.ArrayOperation;
+import maths.data.BooleanOperation;
+import maths.data.ComplexDoubleOperation;
+import maths.data.ComplexLongOperation;
+import maths.data.RealDoubleOperation;
+import maths.data.RealLongOperation;
+import maths.data.RealRationalOperation;
+import maths.data.StringOperation;
+import maths.exception.OperationParseException;
+import maths.variable.VariableStack;
+
+@RunWith(Parameterized.class)
+public class EvaluationPlanTest {
+    private static final String VARIABLES[] = {"x", "y", "z"};
+    private static final Operation VALUES[][] = {
+        {new RealLongOperation(3), new RealLongOperation(-7), new RealLongOperation(2)},
+        {new RealDoubleOperation(0.25), new RealDoubleOperation(1.5), new RealDoubleOperation(-2)},
+        {RealRationalOperation.getInstance(1, 3), RealRationalOperation.getInstance(-2, 5), new RealLongOperation(4)},
+        {ComplexDoubleOperation.get(1.5, -2), ComplexLongOperation.get(2, 3), new RealDoubleOperation(0.5)},
+        {new ArrayOperation(new long[] {1, 2, 3}), new ArrayOperation(new long[] {4, 5, 6}), new RealLongOperation(2)},
+        {BooleanOperation.get(true), BooleanOperation.get(false), BooleanOperation.get(true)},
+        {new StringOperation("ab"), new StringOperation("cd"), new RealLongOperation(1)},
+        {new RealLongOperation(5), null, new RealDoubleOperation(0.5)}};
+
+    @Parameters
+    public static List<String> params() {
+        return Arrays.asList(
+            "sin(x)*exp(-y^2)+x/y", "x²+sqrt(y)-cbrt(x)", "x^-1+1/3+atan2(x,y)", "min(x,y)-max(y,z)", "abs(x-y)*log(y)", "2", "x", "-x", "ℯ^x", "x^y", "x⁻¹",
+            "sinh(x)+cosh(y)+tanh(x)", "acos(0.3)+asin(0.2)+atan(y)+tan(x)", "cos(x)*π", "((x+y)*(y+z))/(x-z)", "x<y", "x≤y", "x>y", "x≥y", "x=y", "¬x", "x˄y˅z",
+            "f(x)+x", "w+x", "if(x<y,x,y)*z", "x+if(x<y,x,y)", "sum(x*i,{i,1,3})", "x[1]", "{x,y,z}", "round(x)+z");
+    }
+
+    private final String str;
+
+    public EvaluationPlanTest(String str) {
+        this.str = str;
+    }
+
+    private static String evaluate(EvaluationPlan plan, Operation values[])
+    {
+        try
+        {
+            return plan.evaluate(values, new Controller()).toString();
+        }
+        catch (RuntimeException e)
+        {
+            return e.getClass().getName();
+        }
+    }
+
+    private static String interpret(Operation op, Operation values[])
+    {
+        VariableStack stack = new VariableStack();
+        for (int i = 0; i < values.length; ++i)
+        {
+            if (values[i] != null)
+            {
+                stack.setLocal(VARIABLES[i], values[i]);
+            }
+        }
+        try
+        {
+            return op.calculate(stack, new Controller()).toString();
+        }
+        catch (RuntimeException e)
+        {
+            return e.getClass().getName();
+        }
+    }
+
+    @Test
+    public void testSameAsInterpreter() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile(str);
+        EvaluationPlan plan = new EvaluationPlan(op, VARIABLES);
+        for (Operation values[] : VALUES)
+        {
+            assertEquals(str + ' ' + Arrays.toString(values), interpret(op, values), evaluate(plan, values));
+        }
+    }
+
+    @Test
+    public void testInterpreted() throws OperationParseException
+    {
+        assertFalse(new EvaluationPlan(OperationCompiler.compile("sin(x)*y+z"), VARIABLES).isInterpreted());
+        assertTrue(new EvaluationPlan(OperationCompiler.compile("sum(x*i,{i,1,3})"), VARIABLES).isInterpreted());
+    }
+}
@@ -0,0 +1,98 @@
+package test.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.algorithm.LoopInvariants;
+import maths.data.RealLongOperation;
+import maths.exception.OperationParseException;
+import maths.variable.Variable;
+import maths.variable.VariableStack;
+import test.maths.NumericExpressions;
+
+public class LoopInvariantsTest {
+    private static VariableStack createStack() throws OperationParseException
+    {
+        VariableStack stack = new VariableStack();
+        stack.add(new Variable("a", 3));
+        stack.add(new Variable("b", 2));
+        stack.add(new Variable("c", "a*b"));
+        stack.add(new Variable("d", "s+1"));
+        stack.add(new Variable("s", 0));
+        return stack;
+    }
+
+    private static String hoist(String ... parts) throws OperationParseException
+    {
+        Operation ops[] = new Operation[parts.length];
+        for (int i = 0; i < parts.length; ++i)
+        {
+            ops[i] = OperationCompiler.compile(parts[i]);
+        }
+        Operation hoisted[] = LoopInvariants.hoist(createStack(), NumericExpressions.createController(), ops);
+        StringBuilder strB = new StringBuilder();
+        for (Operation op : hoisted)
+        {
+            strB.append(op).append(';');
+        }
+        return strB.toString();
+    }
+
+    @Test
+    public void testHoisted() throws OperationParseException
+    {
+        assertEquals("i<10;s+i*5+2→s;", hoist("i<10", "s+i*(a+b)+(a-1)→s"));
+        assertEquals("i<10;s+i+18→s;", hoist("i<10", "s+i+sum(k*a,{k,1,3})→s"));
+        assertEquals("i<10;s+i*6+6→s;", hoist("i<10", "s+i*c+c→s"));
+    }
+
+    @Test
+    public void testAssignedNotHoisted() throws OperationParseException
+    {
+        assertEquals("i<10;s+a*2→s;a+1→a;", hoist("i<10", "s+a*b→s", "a+1→a"));
+        assertEquals("i<10;s+d*2→s;", hoist("i<10", "s+d*2→s"));
+        assertEquals("i<10;s+sum(k*3+i,{k,1,3})→s;", hoist("i<10", "s+sum(k*a+i,{k,1,3})→s"));
+    }
+
+    @Test
+    public void testSideEffectsUnchanged() throws OperationParseException
+    {
+        Operation parts[] = {OperationCompiler.compile("i<10"), OperationCompiler.compile("s+rand()*(a*b)→s")};
+        assertSame(parts, LoopInvariants.hoist(createStack(), NumericExpressions.createController(), parts));
+    }
+
+    @Test
+    public void testLoops() throws OperationParseException
+    {
+        VariableStack stack = createStack();
+        OperationCompiler.compile("for(0→i,i<10,i+1→i,s+i*(a+b)+sum(k*a+i,{k,1,3})→s)").calculate(stack, NumericExpressions.createController());
+        assertEquals(new RealLongOperation(225 + 180 + 135), stack.get("s").getValue());
+        stack.add(new Variable("j", 0));
+        stack.get("s").setValue(0);
+        OperationCompiler.compile("while(j<a*b,(j+1→j)+(s+j*(a+b)→s))").calculate(stack, NumericExpressions.createController());
+        assertEquals(new RealLongOperation(6), stack.get("j").getValue());
+        assertEquals(new RealLongOperation(105), stack.get("s").getValue());
+        assertFalse(stack.get("i") != null);
+        assertTrue(stack.get("a").getValue().equals(new RealLongOperation(3)));
+    }
+
+    @Test
+    public void testAssignedByFunction() throws OperationParseException
+    {
+        VariableStack stack = new VariableStack();
+        stack.add(new Variable("g", 1));
+        stack.add(new Variable("s", 0));
+        stack.add(new Variable("i", 0));
+        stack.add(new Variable("f", "x→g", new String[] {"x"}));
+        OperationCompiler.compile("while(i<3,{f(i+10),s+g→s,i+1→i})").calculate(stack, NumericExpressions.createController());
+        assertEquals(new RealLongOperation(33), stack.get("s").getValue());
+        Operation parts[] = {OperationCompiler.compile("i<3"), OperationCompiler.compile("s+h(i)+g*2→s")};
+        assertSame(parts, LoopInvariants.hoist(stack, NumericExpressions.createController(), parts));
+    }
+}
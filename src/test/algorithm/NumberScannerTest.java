@@ -0,0 +1,76 @@
+package test.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.algorithm.NumberScanner;
+import maths.exception.OperationParseException;
+
+@RunWith(Parameterized.class)
+public class NumberScannerTest {
+    @Parameters
+    public static List<String> params() {
+        return Arrays.asList(
+            "0", "1", "-1", "+1", "42", " 42 ", "\t-7", "007", "-0", "9223372036854775807", "-9223372036854775808", "9223372036854775808", "99999999999999999999",
+            "0.0", "-0.0", "1.5", "-5.5", "1.", "3.14159", "0.1", "0.000123", "123456789.123456789", "1e5", "-1e5", "1E-5", "2.5e+10", "1e22", "1e23", "1e-22", "1e-400", "1e400", "1e-320", "123456789012345678e-300", "9007199254740993", "9007199254740993.0",
+            "0.30000000000000004", "4.9e-324", "1.7976931348623157e308", "12345678901234567890.5");
+    }
+
+    private final String str;
+
+    public NumberScannerTest(String str) {
+        this.str = str;
+    }
+
+    @Test
+    public void testSameAsCompiler() throws OperationParseException
+    {
+        Operation op = new NumberScanner().parse(str.toCharArray(), 0, str.length());
+        Operation expected = OperationCompiler.compile(str);
+        assertEquals(str, expected.getClass(), op.getClass());
+        assertEquals(str, expected, op);
+        assertEquals(str, Double.doubleToLongBits(expected.doubleValue()), Double.doubleToLongBits(op.doubleValue()));
+    }
+
+    @Test
+    public void testNoNumber()
+    {
+        NumberScanner scanner = new NumberScanner();
+        for (String s : new String[] {"", " ", "-", "x", "1x", "0x1F", "1e", "1e+", ".5", "-.5", "1.5.3", "1 2", "1d", "NaN", "Infinity", "--1", "1-2"})
+        {
+            assertNull(s, scanner.parse(s.toCharArray(), 0, s.length()));
+            assertEquals(s, NumberScanner.NONE, scanner.getType());
+        }
+    }
+
+    @Test
+    public void testRandomDoubles()
+    {
+        NumberScanner scanner = new NumberScanner();
+        Random rand = new Random(0);
+        for (int i = 0; i < 200000; ++i)
+        {
+            String s;
+            switch (i % 4)
+            {
+                case 0: s = Double.toString(Math.round(rand.nextDouble() * 1e6) / 1e3); break;
+                case 1: s = Double.toString(rand.nextDouble() * Math.pow(10, rand.nextInt(600) - 300)); break;
+                case 2: s = Double.toString(Double.longBitsToDouble(rand.nextLong() & 0x7FEFFFFFFFFFFFFFL)); break;
+                default: s = (rand.nextLong() >>> 11) + "e" + (rand.nextInt(700) - 350);
+            }
+            assertEquals(s, NumberScanner.DOUBLE, scanner.scan(s.toCharArray(), 0, s.length()));
+            assertEquals(s, Double.doubleToLongBits(Double.parseDouble(s)), Double.doubleToLongBits(scanner.doubleValue()));
+        }
+    }
+}
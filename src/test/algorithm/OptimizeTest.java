@@ -0,0 +1,82 @@
+package test.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.algorithm.OperationCalculate;
+import maths.exception.OperationParseException;
+import maths.variable.VariableStack;
+import test.maths.NumericExpressions;
+
+@RunWith(Parameterized.class)
+public class OptimizeTest {
+    @Parameters
+    public static List<String[]> params() {
+        return Arrays.asList(new String[][] {
+            {"x+0", "x"},
+            {"x*1+0*y", "x+0*y"},
+            {"x^1", "x"},
+            {"x-0", "x"},
+            {"x/x+x-x+0*x+0/x", "x/x+x-x+0*x+0/x"},
+            {"(2+3)*x", "5*x"},
+            {"sin(0)+cos(0)*x", "0.0+1.0*x"},
+            {"y+x+1-1", null},
+            {"(1+2)/(3+4)*x+y*(6-6)", null},
+            {"sum(i*x*(1+1),{i,1,3})", null},
+            {"tan(x*(2-1))+atan(0)", "tan(x)+0.0"},
+            {"{x+0,2*3}", "{x,6}"},
+            {"rand()-rand()+(1+1)", "rand()-rand()+2"},
+            {"sin(x*y)^3*cos(x*y)/(1+x^2*y^2)", null}});
+    }
+
+    private final String str, expected;
+
+    public OptimizeTest(String str, String expected) {
+        this.str = str;
+        this.expected = expected;
+    }
+
+    @Test
+    public void testSameAsCalculate() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile(str);
+        Operation optimized = OperationCalculate.optimize(op);
+        if (expected != null)
+        {
+            assertEquals(str, expected, optimized.toString());
+        }
+        assertTrue(str, OperationCalculate.nodeCount(optimized) <= OperationCalculate.nodeCount(op));
+        //x/x, x-x and 0*x aren't folded, because they are undefined at x=0
+        for (int i = 0; i < NumericExpressions.POINTS; ++i)
+        {
+            VariableStack stack = NumericExpressions.createStack(i);
+            Operation value = op.calculate(stack, NumericExpressions.createController()), optimizedValue = optimized.calculate(stack, NumericExpressions.createController());
+            if (value.isArray())
+            {
+                assertEquals(str, value, optimizedValue);
+            }
+            else
+            {
+                //Folded constants can be rounded differently
+                assertEquals(str, value.doubleValue(), optimizedValue.doubleValue(), Math.abs(value.doubleValue()) * 1e-14);
+            }
+        }
+    }
+
+    @Test
+    public void testIdempotent() throws OperationParseException
+    {
+        Operation optimized = OperationCalculate.optimize(OperationCompiler.compile(str));
+        assertEquals(str, optimized, OperationCalculate.optimize(optimized));
+    }
+}
@@ -0,0 +1,115 @@
+package test.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.algorithm.OperationIterator;
+import maths.algorithm.ParallelIteration;
+import maths.data.RealLongOperation;
+import maths.exception.OperationParseException;
+import maths.variable.Variable;
+import maths.variable.VariableAmount;
+import maths.variable.VariableStack;
+
+public class ParallelIterationTest {
+    private static final String EXPRESSIONS[] = {
+        "sum(k*k+a,{k,1,20000})", "sum(k,{k,5,20005,3})", "sum(1/k,{k,1,20000})", "prod(-1,{k,1,9999})", "prod(1+1/k^2,{k,1,20000})",
+        "list(k^2-a,{k,1,20000})", "sum(sum(j*k,{j,1,3}),{k,1,20000})", "sum(f(k),{k,1,20000})", "sum(1,{20000})"};
+
+    private static VariableStack createStack() throws OperationParseException
+    {
+        VariableStack stack = new VariableStack();
+        stack.add(new Variable("a", 3));
+        stack.add(new Variable("f", "n*2-1", new String[] {"n"}));
+        return stack;
+    }
+
+    private static Operation calculate(String expression, long threshold) throws OperationParseException
+    {
+        Controller control = new Controller();
+        control.calculateLoop(true);
+        long old = ParallelIteration.getParallelThreshold();
+        ParallelIteration.setParallelThreshold(threshold);
+        try
+        {
+            return OperationCompiler.compile(expression).calculate(createStack(), control);
+        }
+        finally
+        {
+            ParallelIteration.setParallelThreshold(old);
+        }
+    }
+
+    @Test
+    public void testSameAsSequential() throws OperationParseException
+    {
+        for (String expression : EXPRESSIONS)
+        {
+            Operation sequential = calculate(expression, Long.MAX_VALUE);
+            Operation parallel = calculate(expression, 1);
+            if (sequential.isRealFloatingNumber() && !sequential.isIntegral())
+            {
+                assertEquals(expression, sequential.doubleValue(), parallel.doubleValue(), Math.abs(sequential.doubleValue()) * 1e-12);
+            }
+            else
+            {
+                assertEquals(expression, sequential, parallel);
+            }
+            assertEquals(expression, parallel, calculate(expression, 1));
+        }
+    }
+
+    @Test
+    public void testDoubleSum() throws OperationParseException
+    {
+        Controller control = new Controller();
+        control.calculateLoop(true);
+        Operation op = OperationCompiler.compile("sum(1/k,{k,1,20000})");
+        long old = ParallelIteration.getParallelThreshold();
+        ParallelIteration.setParallelThreshold(1);
+        try
+        {
+            double parallel = op.calculateDouble(createStack(), control);
+            assertEquals(parallel, op.calculateDouble(createStack(), control), 0);
+            assertEquals(calculate("sum(1/k,{k,1,20000})", Long.MAX_VALUE).doubleValue(), parallel, 1e-12);
+        }
+        finally
+        {
+            ParallelIteration.setParallelThreshold(old);
+        }
+    }
+
+    private static boolean isParallel(String body, VariableAmount va) throws OperationParseException
+    {
+        OperationIterator oi = new OperationIterator(OperationCompiler.compile("{k,1,100000}").calculate(null, new Controller())) {
+            @Override
+            protected void calculate(VariableAmount va, long i) {}
+
+            @Override
+            public Operation getErg() {return null;}
+        };
+        return ParallelIteration.isParallel(oi, OperationCompiler.compile(body), va);
+    }
+
+    @Test
+    public void testSideEffectsSequential() throws OperationParseException
+    {
+        VariableStack stack = createStack();
+        stack.add(new Variable("g", "n+rand()", new String[] {"n"}));
+        stack.add(new Variable("r", "rand()"));
+        stack.add(new Variable("h", "if(n<2,n,h(n-1))", new String[] {"n"}));
+        assertTrue(isParallel("k*a", stack));
+        assertTrue(isParallel("f(k)+h(k)", stack));
+        assertFalse(isParallel("k+rand()", stack));
+        assertFalse(isParallel("g(k)", stack));
+        assertFalse(isParallel("k*r", stack));
+        assertFalse(isParallel("k→b", stack));
+        assertEquals(new RealLongOperation(20000), calculate("sum(1,{k,1,20000})", 1));
+    }
+}
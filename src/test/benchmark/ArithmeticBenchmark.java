@@ -0,0 +1,85 @@
+package test.benchmark;
+
+import java.util.Random;
+
+import maths.Controller;
+import maths.Operation;
+import maths.data.ComplexDoubleOperation;
+import maths.data.ComplexLongOperation;
+import maths.data.RealDoubleOperation;
+import maths.data.RealLongOperation;
+import maths.data.RealRationalOperation;
+import maths.functions.atomic.AdditionOperation;
+import maths.functions.atomic.DivisionOperation;
+import maths.functions.atomic.LowerOperation;
+import maths.functions.atomic.MultiplicationOperation;
+import maths.functions.atomic.PowerOperation;
+import maths.functions.atomic.SubtractionOperation;
+
+/**
+ * Measures the throughput of the binary arithmetic operations for operands of mixed number types.
+ */
+public class ArithmeticBenchmark {
+    private static final int PAIRS = 10000;
+
+    private static Operation createNumber(Random rand)
+    {
+        switch (rand.nextInt(5))
+        {
+            case 0:  return new RealLongOperation(rand.nextInt(100) + 1);
+            case 1:  return RealRationalOperation.getInstance(rand.nextInt(100) + 1, rand.nextInt(100) + 2);
+            case 2:  return new RealDoubleOperation(rand.nextDouble() + 0.5);
+            case 3:  return ComplexLongOperation.get(rand.nextInt(100) + 1, rand.nextInt(100) + 1);
+            default: return ComplexDoubleOperation.get(rand.nextDouble(), rand.nextDouble() + 0.5);
+        }
+    }
+
+    private interface BinaryOperation
+    {
+        public Operation calculate(Operation a, Operation b);
+    }
+
+    public static void main(String args[]) throws Exception
+    {
+        final Random rand = new Random(0);
+        final Operation a[] = new Operation[PAIRS], b[] = new Operation[PAIRS], mixed[] = new Operation[PAIRS], doubles[] = new Operation[PAIRS];
+        for (int i = 0; i < PAIRS; ++i)
+        {
+            a[i] = createNumber(rand);
+            b[i] = createNumber(rand);
+            mixed[i] = rand.nextBoolean() ? new RealLongOperation(rand.nextInt(100) + 1) : new RealDoubleOperation(rand.nextDouble() + 0.5);
+            doubles[i] = new RealDoubleOperation(rand.nextDouble() + 0.5);
+        }
+        final Controller control = new Controller();
+        final String names[] = {"addition", "subtraction", "multiplication", "division", "power", "lower"};
+        final BinaryOperation operations[] = {
+            new BinaryOperation() {@Override public Operation calculate(Operation a, Operation b) {return AdditionOperation.calculate(a, b, control);}},
+            new BinaryOperation() {@Override public Operation calculate(Operation a, Operation b) {return SubtractionOperation.calculate(a, b, control);}},
+            new BinaryOperation() {@Override public Operation calculate(Operation a, Operation b) {return MultiplicationOperation.calculate(a, b, control);}},
+            new BinaryOperation() {@Override public Operation calculate(Operation a, Operation b) {return DivisionOperation.calculate(a, b, control);}},
+            new BinaryOperation() {@Override public Operation calculate(Operation a, Operation b) {return PowerOperation.calculate(a, b, control);}},
+            new BinaryOperation() {@Override public Operation calculate(Operation a, Operation b) {return LowerOperation.calculate(a, b);}}};
+        for (int i = 0; i < operations.length; ++i)
+        {
+            final BinaryOperation operation = operations[i];
+            Benchmark.print(names[i] + ", all number types", Benchmark.measure(new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    for (int j = 0; j < PAIRS; ++j)
+                    {
+                        Benchmark.consume(operation.calculate(a[j], b[j]));
+                    }
+                }
+            }));
+            Benchmark.print(names[i] + ", long and double", Benchmark.measure(new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    for (int j = 0; j < PAIRS; ++j)
+                    {
+                        Benchmark.consume(operation.calculate(mixed[j], doubles[j]));
+                    }
+                }
+            }));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package test.benchmark;
+
+import java.util.Locale;
+
+/**
+ * Minimal timing harness for the benchmarks in this package, each benchmark is a class with a main method.
+ * The task is run until the warmup time has passed, afterwards the average time of the measured runs is reported.
+ */
+public final class Benchmark {
+    public static interface Task {
+        public void run() throws Exception;
+    }
+
+    private static volatile Object sink;
+
+    private Benchmark(){}
+
+    /**
+     * Keeps the result of a benchmark task alive, so that the computation can't be eliminated
+     */
+    public static final void consume(Object o)
+    {
+        sink = o;
+    }
+
+    /**
+     * @return the average time of one run in nanoseconds
+     */
+    public static final double measure(Task task, long warmupMillis, long measureMillis) throws Exception
+    {
+        long end = System.nanoTime() + warmupMillis * 1000000;
+        while (System.nanoTime() < end)
+        {
+            task.run();
+        }
+        long runs = 0;
+        final long begin = System.nanoTime();
+        end = begin + measureMillis * 1000000;
+        long time;
+        do
+        {
+            task.run();
+            ++runs;
+        }while ((time = System.nanoTime()) < end);
+        return (double)(time - begin) / runs;
+    }
+
+    public static final double measure(Task task) throws Exception
+    {
+        return measure(task, 1000, 2000);
+    }
+
+    public static final void print(String name, double nanos)
+    {
+        System.out.println(String.format(Locale.ENGLISH, "%-40s %14.1f ns/op", name, nanos));
+    }
+
+    public static final void print(String name, double nanos, long bytes)
+    {
+        System.out.println(String.format(Locale.ENGLISH, "%-40s %14.1f ns/op %10.2f MB/s", name, nanos, bytes * 1000. / nanos));
+    }
+}
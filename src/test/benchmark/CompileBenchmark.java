@@ -0,0 +1,46 @@
+package test.benchmark;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import maths.OperationCompiler;
+import test.maths.ExpressionGenerator;
+
+/**
+ * Measures the parse throughput of {@link OperationCompiler#compile(CharSequence)} for machine generated expressions of different length and for long command lists.
+ */
+public class CompileBenchmark {
+    public static void main(String args[]) throws Exception
+    {
+        final Random rand = new Random(0);
+        for (int length : new int[] {100, 1000, 10000, 50000})
+        {
+            final String expression = ExpressionGenerator.createExpression(length, rand);
+            Benchmark.print("compile " + expression.length() + " chars", Benchmark.measure(new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {Benchmark.consume(OperationCompiler.compile(expression));}
+            }), expression.length());
+        }
+        final StringBuilder strB = new StringBuilder();
+        while (strB.length() < 1000000)
+        {
+            strB.append(ExpressionGenerator.createExpression(20 + rand.nextInt(200), rand)).append(";\n");
+        }
+        strB.setLength(strB.length() - 2);
+        final String commands = strB.toString();
+        final int threshold = OperationCompiler.getParallelThreshold();
+        for (final boolean parallel : new boolean[] {false, true})
+        {
+            OperationCompiler.setParallelThreshold(parallel ? threshold : Integer.MAX_VALUE);
+            Benchmark.print("compile commands " + commands.length() + " chars" + (parallel ? ", parallel" : ""), Benchmark.measure(new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {Benchmark.consume(OperationCompiler.compile(commands));}
+            }), commands.length());
+        }
+        OperationCompiler.setParallelThreshold(threshold);
+        Benchmark.print("compile commands " + commands.length() + " chars, reader", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {Benchmark.consume(OperationCompiler.compile(new StringReader(commands)));}
+        }), commands.length());
+    }
+}
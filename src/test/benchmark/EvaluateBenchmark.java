@@ -0,0 +1,173 @@
+package test.benchmark;
+
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.algorithm.BatchEvaluator;
+import maths.algorithm.BytecodeCompiler;
+import maths.algorithm.CommonSubexpressions;
+import maths.algorithm.DoubleFunctionDoubleArray;
+import maths.algorithm.EvaluationPlan;
+import maths.algorithm.OperationCalculate;
+import maths.algorithm.ParallelIteration;
+import maths.data.RealDoubleOperation;
+import maths.variable.Variable;
+import maths.variable.VariableStack;
+
+/**
+ * Compares the interpreter and its primitive path with the evaluation plan, the bytecode compiler and the batch evaluator for the evaluation of a formula at many points.
+ * Measures the interpreter for a derivative with repeated subexpressions before and after the elimination of common subexpressions
+ * and for a formula with constant subtrees and identities before and after {@link OperationCalculate#optimize(Operation)}.
+ */
+public class EvaluateBenchmark {
+    private static final int POINTS = 10000;
+
+    public static void main(String args[]) throws Exception
+    {
+        final Operation op = OperationCompiler.compile("sin(x)*exp(-y^2)+x/y");
+        final String variables[] = {"x", "y"};
+        final DoubleFunctionDoubleArray function = BytecodeCompiler.compile(op, variables);
+        final EvaluationPlan plan = new EvaluationPlan(op, variables);
+        final Controller control = new Controller();
+        Benchmark.print("interpreter, " + POINTS + " points", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                final VariableStack stack = new VariableStack();
+                double sum = 0;
+                for (int i = 0; i < POINTS; ++i)
+                {
+                    stack.setLocal(variables[0], new RealDoubleOperation(i * 0.001));
+                    stack.setLocal(variables[1], new RealDoubleOperation(1 + i * 0.002));
+                    sum += op.calculate(stack, control).doubleValue();
+                }
+                Benchmark.consume(sum);
+            }
+        }));
+        Benchmark.print("calculateDouble, " + POINTS + " points", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                final VariableStack stack = new VariableStack();
+                double sum = 0;
+                for (int i = 0; i < POINTS; ++i)
+                {
+                    stack.setLocal(variables[0], new RealDoubleOperation(i * 0.001));
+                    stack.setLocal(variables[1], new RealDoubleOperation(1 + i * 0.002));
+                    sum += op.calculateDouble(stack, control);
+                }
+                Benchmark.consume(sum);
+            }
+        }));
+        Benchmark.print("plan, " + POINTS + " points", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                final Operation values[] = new Operation[2];
+                double sum = 0;
+                for (int i = 0; i < POINTS; ++i)
+                {
+                    values[0] = new RealDoubleOperation(i * 0.001);
+                    values[1] = new RealDoubleOperation(1 + i * 0.002);
+                    sum += plan.evaluate(values, control).doubleValue();
+                }
+                Benchmark.consume(sum);
+            }
+        }));
+        Benchmark.print("bytecode, " + POINTS + " points", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                final double values[] = new double[2];
+                double sum = 0;
+                for (int i = 0; i < POINTS; ++i)
+                {
+                    values[0] = i * 0.001;
+                    values[1] = 1 + i * 0.002;
+                    sum += function.apply(values);
+                }
+                Benchmark.consume(sum);
+            }
+        }));
+        final BatchEvaluator batch = new BatchEvaluator(op, variables);
+        final double columns[][] = new double[2][POINTS], out[] = new double[POINTS];
+        for (int i = 0; i < POINTS; ++i)
+        {
+            columns[0][i] = i * 0.001;
+            columns[1][i] = 1 + i * 0.002;
+        }
+        Benchmark.print("batch, " + POINTS + " points", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                batch.evaluate(columns, out);
+                Benchmark.consume(out[POINTS - 1]);
+            }
+        }));
+        Benchmark.print("compile to bytecode", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {Benchmark.consume(BytecodeCompiler.compile(op, variables));}
+        }));
+        final Controller loopControl = new Controller();
+        loopControl.calculateLoop(true);
+        final Operation derivative = OperationCompiler.compile("diff(diff(sin(x*y)^3*cos(x*y)/(1+x^2*y^2),x),y)").calculate(null, loopControl);
+        final CommonSubexpressions cse = new CommonSubexpressions(derivative);
+        System.out.println("derivative: " + cse.getEliminatedCount() + " nodes eliminated, " + cse.getTemporaryCount() + " temporaries");
+        for (final Operation current : new Operation[] {derivative, cse.getResult()})
+        {
+            Benchmark.print((current == derivative ? "derivative" : "derivative after cse") + ", " + POINTS / 10 + " points", Benchmark.measure(new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    final VariableStack stack = new VariableStack();
+                    double sum = 0;
+                    for (int i = 0; i < POINTS / 10; ++i)
+                    {
+                        stack.setLocal(variables[0], new RealDoubleOperation(i * 0.001));
+                        stack.setLocal(variables[1], new RealDoubleOperation(1 + i * 0.002));
+                        sum += current.calculate(stack, control).doubleValue();
+                    }
+                    Benchmark.consume(sum);
+                }
+            }));
+        }
+        final Operation formula = OperationCompiler.compile("(2*3+1)/7*sin(x*(1+0))*exp(-(y^1)^2*(4-3))+x/(y*1)+sqrt(2)*0+log(exp(1))*x^2");
+        for (final Operation current : new Operation[] {formula, OperationCalculate.optimize(formula)})
+        {
+            Benchmark.print((current == formula ? "formula" : "optimized formula") + ", " + POINTS + " points", Benchmark.measure(new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    final VariableStack stack = new VariableStack();
+                    double sum = 0;
+                    for (int i = 0; i < POINTS; ++i)
+                    {
+                        stack.setLocal(variables[0], new RealDoubleOperation(i * 0.001));
+                        stack.setLocal(variables[1], new RealDoubleOperation(1 + i * 0.002));
+                        sum += current.calculate(stack, control).doubleValue();
+                    }
+                    Benchmark.consume(sum);
+                }
+            }));
+        }
+        final VariableStack functions = new VariableStack();
+        functions.add(new Variable("fib", "if(n<2,n,fib(n-1)+fib(n-2))", new String[] {"n"}));
+        final Operation call = OperationCompiler.compile("fib(15)");
+        Benchmark.print("recursive user function", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {Benchmark.consume(call.calculate(functions, loopControl));}
+        }));
+        final Operation sum = OperationCompiler.compile("sum(sin(k*0.001)/k,{k,1,1000000})");
+        for (final long threshold : new long[] {Long.MAX_VALUE, ParallelIteration.getParallelThreshold()})
+        {
+            Benchmark.print("sum of 10^6 terms, " + (threshold == Long.MAX_VALUE ? "sequential" : "parallel"), Benchmark.measure(new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {
+                    final long old = ParallelIteration.getParallelThreshold();
+                    ParallelIteration.setParallelThreshold(threshold);
+                    try
+                    {
+                        Benchmark.consume(sum.calculate(null, loopControl));
+                    }
+                    finally
+                    {
+                        ParallelIteration.setParallelThreshold(old);
+                    }
+                }
+            }));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package test.benchmark;
+
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import maths.Operation;
+import maths.Operation.Print;
+import maths.OperationCompiler;
+import test.maths.ExpressionGenerator;
+
+/**
+ * Compares building the complete string of a large operation with printing it to a writer, the allocated bytes per run are reported as well.
+ */
+public class PrintBenchmark {
+    private static final Writer NULL_WRITER = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {}
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    };
+
+    private static final long allocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static void main(String args[]) throws Exception
+    {
+        final Random rand = new Random(0);
+        final StringBuilder strB = new StringBuilder();
+        while (strB.length() < 2000000)
+        {
+            strB.append(ExpressionGenerator.createExpression(20 + rand.nextInt(200), rand)).append(";\n");
+        }
+        strB.setLength(strB.length() - 2);
+        final Operation op = OperationCompiler.compile(strB);
+        final long chars = op.toString().length();
+        System.out.println(chars + " chars");
+        for (final Print type : new Print[] {Print.CALGRAPH, Print.LATEX})
+        {
+            Benchmark.print("toString " + type, Benchmark.measure(new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {Benchmark.consume(op.toString(type));}
+            }, 3000, 3000), chars);
+            Benchmark.print("print " + type, Benchmark.measure(new Benchmark.Task() {
+                @Override
+                public void run() throws Exception {op.print(type, NULL_WRITER);}
+            }, 3000, 3000), chars);
+            long begin = allocatedBytes();
+            Benchmark.consume(op.toString(type));
+            System.out.println("toString allocated " + (allocatedBytes() - begin) + " bytes");
+            begin = allocatedBytes();
+            op.print(type, NULL_WRITER);
+            System.out.println("print allocated    " + (allocatedBytes() - begin) + " bytes");
+        }
+    }
+}
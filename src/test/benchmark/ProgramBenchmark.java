@@ -0,0 +1,53 @@
+package test.benchmark;
+
+import java.util.Random;
+
+import maths.ProgramOperation;
+import maths.data.StringOperation;
+import test.maths.ExpressionGenerator;
+
+/**
+ * Compares the interpretation of a whole program with the incremental interpretation after a single line was edited.
+ */
+public class ProgramBenchmark {
+    static final void appendBlock(StringBuilder strB, int lines, int depth, Random rand)
+    {
+        final String indent = "                ".substring(0, depth * 2);
+        for (int i = 0; i < lines; ++i)
+        {
+            if (depth < 4 && rand.nextInt(10) == 0)
+            {
+                final boolean condition = rand.nextBoolean();
+                strB.append(indent).append(condition ? "if(" : "while(").append("x").append(rand.nextInt(10)).append("<").append(rand.nextInt(100)).append(")\n");
+                appendBlock(strB, 2 + rand.nextInt(10), depth + 1, rand);
+                strB.append(indent).append(condition ? "endif\n" : "endwhile\n");
+            }
+            else
+            {
+                strB.append(indent).append(ExpressionGenerator.createExpression(20 + rand.nextInt(60), rand)).append("→x").append(rand.nextInt(10)).append('\n');
+            }
+        }
+    }
+
+    public static void main(String args[]) throws Exception
+    {
+        final Random rand = new Random(0);
+        final StringBuilder prefix = new StringBuilder();
+        appendBlock(prefix, 600, 0, rand);
+        final StringBuilder suffix = new StringBuilder();
+        appendBlock(suffix, 600, 0, rand);
+        final String program = prefix + "0→y\n" + suffix;
+        System.out.println(program.split("\n").length + " lines, " + ProgramOperation.getInstance(new StringOperation(program)).getClass().getSimpleName());
+        Benchmark.print("full interpretation", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {Benchmark.consume(ProgramOperation.getInstance(new StringOperation(program)));}
+        }));
+        final ProgramOperation.Interpreter interpreter = new ProgramOperation.Interpreter(10000);
+        Benchmark.print("incremental, one edited line", Benchmark.measure(new Benchmark.Task() {
+            private int counter = 0;
+            @Override
+            public void run() throws Exception {Benchmark.consume(interpreter.getInstance(new StringOperation(prefix + String.valueOf(++counter) + "→y\n" + suffix)));}
+        }));
+        System.out.println(interpreter.getCache());
+    }
+}
@@ -0,0 +1,37 @@
+package test.benchmark;
+
+import maths.Controller;
+import maths.Operation;
+import maths.ProgramOperation;
+import maths.data.StringOperation;
+import maths.variable.VariableStack;
+
+/**
+ * Compares the {@link maths.algorithm.ProgramMachine} with the interpreter which walks the items of a program, for programs with nested loops.
+ */
+public class ProgramMachineBenchmark {
+    private static final String PROGRAMS[] = {
+        "0→s\n0→i\nwhile(i<100)\n  0→j\n  while(j<100)\n    s+i*j→s\n    j+1→j\n  endwhile\n  i+1→i\nendwhile\nreturn(s)",
+        "0→s\n0→i\nwhile(i<30)\n  0→j\n  while(j<30)\n    0→k\n    while(k<30)\n      if((i+j+k)%2=0)\n        s+1→s\n      else\n        s-1→s\n      endif\n      k+1→k\n    endwhile\n    j+1→j\n  endwhile\n  i+1→i\nendwhile\nreturn(s)",
+        "0→s\n0→i\nwhile(i<100)\n  0→j\n  while(j<100)\n    s+sin(i*0.01)*cos(j*0.01)→s\n    j+1→j\n  endwhile\n  i+1→i\nendwhile\nreturn(s)",
+        "0→s\n0→i\nwhile(i<100)\n  0→j\n  while(j<100)\n    s+sum(k*j,{k,1,3})→s\n    j+1→j\n  endwhile\n  i+1→i\nendwhile\nreturn(s)"};
+
+    public static void main(String args[]) throws Exception
+    {
+        final Controller control = new Controller();
+        control.calculateLoop(true);
+        for (int i = 0; i < PROGRAMS.length; ++i)
+        {
+            final Operation program = ProgramOperation.getInstance(new StringOperation(PROGRAMS[i]));
+            for (final boolean machine : new boolean[] {false, true})
+            {
+                ProgramOperation.setMachineEnabled(machine);
+                Benchmark.print("program " + i + (machine ? ", machine" : ", interpreter"), Benchmark.measure(new Benchmark.Task() {
+                    @Override
+                    public void run() throws Exception {Benchmark.consume(program.calculate(new VariableStack(), control));}
+                }));
+            }
+        }
+        ProgramOperation.setMachineEnabled(true);
+    }
+}
@@ -0,0 +1,81 @@
+package test.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Random;
+
+import maths.Controller;
+import maths.OperationCompiler;
+import maths.algorithm.NumberScanner;
+import maths.data.StringOperation;
+import maths.functions.io.ReadCsvOperation;
+import maths.functions.io.ReadOperation;
+import maths.variable.VariableStack;
+
+/**
+ * Measures reading numeric tables and compares the number scanner with the compiler for single cells.
+ */
+public class ReadBenchmark {
+    public static void main(String args[]) throws Exception
+    {
+        final Random rand = new Random(0);
+        final File file = File.createTempFile("benchmark", ".csv");
+        file.deleteOnExit();
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file)))
+        {
+            for (int i = 0; i < 100000; ++i)
+            {
+                for (int j = 0; j < 10; ++j)
+                {
+                    if (j != 0)
+                    {
+                        out.write(',');
+                    }
+                    out.write(j % 2 == 0 ? Long.toString(rand.nextInt(1000000)) : Double.toString(rand.nextDouble() * 1000));
+                }
+                out.newLine();
+            }
+        }
+        final StringOperation name = new StringOperation(file.getPath());
+        Benchmark.print("read", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {Benchmark.consume(new ReadOperation(name).calculate(new VariableStack(), new Controller()));}
+        }, 2000, 5000), file.length());
+        Benchmark.print("readcsv", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {Benchmark.consume(new ReadCsvOperation(name, OperationCompiler.compile("{{'\\n'},{','}}")).calculate(new VariableStack(), new Controller()));}
+        }, 2000, 5000), file.length());
+        final String cells[] = new String[1000];
+        long chars = 0;
+        for (int i = 0; i < cells.length; ++i)
+        {
+            cells[i] = i % 2 == 0 ? Long.toString(rand.nextInt(1000000)) : Double.toString(rand.nextDouble() * 1000);
+            chars += cells[i].length();
+        }
+        final char data[][] = new char[cells.length][];
+        for (int i = 0; i < cells.length; ++i)
+        {
+            data[i] = cells[i].toCharArray();
+        }
+        final NumberScanner scanner = new NumberScanner();
+        Benchmark.print("cells, number scanner", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                for (char cell[] : data)
+                {
+                    Benchmark.consume(scanner.parse(cell, 0, cell.length));
+                }
+            }
+        }), chars);
+        Benchmark.print("cells, compiler", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                for (String cell : cells)
+                {
+                    Benchmark.consume(OperationCompiler.compile(cell));
+                }
+            }
+        }), chars);
+    }
+}
@@ -0,0 +1,56 @@
+package test.benchmark;
+
+import java.util.Random;
+
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.OperationReader;
+import maths.OperationWriter;
+import test.maths.ExpressionGenerator;
+
+/**
+ * Compares loading a bundle of precompiled expressions with compiling the same expressions from their text.
+ */
+public class SerializationBenchmark {
+    public static void main(String args[]) throws Exception
+    {
+        final Random rand = new Random(0);
+        final String expressions[] = new String[10000];
+        final OperationWriter writer = new OperationWriter();
+        long chars = 0;
+        for (int i = 0; i < expressions.length; ++i)
+        {
+            expressions[i] = ExpressionGenerator.createExpression(20 + rand.nextInt(200), rand);
+            chars += expressions[i].length();
+            writer.add(OperationCompiler.compile(expressions[i]));
+        }
+        final byte data[] = writer.toByteArray();
+        System.out.println(expressions.length + " expressions, " + chars + " chars, bundle " + data.length + " bytes");
+        Benchmark.print("compile", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                for (String expression : expressions)
+                {
+                    Benchmark.consume(OperationCompiler.compile(expression));
+                }
+            }
+        }), chars);
+        Benchmark.print("read bundle", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                final OperationReader reader = new OperationReader(data);
+                for (int i = 0; i < reader.size(); ++i)
+                {
+                    Benchmark.consume(reader.get(i));
+                }
+            }
+        }), chars);
+        Benchmark.print("open bundle, read one", Benchmark.measure(new Benchmark.Task() {
+            @Override
+            public void run() throws Exception {
+                final Operation op = new OperationReader(data).get(expressions.length / 2);
+                Benchmark.consume(op);
+            }
+        }));
+    }
+}
@@ -0,0 +1,57 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.data.RealLongOperation;
+import maths.exception.OperationParseException;
+import maths.variable.VariableStack;
+
+@RunWith(Parameterized.class)
+public class CalculateDoubleTest {
+    @Parameters
+    public static List<String> params() {
+        return NumericExpressions.get("sum(x*i,{i,1,10})", "sum(i,{i,1,10})+x", "prod(y+i/10,{i,1,5})", "nint(x*t^2,0,y,t)");
+    }
+
+    private final String str;
+
+    public CalculateDoubleTest(String str) {
+        this.str = str;
+    }
+
+    @Test
+    public void testSameAsCalculate() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile(str);
+        for (int i = 0; i < NumericExpressions.POINTS; ++i)
+        {
+            VariableStack stack = NumericExpressions.createStack(i);
+            double expected = op.calculate(stack, NumericExpressions.createController()).doubleValue();
+            assertEquals(str, expected, op.calculateDouble(stack, NumericExpressions.createController()), Math.abs(expected) * 1e-13);
+        }
+    }
+
+    @Test
+    public void testLong() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile(str);
+        VariableStack stack = new VariableStack();
+        stack.setLocal("x", new RealLongOperation(3));
+        stack.setLocal("y", new RealLongOperation(2));
+        stack.setLocal("z", new RealLongOperation(-5));
+        Operation result = op.calculate(stack, NumericExpressions.createController());
+        if (result.isRealFloatingNumber())
+        {
+            assertEquals(str, result.longValue(), op.calculateLong(stack, NumericExpressions.createController()));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import maths.CompileCache;
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.OperationCompiler.CompileOptions;
+import maths.exception.OperationParseException;
+import maths.variable.Variable;
+import maths.variable.VariableStack;
+
+public class CompileCacheTest {
+    @Test
+    public void testHit() throws OperationParseException
+    {
+        CompileCache cache = new CompileCache(10, CompileCache.Eviction.LRU);
+        CompileOptions opt = new CompileOptions();
+        Operation op = cache.compile("a+b*c", opt);
+        assertSame(op, cache.compile(new StringBuilder("a+b*c"), opt));
+        assertSame(op, cache.compile("(a+b*c)", 1, 6, opt));
+        assertEquals(OperationCompiler.compile("a+b*c"), op);
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testLRU() throws OperationParseException
+    {
+        CompileCache cache = new CompileCache(2, CompileCache.Eviction.LRU);
+        CompileOptions opt = new CompileOptions();
+        Operation a = cache.compile("a", opt);
+        Operation b = cache.compile("b", opt);
+        assertSame(a, cache.compile("a", opt));
+        cache.compile("c", opt);
+        assertEquals(1, cache.getEvictions());
+        assertSame(a, cache.compile("a", opt));
+        assertNotSame(b, cache.compile("b", opt));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testLFU() throws OperationParseException
+    {
+        CompileCache cache = new CompileCache(2, CompileCache.Eviction.LFU);
+        CompileOptions opt = new CompileOptions();
+        Operation a = cache.compile("a", opt);
+        cache.compile("a", opt);
+        Operation b = cache.compile("b", opt);
+        cache.compile("c", opt);
+        assertSame(a, cache.compile("a", opt));
+        assertNotSame(b, cache.compile("b", opt));
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    public void testGlobalCache() throws OperationParseException
+    {
+        CompileCache cache = new CompileCache(100, CompileCache.Eviction.LRU);
+        OperationCompiler.setCache(cache);
+        try
+        {
+            Operation op = OperationCompiler.compile("compile(\"x^2\")");
+            assertSame(op, OperationCompiler.compile("compile(\"x^2\")"));
+            assertEquals(1, cache.getHits());
+        }
+        finally
+        {
+            OperationCompiler.setCache(null);
+        }
+    }
+
+    @Test
+    public void testArraysNotShared() throws OperationParseException
+    {
+        CompileCache cache = new CompileCache(100, CompileCache.Eviction.LRU);
+        OperationCompiler.setCache(cache);
+        try
+        {
+            VariableStack stack = new VariableStack();
+            stack.add(new Variable("a", OperationCompiler.compile("{1,2,3}")));
+            OperationCompiler.compile("5→a[1]").calculate(stack, new Controller());
+            assertEquals("{1,5,3}", stack.get("a").getValue().toString());
+            assertEquals("{1,2,3}", OperationCompiler.compile("{1,2,3}").toString());
+            assertEquals(1, cache.size());
+        }
+        finally
+        {
+            OperationCompiler.setCache(null);
+        }
+    }
+
+    @Test
+    public void testDeepTree() throws OperationParseException
+    {
+        CompileCache cache = new CompileCache(10, CompileCache.Eviction.LRU);
+        StringBuilder strB = new StringBuilder("1");
+        for (int i = 0; i < 200000; ++i)
+        {
+            strB.append("+x");
+        }
+        Operation op = cache.compile(strB, new CompileOptions());
+        assertSame(op, cache.compile(strB, new CompileOptions()));
+    }
+}
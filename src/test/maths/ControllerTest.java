@@ -0,0 +1,108 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.algorithm.OperationCalculate.OperationList;
+import maths.data.RealLongOperation;
+import maths.exception.OperationParseException;
+import maths.variable.VariableStack;
+
+public class ControllerTest {
+    private static final String EXPRESSIONS[] = {"a*b+c*a-b*(c+a)", "(a+b)^3-a^3-3*a^2*b", "a/b+c/a+b/c", "diff(sin(a*b)*c,a)", "sum(i*a+b,{i,1,10})"};
+
+    private static Operation calculate(Operation op, int i, Controller control)
+    {
+        VariableStack stack = new VariableStack();
+        stack.setLocal("a", new RealLongOperation(i % 7 + 1));
+        stack.setLocal("b", new RealLongOperation(i % 5 + 2));
+        stack.setLocal("c", new RealLongOperation(i % 3 + 3));
+        return op.calculate(stack, control);
+    }
+
+    @Test
+    public void testSharedBetweenThreads() throws OperationParseException, Exception
+    {
+        final Operation operations[] = new Operation[EXPRESSIONS.length];
+        final Operation symbolic[] = new Operation[EXPRESSIONS.length];
+        final Controller control = new Controller();
+        control.calculateLoop(true);
+        for (int i = 0; i < operations.length; ++i)
+        {
+            operations[i] = OperationCompiler.compile(EXPRESSIONS[i]);
+            symbolic[i] = operations[i].calculate(null, control);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < 32; ++t)
+            {
+                final int seed = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call()
+                    {
+                        Controller single = new Controller();
+                        single.calculateLoop(true);
+                        for (int i = 0; i < 1000; ++i)
+                        {
+                            int index = (i + seed) % operations.length;
+                            assertEquals(EXPRESSIONS[index], calculate(operations[index], i, single), calculate(operations[index], i, control));
+                            assertEquals(EXPRESSIONS[index], symbolic[index], operations[index].calculate(null, control));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures)
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPoolBounded()
+    {
+        Controller control = new Controller();
+        OperationList lists[] = new OperationList[100];
+        for (int i = 0; i < lists.length; ++i)
+        {
+            lists[i] = control.getOperationList();
+        }
+        for (OperationList list : lists)
+        {
+            list.add(RealLongOperation.POSITIVE_ONE);
+            control.returnToChached(list);
+        }
+        OperationList list = control.getOperationList();
+        assertSame(lists[15], list);
+        assertEquals(0, list.size());
+        for (int i = 0; i < 15; ++i)
+        {
+            control.getOperationList();
+        }
+        for (OperationList other : lists)
+        {
+            assertNotSame(other, control.getOperationList());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package test.maths;
+
+import java.util.Random;
+
+/**
+ * Creates random expressions of variables, numbers, functions and nested brackets for tests and benchmarks.
+ */
+public class ExpressionGenerator {
+    private static final String FUNCTIONS[] = {"sin", "cos", "exp", "sqrt", "abs"};
+    private static final String OPERATORS[] = {"+", "-", "*", "/", "^"};
+
+    public static final String createExpression(int length, Random rand)
+    {
+        StringBuilder strB = new StringBuilder(length + 32);
+        append(strB, length, rand);
+        return strB.toString();
+    }
+
+    private static final void append(StringBuilder strB, int length, Random rand)
+    {
+        final int end = strB.length() + length;
+        appendOperand(strB, rand);
+        while (strB.length() < end)
+        {
+            strB.append(OPERATORS[rand.nextInt(OPERATORS.length)]);
+            if (rand.nextInt(8) == 0 && end - strB.length() > 40)
+            {
+                strB.append('(');
+                append(strB, Math.min(end - strB.length(), 20 + rand.nextInt(200)), rand);
+                strB.append(')');
+            }
+            else
+            {
+                appendOperand(strB, rand);
+            }
+        }
+    }
+
+    private static final void appendOperand(StringBuilder strB, Random rand)
+    {
+        switch (rand.nextInt(4))
+        {
+            case 0: strB.append('x').append(rand.nextInt(10)); break;
+            case 1: strB.append(rand.nextInt(1000)); break;
+            case 2: strB.append(rand.nextDouble()); break;
+            default: strB.append(FUNCTIONS[rand.nextInt(FUNCTIONS.length)]).append("(y").append(rand.nextInt(5)).append(')');
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import maths.FunctionRegistry;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.UserFunctionOperation;
+import maths.exception.OperationParseException;
+import maths.functions.atomic.AdditionOperation;
+import maths.functions.hyperbolic.SinusOperation;
+
+public class FunctionRegistryTest {
+    @Test
+    public void testBuildIn() throws OperationParseException
+    {
+        FunctionRegistry registry = FunctionRegistry.getDefault();
+        assertTrue(registry.contains("sin", 1));
+        assertNull(registry.get("sin", 2));
+        assertNull(registry.get("notafunction", 1));
+        assertTrue(OperationCompiler.compile("sin(x)") instanceof SinusOperation);
+        assertTrue(OperationCompiler.compile("sin(x,y)") instanceof UserFunctionOperation);
+    }
+
+    @Test
+    public void testRegister() throws OperationParseException
+    {
+        FunctionRegistry registry = FunctionRegistry.getDefault();
+        assertNull(registry.register("registrytestadd", 2, p -> new AdditionOperation(p[0], p[1])));
+        try
+        {
+            assertEquals(OperationCompiler.compile("a+b"), OperationCompiler.compile("registrytestadd(a,b)"));
+            assertTrue(OperationCompiler.compile("registrytestadd(a)") instanceof UserFunctionOperation);
+        }
+        finally
+        {
+            assertNotNull(registry.unregister("registrytestadd", 2));
+        }
+        assertTrue(OperationCompiler.compile("registrytestadd(a,b)") instanceof UserFunctionOperation);
+    }
+
+    @Test
+    public void testType()
+    {
+        FunctionRegistry registry = new FunctionRegistry();
+        assertEquals(SinusOperation.class, FunctionRegistry.getDefault().getType("sin", 1));
+        assertNull(registry.getType("f", 1));
+        registry.register("f", 1, p -> p[0]);
+        assertNull(registry.getType("f", 1));
+        registry.register("f", 1, SinusOperation.class, p -> new SinusOperation(p[0]));
+        assertEquals(SinusOperation.class, registry.getType("f", 1));
+        registry.unregister("f", 1);
+        assertNull(registry.getType("f", 1));
+    }
+
+    @Test
+    public void testRegisterIfAbsent() throws OperationParseException
+    {
+        FunctionRegistry registry = new FunctionRegistry();
+        FunctionRegistry.Factory first = p -> p[0];
+        assertNull(registry.registerIfAbsent("f", 1, first));
+        assertSame(first, registry.registerIfAbsent("f", 1, p -> p[0]));
+        assertSame(first, registry.get("f", 1));
+        assertNotNull(FunctionRegistry.getDefault().registerIfAbsent("sin", 1, p -> p[0]));
+        assertTrue(OperationCompiler.compile("sin(x)") instanceof SinusOperation);
+    }
+
+    @Test
+    public void testConcurrentRegister() throws Exception
+    {
+        final FunctionRegistry registry = FunctionRegistry.getDefault();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread threads[] = new Thread[4];
+        for (int i = 0; i < threads.length; ++i)
+        {
+            final String name = "registrytest" + i;
+            threads[i] = new Thread(() -> {
+                try
+                {
+                    for (int j = 0; j < 1000; ++j)
+                    {
+                        final int arity = j % 3;
+                        registry.register(name, arity, p -> new AdditionOperation(p[0], p[0]));
+                        Operation op = OperationCompiler.compile("sin(x)+cos(x)");
+                        if (!(op instanceof AdditionOperation))
+                        {
+                            throw new AssertionError(op);
+                        }
+                        registry.unregister(name, arity);
+                    }
+                }
+                catch (Throwable e)
+                {
+                    error.set(e);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assertNull(error.get());
+        for (int i = 0; i < threads.length; ++i)
+        {
+            for (int j = 0; j < 3; ++j)
+            {
+                assertNull(registry.get("registrytest" + i, j));
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package test.maths;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import maths.Controller;
+import maths.data.RealDoubleOperation;
+import maths.variable.VariableStack;
+
+/**
+ * Expressions of the variables x, y and z and the points at which they are evaluated, the primitive evaluation paths are compared with the interpreter for them.
+ * They contain functions with complex results for negative operands, divisions by y which may be zero, an undefined function f and variable w and interpreted conditions.
+ */
+public class NumericExpressions {
+    /**
+     * Number of points of the grid, x is zero at every fifth point and y at the points following them
+     */
+    public static final int POINTS = 20;
+
+    private static final String EXPRESSIONS[] = {
+        "sin(x)*exp(-y^2)+x/y", "x²+sqrt(y)-cbrt(x)", "x^-1+1/3+atan2(x,y)", "min(x,y)-max(y,z)", "abs(x-y)*log(y)", "2", "x", "-x", "ℯ^x", "x^y", "x⁻¹",
+        "sinh(x)+cosh(y)+tanh(x)", "acos(0.3)+asin(0.2)+atan(y)+tan(x)", "cos(x)*π", "((x+y)*(y+z))/(x-z)", "2^10*x+1e-3",
+        "f(x)+x", "w+x", "if(x<y,x,y)*z", "x+if(x<y,x,y)", "sqrt(x)-log(x)*y", "sqrt(y)*sqrt(y)+x",
+        "1/y", "x/y+1"};
+
+    /**
+     * @return the shared expressions followed by the given ones
+     */
+    public static final List<String> get(String ...more)
+    {
+        List<String> result = new ArrayList<>(Arrays.asList(EXPRESSIONS));
+        result.addAll(Arrays.asList(more));
+        return result;
+    }
+
+    /**
+     * @return a controller which calculates loops
+     */
+    public static final Controller createController()
+    {
+        Controller control = new Controller();
+        control.calculateLoop(true);
+        return control;
+    }
+
+    /**
+     * @return a stack with the values of x, y and z at the point of the grid
+     */
+    public static final VariableStack createStack(int point)
+    {
+        VariableStack stack = new VariableStack();
+        stack.setLocal("x", new RealDoubleOperation(point % 5 == 0 ? 0 : point * 0.37 - 1.5));
+        stack.setLocal("y", new RealDoubleOperation(point % 5 == 1 ? 0 : 0.5 + point * 0.43 % 2));
+        stack.setLocal("z", new RealDoubleOperation(1 - point * 0.19));
+        return stack;
+    }
+}
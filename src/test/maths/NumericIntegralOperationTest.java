@@ -0,0 +1,40 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.data.RealDoubleOperation;
+import maths.exception.OperationParseException;
+import maths.variable.VariableStack;
+
+public class NumericIntegralOperationTest {
+    private static VariableStack createStack(double y)
+    {
+        VariableStack stack = new VariableStack();
+        stack.setLocal("y", new RealDoubleOperation(y));
+        return stack;
+    }
+
+    @Test
+    public void testFinite() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile("nint(exp(-t),0,y,t)");
+        double expected = op.calculate(createStack(2), new Controller()).doubleValue();
+        assertEquals(1 - Math.exp(-2), expected, 1e-2);
+        assertEquals(expected, op.calculateDouble(createStack(2), new Controller()), 1e-13);
+    }
+
+    @Test
+    public void testInfiniteBound() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile("nint(exp(-t),0,y,t)");
+        assertNull(op.calculate(createStack(Double.POSITIVE_INFINITY), new Controller()));
+        assertTrue(Double.isNaN(op.calculateDouble(createStack(Double.POSITIVE_INFINITY), new Controller())));
+    }
+}
@@ -1,11 +1,17 @@
 package test.maths;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+import java.util.stream.IntStream;
 
 import org.junit.Test;
 
 import maths.Operation;
 import maths.OperationCompiler;
+import maths.data.StringId;
 import maths.exception.OperationParseException;
 
 public class OperationCompilerTest {
@@ -24,4 +30,52 @@ public class OperationCompilerTest {
             throw new AssertionError(str, e);
         }
     }   
+
+    @Test
+    public void testParallel() throws OperationParseException
+    {
+        Random rand = new Random(0);
+        StringBuilder strB = new StringBuilder();
+        for (int i = 0; i < 2000; ++i)
+        {
+            strB.append(ExpressionGenerator.createExpression(10 + rand.nextInt(50), rand)).append(i % 3 == 0 ? ";\n" : ";");
+        }
+        strB.append("{\"a;b\",';',(x;y)}");
+        String str = strB.toString();
+        int threshold = OperationCompiler.getParallelThreshold();
+        try
+        {
+            OperationCompiler.setParallelThreshold(Integer.MAX_VALUE);
+            Operation serial = OperationCompiler.compile(str);
+            OperationCompiler.setParallelThreshold(0);
+            Operation parallel = OperationCompiler.compile(str);
+            assertEquals(serial, parallel);
+            assertEquals(serial.toString(), parallel.toString());
+            for (String invalid : new String[] {str + ";", str + ";;x", "(" + str, str + ")", str + "\""})
+            {
+                try
+                {
+                    OperationCompiler.compile(invalid);
+                    fail(invalid.substring(invalid.length() - 10));
+                }
+                catch (OperationParseException e) {}
+            }
+        }
+        finally
+        {
+            OperationCompiler.setParallelThreshold(threshold);
+        }
+    }
+
+    @Test
+    public void testConcurrentStringIds()
+    {
+        StringId.StringIdObject objects[] = IntStream.range(0, 10000).parallel().mapToObj(i -> StringId.getStringAndId("concurrent" + (i % 5000))).toArray(StringId.StringIdObject[]::new);
+        for (int i = 0; i < objects.length; ++i)
+        {
+            assertSame(objects[i % 5000], objects[i]);
+            assertEquals("concurrent" + (i % 5000), objects[i].string);
+            assertSame(objects[i], StringId.getStringAndId(objects[i].id));
+        }
+    }
 }
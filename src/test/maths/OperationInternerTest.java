@@ -0,0 +1,106 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.OperationInterner;
+import maths.data.RealDoubleOperation;
+import maths.data.RealLongOperation;
+import maths.exception.OperationParseException;
+
+public class OperationInternerTest {
+    @Test
+    public void testSharedSubtrees() throws OperationParseException
+    {
+        OperationInterner interner = new OperationInterner();
+        Operation a = interner.intern(OperationCompiler.compile("sin(x*y)+sin(x*y)"));
+        Operation b = interner.intern(OperationCompiler.compile("sin(x*y)*2"));
+        assertSame(a.get(0), a.get(1));
+        assertSame(a.get(0), b.get(0));
+        assertSame(a, interner.intern(OperationCompiler.compile("sin(x*y)+sin(x*y)")));
+        assertEquals(OperationCompiler.compile("sin(x*y)+sin(x*y)"), a);
+    }
+
+    @Test
+    public void testHashConsistentWithEquals() throws OperationParseException
+    {
+        String expressions[] = {"a+b*c", "f(x,y)^2", "sum(i,{i,1,10})", "{1,2,3}+x", "\"ab\"+c"};
+        OperationInterner interner = new OperationInterner();
+        for (String str : expressions)
+        {
+            Operation op = OperationCompiler.compile(str);
+            Operation interned = interner.intern(OperationCompiler.compile(str));
+            assertEquals(str, op, interned);
+            assertEquals(str, op.hashCode(), interned.hashCode());
+        }
+        assertEquals(new RealLongOperation(2).hashCode(), new RealDoubleOperation(2).hashCode());
+        assertEquals(new RealDoubleOperation(0.).hashCode(), new RealDoubleOperation(-0.).hashCode());
+    }
+
+    @Test
+    public void testTypesStayDifferent() throws OperationParseException
+    {
+        OperationInterner interner = new OperationInterner();
+        Operation a = interner.intern(OperationCompiler.compile("x+2"));
+        Operation b = interner.intern(OperationCompiler.compile("x+2.0"));
+        assertNotSame(a, b);
+        assertSame(a.get(0), b.get(0));
+        assertFalse(OperationCompiler.compile("f(x)").equals(OperationCompiler.compile("g(x)")));
+    }
+
+    @Test
+    public void testArraysNotShared() throws OperationParseException
+    {
+        OperationInterner interner = new OperationInterner();
+        Operation a = interner.intern(OperationCompiler.compile("{x,y}+1"));
+        Operation b = interner.intern(OperationCompiler.compile("{x,y}+1"));
+        assertNotSame(a, b);
+        assertSame(a.get(0).get(0), b.get(0).get(0));
+    }
+
+    @Test
+    public void testCollectable() throws OperationParseException, InterruptedException
+    {
+        OperationInterner interner = new OperationInterner();
+        for (int i = 0; i < 1000; ++i)
+        {
+            interner.intern(OperationCompiler.compile("x*" + i + "+y"));
+        }
+        for (int i = 0; i < 20 && interner.size() > 1000; ++i)
+        {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(true, interner.size() < 1000);
+    }
+
+    @Test
+    public void testDeepTree() throws OperationParseException
+    {
+        OperationInterner interner = new OperationInterner();
+        StringBuilder strB = new StringBuilder("1");
+        for (int i = 0; i < 200000; ++i)
+        {
+            strB.append("+x");
+        }
+        Operation a = interner.intern(OperationCompiler.compile(strB));
+        assertSame(a, interner.intern(OperationCompiler.compile(strB)));
+        assertSame(a.get(1), a.get(0).get(1));
+    }
+
+    @Test
+    public void testConstantsUnchanged() throws OperationParseException
+    {
+        OperationInterner interner = new OperationInterner();
+        int hash = RealLongOperation.ZERO.hashCode();
+        assertSame(RealLongOperation.ZERO, interner.intern(RealLongOperation.ZERO));
+        assertEquals(hash, RealLongOperation.ZERO.hashCode());
+        assertEquals(RealLongOperation.ZERO, new RealLongOperation(0));
+    }
+}
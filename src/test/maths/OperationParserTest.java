@@ -0,0 +1,223 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.OperationCompiler.CompileOptions;
+import maths.data.RealLongOperation;
+import maths.exception.OperationParseException;
+import maths.functions.atomic.AdditionOperation;
+import maths.functions.atomic.MultiplicationOperation;
+import maths.functions.atomic.NegativeOperation;
+import maths.functions.atomic.PowerOperation;
+import maths.functions.atomic.SubtractionOperation;
+import maths.variable.UserVariableOperation;
+
+@RunWith(Parameterized.class)
+public class OperationParserTest {
+    @Parameters
+    public static List<String[]> params() {
+        return Arrays.asList(new String[][] {
+            {"2*(4+5)", "MultiplicationOperation(RealLongOperation 2, AdditionOperation(RealLongOperation 4, RealLongOperation 5))"},
+            {"2^(4+5)/42", "DivisionOperation(PowerOperation(RealLongOperation 2, AdditionOperation(RealLongOperation 4, RealLongOperation 5)), RealLongOperation 42)"},
+            {"a+b*c", "AdditionOperation(UserVariableOperation a, MultiplicationOperation(UserVariableOperation b, UserVariableOperation c))"},
+            {"a-b-c", "SubtractionOperation(SubtractionOperation(UserVariableOperation a, UserVariableOperation b), UserVariableOperation c)"},
+            {"a^b^c", "PowerOperation(PowerOperation(UserVariableOperation a, UserVariableOperation b), UserVariableOperation c)"},
+            {"a/b/c", "DivisionOperation(DivisionOperation(UserVariableOperation a, UserVariableOperation b), UserVariableOperation c)"},
+            {"a;b;c", "CommandOperation(CommandOperation(UserVariableOperation a, UserVariableOperation b), UserVariableOperation c)"},
+            {"-3", "RealLongOperation -3"},
+            {"-3*2", "NegativeOperation(MultiplicationOperation(RealLongOperation 3, RealLongOperation 2))"},
+            {"2*-3", "MultiplicationOperation(RealLongOperation 2, RealLongOperation -3)"},
+            {"2^-3", "PowerOperation(RealLongOperation 2, RealLongOperation -3)"},
+            {"-x", "NegativeOperation(UserVariableOperation x)"},
+            {"--3", "NegativeOperation(RealLongOperation -3)"},
+            {"-0x1F", "NegativeOperation(RealLongOperation 31)"},
+            {"0x1F", "RealLongOperation 31"},
+            {"-5.5", "RealDoubleOperation -5.5"},
+            {"1e5", "RealDoubleOperation 100000.0"},
+            {"-1e5", "RealDoubleOperation -100000.0"},
+            {"-2²", "NegativeOperation(PowerOperation$SquareOperation(RealLongOperation 2, RealLongOperation 2))"},
+            {"-3!", "NegativeOperation(Faculty(RealLongOperation 3))"},
+            {"-9223372036854775808", "RealLongOperation -9223372036854775808"},
+            {"99999999999999999999", "RealDoubleOperation 1.0E20"},
+            {"∞", "RealDoubleOperation ∞"},
+            {"-∞", "RealDoubleOperation -∞"},
+            {"π", "RealDoubleOperation π"},
+            {"ℯ", "RealDoubleOperation ℯ"},
+            {"ℕ", "MengenOperation ℕ"},
+            {"ⅈ", "ComplexLongOperation 0"},
+            {"true", "BooleanOperation true"},
+            {"false", "BooleanOperation false"},
+            {"\\pi", "RealDoubleOperation π"},
+            {"\\euler", "RealDoubleOperation ℯ"},
+            {"'c'", "CharacterOperation 'c'"},
+            {"'\\n'", "CharacterOperation '\\n'"},
+            {"\"abc\"", "StringOperation \"abc\""},
+            {"\"a\\\"b\"", "StringOperation \"a\\\"b\""},
+            {"\"a b\"", "StringOperation \"a b\""},
+            {"1 2", "RealLongOperation 12"},
+            {"si n(x) + 1", "AdditionOperation(SinusOperation(UserVariableOperation x), RealLongOperation 1)"},
+            {"f(x)", "UserFunctionOperation(UserVariableOperation x)"},
+            {"f()", "UserFunctionOperation f()"},
+            {"sin(x)+cos(y)", "AdditionOperation(SinusOperation(UserVariableOperation x), CosinusOperation(UserVariableOperation y))"},
+            {"set(x,3)", "AssignOperation(RealLongOperation 3, UserVariableOperation x)"},
+            {"x→y", "AssignOperation(UserVariableOperation x, UserVariableOperation y)"},
+            {"{1:2,3:4}", "MapOperation {1:2,3:4}"},
+            {"{1,2,3}", "ArrayOperation(RealLongOperation 1, RealLongOperation 2, RealLongOperation 3)"},
+            {"{}", "ArrayOperation {}"},
+            {"{1,{2,3}}", "ArrayOperation(RealLongOperation 1, ArrayOperation(RealLongOperation 2, RealLongOperation 3))"},
+            {"a[1]", "ArrayIndexOperation(UserVariableOperation a, RealLongOperation 1)"},
+            {"a[1][2]", "ArrayIndexOperation(ArrayIndexOperation(UserVariableOperation a, RealLongOperation 1), RealLongOperation 2)"},
+            {"f(x)[2]", "ArrayIndexOperation(UserFunctionOperation(UserVariableOperation x), RealLongOperation 2)"},
+            {"x²", "PowerOperation$SquareOperation(UserVariableOperation x, RealLongOperation 2)"},
+            {"x⁻¹", "PowerOperation$InversOperation(UserVariableOperation x, RealLongOperation -1)"},
+            {"x²!", "Faculty(PowerOperation$SquareOperation(UserVariableOperation x, RealLongOperation 2))"},
+            {"x!²", "PowerOperation$SquareOperation(Faculty(UserVariableOperation x), RealLongOperation 2)"},
+            {"(a+b)!", "Faculty(AdditionOperation(UserVariableOperation a, UserVariableOperation b))"},
+            {"abs(x)²", "PowerOperation$SquareOperation(AbsoluteOperation(UserVariableOperation x), RealLongOperation 2)"},
+            {"\"abc\"[1]", "ArrayIndexOperation(StringOperation \"abc\", RealLongOperation 1)"},
+            {"¬a", "NotOperation(UserVariableOperation a)"},
+            {"¬a=b", "EqualsOperation(NotOperation(UserVariableOperation a), UserVariableOperation b)"},
+            {"ᵗa*b", "MultiplicationOperation(TransposeOperation(UserVariableOperation a), UserVariableOperation b)"},
+            {"a*¬b+c", "AdditionOperation(MultiplicationOperation(UserVariableOperation a, NotOperation(UserVariableOperation b)), UserVariableOperation c)"},
+            {"a∈b", "IsElementOfOperation(UserVariableOperation a, UserVariableOperation b)"},
+            {"a≤b", "LowerEqualsOperation(UserVariableOperation a, UserVariableOperation b)"},
+            {"a≠b", "UnequalsOperation(UserVariableOperation a, UserVariableOperation b)"},
+            {"a˄b˅c", "OrOperation(AndOperation(UserVariableOperation a, UserVariableOperation b), UserVariableOperation c)"},
+            {"a◦b", "ConcatOperation(UserVariableOperation a, UserVariableOperation b)"},
+            {"a•b", "MatrixMultiplication(UserVariableOperation a, UserVariableOperation b)"},
+            {"a%b", "Modulo(UserVariableOperation a, UserVariableOperation b)"},
+            {"sum(x^2,{x,1,10})", "SumIteratorOperation(PowerOperation$SquareOperation(UserVariableOperation x, RealLongOperation 2), ArrayOperation(UserVariableOperation x, RealLongOperation 1, RealLongOperation 10))"},
+            {"if(a<b,1,2)", "IfOperation(LowerOperation(UserVariableOperation a, UserVariableOperation b), RealLongOperation 1, RealLongOperation 2)"},
+            {"for(0→i,i<10,i+1→i,x)", "ForOperation(AssignOperation(RealLongOperation 0, UserVariableOperation i), LowerOperation(UserVariableOperation i, RealLongOperation 10), AssignOperation(AdditionOperation(UserVariableOperation i, RealLongOperation 1), UserVariableOperation i), UserVariableOperation x)"},
+            {"range(10)", "CreateListOperation(UserVariableOperation tmp, ArrayOperation(UserVariableOperation tmp, RealLongOperation 0, RealLongOperation 10))"},
+            {"range(1,10)", "CreateListOperation(UserVariableOperation tmp, ArrayOperation(UserVariableOperation tmp, RealLongOperation 1, RealLongOperation 10))"},
+            {"diff(x^2,x)", "DifferentiationOperation(PowerOperation$SquareOperation(UserVariableOperation x, RealLongOperation 2), UserVariableOperation x)"},
+            {"a+b*-c", "AdditionOperation(UserVariableOperation a, MultiplicationOperation(UserVariableOperation b, NegativeOperation(UserVariableOperation c)))"},
+            {"a-b^-c", "SubtractionOperation(UserVariableOperation a, PowerOperation(UserVariableOperation b, NegativeOperation(UserVariableOperation c)))"},
+            {"a*-b+c", "AdditionOperation(MultiplicationOperation(UserVariableOperation a, NegativeOperation(UserVariableOperation b)), UserVariableOperation c)"},
+            {"x+1e-5", "AdditionOperation(UserVariableOperation x, RealDoubleOperation 1.0E-5)"}});
+    }
+
+    private final String str, expected;
+
+    public OperationParserTest(String str, String expected) {
+        this.str = str;
+        this.expected = expected;
+    }
+
+    /**
+     * Writes the classes of the tree with the printed leafs, so the expected trees don't depend on the parser
+     */
+    private static String describe(Operation op)
+    {
+        Class<?> type = op.getClass();
+        while (type.isAnonymousClass())
+        {
+            type = type.getSuperclass();
+        }
+        StringBuilder strB = new StringBuilder(type.getName().substring(type.getName().lastIndexOf('.') + 1));
+        if (op.size() == 0)
+        {
+            return strB.append(' ').append(op.toString()).toString();
+        }
+        strB.append('(');
+        for (int i = 0; i < op.size(); ++i)
+        {
+            if (i != 0)
+            {
+                strB.append(", ");
+            }
+            strB.append(describe(op.get(i)));
+        }
+        return strB.append(')').toString();
+    }
+
+    @Test
+    public void testExpectedTree() throws OperationParseException
+    {
+        assertEquals(str, expected, describe(OperationCompiler.compile(str)));
+    }
+
+    @Test
+    public void testSignAfterOperator() throws OperationParseException
+    {
+        //The former compiler read "a+b*-c" as "(a+b)*(-c)"
+        Operation a = new UserVariableOperation("a"), b = new UserVariableOperation("b"), c = new UserVariableOperation("c");
+        assertEquals(new AdditionOperation(a, new MultiplicationOperation(b, new NegativeOperation(c))), OperationCompiler.compile("a+b*-c"));
+        assertEquals(new SubtractionOperation(a, PowerOperation.getInstance(b, new NegativeOperation(c))), OperationCompiler.compile("a-b^-c"));
+        assertEquals(new AdditionOperation(new MultiplicationOperation(a, new NegativeOperation(b)), c), OperationCompiler.compile("a*-b+c"));
+        assertEquals(new MultiplicationOperation(new RealLongOperation(2), new RealLongOperation(-3)), OperationCompiler.compile("2*-3"));
+        assertEquals(OperationCompiler.compile("a+(b*(-c))"), OperationCompiler.compile("a+b*-c"));
+        assertEquals(OperationCompiler.compile("x+0.00001"), OperationCompiler.compile("x+1e-5"));
+    }
+
+    @Test
+    public void testLongInput() throws OperationParseException
+    {
+        StringBuilder strB = new StringBuilder("x");
+        for (int i = 0; i < 1000; ++i)
+        {
+            strB.append("+x*").append(i);
+        }
+        Operation op = OperationCompiler.compile(strB);
+        assertEquals(OperationCompiler.compile(op.toString()), op);
+    }
+
+    @Test
+    public void testStream() throws OperationParseException, IOException
+    {
+        Operation op = OperationCompiler.compile(str);
+        assertEquals(str, op, OperationCompiler.compile(new StringReader(str)));
+        //One character per read, so every token crosses the end of the window
+        Reader reader = new FilterReader(new StringReader(str)) {
+            @Override
+            public int read(char cbuf[], int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 1));
+            }
+        };
+        assertEquals(str, op, OperationCompiler.compile(reader, new CompileOptions()));
+        assertEquals(str, op, OperationCompiler.compile(ByteBuffer.wrap(str.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, new CompileOptions()));
+    }
+
+    @Test
+    public void testMappedFile() throws OperationParseException, IOException
+    {
+        StringBuilder strB = new StringBuilder("x²");
+        for (int i = 0; i < 5000; ++i)
+        {
+            strB.append("+π*x").append(i % 10).append("^").append(i);
+        }
+        File file = File.createTempFile("expression", ".txt");
+        try
+        {
+            try (FileOutputStream out = new FileOutputStream(file))
+            {
+                out.write(strB.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(OperationCompiler.compile(strB), OperationCompiler.compile(file, StandardCharsets.UTF_8));
+        }
+        finally
+        {
+            assertTrue(file.delete());
+        }
+    }
+}
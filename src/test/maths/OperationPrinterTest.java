@@ -0,0 +1,82 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import maths.Operation;
+import maths.Operation.Print;
+import maths.OperationCompiler;
+import maths.OperationPrinter;
+import maths.exception.OperationParseException;
+
+@RunWith(Parameterized.class)
+public class OperationPrinterTest {
+    @Parameters
+    public static List<String> params() {
+        return Arrays.asList(
+            "2*(4+5)", "2^(4+5)/42", "a+b*c", "a-b-c", "a-(b-c)", "a/(b/c)", "(a*b)^c", "a^b^c", "a;b;c", "-3", "-x", "-(a+b)", "--x", "¬a", "¬(a=b)", "1.5e300", "1/3",
+            "∞", "π", "ℯ", "ℕ", "ⅈ", "3+4*ⅈ", "true", "'c'", "\"abc\"", "\"a\\\"b\\\\c\"",
+            "f(x)", "f()", "sin(x)+cos(y)", "set(x,3)", "x→y", "{1:2,3:4}", "{1,2,3}", "{}", "{{1,2},{3,4}}",
+            "a[1]", "x²", "x⁻¹", "x^y", "x^(a+b)", "sqrt(x)", "x!", "ᵗa*b", "a∈b", "a≤b", "a≥b", "a≠b", "a˄b˅c", "a%b",
+            "sum(x^2,{x,1,10})", "if(a<b,1,2)", "diff(x^2,x)");
+    }
+
+    private final String str;
+
+    public OperationPrinterTest(String str) {
+        this.str = str;
+    }
+
+    @Test
+    public void testSameAsToString() throws OperationParseException, IOException
+    {
+        Operation op = OperationCompiler.compile(str);
+        for (Print type : Print.values())
+        {
+            String expected;
+            try
+            {
+                expected = op.toString(type);
+            }
+            catch (RuntimeException e)
+            {
+                continue;
+            }
+            StringBuilder strB = new StringBuilder();
+            op.print(type, strB);
+            assertEquals(str + ' ' + type, expected, strB.toString());
+            StringWriter writer = new StringWriter();
+            new OperationPrinter(writer, type).append('[').print(op).append(']').flush();
+            assertEquals(str + ' ' + type, '[' + expected + ']', writer.toString());
+        }
+    }
+
+    @Test
+    public void testLargeTree() throws OperationParseException, IOException
+    {
+        Random rand = new Random(0);
+        StringBuilder strB = new StringBuilder();
+        for (int i = 0; i < 200; ++i)
+        {
+            strB.append(ExpressionGenerator.createExpression(200, rand)).append(";π²;");
+        }
+        strB.append("\"äöü\"");
+        Operation op = OperationCompiler.compile(strB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new OperationPrinter(Channels.newChannel(out), StandardCharsets.UTF_8, Print.CALGRAPH).print(op).flush();
+        assertEquals(op.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,111 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import maths.FunctionRegistry;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.OperationReader;
+import maths.OperationWriter;
+import maths.exception.OperationParseException;
+import maths.functions.hyperbolic.CosinusOperation;
+import maths.functions.hyperbolic.SinusOperation;
+
+@RunWith(Parameterized.class)
+public class OperationSerializationTest {
+    @Parameters
+    public static List<String> params() {
+        return Arrays.asList(
+            "2*(4+5)", "2^(4+5)/42", "a+b*c", "a-b-c", "a;b;c", "-3", "-x", "0x1F", "-5.5", "1e5", "-9223372036854775808",
+            "∞", "π", "ℯ", "ℕ", "ⅈ", "3+4*ⅈ", "1/3", "true", "false", "'c'", "\"abc\"", "\"a\\\"b\\\\c\"",
+            "f(x)", "f()", "sin(x)+cos(y)", "set(x,3)", "x→y", "{1:2,3:4}", "{1,2,3}", "{}", "{1,{2,3}}",
+            "a[1]", "a[1][2]", "x²", "x⁻¹", "sqrt(x)", "x^0.5", "ℯ^x", "x!", "¬a", "ᵗa*b", "a∈b", "a≤b", "a≠b", "a˄b˅c", "a%b",
+            "sum(x^2,{x,1,10})", "if(a<b,1,2)", "for(0→i,i<10,i+1→i,x)", "range(10)", "diff(x^2,x)", "diff(x^3,x,2)");
+    }
+
+    private final String str;
+
+    public OperationSerializationTest(String str) {
+        this.str = str;
+    }
+
+    @Test
+    public void testRoundTrip() throws OperationParseException
+    {
+        Operation op = OperationCompiler.compile(str);
+        Operation read = OperationReader.read(OperationWriter.toByteArray(op));
+        assertEquals(str, op, read);
+        assertEquals(str, op.getClass(), read.getClass());
+        assertEquals(str, op.toString(), read.toString());
+    }
+
+    @Test
+    public void testBundle() throws OperationParseException, IOException
+    {
+        List<Operation> list = new ArrayList<>();
+        for (String expression : params())
+        {
+            list.add(OperationCompiler.compile(expression));
+        }
+        File file = File.createTempFile("bundle", ".bin");
+        try
+        {
+            try (FileOutputStream out = new FileOutputStream(file))
+            {
+                OperationWriter writer = new OperationWriter();
+                for (Operation op : list)
+                {
+                    writer.add(op);
+                }
+                writer.write(out);
+            }
+            OperationReader reader = OperationReader.map(file);
+            assertEquals(list.size(), reader.size());
+            for (int i = list.size() - 1; i >= 0; --i)
+            {
+                Operation op = reader.get(i);
+                assertEquals(list.get(i).toString(), list.get(i), op);
+                assertSame(op, reader.get(i));
+            }
+        }
+        finally
+        {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testRegisteredType() throws OperationParseException
+    {
+        //The writer takes the class from the registry and doesn't call the factory
+        final int calls[] = new int[1];
+        FunctionRegistry registry = new FunctionRegistry();
+        registry.register("sin", 1, SinusOperation.class, p -> {++calls[0]; return new SinusOperation(p[0]);});
+        registry.register("cos", 1, p -> {++calls[0]; return new CosinusOperation(p[0]);});
+        OperationWriter writer = new OperationWriter(registry);
+        writer.add(OperationCompiler.compile("sin(0)"));
+        writer.add(OperationCompiler.compile("sin(x)+cos(x)"));
+        OperationReader reader = new OperationReader(ByteBuffer.wrap(writer.toByteArray()), registry);
+        assertEquals(0, calls[0]);
+        assertEquals(OperationCompiler.compile("sin(0)"), reader.get(0));
+        assertEquals(1, calls[0]);
+        //cos has no class, so it is stored as text
+        assertEquals(OperationCompiler.compile("sin(x)+cos(x)"), reader.get(1));
+        assertEquals(2, calls[0]);
+    }
+}
@@ -0,0 +1,102 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import maths.Controller;
+import maths.Operation;
+import maths.ProgramOperation;
+import maths.data.RealLongOperation;
+import maths.data.StringOperation;
+import maths.exception.ExceptionOperation;
+import maths.variable.VariableStack;
+
+public class ProgramOperationTest {
+    private static final String PROGRAM = "0→s\n0→i\nwhile(i<10)\n  if(i%2=0)\n    s+i→s\n  else\n    s-1→s\n  endif\n  i+1→i\nendwhile\nif(s>0)\n  s*2→s\nendif\nreturn(s)";
+
+    private static Operation calculate(Operation program)
+    {
+        return program.calculate(new VariableStack(), new Controller());
+    }
+
+    @Test
+    public void testProgram()
+    {
+        assertEquals(new RealLongOperation(30), calculate(ProgramOperation.getInstance(new StringOperation(PROGRAM))));
+        assertTrue(ProgramOperation.getInstance(new StringOperation("1→a\nendif")) instanceof ExceptionOperation);
+        assertTrue(ProgramOperation.getInstance(new StringOperation("else\n1→a")) instanceof ExceptionOperation);
+    }
+
+    @Test
+    public void testInterpreter()
+    {
+        ProgramOperation.Interpreter interpreter = new ProgramOperation.Interpreter(100);
+        assertEquals(new RealLongOperation(30), calculate(interpreter.getInstance(new StringOperation(PROGRAM))));
+        long misses = interpreter.getCache().getMisses();
+        long built = interpreter.getBuiltItems();
+        String edited = PROGRAM.replace("s-1→s", "s-2→s");
+        assertEquals(new RealLongOperation(20), calculate(interpreter.getInstance(new StringOperation(edited))));
+        assertEquals(calculate(ProgramOperation.getInstance(new StringOperation(edited))), calculate(interpreter.getInstance(new StringOperation(edited))));
+        assertEquals(misses + 1, interpreter.getCache().getMisses());
+        //The if block after the loop is not changed
+        assertTrue(interpreter.getReusedItems() > 0);
+        assertTrue(interpreter.getBuiltItems() - built < built);
+    }
+
+    private static Operation calculate(String program, boolean machine, VariableStack outer)
+    {
+        boolean enabled = ProgramOperation.isMachineEnabled();
+        ProgramOperation.setMachineEnabled(machine);
+        try
+        {
+            return ProgramOperation.getInstance(new StringOperation(program)).calculate(outer, new Controller());
+        }
+        finally
+        {
+            ProgramOperation.setMachineEnabled(enabled);
+        }
+    }
+
+    @Test
+    public void testMachineSameAsInterpreter()
+    {
+        String programs[] = {
+            PROGRAM,
+            "0→s\n0→i\nwhile(i<20)\n  0→j\n  while(j<i)\n    s+i*j→s\n    j+1→j\n  endwhile\n  i+1→i\nendwhile\nreturn(s)",
+            "1→x\n0→i\nwhile(i<10)\n  x/2+1/x→x\n  i+1→i\nendwhile\nreturn(x)",
+            "0.5→x\nsin(x)^2+cos(x)^2→y\nreturn({x,y})",
+            "0→s\n0→i\nwhile(i<5)\n  s+sum(k*i,{k,1,3})→s\n  i+1→i\nendwhile\nreturn(s)",
+            "{1,2,3}→a\n5→a[1]\na→b\n7→b[2]\nreturn(a+b)",
+            "z+1→y\nreturn(y)",
+            "1→a\nif(a)\n  2→a\nendif\nreturn(a)",
+            "0→i\nwhile(i<3)\n  i+1→i\nendwhile"};
+        for (String program : programs)
+        {
+            assertEquals(program, calculate(program, false, new VariableStack()), calculate(program, true, new VariableStack()));
+        }
+    }
+
+    @Test
+    public void testMachineOuterVariables()
+    {
+        String program = "0→i\nwhile(i<n)\n  i+1→i\nendwhile\nreturn(i*k)";
+        VariableStack outer = new VariableStack();
+        outer.setLocal("n", new RealLongOperation(4));
+        outer.setLocal("k", new RealLongOperation(3));
+        assertEquals(new RealLongOperation(12), calculate(program, true, outer));
+        //The assignment changes the outer variable
+        outer.setLocal("i", new RealLongOperation(0));
+        assertEquals(new RealLongOperation(12), calculate(program, true, outer));
+        assertEquals(new RealLongOperation(4), outer.get("i").getValue());
+    }
+
+    @Test
+    public void testMachineStop()
+    {
+        Controller control = new Controller();
+        control.setStopFlag(true);
+        assertTrue(ProgramOperation.getInstance(new StringOperation("0→i\nwhile(true)\n  i+1→i\nendwhile")).calculate(new VariableStack(), control) instanceof ExceptionOperation);
+    }
+}
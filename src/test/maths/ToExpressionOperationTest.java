@@ -0,0 +1,53 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.data.RealLongOperation;
+import maths.data.StringOperation;
+import maths.exception.OperationParseException;
+import maths.functions.conversion.ToExpressionOperation;
+import maths.variable.VariableStack;
+
+public class ToExpressionOperationTest {
+    private static Operation calculate(String str) throws OperationParseException
+    {
+        return OperationCompiler.compile(str).calculate(new VariableStack(), new Controller());
+    }
+
+    @Test
+    public void testMemo() throws OperationParseException
+    {
+        ToExpressionOperation.resetCounters();
+        Operation op = new ToExpressionOperation(new StringOperation("2*21"));
+        for (int i = 0; i < 10; ++i)
+        {
+            assertEquals(new RealLongOperation(42), op.calculate(new VariableStack(), new Controller()));
+        }
+        assertEquals(1, ToExpressionOperation.getMisses() + ToExpressionOperation.getSharedHits());
+        assertEquals(9, ToExpressionOperation.getMemoHits());
+    }
+
+    @Test
+    public void testShared() throws OperationParseException
+    {
+        Operation a = calculate("compile(\"17*3+y\")"), b = calculate("compile(\"17*3+y\")");
+        assertEquals(a, b);
+        assertTrue(ToExpressionOperation.getSharedHits() > 0);
+    }
+
+    @Test
+    public void testInvalid() throws OperationParseException
+    {
+        int size = ToExpressionOperation.getSharedSize();
+        assertTrue(calculate("compile(\"1+\")").isNaN());
+        assertTrue(calculate("compile(\"1+\")").isNaN());
+        assertEquals(new RealLongOperation(7), calculate("compile(\"7\")"));
+        assertTrue(ToExpressionOperation.getSharedSize() <= size);
+    }
+}
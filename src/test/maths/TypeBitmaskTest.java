@@ -0,0 +1,66 @@
+package test.maths;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import maths.Operation;
+import maths.data.BooleanOperation;
+import maths.data.CharacterOperation;
+import maths.data.ComplexDoubleOperation;
+import maths.data.ComplexLongOperation;
+import maths.data.ComplexRationalOperation;
+import maths.data.RealDoubleOperation;
+import maths.data.RealLongOperation;
+import maths.data.RealRationalOperation;
+import maths.data.StringOperation;
+import maths.functions.atomic.AdditionOperation;
+
+@RunWith(Parameterized.class)
+public class TypeBitmaskTest {
+    @Parameters
+    public static List<Operation> params() {
+        return Arrays.asList(
+            new RealLongOperation(3), RealRationalOperation.getInstance(1, 3), new RealDoubleOperation(2.5),
+            ComplexLongOperation.get(2, 3), ComplexRationalOperation.getInstance(1, 2, 3, 4), ComplexDoubleOperation.get(1.5, -2),
+            BooleanOperation.TRUE, CharacterOperation.getInstance('a'), new StringOperation("ab"),
+            new AdditionOperation(new RealLongOperation(1), new RealLongOperation(2)));
+    }
+
+    private final Operation op;
+
+    public TypeBitmaskTest(Operation op) {
+        this.op = op;
+    }
+
+    @Test
+    public void testBitmaskMatchesTypes()
+    {
+        int expected = 0;
+        if (op.isRealIntegerNumber())     {expected |= Operation.BITMASK_INT_REAL;}
+        if (op.isRealRationalNumber())    {expected |= Operation.BITMASK_RATIONAL_REAL;}
+        if (op.isRealFloatingNumber())    {expected |= Operation.BITMASK_FLOAT_REAL;}
+        if (op.isComplexIntegerNumber())  {expected |= Operation.BITMASK_INT_COMPLEX;}
+        if (op.isComplexRationalNumber()) {expected |= Operation.BITMASK_RATIONAL_COMPLEX;}
+        if (op.isComplexFloatingNumber()) {expected |= Operation.BITMASK_FLOAT_COMPLEX;}
+        if (op.isBoolean())               {expected |= Operation.BITMASK_BOOLEAN;}
+        if (op.isCharacter())             {expected |= Operation.BITMASK_CHARACTER;}
+        if (op.isString())                {expected |= Operation.BITMASK_STRING;}
+        assertEquals(op.toString(), expected, op.getTypeBitmask());
+    }
+
+    @Test
+    public void testNumberType()
+    {
+        final byte type = Operation.getNumberType(op.getTypeBitmask());
+        assertEquals(op.toString(), op.isRealIntegerNumber(), type == Operation.NUMBER_INT_REAL);
+        assertEquals(op.toString(), op.isComplexFloatingNumber(), type != Operation.NUMBER_NONE);
+        assertEquals(op.toString(), op.isComplexFloatingNumber() && !op.isRealFloatingNumber() && !op.isComplexIntegerNumber() && !op.isComplexRationalNumber(), type == Operation.NUMBER_FLOAT_COMPLEX);
+    }
+}
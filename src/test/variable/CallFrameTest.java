@@ -0,0 +1,83 @@
+package test.variable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.data.RealLongOperation;
+import maths.exception.OperationParseException;
+import maths.variable.CallFrame;
+import maths.variable.Variable;
+import maths.variable.VariableStack;
+
+public class CallFrameTest {
+    private static Operation calculate(VariableStack stack, String expression) throws OperationParseException
+    {
+        Controller control = new Controller();
+        control.calculateLoop(true);
+        return OperationCompiler.compile(expression).calculate(stack, control);
+    }
+
+    @Test
+    public void testRecursion() throws OperationParseException
+    {
+        VariableStack stack = new VariableStack();
+        stack.add(new Variable("f", "if(n<2,n,f(n-1)+f(n-2))", new String[] {"n"}));
+        assertEquals(new RealLongOperation(55), calculate(stack, "f(10)"));
+        assertEquals(new RealLongOperation(6765), calculate(stack, "f(20)"));
+    }
+
+    @Test
+    public void testParameterHidesOuter() throws OperationParseException
+    {
+        VariableStack stack = new VariableStack();
+        stack.add(new Variable("x", 100));
+        stack.add(new Variable("y", 10));
+        stack.add(new Variable("g", "x*y+1", new String[] {"x"}));
+        stack.add(new Variable("h", "g(x+1)+g(x)", new String[] {"x"}));
+        assertEquals(new RealLongOperation(31), calculate(stack, "g(3)"));
+        assertEquals(new RealLongOperation(72), calculate(stack, "h(3)"));
+        assertEquals(new RealLongOperation(1002), calculate(stack, "g(x)+1"));
+    }
+
+    @Test
+    public void testFramesReused() throws OperationParseException
+    {
+        Variable f = new Variable("f", "n+1", new String[] {"n"});
+        VariableStack stack = new VariableStack();
+        stack.add(f);
+        CallFrame frame = f.acquireFrame(stack, new Operation[] {new RealLongOperation(4)});
+        assertEquals(new RealLongOperation(4), frame.getById(f.operand(0).id).getValue());
+        assertEquals(2, frame.size());
+        f.releaseFrame(frame);
+        assertEquals(new RealLongOperation(6), calculate(stack, "f(5)"));
+        CallFrame next = f.acquireFrame(stack, new Operation[] {new RealLongOperation(7)});
+        assertSame(frame, next);
+        assertEquals(new RealLongOperation(7), next.getById(f.operand(0).id).getValue());
+        f.releaseFrame(next);
+    }
+
+    @Test
+    public void testLocalsNotVisibleAfterCall() throws OperationParseException
+    {
+        Variable f = new Variable("f", "n+1", new String[] {"n"});
+        VariableStack stack = new VariableStack();
+        stack.add(f);
+        CallFrame frame = f.acquireFrame(stack, new Operation[] {new RealLongOperation(4)});
+        frame.setLocal("z", new RealLongOperation(2));
+        frame.setLocal("n", new RealLongOperation(3));
+        assertEquals(new RealLongOperation(2), frame.get("z").getValue());
+        assertEquals(new RealLongOperation(3), frame.get("n").getValue());
+        assertNull(stack.get("z"));
+        assertNull(stack.get("n"));
+        f.releaseFrame(frame);
+        frame = f.acquireFrame(stack, new Operation[] {new RealLongOperation(4)});
+        assertNull(frame.get("z"));
+        f.releaseFrame(frame);
+    }
+}
@@ -0,0 +1,148 @@
+package test.variable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.exception.ExceptionOperation;
+import maths.exception.OperationParseException;
+import maths.variable.DependencyGraph;
+import maths.variable.Variable;
+import maths.variable.VariableStack;
+
+public class DependencyGraphTest {
+    private static VariableStack createVariables(String ... definitions) throws OperationParseException
+    {
+        VariableStack stack = new VariableStack();
+        for (int i = 0; i < definitions.length; i += 2)
+        {
+            stack.add(new Variable(definitions[i], OperationCompiler.compile(definitions[i + 1])));
+        }
+        return stack;
+    }
+
+    @Test
+    public void testOnlyDependentsRecalculated() throws OperationParseException
+    {
+        VariableStack stack = createVariables("a", "1", "b", "a*2", "c", "b+a", "d", "5", "e", "d^2");
+        DependencyGraph graph = new DependencyGraph(stack, new Controller());
+        assertEquals(3, graph.get("c").longValue());
+        assertEquals(25, graph.get("e").longValue());
+        int count = graph.getCalculationCount();
+        stack.get("a").setValue(2);
+        assertEquals(25, graph.get("e").longValue());
+        assertEquals(count, graph.getCalculationCount());
+        assertEquals(6, graph.get("c").longValue());
+        assertEquals(count + 3, graph.getCalculationCount());
+        stack.get("b").setValue(OperationCompiler.compile("d*2"));
+        assertEquals(12, graph.get("c").longValue());
+        stack.get("d").setValue(1);
+        assertEquals(4, graph.get("c").longValue());
+    }
+
+    @Test
+    public void testUpdateSameAsCalculate() throws OperationParseException
+    {
+        List<String> definitions = new ArrayList<String>();
+        definitions.add("v0");
+        definitions.add("3");
+        for (int i = 1; i < 100; ++i)
+        {
+            definitions.add("v" + i);
+            definitions.add("v" + (i / 2) + "*2+v" + (i - 1) + "/7+" + i);
+        }
+        VariableStack stack = createVariables(definitions.toArray(new String[definitions.size()]));
+        int threshold = DependencyGraph.getParallelThreshold();
+        DependencyGraph.setParallelThreshold(1);
+        try
+        {
+            DependencyGraph graph = new DependencyGraph(stack, new Controller());
+            graph.get("v99");
+            stack.get("v0").setValue(OperationCompiler.compile("5/3"));
+            graph.update();
+            int count = graph.getCalculationCount();
+            for (int i = 0; i < 100; ++i)
+            {
+                Operation expected = stack.get("v" + i).calculate(stack, new Controller());
+                assertEquals("v" + i, expected.doubleValue(), graph.get("v" + i).doubleValue(), Math.abs(expected.doubleValue()) * 1e-14);
+            }
+            assertEquals(count, graph.getCalculationCount());
+        }
+        finally
+        {
+            DependencyGraph.setParallelThreshold(threshold);
+        }
+    }
+
+    @Test
+    public void testCycle() throws OperationParseException
+    {
+        VariableStack stack = createVariables("x", "y+1", "y", "x*2", "z", "x+1", "w", "2");
+        DependencyGraph graph = new DependencyGraph(stack, new Controller());
+        assertTrue(graph.get("z") instanceof ExceptionOperation);
+        assertEquals(2, graph.get("w").longValue());
+        graph.update();
+        stack.get("y").setValue(OperationCompiler.compile("w"));
+        assertEquals(4, graph.get("z").longValue());
+    }
+
+    @Test
+    public void testCoalesced() throws OperationParseException
+    {
+        VariableStack stack = createVariables("a", "1", "b", "a+1");
+        final List<Runnable> scheduled = new ArrayList<Runnable>();
+        DependencyGraph graph = new DependencyGraph(stack, new Controller());
+        graph.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {scheduled.add(command);}
+        });
+        graph.get("b");
+        int count = graph.getCalculationCount();
+        for (int i = 0; i < 10; ++i)
+        {
+            stack.get("a").setValue(i);
+        }
+        assertEquals(1, scheduled.size());
+        scheduled.get(0).run();
+        assertEquals(count + 2, graph.getCalculationCount());
+        assertEquals(10, graph.get("b").longValue());
+    }
+
+    @Test
+    public void testReplacedVariable() throws OperationParseException
+    {
+        VariableStack stack = createVariables("a", "1", "b", "a+1");
+        DependencyGraph graph = new DependencyGraph(stack, new Controller());
+        assertEquals(2, graph.get("b").longValue());
+        stack.replaceAddGlobal(new Variable("a", OperationCompiler.compile("4")));
+        assertEquals(5, graph.get("b").longValue());
+        stack.get("a").setValue(7);
+        assertEquals(8, graph.get("b").longValue());
+    }
+
+    @Test
+    public void testFunctions() throws OperationParseException
+    {
+        VariableStack stack = createVariables("k", "3", "b", "f(2)", "c", "g(5)");
+        stack.add(new Variable("f", "x*k", new String[] {"x"}));
+        stack.add(new Variable("g", "if(x<1,0,g(x-1)+k)", new String[] {"x"}));
+        DependencyGraph graph = new DependencyGraph(stack, new Controller());
+        assertEquals(6, graph.get("b").longValue());
+        assertEquals(15, graph.get("c").longValue());
+        stack.get("k").setValue(10);
+        graph.update();
+        assertEquals(20, graph.get("b").longValue());
+        assertEquals(50, graph.get("c").longValue());
+        stack.get("f").setValue(OperationCompiler.compile("x+k"));
+        assertEquals(12, graph.get("b").longValue());
+        assertEquals(50, graph.get("c").longValue());
+    }
+}
@@ -0,0 +1,101 @@
+package test.variable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import maths.Controller;
+import maths.Operation;
+import maths.OperationCompiler;
+import maths.data.RealDoubleOperation;
+import maths.data.RealLongOperation;
+import maths.exception.OperationParseException;
+import maths.variable.FunctionMemo;
+import maths.variable.Variable;
+import maths.variable.VariableStack;
+
+public class FunctionMemoTest {
+    private static Operation calculate(VariableStack stack, String expression) throws OperationParseException
+    {
+        Controller control = new Controller();
+        control.calculateLoop(true);
+        return OperationCompiler.compile(expression).calculate(stack, control);
+    }
+
+    @Test
+    public void testRecursionLinear() throws OperationParseException
+    {
+        Variable fib = new Variable("fib", "if(n<2,n,fib(n-1)+fib(n-2))", new String[] {"n"});
+        fib.setMemoCapacity(1000);
+        VariableStack stack = new VariableStack();
+        stack.add(fib);
+        assertEquals(new RealLongOperation(2880067194370816120L), calculate(stack, "fib(90)"));
+        FunctionMemo memo = fib.getMemo();
+        assertEquals(91, memo.size());
+        assertEquals(91, memo.getMissCount());
+        assertEquals(88, memo.getHitCount());
+        assertEquals(new RealLongOperation(55), calculate(stack, "fib(10)"));
+        assertEquals(89, memo.getHitCount());
+    }
+
+    @Test
+    public void testInvalidatedByDefinition() throws OperationParseException
+    {
+        Variable f = new Variable("f", "n*2", new String[] {"n"});
+        f.setMemoCapacity(10);
+        VariableStack stack = new VariableStack();
+        stack.add(f);
+        assertEquals(new RealLongOperation(6), calculate(stack, "f(3)"));
+        assertEquals(1, f.getMemo().size());
+        f.setValue(OperationCompiler.compile("n*3"));
+        assertEquals(0, f.getMemo().size());
+        assertEquals(new RealLongOperation(9), calculate(stack, "f(3)"));
+        assertEquals(new RealDoubleOperation(4.5), calculate(stack, "f(1.5)"));
+        assertEquals(2, f.getMemo().size());
+    }
+
+    @Test
+    public void testImpureNotStored() throws OperationParseException
+    {
+        VariableStack stack = new VariableStack();
+        stack.add(new Variable("a", 2));
+        Variable global = new Variable("g", "n*a", new String[] {"n"});
+        Variable random = new Variable("r", "n+rand()", new String[] {"n"});
+        global.setMemoCapacity(10);
+        random.setMemoCapacity(10);
+        stack.add(global);
+        stack.add(random);
+        assertEquals(new RealLongOperation(6), calculate(stack, "g(3)"));
+        stack.get("a").setValue(5);
+        assertEquals(new RealLongOperation(15), calculate(stack, "g(3)"));
+        assertTrue(!calculate(stack, "r(1)").equals(calculate(stack, "r(1)")));
+        assertEquals(0, global.getMemo().size());
+        assertEquals(0, random.getMemo().size());
+        assertEquals(0, random.getMemo().getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedRemoved() throws OperationParseException
+    {
+        Variable f = new Variable("f", "n+1", new String[] {"n"});
+        f.setMemoCapacity(3);
+        VariableStack stack = new VariableStack();
+        stack.add(f);
+        for (int i = 0; i < 10; ++i)
+        {
+            calculate(stack, "f(" + i + ")");
+        }
+        calculate(stack, "f(7)");
+        calculate(stack, "f(10)");
+        assertEquals(3, f.getMemo().size());
+        long hits = f.getMemo().getHitCount();
+        calculate(stack, "f(7)");
+        assertEquals(hits + 1, f.getMemo().getHitCount());
+        calculate(stack, "f(8)");
+        assertEquals(hits + 1, f.getMemo().getHitCount());
+        f.setMemoCapacity(0);
+        assertNull(f.getMemo());
+    }
+}